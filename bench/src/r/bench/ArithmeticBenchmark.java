@@ -0,0 +1,151 @@
+package r.bench;
+
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import r.data.*;
+import r.data.internal.IntImpl.RIntSequence;
+import r.data.internal.IntImpl.RIntSimpleRange;
+import r.nodes.exec.Arithmetic;
+import r.nodes.exec.Arithmetic.ValueArithmetic;
+import r.nodes.exec.Arithmetic.VectorArithmetic;
+import r.nodes.exec.ParallelArithmetic;
+
+/**
+ * Vector arithmetic through the lazy (view-building) and the eager (tight loop) strategies. Each benchmark builds the
+ * result the way the Arithmetic node would and then materializes it, so that lazy views are charged for the
+ * computation they defer. The view shapes are those selected in LazyVectorArithmetic (EqualSizeVectorVector,
+ * VectorScalar, ScalarVector, the sequence and simple range variants, IntViewForIntInt variants).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Duser.language=en"})
+public class ArithmeticBenchmark {
+
+    @Param({"LAZY", "EAGER"}) public String strategy;
+    @Param({"ADD", "MULT", "DIV"}) public String op;
+    @Param({"100", "10000", "1000000"}) public int size;
+    @Param({"0"}) public int parallelThreshold; // e.g. -p parallelThreshold=100000 to split large vectors across threads
+
+    VectorArithmetic vectorArit;
+    ValueArithmetic arit;
+
+    RDouble da;
+    RDouble db;
+    RDouble dscalar;
+    RInt ia;
+    RInt ib;
+    RInt iscalar;
+    RInt range;
+    RInt sequence;
+
+    @Setup
+    public void setup() {
+        vectorArit = "EAGER".equals(strategy) ? Arithmetic.EAGER_VECTOR : Arithmetic.LAZY_VECTOR;
+        ParallelArithmetic.configure(parallelThreshold, ParallelArithmetic.parallelism());
+        switch (op) {
+            case "ADD": arit = Arithmetic.ADD; break;
+            case "MULT": arit = Arithmetic.MULT; break;
+            case "DIV": arit = Arithmetic.DIV; break;
+            default: throw new IllegalArgumentException("unsupported operation " + op);
+        }
+        double[] dac = new double[size];
+        double[] dbc = new double[size];
+        int[] iac = new int[size];
+        int[] ibc = new int[size];
+        for (int i = 0; i < size; i++) {
+            dac[i] = i * 0.5 + 1;
+            dbc[i] = (size - i) * 0.25 + 1;
+            iac[i] = i % 1000 + 1;
+            ibc[i] = (size - i) % 1000 + 1;
+        }
+        da = RDouble.RDoubleFactory.getFor(dac);
+        db = RDouble.RDoubleFactory.getFor(dbc);
+        dscalar = RDouble.RDoubleFactory.getScalar(3.5);
+        ia = RInt.RIntFactory.getFor(iac);
+        ib = RInt.RIntFactory.getFor(ibc);
+        iscalar = RInt.RIntFactory.getScalar(3);
+        range = new RIntSimpleRange(size);
+        sequence = new RIntSequence(1, 2 * size - 1, 2);
+
+        // keep the inputs from being updated in place
+        da.ref(); da.ref();
+        db.ref(); db.ref();
+        ia.ref(); ia.ref();
+        ib.ref(); ib.ref();
+    }
+
+    @Benchmark
+    public RDouble doubleEqualSizeVectorVector() {
+        return vectorArit.doubleBinary(da, db, arit, null).materialize();
+    }
+
+    @Benchmark
+    public RDouble doubleVectorScalar() {
+        return vectorArit.doubleBinary(da, dscalar, arit, null).materialize();
+    }
+
+    @Benchmark
+    public RDouble doubleScalarVector() {
+        return vectorArit.doubleBinary(dscalar, da, arit, null).materialize();
+    }
+
+    @Benchmark
+    public RDouble doubleVectorSimpleRange() {
+        return vectorArit.doubleBinary(da, range, arit, null).materialize();
+    }
+
+    @Benchmark
+    public RDouble doubleVectorSequence() {
+        return vectorArit.doubleBinary(da, sequence, arit, null).materialize();
+    }
+
+    @Benchmark
+    public RDouble doubleChain() { // a * b + a - c, a three-level view tree when lazy
+        RDouble t1 = vectorArit.doubleBinary(da, db, Arithmetic.MULT, null);
+        RDouble t2 = vectorArit.doubleBinary(t1, da, arit, null);
+        return vectorArit.doubleBinary(t2, dscalar, Arithmetic.SUB, null).materialize();
+    }
+
+    @Benchmark
+    public RDouble doubleSumOfProducts() { // a * b + b * a - c, both children of the addition are views when lazy
+        RDouble t1 = vectorArit.doubleBinary(da, db, Arithmetic.MULT, null);
+        RDouble t2 = vectorArit.doubleBinary(db, da, Arithmetic.MULT, null);
+        RDouble t3 = vectorArit.doubleBinary(t1, t2, arit, null);
+        return vectorArit.doubleBinary(t3, dscalar, Arithmetic.SUB, null).materialize();
+    }
+
+    @Benchmark
+    public double doubleElementReads() { // the cost of re-reading a view element by element
+        RDouble res = vectorArit.doubleBinary(da, db, arit, null);
+        double sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += res.getDouble(i);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public RInt intEqualSize() {
+        return vectorArit.intBinary(ia, ib, Arithmetic.ADD, null).materialize();
+    }
+
+    @Benchmark
+    public RInt intVectorScalar() {
+        return vectorArit.intBinary(ia, iscalar, Arithmetic.MULT, null).materialize();
+    }
+
+    @Benchmark
+    public RInt intVectorSimpleRange() {
+        return vectorArit.intBinary(ia, range, Arithmetic.ADD, null).materialize();
+    }
+
+    @Benchmark
+    public RInt intSequenceScalar() {
+        return vectorArit.intBinary(sequence, iscalar, Arithmetic.ADD, null).materialize();
+    }
+}
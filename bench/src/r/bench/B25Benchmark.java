@@ -0,0 +1,40 @@
+package r.bench;
+
+import java.io.*;
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import r.data.*;
+
+/**
+ * End-to-end runs of the Benchmark 25 suite, using the perfres variants which force evaluation of lazy results by
+ * printing a summary. The parameter is the number of runs passed to the script.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Duser.language=en"})
+public class B25Benchmark extends ScriptBenchmark {
+
+    @Param({
+        "matcal-1", "matcal-2", "matcal-3", "matcal-4", "matcal-5",
+        "matfunc-1", "matfunc-2", "matfunc-3", "matfunc-4", "matfunc-5",
+        "prog-1", "prog-2", "prog-3", "prog-4", "prog-5",
+    })
+    public String script;
+
+    @Param({"1"}) public int runs;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        prepare(scriptPath("test", "r", "benchmark25", "perfres", "b25-" + script + ".r"), Integer.toString(runs));
+    }
+
+    @Benchmark
+    public RAny b25() {
+        return run();
+    }
+}
@@ -0,0 +1,19 @@
+package r.bench;
+
+import java.util.*;
+
+/**
+ * Entry point of benchmarks.jar. Same as the JMH main, but enables the GC profiler (allocation rate and normalized
+ * allocation per operation) unless a profiler has been requested on the command line.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        List<String> jmhArgs = new ArrayList<>(Arrays.asList(args));
+        if (!jmhArgs.contains("-prof") && !jmhArgs.contains("-h") && !jmhArgs.contains("-l")) {
+            jmhArgs.add(0, "-prof");
+            jmhArgs.add(1, "gc");
+        }
+        org.openjdk.jmh.Main.main(jmhArgs.toArray(new String[jmhArgs.size()]));
+    }
+}
@@ -0,0 +1,63 @@
+package r.bench;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import r.data.*;
+import r.nodes.exec.MatrixOperation.MatrixProduct;
+
+/**
+ * Matrix multiplication kernels behind %*%. The native variant uses whatever BLAS netlib-java resolved to, see the
+ * "Using BLAS" line printed by the console.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Duser.language=en"})
+public class MatrixProductBenchmark {
+
+    @Param({"32", "256", "1024"}) public int n;
+
+    RDouble a;
+    RDouble b;
+    RDouble v;
+    double[] acontent;
+    double[] bcontent;
+
+    @Setup
+    public void setup() {
+        acontent = new double[n * n];
+        bcontent = new double[n * n];
+        for (int i = 0; i < n * n; i++) {
+            acontent[i] = (i % 97) / 97.0;
+            bcontent[i] = (i % 89) / 89.0 - 0.5;
+        }
+        a = RDouble.RDoubleFactory.getMatrixFor(acontent, n, n);
+        b = RDouble.RDoubleFactory.getMatrixFor(bcontent, n, n);
+        v = RDouble.RDoubleFactory.getFor(Arrays.copyOf(bcontent, n));
+    }
+
+    @Benchmark
+    public RDouble matrixTimesMatrix() {
+        return MatrixProduct.matrixTimesMatrix(null, a, b);
+    }
+
+    @Benchmark
+    public double[] matrixTimesMatrixPrimitive() {
+        return MatrixProduct.matrixTimesMatrixPrimitive(acontent, bcontent, n, n, n);
+    }
+
+    @Benchmark
+    public double[] matrixTimesMatrixGetters() {
+        return MatrixProduct.matrixTimesMatrixGetters(a, b, n, n, n);
+    }
+
+    @Benchmark
+    public RDouble matrixTimesVector() {
+        return MatrixProduct.matrixTimesVector(null, a, v);
+    }
+}
@@ -0,0 +1,93 @@
+package r.bench;
+
+import java.io.*;
+
+import org.antlr.runtime.*;
+import org.openjdk.jmh.annotations.*;
+
+import r.*;
+import r.Console;
+import r.data.*;
+import r.nodes.ast.*;
+
+/**
+ * Common state for end-to-end runs of R scripts. A script is parsed once per trial and evaluated once per benchmark
+ * invocation, with its standard output discarded. Paths are relative to the repository root, which can be changed
+ * using the fastr.home system property.
+ */
+public abstract class ScriptBenchmark {
+
+    public static final String HOME = System.getProperty("fastr.home", ".");
+
+    ASTNode tree;
+    PrintStream savedOut;
+
+    public static String scriptPath(String... parts) {
+        StringBuilder path = new StringBuilder(HOME);
+        for (String p : parts) {
+            path.append(File.separator).append(p);
+        }
+        return path.toString();
+    }
+
+    protected void prepare(String file, String... args) throws IOException {
+        String[] cargs = new String[args.length + 1];
+        cargs[0] = "--args";
+        System.arraycopy(args, 0, cargs, 1, args.length);
+        Console.storeCommandLineArguments(cargs);
+
+        tree = RContext.parseFile(new ANTLRFileStream(file));
+        if (tree == null) {
+            throw new IOException("Cannot parse " + file);
+        }
+        savedOut = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        }));
+    }
+
+    protected RAny run() {
+        return RContext.eval(tree, false);
+    }
+
+    @TearDown(Level.Iteration)
+    public void resetSymbols() {
+        RSymbol.resetTable(); // scripts may have overwritten builtins
+    }
+
+    @TearDown(Level.Trial)
+    public void restoreOutput() {
+        if (savedOut != null) {
+            System.setOut(savedOut);
+        }
+    }
+
+    /**
+     * Writes the output of fastaredux of the given size into a temporary file, for the shootouts that take a FASTA
+     * file on input.
+     */
+    public static String generateFastaInput(int size) throws IOException {
+        File f = File.createTempFile("fastr-bench-fasta", ".txt");
+        f.deleteOnExit();
+
+        Console.storeCommandLineArguments(new String[]{"--args", Integer.toString(size)});
+        ASTNode fasta = RContext.parseFile(new ANTLRFileStream(scriptPath("test", "r", "shootout", "fastaredux", "fastaredux.r")));
+        PrintStream oldOut = System.out;
+        PrintStream out = new PrintStream(new FileOutputStream(f));
+        System.setOut(out);
+        try {
+            RContext.eval(fasta, false);
+        } finally {
+            System.setOut(oldOut);
+            out.close();
+            RSymbol.resetTable();
+        }
+        return f.getPath();
+    }
+}
@@ -0,0 +1,52 @@
+package r.bench;
+
+import java.io.*;
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import r.data.*;
+
+/**
+ * End-to-end runs of the shootout benchmarks in test/r/shootout. A parameter has the form "dir/file:size"; for
+ * knucleotide, regexdna and reversecomplement the size is that of the generated FASTA input.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 2, jvmArgsAppend = {"-Duser.language=en"})
+public class ShootoutBenchmark extends ScriptBenchmark {
+
+    @Param({
+        "binarytrees/binarytrees:12",
+        "fannkuch/fannkuchredux:9",
+        "fasta/fasta:100000",
+        "fastaredux/fastaredux:100000",
+        "knucleotide/knucleotide:50000",
+        "mandelbrot/mandelbrot-noout:400",
+        "nbody/nbody:50000",
+        "pidigits/pidigits:200",
+        "regexdna/regexdna:50000",
+        "reversecomplement/reversecomplement:50000",
+        "spectralnorm/spectralnorm:200",
+    })
+    public String script;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        int colon = script.lastIndexOf(':');
+        String name = script.substring(0, colon);
+        String size = script.substring(colon + 1);
+        if (name.startsWith("knucleotide/") || name.startsWith("regexdna/") || name.startsWith("reversecomplement/")) {
+            size = generateFastaInput(Integer.parseInt(size));
+        }
+        prepare(scriptPath("test", "r", "shootout", name + ".r"), size);
+    }
+
+    @Benchmark
+    public RAny shootout() {
+        return run();
+    }
+}
@@ -14,6 +14,9 @@ import r.data.*;
 import r.data.internal.*;
 import r.errors.*;
 import r.nodes.ast.*;
+import r.nodes.exec.Arithmetic;
+import r.nodes.exec.ParallelArithmetic;
+import r.nodes.exec.Profiler;
 import r.nodes.tools.*;
 import r.parser.*;
 
@@ -34,6 +37,7 @@ public class Console {
     static boolean interactive;
     static boolean forceVisible;
     static boolean debuggingFormat;
+    static String profileFile;
 
     static Option[] options = new Option[]{
             //
@@ -62,6 +66,30 @@ public class Console {
                     forceVisible = true;
                 }
             }, //
+            new Option("--arith-policy", "Vector arithmetic: 'lazy', 'eager' or 'adaptive' (default)", 1) {
+
+                @Override protected void processOption(String name, String[] opts) {
+                    Arithmetic.setVectorPolicy(Arithmetic.VectorPolicy.fromString(opts[0]), Arithmetic.maxViewDepth());
+                }
+            }, //
+            new Option("--max-view-depth", "Materialize lazy arithmetic deeper than this (0 for unlimited)", 1) {
+
+                @Override protected void processOption(String name, String[] opts) {
+                    Arithmetic.setVectorPolicy(Arithmetic.vectorPolicy(), Integer.parseInt(opts[0]));
+                }
+            }, //
+            new Option("--parallel-threshold", "Split element-wise operations on vectors of this size across threads (0 to disable)", 1) {
+
+                @Override protected void processOption(String name, String[] opts) {
+                    ParallelArithmetic.configure(Integer.parseInt(opts[0]), ParallelArithmetic.parallelism());
+                }
+            }, //
+            new Option("--profile", "Write a profile of the R code (time and allocation by function and line, see Rprof) to this file", 1) {
+
+                @Override protected void processOption(String name, String[] opts) {
+                    profileFile = opts[0];
+                }
+            }, //
             new Option("--waitForKey", "Wait for 'ENTER' before starting execution") {
 
                 @Override protected void processOption(String name, String[] opts) {
@@ -122,6 +150,9 @@ public class Console {
         }
         long before = System.nanoTime();
         try {
+            if (profileFile != null) {
+                Profiler.start(profileFile, false, Profiler.DEFAULT_INTERVAL, true, true);
+            }
             RContext.debuggingFormat(debuggingFormat);
             if (interactive || inputFile == null) {
                 System.err.println("Using LAPACK: " + LAPACK.getInstance().getClass().getName());
@@ -151,6 +182,16 @@ public class Console {
                 processFile(openANTLRStream(inputFile));
             }
         } catch (IOException e) {}
+        if (profileFile != null) {
+            try {
+                long samples = Profiler.stop();
+                if (samples >= 0) {
+                    System.err.println("Profile: " + samples + " samples written to " + profileFile);
+                }
+            } catch (IOException e) {
+                System.err.println("Cannot write profile to " + profileFile + ": " + e);
+            }
+        }
         long after = System.nanoTime();
         long elapsed = after - before;
         System.err.println("\n" + (inputFile == null ? "(stdin)" : inputFile) + ": Elapsed " + (elapsed / 1000000L) + " microseconds");
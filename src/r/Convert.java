@@ -435,22 +435,20 @@ public class Convert {
         }
     }
 
-    public static final ConversionStatus globalConversionStatus = new ConversionStatus();
-
-    public static RString coerceToStringError(RAny arg, ASTNode ast) { // WARNING: non-reentrant
-        globalConversionStatus.naIntroduced = false;
-        RString res = arg.asString(globalConversionStatus);
-        if (!globalConversionStatus.naIntroduced) {
+    public static RString coerceToStringError(RAny arg, ASTNode ast) {
+        ConversionStatus status = new ConversionStatus();
+        RString res = arg.asString(status);
+        if (!status.naIntroduced) {
             return res;
         } else {
             throw RError.getCannotCoerce(ast, arg.typeOf(), RString.TYPE_STRING);
         }
     }
 
-    public static RString coerceToStringWarning(RAny arg, ASTNode ast) { // WARNING: non-reentrant
-        globalConversionStatus.naIntroduced = false;
-        RString res = arg.asString(globalConversionStatus);
-        if (!globalConversionStatus.naIntroduced) {
+    public static RString coerceToStringWarning(RAny arg, ASTNode ast) {
+        ConversionStatus status = new ConversionStatus();
+        RString res = arg.asString(status);
+        if (!status.naIntroduced) {
             return res;
         } else {
             RContext.warning(ast, RError.NA_INTRODUCED_COERCION);
@@ -458,10 +456,10 @@ public class Convert {
         }
     }
 
-    public static RComplex coerceToComplexWarning(RAny arg, ASTNode ast) { // WARNING: non-reentrant
-        globalConversionStatus.naIntroduced = false;
-        RComplex res = arg.asComplex(globalConversionStatus);
-        if (!globalConversionStatus.naIntroduced) {
+    public static RComplex coerceToComplexWarning(RAny arg, ASTNode ast) {
+        ConversionStatus status = new ConversionStatus();
+        RComplex res = arg.asComplex(status);
+        if (!status.naIntroduced) {
             return res;
         } else {
             RContext.warning(ast, RError.NA_INTRODUCED_COERCION);
@@ -470,10 +468,10 @@ public class Convert {
     }
 
 
-    public static RDouble coerceToDoubleWarning(RAny arg, ASTNode ast) { // WARNING: non-reentrant
-        globalConversionStatus.naIntroduced = false;
-        RDouble res = arg.asDouble(globalConversionStatus);
-        if (!globalConversionStatus.naIntroduced) {
+    public static RDouble coerceToDoubleWarning(RAny arg, ASTNode ast) {
+        ConversionStatus status = new ConversionStatus();
+        RDouble res = arg.asDouble(status);
+        if (!status.naIntroduced) {
             return res;
         } else {
             RContext.warning(ast, RError.NA_INTRODUCED_COERCION);
@@ -481,20 +479,20 @@ public class Convert {
         }
     }
 
-    public static RDouble coerceToDoubleError(RAny arg, ASTNode ast) { // WARNING: non-reentrant
-        globalConversionStatus.naIntroduced = false;
-        RDouble res = arg.asDouble(globalConversionStatus);
-        if (!globalConversionStatus.naIntroduced) {
+    public static RDouble coerceToDoubleError(RAny arg, ASTNode ast) {
+        ConversionStatus status = new ConversionStatus();
+        RDouble res = arg.asDouble(status);
+        if (!status.naIntroduced) {
             return res;
         } else {
             throw RError.getCannotCoerce(ast, arg.typeOf(), RDouble.TYPE_STRING);
         }
     }
 
-    public static RInt coerceToIntWarning(RAny arg, ASTNode ast) { // WARNING: non-reentrant
-        globalConversionStatus.naIntroduced = false;
-        RInt res = arg.asInt(globalConversionStatus);
-        if (!globalConversionStatus.naIntroduced) {
+    public static RInt coerceToIntWarning(RAny arg, ASTNode ast) {
+        ConversionStatus status = new ConversionStatus();
+        RInt res = arg.asInt(status);
+        if (!status.naIntroduced) {
             return res;
         } else {
             RContext.warning(ast, RError.NA_INTRODUCED_COERCION);
@@ -502,12 +500,11 @@ public class Convert {
         }
     }
 
-    public static RRaw coerceToRawWarning(RAny arg, ASTNode ast) { // WARNING: non-reentrant
-        globalConversionStatus.naIntroduced = false;
-        globalConversionStatus.outOfRange = false;
-        RRaw res = arg.asRaw(globalConversionStatus);
-        if (!globalConversionStatus.naIntroduced) {
-            if (!globalConversionStatus.outOfRange) {
+    public static RRaw coerceToRawWarning(RAny arg, ASTNode ast) {
+        ConversionStatus status = new ConversionStatus();
+        RRaw res = arg.asRaw(status);
+        if (!status.naIntroduced) {
+            if (!status.outOfRange) {
                 // nothing
             } else {
                 RContext.warning(ast, RError.OUT_OF_RANGE);
@@ -1,6 +1,8 @@
 package r;
 
+import java.io.*;
 import java.util.*;
+import java.util.concurrent.atomic.*;
 
 import org.antlr.runtime.*;
 
@@ -21,26 +23,121 @@ public class RContext {
     public static final String SYSTEM_LIBS_LIBRARY_NAME = "systemlibsglue";
     public static final String MKL_LIBRARY_NAME = "mklglue";
 
-    private static boolean debuggingFormat = false;
-    private static ManageError errorManager = new ManageError(System.err);
-    private static BuildExecutableTree executableTreeBuilder = new BuildExecutableTree();
+    // the builder has state while building a tree, and trees are built lazily by any thread executing them
+    private static final ThreadLocal<BuildExecutableTree> executableTreeBuilder = new ThreadLocal<BuildExecutableTree>() {
+        @Override
+        protected BuildExecutableTree initialValue() {
+            return new BuildExecutableTree();
+        }
+    };
     private static final int NCONNECTIONS = 128;
-    private static final Connection[] connections = new Connection[NCONNECTIONS];
 
-    static {
-        Arrays.fill(connections, null);
+    // The state of an R session: the top-level variables, warnings and errors, connections and output format. Scripts
+    // evaluated in different contexts are independent and can run concurrently, each context being used by one thread
+    // at a time (and by the worker threads it starts). The primary context is used by threads that have not entered any
+    // other; as long as there is no other context, the top-level variables are read without looking up the context.
+
+    private static final RContext primary = new RContext(new ManageError(null));
+    private static final ThreadLocal<RContext> current = new ThreadLocal<>();
+    private static volatile boolean multipleContexts = false;
+
+    private boolean debuggingFormat = false;
+    private double boxMullerKeep; // the second deviate of the last Box-Muller pair, see r.builtins.internal.Random
+    private final AtomicInteger unrefSuspended = new AtomicInteger(); // see r.data.internal.NonScalarArrayImpl.suspendUnref
+    private final ManageError errorManager;
+    private final Connection[] connections = new Connection[NCONNECTIONS];
+    private volatile RSymbol.Binding[] bindings = new RSymbol.Binding[0]; // top-level variables, by symbol id (not used by primary)
+
+    private RContext(ManageError errorManager) {
+        this.errorManager = errorManager;
+    }
+
+    /** Creates a new context, which reports warnings and errors to the given stream (System.err if null). */
+    public static RContext createContext(PrintStream errorStream) {
+        RContext context = new RContext(new ManageError(errorStream));
+        multipleContexts = true;
+        RContext previous = enter(context);
+        try {
+            RSymbol.resetTable();
+        } finally {
+            enter(previous);
+        }
+        return context;
+    }
+
+    public static RContext current() {
+        if (!multipleContexts) {
+            return primary;
+        }
+        RContext context = current.get();
+        return context != null ? context : primary;
+    }
+
+    public static boolean isPrimary(RContext context) {
+        return context == primary;
+    }
+
+    public static boolean hasMultipleContexts() {
+        return multipleContexts;
+    }
+
+    /** Makes the context current for this thread, returns the previously current context. */
+    public static RContext enter(RContext context) {
+        RContext previous = current();
+        current.set(context);
+        return previous;
+    }
+
+    public RSymbol.Binding binding(RSymbol symbol) {
+        RSymbol.Binding[] b = bindings;
+        int i = symbol.bindingIndex();
+        if (i < b.length) {
+            RSymbol.Binding res = b[i];
+            if (res != null) {
+                return res;
+            }
+        }
+        return createBinding(i);
+    }
+
+    private synchronized RSymbol.Binding createBinding(int i) {
+        RSymbol.Binding[] b = bindings;
+        if (i >= b.length) {
+            b = Arrays.copyOf(b, Math.max(i + 1, 2 * b.length));
+        }
+        RSymbol.Binding res = b[i];
+        if (res == null) {
+            res = new RSymbol.Binding();
+            b[i] = res;
+        }
+        bindings = b;
+        return res;
     }
 
     public static boolean debuggingFormat() {
-        return debuggingFormat;
+        return current().debuggingFormat;
     }
 
     public static boolean debuggingFormat(boolean useDebuggingFormat) {
-        boolean previous = debuggingFormat;
-        debuggingFormat = useDebuggingFormat;
+        RContext context = current();
+        boolean previous = context.debuggingFormat;
+        context.debuggingFormat = useDebuggingFormat;
         return previous;
     }
 
+    public static double boxMullerKeep() {
+        return current().boxMullerKeep;
+    }
+
+    public static void setBoxMullerKeep(double value) {
+        current().boxMullerKeep = value;
+    }
+
+    /** The counter of unref() suspensions of this context, which are in effect for its threads (and its worker threads). */
+    public static AtomicInteger unrefSuspended() {
+        return current().unrefSuspended;
+    }
+
     public static RAny eval(ASTNode expr, boolean useDebuggingFormat) {
         debuggingFormat(useDebuggingFormat);
         return eval(expr);
@@ -51,7 +148,7 @@ public class RContext {
 
     public static RAny eval(ASTNode expr) {
         try {
-            return (RAny) executableTreeBuilder.createLazyRootTree(expr).execute(null); // null means top-level
+            return (RAny) executableTreeBuilder.get().createLazyRootTree(expr).execute(null); // null means top-level
         } catch (RError e) {
             if (DEBUG) {
                 e.printStackTrace();
@@ -62,12 +159,17 @@ public class RContext {
     }
 
     public static RNode createNode(ASTNode expr) {
-        return executableTreeBuilder.createTree(expr);
+        return executableTreeBuilder.get().createTree(expr);
+    }
+
+    /** Returns a copy of the function with its own nodes, which can be executed by another thread than the original. */
+    public static RFunction createFunctionCopy(RFunction function) {
+        return executableTreeBuilder.get().createFunctionCopy(function);
     }
 
     public static RNode createRootNode(ASTNode expr, final RFunction rootEnclosingFunction) {
         return new BaseR(expr) {
-            @Child RNode node = adoptChild(executableTreeBuilder.createTree(ast, rootEnclosingFunction));
+            @Child RNode node = adoptChild(executableTreeBuilder.get().createTree(ast, rootEnclosingFunction));
 
             @Override
             public Object execute(Frame frame) {
@@ -88,26 +190,27 @@ public class RContext {
     }
 
     public static void warning(ASTNode expr, String msg, Object... args) {
-        errorManager.warning(expr, String.format(msg, args));
+        current().errorManager.warning(expr, String.format(msg, args));
     }
 
     public static void warning(ASTNode expr, String msg) {
-        errorManager.warning(expr, msg);
+        current().errorManager.warning(expr, msg);
     }
 
     public static void warning(RError err) {
-        errorManager.warning(err);
+        current().errorManager.warning(err);
     }
 
     public static void error(ASTNode expr, String msg) {
-        errorManager.error(expr, msg);
+        current().errorManager.error(expr, msg);
     }
 
     public static void error(RError err) {
-        errorManager.error(err);
+        current().errorManager.error(err);
     }
 
     public static int allocateConnection(Connection connection) {
+        Connection[] connections = current().connections;
         for (int i = 0; i < NCONNECTIONS; i++) {
             if (connections[i] == null) {
                 connections[i] = connection;
@@ -119,17 +222,18 @@ public class RContext {
 
     /** Release a connection currently in use. */
     public static void freeConnection(int i) {
+        Connection[] connections = current().connections;
         assert Utils.check(connections[i] != null);
         connections[i] = null;
     }
 
     /** Return a connection or null. */
     public static Connection getConnection(int i) {
-        return i >= 0 && i < NCONNECTIONS ? connections[i] : null;
+        return i >= 0 && i < NCONNECTIONS ? current().connections[i] : null;
     }
 
     private static int hasGNUR = -1;
-    public static boolean hasGNUR() {
+    public static synchronized boolean hasGNUR() {
         if (hasGNUR == -1) {
             try {
                 System.loadLibrary(GNUR_LIBRARY_NAME);
@@ -142,7 +246,7 @@ public class RContext {
     }
 
     private static int hasSystemLibs = -1;
-    public static boolean hasSystemLibs() {
+    public static synchronized boolean hasSystemLibs() {
         if (hasSystemLibs == -1) {
             try {
                 System.loadLibrary(SYSTEM_LIBS_LIBRARY_NAME);
@@ -155,7 +259,7 @@ public class RContext {
     }
 
     private static int hasMKL = -1;
-    public static boolean hasMKL() {
+    public static synchronized boolean hasMKL() {
         if (hasMKL == -1) {
             try {
                 System.loadLibrary(MKL_LIBRARY_NAME);
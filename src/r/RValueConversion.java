@@ -30,6 +30,13 @@ public class RValueConversion {
         throw new SpecializationException(value);
     }
 
+    public static double expectScalarDouble(RAny value) throws SpecializationException {
+        if (value instanceof ScalarDoubleImpl) {
+            return ((ScalarDoubleImpl) value).getDouble();
+        }
+        throw new SpecializationException(value);
+    }
+
     public static RArray expectScalar(RAny value) throws SpecializationException {
         if (value instanceof RArray) {
             RArray array = (RArray) value;
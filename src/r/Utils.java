@@ -3,6 +3,8 @@ package r;
 import r.data.*;
 import r.data.RAny.Attributes;
 import r.data.RArray.Names;
+import r.data.internal.NonScalarArrayImpl;
+import r.data.internal.OffHeap;
 import r.errors.*;
 
 public final class Utils {
@@ -35,6 +37,19 @@ public final class Utils {
         return Boolean.parseBoolean(getProperty(key, dfltValue ? "true" : "false"));
     }
 
+    public static int getProperty(String key, int dfltValue) {
+        String value = System.getProperty(key);
+        if (value == null) {
+            return dfltValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid value '" + value + "' of property " + key + ", using " + dfltValue);
+            return dfltValue;
+        }
+    }
+
     public static boolean check(final boolean assertion) {
         assert assertion;
         return true;
@@ -90,6 +105,10 @@ public final class Utils {
     }
 
     public static RArray createArray(RAny type, int size, int[] dimensions, Names names, Attributes attributes) {
+        if (OffHeap.use(size)) {
+            RArray res = OffHeap.createArray(type, size, dimensions, names, attributes);
+            if (res != null) { return res; }
+        }
         if (type instanceof RInt) { return RInt.RIntFactory.getUninitializedArray(size, dimensions, names, attributes); }
         if (type instanceof RDouble) { return RDouble.RDoubleFactory.getUninitializedArray(size, dimensions, names, attributes); }
         if (type instanceof RLogical) { return RLogical.RLogicalFactory.getUninitializedArray(size, dimensions, names, attributes); }
@@ -216,6 +235,7 @@ public final class Utils {
     }
 
     public static RArray copyArray(RArray arr) { // FIXME: should be a method of RArray for (hopefully) faster dispatch
+        if (arr instanceof OffHeap.Array) { return ((OffHeap.Array) arr).copyOffHeap(); }
         if (arr instanceof RDouble) { return RDouble.RDoubleFactory.copy((RDouble) arr); }
         if (arr instanceof RInt) { return RInt.RIntFactory.copy((RInt) arr); }
         if (arr instanceof RLogical) { return RLogical.RLogicalFactory.copy((RLogical) arr); }
@@ -256,6 +276,15 @@ public final class Utils {
         }
     }
 
+    // drops a reference counted by ref(), only vectors keep precise counts (see NonScalarArrayImpl.unref)
+    public static void unref(Object o) {
+        if (o instanceof NonScalarArrayImpl) {
+            ((NonScalarArrayImpl) o).unref();
+        } else if (o instanceof OffHeap.Array) {
+            ((OffHeap.Array) o).unref();
+        }
+    }
+
     public static void strAppend(StringBuilder b, String s, int width) {
         int spaces = width - s.length();
         Utils.check(spaces >= 0);
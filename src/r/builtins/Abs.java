@@ -33,7 +33,7 @@ public class Abs extends CallFactory {
 
     public static void abs(double[] x, double[] res) {
         int size = x.length;
-        if (!RDoubleUtils.ARITH_NA_CHECKS && RContext.hasMKL() && MKL.use(size)) {
+        if (!RDoubleUtils.ARITH_NA_CHECKS && Backends.ABS.useNative(size)) {
             MKL.vdAbs(size, x, res);
             return;
         }
@@ -44,7 +44,7 @@ public class Abs extends CallFactory {
 
     public static void absComplex(double[] x, double[] res) {
         int size = x.length / 2;
-        if (!RDoubleUtils.ARITH_NA_CHECKS && RContext.hasMKL() && MKL.use(size)) {
+        if (!RDoubleUtils.ARITH_NA_CHECKS && Backends.COMPLEX_ABS.useNative(size)) {
             MKL.vzAbs(size, x, res);
             return;
         }
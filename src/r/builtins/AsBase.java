@@ -20,7 +20,6 @@ abstract class AsBase extends CallFactory {
         super(name, params, required);
     }
 
-    static final ConversionStatus warn = new ConversionStatus(); // WARNING: calls not re-entrant
 
     abstract RAny genericCast(ASTNode ast, RAny arg);
 
@@ -167,7 +166,7 @@ abstract class AsBase extends CallFactory {
     // complex
     static RAny genericAsComplex(ASTNode ast, RAny arg) {
         if (!(arg instanceof RList)) { return Convert.coerceToComplexWarning(arg, ast).stripAttributes(); }
-        warn.naIntroduced = false;
+        ConversionStatus warn = new ConversionStatus();
         RList l = (RList) arg;
         double[] content = new double[2 * l.size()];
         for (int i = 0; i < l.size(); i++) {
@@ -200,7 +199,7 @@ abstract class AsBase extends CallFactory {
      */
     static RAny genericAsDouble(ASTNode ast, RAny arg) {
         if (!(arg instanceof RList)) { return Convert.coerceToDoubleWarning(arg, ast).stripAttributes(); }
-        warn.naIntroduced = false;
+        ConversionStatus warn = new ConversionStatus();
         RList l = (RList) arg;
         double[] content = new double[l.size()];
         for (int i = 0; i < l.size(); i++) {
@@ -226,7 +225,7 @@ abstract class AsBase extends CallFactory {
      */
     static RAny genericAsInt(ASTNode ast, RAny arg) {
         if (!(arg instanceof RList)) { return Convert.coerceToIntWarning(arg, ast).stripAttributes(); }
-        warn.naIntroduced = false;
+        ConversionStatus warn = new ConversionStatus();
         RList l = (RList) arg;
         int[] content = new int[l.size()];
         for (int i = 0; i < l.size(); i++) {
@@ -271,8 +270,7 @@ abstract class AsBase extends CallFactory {
     // raw
     static RAny genericAsRaw(ASTNode ast, RAny arg) {
         if (!(arg instanceof RList)) { return Convert.coerceToRawWarning(arg, ast).stripAttributes(); }
-        warn.outOfRange = false;
-        warn.naIntroduced = false;
+        ConversionStatus warn = new ConversionStatus();
         RList l = (RList) arg;
         byte[] content = new byte[l.size()];
         for (int i = 0; i < l.size(); i++) {
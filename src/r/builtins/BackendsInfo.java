@@ -0,0 +1,54 @@
+package r.builtins;
+
+import r.data.*;
+import r.errors.*;
+import r.ext.*;
+import r.nodes.ast.*;
+import r.nodes.exec.*;
+import r.runtime.*;
+
+/**
+ * "__backends" Fastr specific, reports the backends (Java, MKL, system libraries) chosen for vector math operations and
+ * the numbers of elements they processed since the first call, see r.ext.Backends.
+ *
+ * <pre>
+ * force -- "java", "mkl" or "system" forces the backend of all operations that it implements, "auto" restores the automatic choice
+ * reset -- logical, whether to reset the counters (after reporting them)
+ * </pre>
+ */
+final class BackendsInfo extends CallFactory {
+    static final CallFactory _ = new BackendsInfo("__backends", new String[]{"force", "reset"}, new String[]{});
+
+    private BackendsInfo(String name, String[] params, String[] required) {
+        super(name, params, required);
+    }
+
+    @Override public RNode create(ASTNode call, RSymbol[] names, RNode[] exprs) {
+        ArgumentInfo ia = check(call, names, exprs);
+        final int posForce = ia.position("force");
+        final int posReset = ia.position("reset");
+        return new Builtin(call, names, exprs) {
+            @Override public RAny doBuiltIn(Frame frame, RAny[] args) {
+                Backends.startCounting();
+                if (posForce != -1) {
+                    Backends.force(parseBackend(ast, args[posForce]));
+                }
+                RString res = RString.RStringFactory.getFor(Backends.report());
+                if (posReset != -1 && parseUncheckedLogical(args[posReset], ast)) {
+                    Backends.resetCounters();
+                }
+                return res;
+            }
+        };
+    }
+
+    static Backends.Backend parseBackend(ASTNode ast, RAny arg) {
+        if (arg instanceof RString && ((RString) arg).size() == 1) {
+            String s = ((RString) arg).getString(0);
+            if ("auto".equals(s)) { return null; }
+            Backends.Backend b = Backends.Backend.fromString(s);
+            if (b != null) { return b; }
+        }
+        throw RError.getInvalidArgument(ast, "force");
+    }
+}
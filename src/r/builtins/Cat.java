@@ -39,7 +39,12 @@ final class Cat extends CallFactory {
     }
 
     private static final int DEFAULT_BUFFER_SIZE = 4096;
-    private static char[] buffer = new char[DEFAULT_BUFFER_SIZE]; // FIXME: This is not thread safe!!!
+    private static final ThreadLocal<char[]> catBuffer = new ThreadLocal<char[]>() { // cat may run concurrently in different contexts
+        @Override
+        protected char[] initialValue() {
+            return new char[DEFAULT_BUFFER_SIZE];
+        }
+    };
 
     static String catElement(RArray v, int i) { // TODO: replace this by virtual calls, even cat can be important for performance (e.g. fasta)
         if (v instanceof RDouble) { return Convert.prettyNA(Convert.double2string(((RDouble) v).getDouble(i))); }
@@ -138,6 +143,7 @@ final class Cat extends CallFactory {
     // a (slightly) faster version of catStringsBuilder
     static void catStrings(PrintWriter out, RAny[] args, int sepArgPos, @SuppressWarnings("unused") ASTNode ast) throws SpecializationException {
         if (sepArgPos == -1) { throw new SpecializationException(null); }
+        char[] buffer = catBuffer.get();
         int argslen = args.length;
         int bufPos = 0;
         for (int j = 0; j < argslen; j++) {
@@ -157,6 +163,7 @@ final class Cat extends CallFactory {
                         char[] oldBuffer = buffer;
                         buffer = new char[newSize];
                         System.arraycopy(oldBuffer, 0, buffer, 0, bufPos);
+                        catBuffer.set(buffer);
                     }
                     for (int k = 0; k < asSize; k++) {
                         buffer[bufPos++] = as.charAt(k);
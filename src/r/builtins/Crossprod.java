@@ -112,6 +112,9 @@ final class Crossprod extends CallFactory {
 
     public static double[] matrixTimesMatrixNative(RDouble a, RDouble b, int m, int n, int p) {
         // a is n x m, b is n x p, result is m x p
+        if (!MatrixKernels.useBlas()) {
+            return MatrixKernels.gemmTN(a.getContent(), b.getContent(), m, n, p);
+        }
         double[] res = new double[m * p];
         if (m > 0 && n > 0 && p > 0) {
             BLAS.getInstance().dgemm("T", "N", m, p, n, 1.0, a.getContent(), n, b.getContent(), n, 0.0, res, m);
@@ -126,6 +129,9 @@ final class Crossprod extends CallFactory {
         // LICENSE: transcribed code from GNU R, which is licensed under GPL
 
         // x is row x col, result is col x col
+        if (!MatrixKernels.useBlas()) {
+            return MatrixKernels.syrk(x.getContent(), row, col);
+        }
         double[] res = new double[col * col];
         if (row > 0 && col > 0) {
             BLAS.getInstance().dsyrk("U", "T", col, row, 1.0, x.getContent(), row, 0.0, res, col);
@@ -1,6 +1,7 @@
 package r.builtins;
 
 import r.data.*;
+import r.data.internal.*;
 import r.nodes.ast.*;
 import r.nodes.exec.*;
 import r.runtime.*;
@@ -25,6 +26,7 @@ final class Double extends ArrayConstructorBase {
             @Override public RAny doBuiltIn(Frame frame, RAny[] args) {
                 if (args.length == 0) { return RDouble.EMPTY; }
                 int len = arrayLength(args[0], ast);
+                if (OffHeap.use(len)) { return OffHeap.createArray(RDouble.EMPTY, len, null, null, null); }
                 return RDouble.RDoubleFactory.getUninitializedArray(len);
             }
         };
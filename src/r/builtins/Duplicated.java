@@ -0,0 +1,45 @@
+package r.builtins;
+
+import r.*;
+import r.builtins.internal.*;
+import r.data.*;
+import r.nodes.ast.*;
+import r.nodes.exec.*;
+import r.runtime.*;
+
+/**
+ * "duplicated"
+ *
+ * <pre>
+ * x -- a vector or a data frame or an array or NULL.
+ * incomparables -- a vector of values that cannot be compared. FALSE is a special value, meaning that all values can be compared.
+ * fromLast -- logical indicating if duplication should be considered from the reverse side.
+ * </pre>
+ */
+// FIXME: only vectors of logicals, integers, doubles and strings are supported
+final class Duplicated extends CallFactory {
+    static final CallFactory _ = new Duplicated("duplicated", new String[]{"x", "incomparables", "fromLast"}, new String[]{"x"});
+
+    private Duplicated(String name, String[] params, String[] required) {
+        super(name, params, required);
+    }
+
+    @Override public RNode create(ASTNode call, RSymbol[] names, RNode[] exprs) {
+        ArgumentInfo ia = check(call, names, exprs);
+        final int posX = ia.position("x");
+        final int posIncomparables = ia.position("incomparables");
+        final int posFromLast = ia.position("fromLast");
+        return new Builtin(call, names, exprs) {
+            @Override public RAny doBuiltIn(Frame frame, RAny[] args) {
+                if (posIncomparables != -1) {
+                    Match.checkIncomparables(ast, args[posIncomparables]);
+                }
+                boolean fromLast = posFromLast != -1 && parseUncheckedLogical(args[posFromLast], ast);
+                RAny x = args[posX];
+                if (x instanceof RNull) { return RLogical.EMPTY; }
+                if (!(x instanceof RArray)) { throw Utils.nyi("unsupported type"); }
+                return RLogical.RLogicalFactory.getFor(Matching.duplicated((RArray) x, fromLast));
+            }
+        };
+    }
+}
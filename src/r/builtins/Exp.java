@@ -21,7 +21,7 @@ final class Exp extends MathBase {
 
   @Override
   double op(ASTNode ast, double value) {
-      if (RContext.hasSystemLibs()) {
+      if (Backends.EXP.useNativeForScalar()) {
           return SystemLibs.exp(value);
       } else {
           return Math.exp(value);
@@ -30,7 +30,7 @@ final class Exp extends MathBase {
 
   @Override
   void op(ASTNode ast, double[] x, double[] res) {
-      if (RContext.hasSystemLibs()) {
+      if (Backends.EXP.useNative(x.length)) {
           SystemLibs.exp(x, res, x.length);
       } else {
           for (int i = 0; i < x.length; i++) {
@@ -0,0 +1,432 @@
+package r.builtins;
+
+import java.util.concurrent.*;
+
+import r.*;
+import r.builtins.Order.ElementsComparator;
+import r.data.*;
+import r.errors.*;
+import r.nodes.ast.*;
+import r.nodes.exec.*;
+
+/**
+ * Sorting of vectors of indexes by the values of keys, without boxing. Double, int and logical keys are copied into a
+ * primitive array which is sorted together with the indexes, so that comparisons do not have to look up the keys.
+ * String keys and multiple keys are compared through an ElementsComparator.
+ *
+ * The stable sort is a merge sort. For large inputs (fastr.sort.parallelThreshold, 0 disables), it is split across the
+ * threads of ParallelArithmetic, with the same result as the sequential sort. The unstable sort of primitive keys is a
+ * quicksort. The keys at the sorted indexes must not be NA (or NaN), callers place these themselves.
+ */
+public final class IndexSort {
+
+    static final int INSERTION_SORT_THRESHOLD = 32;
+    static final int MIN_PARALLEL_TASK = 1 << 16;
+
+    static int parallelThreshold = Utils.getProperty("fastr.sort.parallelThreshold", 1 << 20);
+
+    public static int parallelThreshold() {
+        return parallelThreshold;
+    }
+
+    public static void setParallelThreshold(int size) {
+        parallelThreshold = size;
+    }
+
+    static boolean isParallel(int n) {
+        return parallelThreshold > 0 && n >= parallelThreshold && ParallelArithmetic.parallelism() > 1;
+    }
+
+    /**
+     * Sorts order[0, n) by the values of x at these indexes. Ties stay in their original order when stable is set.
+     */
+    public static void sort(RArray x, int[] order, int n, boolean decreasing, boolean stable, ASTNode ast) {
+        if (x instanceof RDouble) {
+            RDouble d = (RDouble) x;
+            double[] keys = new double[n];
+            for (int i = 0; i < n; i++) {
+                double v = d.getDouble(order[i]);
+                keys[i] = decreasing ? -v : v;
+            }
+            sort(keys, order, n, stable);
+            return;
+        }
+        if (x instanceof RInt || x instanceof RLogical) {
+            int[] keys = new int[n];
+            if (x instanceof RInt) {
+                RInt iv = (RInt) x;
+                for (int i = 0; i < n; i++) {
+                    keys[i] = iv.getInt(order[i]);
+                }
+            } else {
+                RLogical lv = (RLogical) x;
+                for (int i = 0; i < n; i++) {
+                    keys[i] = lv.getLogical(order[i]);
+                }
+            }
+            if (decreasing) {
+                for (int i = 0; i < n; i++) {
+                    keys[i] = -keys[i]; // cannot overflow, the only int that cannot be negated is NA
+                }
+            }
+            sort(keys, order, n, stable);
+            return;
+        }
+        if (x instanceof RRaw) {
+            throw RError.getRawSort(ast);
+        }
+        ElementsComparator c = Order.createComparator(x, ast);
+        sort(order, n, decreasing ? new Reversed(c) : c);
+    }
+
+    /** Sorts keys[0, n) in ascending order, moving the elements of idx in the same way. */
+    public static void sort(double[] keys, int[] idx, int n, boolean stable) {
+        if (stable) {
+            new DoubleMergeSorter(keys, idx, n).sort();
+        } else {
+            quickSort(keys, idx, 0, n);
+        }
+    }
+
+    /** Sorts keys[0, n) in ascending order, moving the elements of idx in the same way. */
+    public static void sort(int[] keys, int[] idx, int n, boolean stable) {
+        if (stable) {
+            new IntMergeSorter(keys, idx, n).sort();
+        } else {
+            quickSort(keys, idx, 0, n);
+        }
+    }
+
+    /** Sorts idx[0, n) using c to compare the elements the indexes refer to. The sort is stable. */
+    public static void sort(int[] idx, int n, ElementsComparator c) {
+        new IndexMergeSorter(idx, n, c).sort();
+    }
+
+    static final class Reversed extends ElementsComparator {
+        final ElementsComparator c;
+
+        Reversed(ElementsComparator c) {
+            this.c = c;
+        }
+
+        @Override public int cmp(int i, int j) {
+            return c.cmp(j, i);
+        }
+
+        @Override public boolean isNA(int i) {
+            return c.isNA(i);
+        }
+    }
+
+    // a top-down merge sort; merges of disjoint ranges only touch the same ranges of the temporary arrays, so they can
+    // run concurrently
+    abstract static class MergeSorter {
+        final int n;
+
+        MergeSorter(int n) {
+            this.n = n;
+        }
+
+        abstract boolean isOrdered(int i, int j); // element i can precede element j
+        abstract void insertionSort(int lo, int hi);
+        abstract void merge(int lo, int mid, int hi);
+
+        final void sortRange(int lo, int hi) {
+            if (hi - lo <= INSERTION_SORT_THRESHOLD) {
+                insertionSort(lo, hi);
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            sortRange(lo, mid);
+            sortRange(mid, hi);
+            if (!isOrdered(mid - 1, mid)) {
+                merge(lo, mid, hi);
+            }
+        }
+
+        final void sort() {
+            if (isParallel(n)) {
+                int grain = Math.max(MIN_PARALLEL_TASK, n / (ParallelArithmetic.parallelism() * 4) + 1);
+                ParallelArithmetic.invoke(new MergeTask(this, 0, n, grain));
+            } else {
+                sortRange(0, n);
+            }
+        }
+    }
+
+    static final class MergeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        final MergeSorter sorter;
+        final int lo;
+        final int hi;
+        final int grain;
+
+        MergeTask(MergeSorter sorter, int lo, int hi, int grain) {
+            this.sorter = sorter;
+            this.lo = lo;
+            this.hi = hi;
+            this.grain = grain;
+        }
+
+        @Override protected void compute() {
+            if (hi - lo <= grain) {
+                sorter.sortRange(lo, hi);
+                return;
+            }
+            // the same split points as in the sequential sort, hence the same result
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new MergeTask(sorter, lo, mid, grain), new MergeTask(sorter, mid, hi, grain));
+            if (!sorter.isOrdered(mid - 1, mid)) {
+                sorter.merge(lo, mid, hi);
+            }
+        }
+    }
+
+    static final class DoubleMergeSorter extends MergeSorter {
+        final double[] keys;
+        final int[] idx;
+        final double[] tkeys;
+        final int[] tidx;
+
+        DoubleMergeSorter(double[] keys, int[] idx, int n) {
+            super(n);
+            this.keys = keys;
+            this.idx = idx;
+            this.tkeys = new double[n];
+            this.tidx = new int[n];
+        }
+
+        @Override boolean isOrdered(int i, int j) {
+            return !(keys[j] < keys[i]);
+        }
+
+        @Override void insertionSort(int lo, int hi) {
+            for (int i = lo + 1; i < hi; i++) {
+                double k = keys[i];
+                int x = idx[i];
+                int j = i - 1;
+                while (j >= lo && k < keys[j]) {
+                    keys[j + 1] = keys[j];
+                    idx[j + 1] = idx[j];
+                    j--;
+                }
+                keys[j + 1] = k;
+                idx[j + 1] = x;
+            }
+        }
+
+        @Override void merge(int lo, int mid, int hi) {
+            System.arraycopy(keys, lo, tkeys, lo, hi - lo);
+            System.arraycopy(idx, lo, tidx, lo, hi - lo);
+            int i = lo;
+            int j = mid;
+            for (int k = lo; k < hi; k++) {
+                if (j >= hi || (i < mid && !(tkeys[j] < tkeys[i]))) {
+                    keys[k] = tkeys[i];
+                    idx[k] = tidx[i++];
+                } else {
+                    keys[k] = tkeys[j];
+                    idx[k] = tidx[j++];
+                }
+            }
+        }
+    }
+
+    static final class IntMergeSorter extends MergeSorter {
+        final int[] keys;
+        final int[] idx;
+        final int[] tkeys;
+        final int[] tidx;
+
+        IntMergeSorter(int[] keys, int[] idx, int n) {
+            super(n);
+            this.keys = keys;
+            this.idx = idx;
+            this.tkeys = new int[n];
+            this.tidx = new int[n];
+        }
+
+        @Override boolean isOrdered(int i, int j) {
+            return keys[i] <= keys[j];
+        }
+
+        @Override void insertionSort(int lo, int hi) {
+            for (int i = lo + 1; i < hi; i++) {
+                int k = keys[i];
+                int x = idx[i];
+                int j = i - 1;
+                while (j >= lo && k < keys[j]) {
+                    keys[j + 1] = keys[j];
+                    idx[j + 1] = idx[j];
+                    j--;
+                }
+                keys[j + 1] = k;
+                idx[j + 1] = x;
+            }
+        }
+
+        @Override void merge(int lo, int mid, int hi) {
+            System.arraycopy(keys, lo, tkeys, lo, hi - lo);
+            System.arraycopy(idx, lo, tidx, lo, hi - lo);
+            int i = lo;
+            int j = mid;
+            for (int k = lo; k < hi; k++) {
+                if (j >= hi || (i < mid && tkeys[i] <= tkeys[j])) {
+                    keys[k] = tkeys[i];
+                    idx[k] = tidx[i++];
+                } else {
+                    keys[k] = tkeys[j];
+                    idx[k] = tidx[j++];
+                }
+            }
+        }
+    }
+
+    static final class IndexMergeSorter extends MergeSorter {
+        final int[] idx;
+        final int[] tidx;
+        final ElementsComparator c;
+
+        IndexMergeSorter(int[] idx, int n, ElementsComparator c) {
+            super(n);
+            this.idx = idx;
+            this.tidx = new int[n];
+            this.c = c;
+        }
+
+        @Override boolean isOrdered(int i, int j) {
+            return c.cmp(idx[i], idx[j]) <= 0;
+        }
+
+        @Override void insertionSort(int lo, int hi) {
+            for (int i = lo + 1; i < hi; i++) {
+                int x = idx[i];
+                int j = i - 1;
+                while (j >= lo && c.cmp(x, idx[j]) < 0) {
+                    idx[j + 1] = idx[j];
+                    j--;
+                }
+                idx[j + 1] = x;
+            }
+        }
+
+        @Override void merge(int lo, int mid, int hi) {
+            System.arraycopy(idx, lo, tidx, lo, hi - lo);
+            int i = lo;
+            int j = mid;
+            for (int k = lo; k < hi; k++) {
+                if (j >= hi || (i < mid && c.cmp(tidx[i], tidx[j]) <= 0)) {
+                    idx[k] = tidx[i++];
+                } else {
+                    idx[k] = tidx[j++];
+                }
+            }
+        }
+    }
+
+    // three-way partitioning quicksort, which copes well with many equal keys
+
+    static void quickSort(double[] keys, int[] idx, int lo, int hi) {
+        while (hi - lo > INSERTION_SORT_THRESHOLD) {
+            int mid = (lo + hi) >>> 1;
+            double a = keys[lo];
+            double b = keys[mid];
+            double c = keys[hi - 1];
+            double pivot = a < b ? (b < c ? b : (a < c ? c : a)) : (a < c ? a : (b < c ? c : b)); // median of three
+            int lt = lo; // [lo, lt) < pivot, [lt, i) == pivot, (gt, hi) > pivot
+            int gt = hi - 1;
+            int i = lo;
+            while (i <= gt) {
+                double k = keys[i];
+                if (k < pivot) {
+                    swap(keys, idx, lt++, i++);
+                } else if (k > pivot) {
+                    swap(keys, idx, i, gt--);
+                } else {
+                    i++;
+                }
+            }
+            // recurse into the smaller part to bound the stack depth
+            if (lt - lo < hi - gt - 1) {
+                quickSort(keys, idx, lo, lt);
+                lo = gt + 1;
+            } else {
+                quickSort(keys, idx, gt + 1, hi);
+                hi = lt;
+            }
+        }
+        for (int i = lo + 1; i < hi; i++) {
+            double k = keys[i];
+            int x = idx[i];
+            int j = i - 1;
+            while (j >= lo && k < keys[j]) {
+                keys[j + 1] = keys[j];
+                idx[j + 1] = idx[j];
+                j--;
+            }
+            keys[j + 1] = k;
+            idx[j + 1] = x;
+        }
+    }
+
+    static void quickSort(int[] keys, int[] idx, int lo, int hi) {
+        while (hi - lo > INSERTION_SORT_THRESHOLD) {
+            int mid = (lo + hi) >>> 1;
+            int a = keys[lo];
+            int b = keys[mid];
+            int c = keys[hi - 1];
+            int pivot = a < b ? (b < c ? b : (a < c ? c : a)) : (a < c ? a : (b < c ? c : b)); // median of three
+            int lt = lo;
+            int gt = hi - 1;
+            int i = lo;
+            while (i <= gt) {
+                int k = keys[i];
+                if (k < pivot) {
+                    swap(keys, idx, lt++, i++);
+                } else if (k > pivot) {
+                    swap(keys, idx, i, gt--);
+                } else {
+                    i++;
+                }
+            }
+            if (lt - lo < hi - gt - 1) {
+                quickSort(keys, idx, lo, lt);
+                lo = gt + 1;
+            } else {
+                quickSort(keys, idx, gt + 1, hi);
+                hi = lt;
+            }
+        }
+        for (int i = lo + 1; i < hi; i++) {
+            int k = keys[i];
+            int x = idx[i];
+            int j = i - 1;
+            while (j >= lo && k < keys[j]) {
+                keys[j + 1] = keys[j];
+                idx[j + 1] = idx[j];
+                j--;
+            }
+            keys[j + 1] = k;
+            idx[j + 1] = x;
+        }
+    }
+
+    static void swap(double[] keys, int[] idx, int i, int j) {
+        double k = keys[i];
+        keys[i] = keys[j];
+        keys[j] = k;
+        int x = idx[i];
+        idx[i] = idx[j];
+        idx[j] = x;
+    }
+
+    static void swap(int[] keys, int[] idx, int i, int j) {
+        int k = keys[i];
+        keys[i] = keys[j];
+        keys[j] = k;
+        int x = idx[i];
+        idx[i] = idx[j];
+        idx[j] = x;
+    }
+}
@@ -0,0 +1,46 @@
+package r.builtins;
+
+import java.io.*;
+
+import r.*;
+import r.data.*;
+import r.data.internal.*;
+import r.errors.*;
+import r.nodes.ast.*;
+import r.nodes.exec.*;
+import r.runtime.*;
+
+/**
+ * "loadVector"
+ *
+ * <pre>
+ * file -- a character string naming a file written by saveVector
+ * </pre>
+ *
+ * Large double, integer and logical vectors are returned as views of the memory-mapped file, so they are available
+ * immediately and only the parts used are read.
+ */
+final class LoadVector extends CallFactory {
+    static final CallFactory _ = new LoadVector("loadVector", new String[]{"file"}, new String[]{"file"});
+
+    private LoadVector(String name, String[] params, String[] required) {
+        super(name, params, required);
+    }
+
+    @Override public RNode create(ASTNode call, RSymbol[] names, RNode[] exprs) {
+        ArgumentInfo ia = check(call, names, exprs);
+        final int posFile = ia.position("file");
+        return new Builtin(call, names, exprs) {
+            @Override public RAny doBuiltIn(Frame frame, RAny[] args) {
+                String file = File.getScalarString(args[posFile], ast, "file");
+                try {
+                    return VectorFile.read(file);
+                } catch (FileNotFoundException e) {
+                    throw RError.getCannotOpenFile(ast, file, e.toString());
+                } catch (IOException e) {
+                    throw RError.getGenericError(ast, e.toString());
+                }
+            }
+        };
+    }
+}
@@ -1,6 +1,7 @@
 package r.builtins;
 
 import r.data.*;
+import r.data.internal.*;
 import r.nodes.ast.*;
 import r.nodes.exec.*;
 import r.runtime.*;
@@ -26,6 +27,7 @@ final class Logical extends ArrayConstructorBase {
             @Override public RAny doBuiltIn(Frame frame, RAny[] args) {
                 if (args.length == 0) { return RLogical.EMPTY; }
                 int len = arrayLength(args[0], ast);
+                if (OffHeap.use(len)) { return OffHeap.createArray(RLogical.EMPTY, len, null, null, null); }
                 return RLogical.RLogicalFactory.getUninitializedArray(len);
             }
         };
@@ -0,0 +1,379 @@
+package r.builtins;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import r.*;
+import r.builtins.LApply.CallableProvider;
+import r.builtins.LApply.ValueProvider;
+import r.builtins.internal.RNG;
+import r.builtins.internal.Random;
+import r.data.*;
+import r.data.internal.NonScalarArrayImpl;
+import r.errors.*;
+import r.nodes.ast.*;
+import r.nodes.exec.*;
+import r.nodes.ast.Function;
+import r.nodes.ast.UpdateVector;
+import r.nodes.exec.FunctionCall;
+import r.nodes.tools.*;
+import r.runtime.*;
+
+// FIXME: only a subset of R functionality
+/**
+ * "mclapply" returns a list of the same length as X, each element of which is the result of applying FUN to the
+ * corresponding element of X, like "lapply". The invocations of FUN are distributed between worker threads (not forked
+ * processes like in GNU-R). This is only done when FUN is a closure defined at top level that has no effect outside of
+ * its own frame (see ThreadSafetyCheck), otherwise X is processed sequentially.
+ *
+ * <pre>
+ * X -- a vector (atomic or list).
+ * FUN -- the function to be applied to each element of X.
+ *  ... -- optional arguments to FUN.
+ * mc.cores -- the number of worker threads to use, by default the value of fastr.arith.parallelism.
+ * </pre>
+ *
+ * With the "L'Ecuyer-CMRG" generator (see RNGkind), the invocation for the i-th element of X draws random numbers from
+ * the i-th stream following .Random.seed (see nextRNGStream), so the results do not depend on the number of threads.
+ * .Random.seed is then advanced past the streams.
+ */
+final class MCLApply extends CallFactory {
+
+    static final CallFactory _ = new MCLApply("mclapply", new String[]{"X", "FUN", "...", "mc.cores"}, new String[]{"X", "FUN"});
+
+    private MCLApply(String name, String[] params, String[] required) {
+        super(name, params, required);
+    }
+
+    @Override public RNode create(ASTNode call, RSymbol[] names, RNode[] exprs) {
+        ArgumentInfo ia = check(call, names, exprs);
+        final int xPosition = ia.position("X");
+        final int funPosition = ia.position("FUN");
+        final int coresPosition = ia.position("mc.cores");
+        int cnArgs = 1 + names.length - 2 - (coresPosition != -1 ? 1 : 0);
+        final RSymbol[] cnNames = new RSymbol[cnArgs];
+        int j = 1;
+        for (int i = 0; i < names.length; i++) {
+            if (i != xPosition && i != funPosition && i != coresPosition) {
+                cnNames[j++] = names[i];
+            }
+        }
+        final RNode funExpr = exprs[funPosition];
+        final CallSite sequential = new CallSite(call, funExpr, cnNames);
+
+        return new Builtin(call, names, exprs) {
+
+            @Child CallSite callSite = adoptChild(sequential);
+
+            @Override public RAny doBuiltIn(Frame frame, RAny[] args) {
+                RAny argx = args[xPosition];
+                if (!(argx instanceof RArray)) { throw Utils.nyi("unsupported type"); }
+                RArray x = (RArray) argx;
+                int cores = coresPosition != -1 ? parseCores(args[coresPosition], ast) : ParallelArithmetic.parallelism();
+                RAny[] constantArgs = new RAny[cnNames.length - 1];
+                int k = 0;
+                for (int i = 0; i < args.length; i++) {
+                    if (i != xPosition && i != funPosition && i != coresPosition) {
+                        constantArgs[k++] = args[i];
+                    }
+                }
+                callSite.callableProvider.matchAndSet(frame, args[funPosition]);
+                RCallable callable = callSite.callableProvider.value;
+
+                int xsize = x.size();
+                RAny[] elements = new RAny[xsize];
+                if (x instanceof RList) {
+                    RList l = (RList) x;
+                    for (int i = 0; i < xsize; i++) {
+                        elements[i] = l.getRAny(i);
+                    }
+                } else {
+                    for (int i = 0; i < xsize; i++) {
+                        elements[i] = x.boxedGet(i);
+                    }
+                }
+                RNG[] streams = Random.nextStreams(xsize, ast);
+                RAny[] content;
+                if (cores > 1 && xsize > 1 && callable instanceof RClosure && ThreadSafetyCheck.isThreadSafe((RClosure) callable, streams != null)) {
+                    content = applyParallel(frame, (RClosure) callable, elements, constantArgs, streams, Math.min(cores, xsize), funExpr, cnNames);
+                } else {
+                    content = callSite.apply(frame, elements, constantArgs, streams, 0, xsize, null);
+                }
+                return RList.RListFactory.getFor(content, null, x.names());
+            }
+
+            @Override
+            protected <N extends RNode> N replaceChild(RNode oldNode, N newNode) {
+                assert oldNode != null;
+                if (callSite == oldNode) {
+                    callSite = (CallSite) newNode;
+                    return adoptInternal(newNode);
+                }
+                return super.replaceChild(oldNode, newNode);
+            }
+        };
+    }
+
+    static int parseCores(RAny arg, ASTNode ast) {
+        RInt i = arg.asInt();
+        if (i.size() != 1 || i.getInt(0) == RInt.NA || i.getInt(0) < 1) { throw RError.getInvalidArgument(ast, "mc.cores"); }
+        return i.getInt(0);
+    }
+
+    // the results are the same as of the sequential version, including which error is reported (the one of the
+    // lowest index); only the order of warnings may differ
+    static RAny[] applyParallel(final Frame frame, final RClosure closure, final RAny[] elements, final RAny[] constantArgs, final RNG[] streams, int nworkers, final RNode funExpr,
+            final RSymbol[] cnNames) {
+        final int n = elements.length;
+        final RAny[] content = new RAny[n];
+        final AtomicInteger next = new AtomicInteger();
+        final AtomicInteger failedIndex = new AtomicInteger(n);
+        final RuntimeException[] errors = new RuntimeException[n];
+        final RContext context = RContext.current();
+
+        // the refcounts are not atomic, so make sure no worker thinks it can reuse an argument, before starting them;
+        // increments by the workers may be lost, but with unref suspended the counts cannot drop below these references
+        ref(elements);
+        ref(constantArgs);
+
+        final RecursiveAction[] workers = new RecursiveAction[nworkers];
+        for (int w = 0; w < nworkers; w++) {
+            workers[w] = new RecursiveAction() {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected void compute() {
+                    RContext previous = RContext.enter(context); // the workers see the top-level variables of the caller
+                    try {
+                        applyRange();
+                    } finally {
+                        RContext.enter(previous);
+                    }
+                }
+
+                private void applyRange() {
+                    // thread-confined: the nodes of the copy and of the call site are only ever executed (and rewritten) by
+                    // this worker
+                    RClosure copy = (RClosure) RContext.createFunctionCopy(closure.function()).createClosure(closure.enclosingFrame());
+                    CallSite callSite = new CallSite(funExpr.getAST(), funExpr, cnNames);
+                    RootCallSite root = new RootCallSite(callSite);
+                    root.callSite.callableProvider.value = copy;
+                    for (;;) {
+                        int i = next.getAndIncrement();
+                        if (i >= failedIndex.get()) {
+                            return;
+                        }
+                        try {
+                            root.callSite.apply(frame, elements, constantArgs, streams, i, i + 1, content);
+                        } catch (RuntimeException e) {
+                            errors[i] = e;
+                            int f;
+                            while (i < (f = failedIndex.get()) && !failedIndex.compareAndSet(f, i)) {
+                                // retry
+                            }
+                            return;
+                        }
+                    }
+                }
+            };
+        }
+        NonScalarArrayImpl.suspendUnref(); // the counts are not updated atomically
+        try {
+            ParallelArithmetic.invoke(new RecursiveAction() {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected void compute() {
+                    invokeAll(workers);
+                }
+            });
+        } finally {
+            NonScalarArrayImpl.resumeUnref();
+            unref(elements);
+            unref(constantArgs);
+        }
+        int f = failedIndex.get();
+        if (f < n) { throw errors[f]; }
+        return content;
+    }
+
+    // two references, so that the values are shared while the workers run
+    static void ref(RAny[] values) {
+        for (RAny v : values) {
+            v.ref();
+            v.ref();
+        }
+    }
+
+    static void unref(RAny[] values) {
+        for (RAny v : values) {
+            Utils.unref(v);
+            Utils.unref(v);
+        }
+    }
+
+    /** A call of FUN with a given element of X and the constant arguments, like in lapply. */
+    static final class CallSite extends BaseR {
+
+        final ValueProvider firstArgProvider; // !!! not a child, just a shortcut into arguments
+        final ValueProvider[] constantArgProviders; // !!! not a child, just a shortcut into arguments
+        final CallableProvider callableProvider; // !!! not a child, just a shortcut into callNode
+        @Child RNode callNode;
+
+        CallSite(ASTNode call, RNode funExpr, RSymbol[] cnNames) {
+            super(call);
+            int cnArgs = cnNames.length;
+            RNode[] cnExprs = new RNode[cnArgs];
+            firstArgProvider = new ValueProvider(call);
+            cnExprs[0] = firstArgProvider;
+            constantArgProviders = new ValueProvider[cnArgs - 1];
+            for (int i = 1; i < cnArgs; i++) {
+                ValueProvider vp = new ValueProvider(call);
+                cnExprs[i] = vp;
+                constantArgProviders[i - 1] = vp;
+            }
+            callableProvider = new CallableProvider(funExpr.getAST(), funExpr);
+            callNode = adoptChild(FunctionCall.getFunctionCall(call, callableProvider, cnNames, cnExprs));
+        }
+
+        // applies FUN to elements [from, to) and stores the results to the same positions of res (a new array if null),
+        // element i draws random numbers from streams[i] (unless null)
+        RAny[] apply(Frame frame, RAny[] elements, RAny[] constantArgs, RNG[] streams, int from, int to, RAny[] res) {
+            RAny[] content = res != null ? res : new RAny[elements.length];
+            for (int i = 0; i < constantArgs.length; i++) {
+                constantArgProviders[i].setValue(constantArgs[i]);
+            }
+            for (int i = from; i < to; i++) {
+                firstArgProvider.setValue(elements[i]);
+                if (streams == null) {
+                    content[i] = (RAny) callNode.execute(frame);
+                    continue;
+                }
+                Random.setStream(streams[i]);
+                try {
+                    content[i] = (RAny) callNode.execute(frame);
+                } finally {
+                    Random.setStream(null);
+                }
+            }
+            return content;
+        }
+
+        @Override public Object execute(Frame frame) {
+            throw Utils.nyi("not an expression");
+        }
+
+        @Override
+        protected <N extends RNode> N replaceChild(RNode oldNode, N newNode) {
+            assert oldNode != null;
+            if (callNode == oldNode) {
+                callNode = newNode;
+                return adoptInternal(newNode);
+            }
+            return super.replaceChild(oldNode, newNode);
+        }
+    }
+
+    // the call node may rewrite itself, so the call site of a worker needs a parent
+    static final class RootCallSite extends BaseR {
+
+        @Child CallSite callSite;
+
+        RootCallSite(CallSite callSite) {
+            super(callSite.getAST());
+            this.callSite = adoptChild(callSite);
+        }
+
+        @Override public Object execute(Frame frame) {
+            throw Utils.nyi("not an expression");
+        }
+
+        @Override
+        protected <N extends RNode> N replaceChild(RNode oldNode, N newNode) {
+            assert oldNode != null;
+            if (callSite == oldNode) {
+                callSite = (CallSite) newNode;
+                return adoptInternal(newNode);
+            }
+            return super.replaceChild(oldNode, newNode);
+        }
+    }
+
+    /**
+     * Conservatively checks that a closure can be called concurrently with itself. It has to be defined at top level
+     * (so that it can only read global variables, which cannot change while mclapply runs) and its body can only
+     * assign local variables (no updates of vectors or attributes, no super-assignment), build no closures and call no
+     * other functions than the builtins below, which do not use global state. Calls to builtins that have been
+     * overridden by a variable are rejected. The random number builtins are allowed when each invocation draws from its
+     * own stream.
+     */
+    static final class ThreadSafetyCheck extends BasicVisitor {
+
+        static final Set<String> SAFE_BUILTINS = new HashSet<>(Arrays.asList("abs", "all", "any", "as.character", "as.double", "as.integer", "as.logical", "as.vector", "c",
+                        "ceiling", "character", "cumsum", "dim", "double", "exp", "floor", "identical", "integer", "is.na", "is.null", "length", "list", "log", "log10", "log2",
+                        "logical", "matrix", "max", "min", "names", "nchar", "ncol", "nrow", "paste", "rep", "rep.int", "return", "rev", "round", "seq", "sqrt", "stop",
+                        "strsplit", "substr", "sum", "t", "tolower", "toupper", "typeof", "unlist", "which"));
+
+        static final Set<String> RANDOM_BUILTINS = new HashSet<>(Arrays.asList("rbinom", "rcauchy", "rgamma", "rlnorm", "rnorm", "runif"));
+
+        final Set<RSymbol> written;
+        final boolean streams;
+        boolean safe = true;
+
+        ThreadSafetyCheck(Set<RSymbol> written, boolean streams) {
+            this.written = written;
+            this.streams = streams;
+        }
+
+        static boolean isThreadSafe(RClosure closure, boolean streams) {
+            if (closure.enclosingFrame() != null) { return false; }
+            RFunction function = closure.function();
+            if (!(function.getSource() instanceof Function)) { return false; }
+            Function source = (Function) function.getSource();
+            ThreadSafetyCheck check = new ThreadSafetyCheck(new HashSet<>(Arrays.asList(function.localWriteSet())), streams);
+            source.getBody().accept(check);
+            for (ArgumentList.Entry e : source.getSignature()) {
+                ASTNode val = e.getValue();
+                if (val != null) {
+                    val.accept(check);
+                }
+            }
+            return check.safe;
+        }
+
+        @Override public void visit(SimpleAssignVariable assign) {
+            if (assign.isSuper()) {
+                safe = false;
+                return;
+            }
+            assign.visit_all(this);
+        }
+
+        @Override public void visit(r.nodes.ast.FunctionCall functionCall) {
+            RSymbol name = functionCall.getName();
+            boolean builtin = SAFE_BUILTINS.contains(name.name()) || (streams && RANDOM_BUILTINS.contains(name.name()));
+            if (functionCall.isAssignment() || !builtin || written.contains(name) || name.builtinIsOverridden()) {
+                safe = false;
+                return;
+            }
+            functionCall.visit_all(this);
+        }
+
+        @Override public void visit(Function function) {
+            safe = false;
+        }
+
+        @Override public void visit(UpdateVector update) {
+            safe = false;
+        }
+
+        @Override public void visit(UpdateField update) {
+            safe = false;
+        }
+
+        @Override public void visit(UpdateExpression update) {
+            safe = false;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package r.builtins;
+
+import r.*;
+import r.builtins.internal.*;
+import r.data.*;
+import r.errors.*;
+import r.nodes.ast.*;
+import r.nodes.exec.*;
+import r.runtime.*;
+
+/**
+ * "match"
+ *
+ * <pre>
+ * x -- vector or NULL: the values to be matched. Long vectors are supported.
+ * table -- vector or NULL: the values to be matched against. Long vectors are not supported.
+ * nomatch -- the value to be returned in the case when no match is found. Note that it is coerced to integer.
+ * incomparables -- a vector of values that cannot be matched. Any value in x matching a value in this vector is assigned the nomatch value.
+ * </pre>
+ */
+// FIXME: incomparables other than NULL or FALSE are not supported
+final class Match extends CallFactory {
+    static final CallFactory _ = new Match("match", new String[]{"x", "table", "nomatch", "incomparables"}, new String[]{"x", "table"});
+
+    private Match(String name, String[] params, String[] required) {
+        super(name, params, required);
+    }
+
+    @Override public RNode create(ASTNode call, RSymbol[] names, RNode[] exprs) {
+        ArgumentInfo ia = check(call, names, exprs);
+        final int posX = ia.position("x");
+        final int posTable = ia.position("table");
+        final int posNomatch = ia.position("nomatch");
+        final int posIncomparables = ia.position("incomparables");
+        return new Builtin(call, names, exprs) {
+            @Override public RAny doBuiltIn(Frame frame, RAny[] args) {
+                int nomatch = RInt.NA;
+                if (posNomatch != -1) {
+                    RInt n = Convert.coerceToIntWarning(args[posNomatch], ast);
+                    if (n.size() < 1) { throw RError.getInvalidArgument(ast, "nomatch"); }
+                    nomatch = n.getInt(0);
+                }
+                if (posIncomparables != -1) {
+                    checkIncomparables(ast, args[posIncomparables]);
+                }
+                return match(ast, args[posX], args[posTable], nomatch);
+            }
+        };
+    }
+
+    static void checkIncomparables(ASTNode ast, RAny arg) {
+        if (arg instanceof RNull || (arg instanceof RLogical && ((RLogical) arg).size() == 1 && ((RLogical) arg).getLogical(0) == RLogical.FALSE)) { return; }
+        throw Utils.nyi("incomparables");
+    }
+
+    public static RInt match(ASTNode ast, RAny x, RAny table, int nomatch) {
+        if (x instanceof RNull) { return RInt.EMPTY; }
+        if (table instanceof RNull) {
+            table = RLogical.EMPTY;
+        }
+        RArray[] typed = Matching.unify(ast, x, table);
+        return RInt.RIntFactory.getFor(Matching.match(typed[0], typed[1], nomatch));
+    }
+}
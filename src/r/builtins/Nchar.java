@@ -1,6 +1,7 @@
 package r.builtins;
 
 import r.*;
+import r.builtins.internal.*;
 import r.data.*;
 import r.nodes.ast.*;
 import r.nodes.exec.*;
@@ -25,12 +26,10 @@ final class Nchar extends CallFactory {
         super(name, params, required);
     }
 
-    public static RInt nchar(RString s) {
-        int size = s.size();
-        int[] content = new int[size];
-        for (int i = 0; i < size; i++) {
-            content[i] = s.getString(i).length();
-        }
+    // NOTE: a missing string has no length, but a missing value of another type is converted to "NA"
+    public static RInt nchar(RAny x) {
+        RString s = x.asString();
+        int[] content = StringKernels.nchar(StringKernels.content(s), x instanceof RString ? RInt.NA : 2);
         return RInt.RIntFactory.getFor(content, s.dimensions(), s.names());
     }
 
@@ -39,7 +38,7 @@ final class Nchar extends CallFactory {
         if (ia.provided("type") || ia.provided("allowNA")) { throw Utils.nyi(); }
         if (names.length == 1) { return new Builtin.Builtin1(call, names, exprs) {
             @Override public RAny doBuiltIn(Frame frame, RAny x) {
-                return nchar(x.asString());
+                return nchar(x);
             }
         }; }
         throw Utils.nyi();
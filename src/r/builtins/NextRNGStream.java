@@ -0,0 +1,35 @@
+package r.builtins;
+
+import r.builtins.internal.*;
+import r.data.*;
+import r.errors.*;
+import r.nodes.ast.*;
+import r.nodes.exec.*;
+import r.runtime.*;
+
+/**
+ * "nextRNGStream" (of package parallel) returns the value of .Random.seed for the next L'Ecuyer-CMRG stream, which is
+ * independent of the stream of the given seed.
+ *
+ * <pre>
+ * seed -- an integer vector of length 7 as given by .Random.seed when the "L'Ecuyer-CMRG" RNG is in use.
+ * </pre>
+ */
+final class NextRNGStream extends CallFactory {
+
+    static final CallFactory _ = new NextRNGStream("nextRNGStream", new String[]{"seed"}, new String[]{"seed"});
+
+    private NextRNGStream(String name, String[] params, String[] required) {
+        super(name, params, required);
+    }
+
+    @Override public RNode create(ASTNode call, RSymbol[] names, RNode[] exprs) {
+        check(call, names, exprs);
+        return new Builtin.Builtin1(call, names, exprs) {
+            @Override public RAny doBuiltIn(Frame frame, RAny arg) {
+                if (!(arg instanceof RInt) || ((RInt) arg).size() != 7 || ((RInt) arg).getInt(0) % 100 != RNG.LECUYER_CMRG) { throw RError.getInvalidArgument(ast, "seed"); }
+                return RInt.RIntFactory.getFor(RNG.nextStream(((RInt) arg).getContent()));
+            }
+        };
+    }
+}
@@ -1,7 +1,5 @@
 package r.builtins;
 
-import java.util.*;
-
 import r.Convert.ConversionStatus;
 import r.*;
 import r.data.*;
@@ -10,8 +8,6 @@ import r.nodes.ast.*;
 import r.nodes.exec.*;
 import r.runtime.*;
 
-import java.lang.Integer;// do not delete java.lang.Integer import
-
 // TODO: support complex type
 final class Order extends CallFactory {
 
@@ -21,7 +17,6 @@ final class Order extends CallFactory {
         super(name, params, required);
     }
 
-    static final ConversionStatus warn = new ConversionStatus(); // WARNING: calls not re-entrant
 
     @Override public RNode create(ASTNode call, RSymbol[] names, RNode[] exprs) {
         ArgumentInfo ia = check(call, names, exprs);
@@ -79,7 +74,7 @@ final class Order extends CallFactory {
     }
 
     public static int parseNALast(RAny arg, ASTNode ast) {
-        warn.naIntroduced = false;
+        ConversionStatus warn = new ConversionStatus();
         RLogical a = arg.asLogical(); // will produce NAs when conversion is not possible
         int size = a.size();
         int res;
@@ -217,101 +212,106 @@ final class Order extends CallFactory {
         }
     }
 
-    // FIXME: could hand-inline two variants, one for naLast == NA and another for naLast != NA
     public static RInt sort(RArray[] keys, final boolean decreasing, int naLast, ASTNode ast) {
-        final int nkeys = keys.length;
+        int nkeys = keys.length;
         int size = keys[0].size();
-
-        final boolean removeNA = (naLast == RLogical.NA);
-        int naElements = 0;
-        boolean[] tmp = null;
-        if (removeNA) {
-            tmp = new boolean[size];
+        boolean removeNA = (naLast == RLogical.NA);
+
+        if (nkeys == 1) {
+            // indexes of non-NA values are sorted by their primitive keys, NAs are placed in their original order
+            RArray key = keys[0];
+            int[] order = new int[size];
+            int[] naorder = new int[size];
+            int oi = 0;
+            int nai = 0;
+            for (int i = 0; i < size; i++) {
+                if (key.isNAorNaN(i)) {
+                    naorder[nai++] = i;
+                } else {
+                    order[oi++] = i;
+                }
+            }
+            IndexSort.sort(key, order, oi, decreasing, true, ast);
+            int[] content = new int[removeNA ? oi : size];
+            int dataStart = naLast == RLogical.FALSE ? nai : 0;
+            for (int i = 0; i < oi; i++) {
+                content[dataStart + i] = order[i] + 1; // 1-based
+            }
+            if (!removeNA) {
+                int naStart = naLast == RLogical.FALSE ? 0 : oi;
+                for (int i = 0; i < nai; i++) {
+                    content[naStart + i] = naorder[i] + 1;
+                }
+            }
+            return RInt.RIntFactory.getFor(content);
         }
-        final boolean[] hasNA = tmp;
 
-        final ElementsComparator[] comp = new ElementsComparator[nkeys];
+        ElementsComparator[] comp = new ElementsComparator[nkeys];
         for (int i = 0; i < nkeys; i++) {
-            ElementsComparator c = createComparator(keys[i], ast);
-            comp[i] = c;
-            if (removeNA) {
-                for (int j = 0; j < size; j++) {
-                    if (!hasNA[j] && c.isNA(j)) {
-                        hasNA[j] = true;
-                        naElements++;
+            comp[i] = createComparator(keys[i], ast);
+        }
+        int[] order = new int[size];
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            if (removeNA) { // elements that have NA in any key are removed
+                boolean na = false;
+                for (int j = 0; j < nkeys; j++) {
+                    if (comp[j].isNA(i)) {
+                        na = true;
+                        break;
                     }
                 }
+                if (na) {
+                    continue;
+                }
             }
+            order[n++] = i;
         }
-
-        Integer[] order = new Integer[size]; // FIXME: have to box integers to be able to use a Arrays.sort with a comparator;
-                                             // FIXME: could specialize for 1 key only, which should be a common case
-                                             // FIXME: also could have a box with the first argument, e.g. FirstKey.index and FirstKey.value
-        for (int i = 0; i < size; i++) {
-            order[i] = i;
+        IndexSort.sort(order, n, new KeysComparator(comp, decreasing, naLast));
+        int[] content = new int[n];
+        for (int i = 0; i < n; i++) {
+            content[i] = order[i] + 1; // 1-based
         }
+        return RInt.RIntFactory.getFor(content);
+    }
 
-        final ElementsComparator firstComparator = comp[0];
-        final int resFirstNA = resultWhenFirstNA(naLast);
-        final int resSecondNA = resultWhenSecondNA(naLast);
-
-        Comparator<Integer> mainComparator = new Comparator<Integer>() {
-
-            @Override public int compare(Integer o1, Integer o2) {
-                int i1 = o1;
-                int i2 = o2;
-                boolean na1 = firstComparator.isNA(i1);
-                boolean na2 = firstComparator.isNA(i2);
-                if (removeNA) { // elements that have NA in any key will always be put last
-                                // FIXME: might be also worth removing them before sorting, if there is a lot of them and the arrays are large
-                    na1 = na1 || hasNA[i1];
-                    na2 = na2 || hasNA[i2];
-                }
+    // compares by the first key, then by the second for ties, etc; NAs are placed according to naLast regardless of
+    // decreasing
+    static final class KeysComparator extends ElementsComparator {
+        final ElementsComparator[] comp;
+        final boolean decreasing;
+        final int resFirstNA;
+        final int resSecondNA;
+
+        KeysComparator(ElementsComparator[] comp, boolean decreasing, int naLast) {
+            this.comp = comp;
+            this.decreasing = decreasing;
+            this.resFirstNA = resultWhenFirstNA(naLast);
+            this.resSecondNA = resultWhenSecondNA(naLast);
+        }
 
-                int res = 0;
+        @Override public int cmp(int i, int j) {
+            for (ElementsComparator c : comp) {
+                boolean na1 = c.isNA(i);
+                boolean na2 = c.isNA(j);
                 if (!na1) {
                     if (!na2) {
-                        res = firstComparator.cmp(i1, i2);
+                        int res = c.cmp(i, j);
+                        if (res != 0) {
+                            return !decreasing ? res : -res;
+                        }
                     } else {
                         return resSecondNA;
                     }
                 } else {
-                    if (!na2) { return resFirstNA; } // NA vs NA
+                    if (!na2) { return resFirstNA; } // NA vs NA is a tie
                 }
-
-                int j = 1;
-                while (res == 0 && j < nkeys) {
-                    ElementsComparator c = comp[j];
-                    na1 = c.isNA(i1);
-                    na2 = c.isNA(i2);
-                    if (!na1) {
-                        if (!na2) {
-                            res = c.cmp(i1, i2);
-                        } else {
-                            return resSecondNA;
-                        }
-                    } else {
-                        if (!na2) { return resFirstNA; } // NA vs NA
-                    }
-                }
-                return !decreasing ? res : -res;
             }
-        };
+            return 0;
+        }
 
-        Arrays.sort(order, mainComparator);
-        if (!removeNA) {
-            int[] content = new int[size];
-            for (int i = 0; i < size; i++) {
-                content[i] = order[i] + 1; // 1-based
-            }
-            return RInt.RIntFactory.getFor(content);
-        } else {
-            int nsize = size - naElements;
-            int[] content = new int[nsize];
-            for (int i = 0; i < nsize; i++) {
-                content[i] = order[i] + 1; // 1-based, excluding the NA values at the end
-            }
-            return RInt.RIntFactory.getFor(content);
+        @Override public boolean isNA(int i) {
+            return false;
         }
     }
 }
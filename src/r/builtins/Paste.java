@@ -1,5 +1,6 @@
 package r.builtins;
 
+import r.builtins.internal.*;
 import r.data.*;
 import r.errors.*;
 import r.nodes.ast.*;
@@ -15,7 +16,6 @@ import r.runtime.*;
  * collapse -- an optional character string to separate the results. Not NA_character_.
  * </pre>
  */
-// FIXME: this is an unoptimized version
 final class Paste extends CallFactory {
     static final CallFactory _ = new Paste("paste", new String[]{"...", "sep", "collapse"}, new String[]{});
 
@@ -91,53 +91,32 @@ final class Paste extends CallFactory {
             collapse = parseCollapse(ast, args[collapsePosition]);
         }
 
-        RString[] stringArgs = new RString[realArgs];
+        String[][] stringArgs = new String[realArgs][];
         int j = 0;
         int maxLength = 0;
         for (int i = 0; i < args.length; i++) {
             if (i == sepPosition || i == collapsePosition) {
                 continue;
             }
-            RString s = AsBase.genericAsString(ast, args[i]); // FIXME: can we remove R-level boxing?
+            String[] s = StringKernels.content(asString(ast, args[i]));
             stringArgs[j++] = s;
-            int ssize = s.size();
-            if (ssize > maxLength) {
-                maxLength = ssize;
+            if (s.length > maxLength) {
+                maxLength = s.length;
             }
         }
 
         if (collapse == null) {
-            String[] content = new String[maxLength];
-            for (int i = 0; i < maxLength; i++) {
-                StringBuilder str = new StringBuilder();
-                for (j = 0; j < realArgs; j++) {
-                    if (j > 0) {
-                        str.append(separator);
-                    }
-                    RString s = stringArgs[j];
-                    str.append(s.getString(i % s.size()));
-                }
-                content[i] = str.toString();
-            }
-            return RString.RStringFactory.getFor(content);
+            return RString.RStringFactory.getFor(StringKernels.paste(stringArgs, separator, maxLength));
         } else {
-            StringBuilder str = new StringBuilder();
-            for (int i = 0; i < maxLength; i++) {
-                if (i > 0) {
-                    str.append(collapse);
-                }
-                for (j = 0; j < realArgs; j++) {
-                    if (j > 0) {
-                        str.append(separator);
-                    }
-                    RString s = stringArgs[j];
-                    str.append(s.getString(i % s.size()));
-                }
-            }
-            return RString.RStringFactory.getScalar(str.toString());
+            return RString.RStringFactory.getScalar(StringKernels.paste(stringArgs, separator, maxLength, collapse));
         }
     }
 
+    // strings are used as they are, other values are converted (without attributes)
+    static RString asString(ASTNode ast, RAny arg) {
+        return arg instanceof RString ? (RString) arg : AsBase.genericAsString(ast, arg);
+    }
+
     public static RString pasteSingleRealArg(RAny[] args, int sepPosition, int collapsePosition, ASTNode ast) {
 
         if (sepPosition != -1) {
@@ -154,28 +133,14 @@ final class Paste extends CallFactory {
             if (i == sepPosition || i == collapsePosition) {
                 continue;
             }
-            stringArg = AsBase.genericAsString(ast, args[i]); // FIXME: can we remove R-level boxing?
+            stringArg = asString(ast, args[i]);
         }
 
-        int size = stringArg.size();
-
         if (collapse == null) {
             return (RString) stringArg.stripAttributes();
-        } else if (collapse.length() == 0) {
-            StringBuilder str = new StringBuilder();
-            for (int i = 0; i < size; i++) {
-                str.append(stringArg.getString(i));
-            }
-            return RString.RStringFactory.getScalar(str.toString());
         } else {
-            StringBuilder str = new StringBuilder();
-            for (int i = 0; i < size; i++) {
-                if (i > 0) {
-                    str.append(collapse);
-                }
-                str.append(stringArg.getString(i));
-            }
-            return RString.RStringFactory.getScalar(str.toString());
+            String[] s = StringKernels.content(stringArg);
+            return RString.RStringFactory.getScalar(StringKernels.paste(new String[][]{s}, "", s.length, collapse));
         }
     }
 
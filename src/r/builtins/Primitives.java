@@ -91,6 +91,7 @@ public class Primitives {
         add(Dim._);
         add(DimAssign._);
         add(Double._);
+        add(Duplicated._);
         add(Get._);
         add(Gregexpr._);
         add(Gsub._);
@@ -125,13 +126,16 @@ public class Primitives {
         add(LengthAssign._);
         add(List._);
         add(ListFiles._);
+        add(LoadVector._);
         add(Log._);
         add(Log10._);
         add(Log2._);
         add(Logical._);
         add(LowerTri._);
         add(Ls._);
+        add(Match._);
         add(Matrix._);
+        add(MCLApply._);
         add(Max._);
         add(Min._);
         add(Missing._);
@@ -140,6 +144,7 @@ public class Primitives {
         add(Nchar._);
         add(Ncol._);
         add(Newenv._);
+        add(NextRNGStream._);
         add(Nrow._);
         add("numeric", Double._);
         add(Options._);
@@ -156,6 +161,7 @@ public class Primitives {
         add(Raw._);
         add(Rbinom._);
         add(Rcauchy._);
+        add(Rexp._);
         add(Re._);
         add(ReadLines._);
         add("real", Double._);
@@ -169,14 +175,18 @@ public class Primitives {
         add(Rgamma._);
         add(Rlnorm._);
         add(Rnorm._);
+        add(RNGKind._);
         add(Round._);
+        add(Rprof._);
         add(RowMeans._);
         add(RowSums._);
         add(Runif._);
         add(SApply._);
+        add(SaveVector._);
         add(Scan._);
         add(Seq._); // in fact seq.default (and only part of it)
         add("seq.default", Seq._);
+        add(SetSeed._);
         add(Setwd._);
         add(Sort._);
         add("sort.int", Sort._);
@@ -192,9 +202,12 @@ public class Primitives {
         add(Sum._);
         add(T._);
         add("t.default", T._);
+        add(Table._);
+        add(Tabulate._);
         add(Tolower._);
         add(Toupper._);
         add(Typeof._);
+        add(Unique._);
         add(Unlist._);
         add(UpperTri._);
         add(Which._);
@@ -202,6 +215,7 @@ public class Primitives {
         add(CommandArgs._);
         // fastr specific
         add("__inspect", Inspect._);
+        add("__backends", BackendsInfo._);
     }
 
     public static boolean hasCallFactory(final RSymbol name, final RFunction enclosing) {
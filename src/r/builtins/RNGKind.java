@@ -0,0 +1,87 @@
+package r.builtins;
+
+import r.*;
+import r.builtins.internal.*;
+import r.data.*;
+import r.errors.*;
+import r.nodes.ast.*;
+import r.nodes.exec.*;
+import r.runtime.*;
+
+/**
+ * "RNGkind"
+ *
+ * <pre>
+ * kind -- character or NULL. If kind is a character string, set R's RNG to the kind desired. Use "default" to return to the R default.
+ * normal.kind -- character string or NULL. If it is a character string, set the method of Normal generation. Use "default" to return to the R default.
+ * </pre>
+ *
+ * Returns the previous kinds. Only the Marsaglia-Multicarry, Mersenne-Twister and L'Ecuyer-CMRG generators and the
+ * Inversion and Box-Muller normal generators are supported.
+ */
+final class RNGKind extends CallFactory {
+
+    static final CallFactory _ = new RNGKind("RNGkind", new String[]{"kind", "normal.kind"}, new String[]{});
+
+    private RNGKind(String name, String[] params, String[] required) {
+        super(name, params, required);
+    }
+
+    @Override public RNode create(ASTNode call, RSymbol[] names, RNode[] exprs) {
+        ArgumentInfo ia = check(call, names, exprs);
+        final int kindPosition = ia.position("kind");
+        final int normalKindPosition = ia.position("normal.kind");
+        return new Builtin(call, names, exprs) {
+            @Override public RAny doBuiltIn(Frame frame, RAny[] args) {
+                int kind = kindPosition == -1 ? -1 : parseKind(args[kindPosition], RNG.KIND_NAMES, RNG.DEFAULT_KIND, ast, "kind");
+                int normalKind = normalKindPosition == -1 ? -1 : parseKind(args[normalKindPosition], RNG.NORMAL_KIND_NAMES, RNG.DEFAULT_NORMAL_KIND, ast, "normal.kind");
+                RNG rng = Random.get(ast);
+                RString res = RString.RStringFactory.getFor(new String[]{RNG.KIND_NAMES[rng.kind()], RNG.NORMAL_KIND_NAMES[rng.normalKind()]});
+                if (kind != -1 || normalKind != -1) {
+                    if (kind != -1) {
+                        rng = rng.changeKind(kind);
+                    }
+                    if (normalKind != -1) {
+                        rng.setNormalKind(normalKind);
+                    }
+                    Random.put(rng);
+                }
+                return res;
+            }
+        };
+    }
+
+    /** Returns the index of the kind in names (which can be abbreviated), or -1 for NULL. */
+    static int parseKind(RAny arg, String[] names, int defaultKind, ASTNode ast, String argName) {
+        if (arg instanceof RNull) {
+            return -1;
+        }
+        if (!(arg instanceof RString) || ((RString) arg).size() != 1 || ((RString) arg).getString(0) == RString.NA) {
+            throw RError.getInvalidArgument(ast, argName);
+        }
+        String s = ((RString) arg).getString(0);
+        if (s.equals("default")) {
+            return defaultKind;
+        }
+        int res = -1;
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(s)) {
+                res = i;
+                break;
+            }
+            if (names[i].startsWith(s)) {
+                if (res != -1) {
+                    throw RError.getInvalidArgument(ast, argName);
+                }
+                res = i;
+            }
+        }
+        if (res == -1) {
+            throw RError.getInvalidArgument(ast, argName);
+        }
+        if (!(names == RNG.KIND_NAMES ? RNG.isSupported(res) : RNG.isSupportedNormal(res))) {
+            throw RError.getGenericError(ast, String.format(RError.RNG_KIND_NOT_SUPPORTED, names[res]));
+        }
+        return res;
+    }
+}
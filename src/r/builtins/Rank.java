@@ -9,9 +9,6 @@ import r.nodes.ast.*;
 import r.nodes.exec.*;
 import r.runtime.*;
 
-import java.lang.Integer;
-import java.util.*;
-
 final class Rank extends CallFactory {
 
     static final CallFactory _ = new Rank("rank", new String[]{"x", "na.last", "ties.method"}, new String[]{"x"});
@@ -99,8 +96,7 @@ final class Rank extends CallFactory {
     public static RAny rank(RArray x, NaLast naLast, int tiesMethod, ASTNode ast) {
         int size = x.size();
         int oi = 0;
-        Integer[] order = new Integer[size];  // indexes of non-NA values in x
-            // TODO: remove Java boxing through primitive sort methods
+        int[] order = new int[size];  // indexes of non-NA values in x
 
         boolean[] isna = null;
         for (int i = 0; i < size; i++) {
@@ -115,13 +111,7 @@ final class Rank extends CallFactory {
         }
         int nnas = size - oi;
         final ElementsComparator c = Order.createComparator(x, ast);
-        Comparator<Integer> mainComparator = new Comparator<Integer>() {
-
-            @Override public int compare(Integer o1, Integer o2) {
-                return c.cmp(o1, o2);
-            }
-        };
-        Arrays.sort(order, 0, oi, mainComparator);
+        IndexSort.sort(x, order, oi, false, true, ast); // stable for ties.method "first"
         RArray rank;
         switch(tiesMethod) {
             case TM_AVERAGE: rank = rankAverage(order, oi, c); break;
@@ -204,7 +194,7 @@ final class Rank extends CallFactory {
         return rank.setNames(xnames);
     }
 
-    public static RArray rankAverage(Integer[] order, int orderUsed, ElementsComparator c) {
+    public static RArray rankAverage(int[] order, int orderUsed, ElementsComparator c) {
         double[] res = new double[order.length];
         int j = 0;
         for (int i = 0; i < orderUsed; i = j + 1) {
@@ -221,7 +211,7 @@ final class Rank extends CallFactory {
         return RDouble.RDoubleFactory.getFor(res);
     }
 
-    public static RArray rankMax(Integer[] order, int orderUsed, ElementsComparator c) {
+    public static RArray rankMax(int[] order, int orderUsed, ElementsComparator c) {
         int[] res = new int[order.length];
         int j = 0;
         for (int i = 0; i < orderUsed; i = j + 1) {
@@ -238,7 +228,7 @@ final class Rank extends CallFactory {
         return RInt.RIntFactory.getFor(res);
     }
 
-    public static RArray rankMin(Integer[] order, int orderUsed, ElementsComparator c) {
+    public static RArray rankMin(int[] order, int orderUsed, ElementsComparator c) {
         int[] res = new int[order.length];
         int j = 0;
         for (int i = 0; i < orderUsed; i = j + 1) {
@@ -255,7 +245,7 @@ final class Rank extends CallFactory {
         return RInt.RIntFactory.getFor(res);
     }
 
-    public static RArray rankFirst(Integer[] order, int orderUsed) {
+    public static RArray rankFirst(int[] order, int orderUsed) {
         int[] res = new int[order.length];
         for (int i = 0; i < orderUsed; i++) {
             res[order[i]] = i + 1;
@@ -3,8 +3,8 @@ package r.builtins;
 import r.*;
 import r.builtins.internal.*;
 import r.data.*;
+import r.data.RDouble.*;
 import r.errors.*;
-import r.ext.*;
 import r.nodes.ast.*;
 import r.nodes.exec.*;
 import r.runtime.*;
@@ -34,22 +34,173 @@ public class Rbinom extends CallFactory {
                 if (size.length == 0 || prob.length == 0) {
                     return Random.allNAs(n, ast);
                 }
-                int [] rngKind = Random.updateNativeSeed(ast);
+                RNG rng = Random.get(ast);
                 try {
-                    return RDouble.RDoubleFactory.getFor(rbinom(n, size, prob, ast));
+                    return RDouble.RDoubleFactory.getFor(rbinom(n, size, prob, rng, ast));
                 } finally {
-                    Random.updateWorkspaceSeed(rngKind);
+                    Random.put(rng);
                 }
             }
         };
     }
 
-    public static double[] rbinom(int n, double[] size, double[] prob, ASTNode ast) {
+    public static double[] rbinom(int n, double[] size, double[] prob, RNG rng, ASTNode ast) {
         double[] res = new double[n];
-        boolean naProduced = GNUR.rbinom(res, n, size, size.length, prob, prob.length);
+        boolean naProduced = false;
+        for (int i = 0; i < n; i++) {
+            double d = rbinom(size[i % size.length], prob[i % prob.length], rng);
+            naProduced = naProduced || RDoubleUtils.isNAorNaN(d);
+            res[i] = d;
+        }
         if (naProduced) {
-            RContext.warning(ast, RError.NA_PRODUCED);  // FIXME: can this happen for std normal and R generators?
+            RContext.warning(ast, RError.NA_PRODUCED);
         }
         return res;
     }
+
+    /**
+     * A binomial deviate, as in GNU-R: inversion for n*p < 30, otherwise algorithm BTPE of Kachitvichyanukul and Schmeiser
+     * (1988).
+     */
+    public static double rbinom(double nin, double pp, RNG rng) {
+        if (!RDoubleUtils.isFinite(nin)) {
+            return RDouble.NaN;
+        }
+        double r = Math.rint(nin);
+        if (r != nin || !RDoubleUtils.isFinite(pp) || r < 0 || pp < 0 || pp > 1) {
+            return RDouble.NaN;
+        }
+        if (r == 0 || pp == 0) {
+            return 0;
+        }
+        if (pp == 1) {
+            return r;
+        }
+        if (r >= java.lang.Integer.MAX_VALUE) { // GNU-R uses qbinom, which is not implemented
+            return RDouble.NaN;
+        }
+        int n = (int) r;
+
+        double p = Math.min(pp, 1 - pp);
+        double q = 1 - p;
+        double np = n * p;
+        r = p / q;
+        double g = r * (n + 1);
+        int ix;
+
+        if (np < 30.0) { // inverse cdf logic for mean less than 30
+            double qn = Math.pow(q, n);
+            outer: for (;;) {
+                ix = 0;
+                double f = qn;
+                double u = rng.unifRand();
+                for (;;) {
+                    if (u < f) {
+                        break outer;
+                    }
+                    if (ix > 110) {
+                        break;
+                    }
+                    u -= f;
+                    ix++;
+                    f *= (g / ix - r);
+                }
+            }
+        } else {
+            double fm = np + p;
+            int m = (int) fm;
+            double npq = np * q;
+            double p1 = (int) (2.195 * Math.sqrt(npq) - 4.6 * q) + 0.5;
+            double xm = m + 0.5;
+            double xl = xm - p1;
+            double xr = xm + p1;
+            double c = 0.134 + 20.5 / (15.3 + m);
+            double al = (fm - xl) / (fm - xl * p);
+            double xll = al * (1.0 + 0.5 * al);
+            al = (xr - fm) / (xr * q);
+            double xlr = al * (1.0 + 0.5 * al);
+            double p2 = p1 * (1.0 + c + c);
+            double p3 = p2 + c / xll;
+            double p4 = p3 + c / xlr;
+
+            for (;;) {
+                double u = rng.unifRand() * p4;
+                double v = rng.unifRand();
+                // triangular region
+                if (u <= p1) {
+                    ix = (int) (xm - p1 * v + u);
+                    break;
+                }
+                if (u <= p2) { // parallelogram region
+                    double x = xl + (u - p1) / c;
+                    v = v * c + 1.0 - Math.abs(xm - x) / p1;
+                    if (v > 1.0 || v <= 0) {
+                        continue;
+                    }
+                    ix = (int) x;
+                } else {
+                    if (u > p3) { // right tail
+                        ix = (int) (xr - Math.log(v) / xlr);
+                        if (ix > n) {
+                            continue;
+                        }
+                        v = v * (u - p3) * xlr;
+                    } else { // left tail
+                        ix = (int) (xl + Math.log(v) / xll);
+                        if (ix < 0) {
+                            continue;
+                        }
+                        v = v * (u - p2) * xll;
+                    }
+                }
+                // determine appropriate way to perform accept/reject test
+                int k = Math.abs(ix - m);
+                if (k <= 20 || k >= npq / 2 - 1) {
+                    // explicit evaluation
+                    double f = 1.0;
+                    if (m < ix) {
+                        for (int i = m + 1; i <= ix; i++) {
+                            f *= (g / i - r);
+                        }
+                    } else if (m > ix) {
+                        for (int i = ix + 1; i <= m; i++) {
+                            f /= (g / i - r);
+                        }
+                    }
+                    if (v <= f) {
+                        break;
+                    }
+                } else {
+                    // squeezing using upper and lower bounds on log(f(x))
+                    double amaxp = (k / npq) * ((k * (k / 3. + 0.625) + 0.1666666666666) / npq + 0.5);
+                    double ynorm = -k * k / (2.0 * npq);
+                    double alv = Math.log(v);
+                    if (alv < ynorm - amaxp) {
+                        break;
+                    }
+                    if (alv <= ynorm + amaxp) {
+                        // Stirling's (actually de Moivre's) formula to machine accuracy for the final acceptance/rejection test
+                        double x1 = ix + 1;
+                        double f1 = fm + 1.0;
+                        double z = n + 1 - fm;
+                        double w = n - ix + 1.0;
+                        double z2 = z * z;
+                        double x2 = x1 * x1;
+                        double f2 = f1 * f1;
+                        double w2 = w * w;
+                        if (alv <= xm * Math.log(f1 / x1) + (n - m + 0.5) * Math.log(z / w) + (ix - m) * Math.log(w * p / (x1 * q)) +
+                                        (13860. - (462. - (132. - (99. - 140. / f2) / f2) / f2) / f2) / f1 / 166320. + (13860. - (462. - (132. - (99. - 140. / z2) / z2) / z2) / z2) / z /
+                                        166320. + (13860. - (462. - (132. - (99. - 140. / x2) / x2) / x2) / x2) / x1 / 166320. + (13860. - (462. - (132. - (99. - 140. / w2) / w2) / w2) / w2) / w /
+                                        166320.) {
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+        if (pp > 0.5) {
+            ix = n - ix;
+        }
+        return ix;
+    }
 }
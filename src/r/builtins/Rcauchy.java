@@ -3,8 +3,8 @@ package r.builtins;
 import r.*;
 import r.builtins.internal.*;
 import r.data.*;
+import r.data.RDouble.*;
 import r.errors.*;
-import r.ext.*;
 import r.nodes.ast.*;
 import r.nodes.exec.*;
 import r.runtime.*;
@@ -26,11 +26,11 @@ public class Rcauchy extends CallFactory {
 
                 @Override public RAny doBuiltIn(Frame frame, RAny narg) {
                     int n = Random.parseNArgument(narg, ast);
-                    int [] rngKind = Random.updateNativeSeed(ast);
+                    RNG rng = Random.get(ast);
                     try {
-                        return RDouble.RDoubleFactory.getFor(rcauchyStd(n, ast));
+                        return RDouble.RDoubleFactory.getFor(rcauchyStd(n, rng, ast));
                     } finally {
-                        Random.updateWorkspaceSeed(rngKind);
+                        Random.put(rng);
                     }
                 }
             };
@@ -49,31 +49,44 @@ public class Rcauchy extends CallFactory {
                 if (location.length == 0 || scale.length == 0) {
                     return Random.allNAs(n, ast);
                 }
-                int [] rngKind = Random.updateNativeSeed(ast);
+                RNG rng = Random.get(ast);
                 try {
-                    return RDouble.RDoubleFactory.getFor(rcauchy(n, location, scale, ast));
+                    return RDouble.RDoubleFactory.getFor(rcauchy(n, location, scale, rng, ast));
                 } finally {
-                    Random.updateWorkspaceSeed(rngKind);
+                    Random.put(rng);
                 }
             }
         };
     }
 
+    public static double rcauchy(double location, double scale, RNG rng) {
+        if (RDoubleUtils.isNAorNaN(location) || !RDoubleUtils.isFinite(scale) || scale < 0) {
+            return RDouble.NaN;
+        }
+        if (scale == 0 || !RDoubleUtils.isFinite(location)) {
+            return location;
+        }
+        return location + scale * Math.tan(Math.PI * rng.unifRand());
+    }
 
-    public static double[] rcauchyStd(int n, ASTNode ast) {
+    public static double[] rcauchyStd(int n, RNG rng, ASTNode ast) {
         double[] res = new double[n];
-        boolean naProduced = GNUR.rcauchyStd(res,  n);
-        if (naProduced) {
-            RContext.warning(ast, RError.NA_PRODUCED);  // FIXME: can this happen for std normal and R generators?
+        for (int i = 0; i < n; i++) {
+            res[i] = Math.tan(Math.PI * rng.unifRand());
         }
         return res;
     }
 
-    public static double[] rcauchy(int n, double[] location, double[] scale, ASTNode ast) {
+    public static double[] rcauchy(int n, double[] location, double[] scale, RNG rng, ASTNode ast) {
         double[] res = new double[n];
-        boolean naProduced = GNUR.rcauchy(res, n, location, location.length, scale, scale.length);
+        boolean naProduced = false;
+        for (int i = 0; i < n; i++) {
+            double d = rcauchy(location[i % location.length], scale[i % scale.length], rng);
+            naProduced = naProduced || RDoubleUtils.isNAorNaN(d);
+            res[i] = d;
+        }
         if (naProduced) {
-            RContext.warning(ast, RError.NA_PRODUCED);  // FIXME: can this happen for std normal and R generators?
+            RContext.warning(ast, RError.NA_PRODUCED);
         }
         return res;
     }
@@ -72,16 +72,27 @@ final class ReadLines extends CallFactory {
                 }
 
                 try {
-                    BufferedReader reader = con.reader(ast);
                     ArrayList<String> buf = new ArrayList<>();
                     String line = "";
                     int nlines = 0;
                     try {
-                        while ((line = reader.readLine()) != null) {
-                            buf.add(line);
-                            nlines++;
-                            if (nlines == n) {
-                                break;
+                        MappedInput mapped = con.mappedInput(ast);
+                        if (mapped != null) {
+                            while ((line = mapped.readLine()) != null) {
+                                buf.add(line);
+                                nlines++;
+                                if (nlines == n) {
+                                    break;
+                                }
+                            }
+                        } else {
+                            BufferedReader reader = con.reader(ast);
+                            while ((line = reader.readLine()) != null) {
+                                buf.add(line);
+                                nlines++;
+                                if (nlines == n) {
+                                    break;
+                                }
                             }
                         }
                     } catch (IOException e) {
@@ -1,8 +1,10 @@
 package r.builtins;
 
+import java.util.*;
 import java.util.regex.*;
 
 import r.*;
+import r.builtins.internal.*;
 import r.data.*;
 import r.errors.*;
 import r.nodes.ast.*;
@@ -47,6 +49,8 @@ class Regexpr extends CallFactory {
         final int posFixed = ia.position("fixed");
         final int posIgnoreCase = ia.position("ignore.case");
         return new Builtin(call, names, exprs) {
+            final Regex.Cache cache = new Regex.Cache();
+
             @Override public RAny doBuiltIn(Frame frame, RAny[] args) {
                 if (posUseBytes != -1) {
                     RContext.warning(ast, "Ignoring useBytes.");
@@ -60,7 +64,10 @@ class Regexpr extends CallFactory {
                 if (!perl) {
                     RContext.warning(ast, "Using a Perl-like regular expression syntax (non-Perl not implemented yet).");
                 }
-                Pattern p = Pattern.compile(pattern, (ignoreCase ? Pattern.CASE_INSENSITIVE : 0) | (fixed ? Pattern.LITERAL : 0));
+                if (!ignoreCase && (fixed ? pattern.length() > 0 : Regex.isLiteral(pattern))) {
+                    return global ? gregexprFixed(pattern, text) : regexprFixed(pattern, text);
+                }
+                Pattern p = cache.get(pattern, fixed, ignoreCase, perl);
                 return global ? gregexpr(p, text) : regexpr(p, text);
             }
         };
@@ -86,6 +93,49 @@ class Regexpr extends CallFactory {
         return RInt.RIntFactory.getFor(content); // drops dimensions
     }
 
+    public static RInt regexprFixed(String pattern, RString text) {
+        int size = text.size();
+        int[] content = new int[size];
+        for (int i = 0; i < size; i++) {
+            String s = text.getString(i);
+            if (s != RString.NA) {
+                int start = s.indexOf(pattern);
+                content[i] = start != -1 ? start + 1 : -1;
+            } else {
+                content[i] = RInt.NA;
+            }
+        }
+        return RInt.RIntFactory.getFor(content); // drops dimensions
+    }
+
+    public static RList gregexprFixed(String pattern, RString text) {
+        int size = text.size();
+        int pLen = pattern.length();
+        RAny[] content = new RAny[size];
+        int[] buf = new int[size];
+        int bufUsed = 0;
+        for (int i = 0; i < size; i++) {
+            String s = text.getString(i);
+            if (s != RString.NA) {
+                bufUsed = 0;
+                for (int start = s.indexOf(pattern); start != -1; start = s.indexOf(pattern, start + pLen)) {
+                    if (bufUsed == buf.length) {
+                        buf = Arrays.copyOf(buf, bufUsed * 2 + 1);
+                    }
+                    buf[bufUsed++] = start + 1;
+                }
+                if (bufUsed > 0) {
+                    content[i] = RInt.RIntFactory.getFor(Arrays.copyOf(buf, bufUsed));
+                } else {
+                    content[i] = RInt.RIntFactory.getScalar(-1);
+                }
+            } else {
+                content[i] = RInt.BOXED_NA;
+            }
+        }
+        return RList.RListFactory.getFor(content); // drops dimensions
+    }
+
     public static RList gregexpr(Pattern p, RString text) {
         int size = text.size();
         RAny[] content = new RAny[size];
@@ -0,0 +1,86 @@
+package r.builtins;
+
+import r.*;
+import r.builtins.internal.*;
+import r.data.*;
+import r.data.RDouble.*;
+import r.errors.*;
+import r.nodes.ast.*;
+import r.nodes.exec.*;
+import r.runtime.*;
+
+public class Rexp extends CallFactory {
+    static final CallFactory _ = new Rexp("rexp", new String[]{"n", "rate"}, new String[]{"n"});
+
+    private Rexp(String name, String[] params, String[] required) {
+        super(name, params, required);
+    }
+
+    @Override public RNode create(ASTNode call, RSymbol[] names, RNode[] exprs) {
+        ArgumentInfo ia = check(call, names, exprs);
+        if (names.length == 1) {
+            return new Builtin.Builtin1(call, names, exprs) {
+
+                @Override public RAny doBuiltIn(Frame frame, RAny narg) {
+                    int n = Random.parseNArgument(narg, ast);
+                    RNG rng = Random.get(ast);
+                    try {
+                        return RDouble.RDoubleFactory.getFor(rexpStd(n, rng, ast));
+                    } finally {
+                        Random.put(rng);
+                    }
+                }
+            };
+        }
+
+        final int nPosition = ia.position("n");
+        final int ratePosition = ia.position("rate");
+
+        return new Builtin(call, names, exprs) {
+            @Override public RAny doBuiltIn(Frame frame, RAny[] args) {
+                int n = Random.parseNArgument(args[nPosition], ast);
+                double[] rate = ratePosition == -1 ? new double[] {1} : Random.parseNumericArgument(args[ratePosition], ast);
+
+                if (rate.length == 0) {
+                    return Random.allNAs(n, ast);
+                }
+                RNG rng = Random.get(ast);
+                try {
+                    return RDouble.RDoubleFactory.getFor(rexp(n, rate, rng, ast));
+                } finally {
+                    Random.put(rng);
+                }
+            }
+        };
+    }
+
+    public static double rexp(double rate, RNG rng) {
+        double scale = 1 / rate;
+        if (!RDoubleUtils.isFinite(scale) || scale <= 0) {
+            return scale == 0 ? 0 : RDouble.NaN;
+        }
+        return scale * rng.expRand();
+    }
+
+    public static double[] rexpStd(int n, RNG rng, ASTNode ast) {
+        double[] res = new double[n];
+        for (int i = 0; i < n; i++) {
+            res[i] = rng.expRand();
+        }
+        return res;
+    }
+
+    public static double[] rexp(int n, double[] rate, RNG rng, ASTNode ast) {
+        double[] res = new double[n];
+        boolean naProduced = false;
+        for (int i = 0; i < n; i++) {
+            double d = rexp(rate[i % rate.length], rng);
+            naProduced = naProduced || RDoubleUtils.isNAorNaN(d);
+            res[i] = d;
+        }
+        if (naProduced) {
+            RContext.warning(ast, RError.NA_PRODUCED);
+        }
+        return res;
+    }
+}
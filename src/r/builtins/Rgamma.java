@@ -3,8 +3,8 @@ package r.builtins;
 import r.*;
 import r.builtins.internal.*;
 import r.data.*;
+import r.data.RDouble.*;
 import r.errors.*;
-import r.ext.*;
 import r.nodes.ast.*;
 import r.nodes.exec.*;
 import r.runtime.*;
@@ -48,23 +48,163 @@ final class Rgamma extends CallFactory {
                 if (shape.length == 0 || scale.length == 0) {
                     return Random.allNAs(n, ast);
                 }
-                int [] rngKind = Random.updateNativeSeed(ast);
+                RNG rng = Random.get(ast);
                 try {
-                    return RDouble.RDoubleFactory.getFor(rgamma(n, shape, scale, ast));
+                    return RDouble.RDoubleFactory.getFor(rgamma(n, shape, scale, rng, ast));
                 } finally {
-                    Random.updateWorkspaceSeed(rngKind);
+                    Random.put(rng);
                 }
             }
         };
     }
 
-    public static double[] rgamma(int n, double[] shape, double[] scale, ASTNode ast) {
+    public static double[] rgamma(int n, double[] shape, double[] scale, RNG rng, ASTNode ast) {
         double[] res = new double[n];
-        boolean naProduced = GNUR.rgamma(res, n, shape, shape.length, scale, scale.length);
+        boolean naProduced = false;
+        for (int i = 0; i < n; i++) {
+            double d = rgamma(shape[i % shape.length], scale[i % scale.length], rng);
+            naProduced = naProduced || RDoubleUtils.isNAorNaN(d);
+            res[i] = d;
+        }
         if (naProduced) {
-            RContext.warning(ast, RError.NA_PRODUCED);  // FIXME: can this happen for std normal and R generators?
+            RContext.warning(ast, RError.NA_PRODUCED);
         }
         return res;
     }
 
+    static final double SQRT32 = 5.656854;
+    static final double EXP_M1 = 0.36787944117144233; // exp(-1) = 1/e
+
+    // coefficients q[k] for q0 = sum(q[k]*a^(-k)), a[k] for q = q0+(t*t/2)*sum(a[k]*v^k)
+    static final double Q1 = 0.04166669, Q2 = 0.02083148, Q3 = 0.00801191, Q4 = 0.00144121, Q5 = -7.388e-5, Q6 = 2.4511e-4, Q7 = 2.424e-4;
+    static final double A1 = 0.3333333, A2 = -0.250003, A3 = 0.2000062, A4 = -0.1662921, A5 = 0.1423657, A6 = -0.1367177, A7 = 0.1233795;
+
+    /**
+     * A gamma deviate, as in GNU-R: algorithm GD of Ahrens and Dieter (1982) for a >= 1, algorithm GS of Ahrens and
+     * Dieter (1974) for a < 1.
+     */
+    public static double rgamma(double a, double scale, RNG rng) {
+        if (RDoubleUtils.isNAorNaN(a) || RDoubleUtils.isNAorNaN(scale)) {
+            return RDouble.NaN;
+        }
+        if (a <= 0 || scale <= 0) {
+            if (scale == 0 || a == 0) {
+                return 0;
+            }
+            return RDouble.NaN;
+        }
+        if (!RDoubleUtils.isFinite(a) || !RDoubleUtils.isFinite(scale)) {
+            return java.lang.Double.POSITIVE_INFINITY;
+        }
+
+        if (a < 1) { // GS algorithm for parameters a < 1
+            double e = 1 + EXP_M1 * a;
+            double x;
+            for (;;) {
+                double p = e * rng.unifRand();
+                if (p >= 1) {
+                    x = -Math.log((e - p) / a);
+                    if (rng.expRand() >= (1 - a) * Math.log(x)) {
+                        break;
+                    }
+                } else {
+                    x = Math.exp(Math.log(p) / a);
+                    if (rng.expRand() >= x) {
+                        break;
+                    }
+                }
+            }
+            return scale * x;
+        }
+
+        // GD algorithm for a >= 1
+
+        // step 1: s2, s, d
+        double s2 = a - 0.5;
+        double s = Math.sqrt(s2);
+        double d = SQRT32 - s * 12;
+
+        // step 2: t = standard normal deviate, x = (s,1/2)-normal deviate, immediate acceptance
+        double t = rng.normRand();
+        double x = s + 0.5 * t;
+        double retVal = x * x;
+        if (t >= 0) {
+            return scale * retVal;
+        }
+
+        // step 3: u = (0,1)-uniform sample, squeeze acceptance
+        double u = rng.unifRand();
+        if (d * u <= t * t * t) {
+            return scale * retVal;
+        }
+
+        // step 4: q0, b, si, c, the constants in b, si and c were established by numerical experiments
+        double r = 1 / a;
+        double q0 = ((((((Q7 * r + Q6) * r + Q5) * r + Q4) * r + Q3) * r + Q2) * r + Q1) * r;
+        double b;
+        double si;
+        double c;
+        if (a <= 3.686) {
+            b = 0.463 + s + 0.178 * s2;
+            si = 1.235;
+            c = 0.195 / s - 0.079 + 0.16 * s;
+        } else if (a <= 13.022) {
+            b = 1.654 + 0.0076 * s2;
+            si = 1.68 / s + 0.275;
+            c = 0.062 / s + 0.024;
+        } else {
+            b = 1.77;
+            si = 0.75;
+            c = 0.1515 / s;
+        }
+
+        // step 5: no quotient test if x not positive
+        double q;
+        double v;
+        if (x > 0) {
+            // step 6: v and quotient q
+            v = t / (s + s);
+            if (Math.abs(v) <= 0.25) {
+                q = q0 + 0.5 * t * t * ((((((A7 * v + A6) * v + A5) * v + A4) * v + A3) * v + A2) * v + A1) * v;
+            } else {
+                q = q0 - s * t + 0.25 * t * t + (s2 + s2) * Math.log(1 + v);
+            }
+            // step 7: quotient acceptance
+            if (Math.log(1 - u) <= q) {
+                return scale * retVal;
+            }
+        }
+
+        for (;;) {
+            // step 8: e = standard exponential deviate, u = (0,1)-uniform deviate, t = (b,si)-double exponential sample
+            double e = rng.expRand();
+            u = rng.unifRand();
+            u = u + u - 1;
+            if (u < 0) {
+                t = b - si * e;
+            } else {
+                t = b + si * e;
+            }
+            // step 9: rejection if t < tau(1) = -0.71874483771719
+            if (t >= -0.71874483771719) {
+                // step 10: v and quotient q
+                v = t / (s + s);
+                if (Math.abs(v) <= 0.25) {
+                    q = q0 + 0.5 * t * t * ((((((A7 * v + A6) * v + A5) * v + A4) * v + A3) * v + A2) * v + A1) * v;
+                } else {
+                    q = q0 - s * t + 0.25 * t * t + (s2 + s2) * Math.log(1 + v);
+                }
+                // step 11: hat acceptance, if q is not positive go to step 8
+                if (q > 0) {
+                    double w = Math.expm1(q);
+                    if (c * Math.abs(u) <= w * Math.exp(e - 0.5 * t * t)) {
+                        break;
+                    }
+                }
+            }
+        }
+        x = s + 0.5 * t;
+        return scale * x * x;
+    }
+
 }
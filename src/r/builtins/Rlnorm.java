@@ -1,10 +1,10 @@
 package r.builtins;
 
 import r.*;
-import r.builtins.internal.Random;
+import r.builtins.internal.*;
 import r.data.*;
+import r.data.RDouble.*;
 import r.errors.*;
-import r.ext.*;
 import r.nodes.ast.*;
 import r.nodes.exec.*;
 import r.runtime.*;
@@ -27,11 +27,11 @@ public class Rlnorm extends CallFactory {
 
                 @Override public RAny doBuiltIn(Frame frame, RAny narg) {
                     int n = Random.parseNArgument(narg, ast);
-                    int [] rngKind = Random.updateNativeSeed(ast);
+                    RNG rng = Random.get(ast);
                     try {
-                        return RDouble.RDoubleFactory.getFor(rlnormStd(n, ast));
+                        return RDouble.RDoubleFactory.getFor(rlnormStd(n, rng, ast));
                     } finally {
-                        Random.updateWorkspaceSeed(rngKind);
+                        Random.put(rng);
                     }
                 }
             };
@@ -50,31 +50,41 @@ public class Rlnorm extends CallFactory {
                 if (meanlog.length == 0 || sdlog.length == 0) {
                     return Random.allNAs(n, ast);
                 }
-                int [] rngKind = Random.updateNativeSeed(ast);
+                RNG rng = Random.get(ast);
                 try {
-                    return RDouble.RDoubleFactory.getFor(rlnorm(n, meanlog, sdlog, ast));
+                    return RDouble.RDoubleFactory.getFor(rlnorm(n, meanlog, sdlog, rng, ast));
                 } finally {
-                    Random.updateWorkspaceSeed(rngKind);
+                    Random.put(rng);
                 }
             }
         };
     }
 
+    public static double rlnorm(double meanlog, double sdlog, RNG rng) {
+        if (RDoubleUtils.isNAorNaN(meanlog) || !RDoubleUtils.isFinite(sdlog) || sdlog < 0) {
+            return RDouble.NaN;
+        }
+        return Math.exp(Rnorm.rnorm(meanlog, sdlog, rng));
+    }
 
-    public static double[] rlnormStd(int n, ASTNode ast) {
+    public static double[] rlnormStd(int n, RNG rng, ASTNode ast) {
         double[] res = new double[n];
-        boolean naProduced = GNUR.rlnormStd(res,  n);
-        if (naProduced) {
-            RContext.warning(ast, RError.NA_PRODUCED);  // FIXME: can this happen for std normal and R generators?
+        for (int i = 0; i < n; i++) {
+            res[i] = Math.exp(rng.normRand());
         }
         return res;
     }
 
-    public static double[] rlnorm(int n, double[] meanlog, double[] sdlog, ASTNode ast) {
+    public static double[] rlnorm(int n, double[] meanlog, double[] sdlog, RNG rng, ASTNode ast) {
         double[] res = new double[n];
-        boolean naProduced = GNUR.rlnorm(res, n, meanlog, meanlog.length, sdlog, sdlog.length);
+        boolean naProduced = false;
+        for (int i = 0; i < n; i++) {
+            double d = rlnorm(meanlog[i % meanlog.length], sdlog[i % sdlog.length], rng);
+            naProduced = naProduced || RDoubleUtils.isNAorNaN(d);
+            res[i] = d;
+        }
         if (naProduced) {
-            RContext.warning(ast, RError.NA_PRODUCED);  // FIXME: can this happen for std normal and R generators?
+            RContext.warning(ast, RError.NA_PRODUCED);
         }
         return res;
     }
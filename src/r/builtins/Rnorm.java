@@ -1,16 +1,13 @@
 package r.builtins;
 
-import java.util.*;
-
 import r.*;
 import r.data.*;
 import r.data.RDouble.*;
 import r.errors.*;
-import r.ext.*;
 import r.nodes.ast.*;
 import r.nodes.exec.*;
 import r.runtime.*;
-import r.builtins.internal.Random;
+import r.builtins.internal.*;
 
 final class Rnorm extends CallFactory {
 
@@ -30,11 +27,11 @@ final class Rnorm extends CallFactory {
 
                 @Override public RAny doBuiltIn(Frame frame, RAny narg) {
                     int n = Random.parseNArgument(narg, ast);
-                    int [] rngKind = Random.updateNativeSeed(ast);
+                    RNG rng = Random.get(ast);
                     try {
-                        return RDouble.RDoubleFactory.getFor(rnormStd(n, ast));
+                        return RDouble.RDoubleFactory.getFor(rnormStd(n, rng, ast));
                     } finally {
-                        Random.updateWorkspaceSeed(rngKind);
+                        Random.put(rng);
                     }
                 }
             };
@@ -53,75 +50,44 @@ final class Rnorm extends CallFactory {
                 if (mean.length == 0 || sd.length == 0) {
                     return Random.allNAs(n, ast);
                 }
-                int [] rngKind = Random.updateNativeSeed(ast);
+                RNG rng = Random.get(ast);
                 try {
-                    return RDouble.RDoubleFactory.getFor(rnorm(n, mean, sd, ast));
+                    return RDouble.RDoubleFactory.getFor(rnorm(n, mean, sd, rng, ast));
                 } finally {
-                    Random.updateWorkspaceSeed(rngKind);
+                    Random.put(rng);
                 }
             }
         };
     }
 
-    // this is close to GNU-R, but runs much slower because of JNI
-    public static double[] rnormNaive(int n, double mu, double sigma, ASTNode ast) {
-        double[] res = new double[n];
-        boolean naProduced = false;
-        for (int i = 0; i < n; i++) {
-            double d = GNUR.rnorm(mu, sigma);
-            res[i] = d;
-            naProduced = naProduced || RDouble.RDoubleUtils.isNAorNaN(d);
-        }
-        if (naProduced) {
-            RContext.warning(ast, RError.NA_PRODUCED);
-        }
-        return res;
-    }
-
-    public static double[] rnormBatch(int n, double mu, double sigma, ASTNode ast) {
-        double[] res = new double[n];
-        boolean naProduced = GNUR.rnorm(res,  n, mu, sigma);
-        if (naProduced) {
-            RContext.warning(ast, RError.NA_PRODUCED);
-        }
-        return res;
-    }
-
-    // this is slightly faster than rnormBatch, but so far the difference seems quite small
-    public static double[] rnormBatch2(int n, double mu, double sigma, ASTNode ast) {
-        double[] res = new double[n];
+    public static double rnorm(double mu, double sigma, RNG rng) {
         if (RDoubleUtils.isNAorNaN(mu) || !RDoubleUtils.isFinite(sigma) || sigma < 0) {
-            Arrays.fill(res,  RDouble.NaN);
-            RContext.warning(ast, RError.NA_PRODUCED);
-            return res;
+            return RDouble.NaN;
         }
         if (sigma == 0 || !RDoubleUtils.isFinite(mu)) {
-            Arrays.fill(res,  mu); // includes mu = +/- Inf with finite sigma
-            return res;
-        }
-
-        boolean naProduced = GNUR.rnormNonChecking(res,  n, mu, sigma);
-        if (naProduced) {
-            RContext.warning(ast, RError.NA_PRODUCED);
+            return mu; // includes mu = +/- Inf with finite sigma
         }
-        return res;
+        return mu + sigma * rng.normRand();
     }
 
-    // faster than rnormBatch2 for standard normal
-    public static double[] rnormStd(int n, ASTNode ast) {
+    public static double[] rnormStd(int n, RNG rng, ASTNode ast) {
         double[] res = new double[n];
-        boolean naProduced = GNUR.rnormStd(res,  n);
-        if (naProduced) {
-            RContext.warning(ast, RError.NA_PRODUCED);  // FIXME: can this happen for std normal and R generators?
+        for (int i = 0; i < n; i++) {
+            res[i] = rng.normRand();
         }
         return res;
     }
 
-    public static double[] rnorm(int n, double[] mean, double[] sd, ASTNode ast) {
+    public static double[] rnorm(int n, double[] mean, double[] sd, RNG rng, ASTNode ast) {
         double[] res = new double[n];
-        boolean naProduced = GNUR.rnorm(res, n, mean, mean.length, sd, sd.length);
+        boolean naProduced = false;
+        for (int i = 0; i < n; i++) {
+            double d = rnorm(mean[i % mean.length], sd[i % sd.length], rng);
+            naProduced = naProduced || RDoubleUtils.isNAorNaN(d);
+            res[i] = d;
+        }
         if (naProduced) {
-            RContext.warning(ast, RError.NA_PRODUCED);  // FIXME: can this happen for std normal and R generators?
+            RContext.warning(ast, RError.NA_PRODUCED);
         }
         return res;
     }
@@ -0,0 +1,67 @@
+package r.builtins;
+
+import java.io.*;
+
+import r.data.*;
+import r.errors.*;
+import r.nodes.ast.*;
+import r.nodes.exec.*;
+import r.runtime.*;
+
+/**
+ * "Rprof"
+ *
+ * <pre>
+ * filename -- the file to write the profile to, NULL or "" to stop profiling
+ * append -- logical, whether to append to the file
+ * interval -- the time interval between samples, in seconds
+ * memory.profiling -- logical, whether to also write the allocated bytes (to filename.alloc)
+ * line.profiling -- logical, whether to attribute the samples to source lines
+ * </pre>
+ *
+ * Unlike GNU-R, the profile is written when profiling stops, in the collapsed stack format of flame graph tools (see
+ * r.nodes.exec.Profiler).
+ */
+final class Rprof extends CallFactory {
+    static final CallFactory _ = new Rprof("Rprof", new String[]{"filename", "append", "interval", "memory.profiling", "line.profiling"}, new String[]{});
+
+    private Rprof(String name, String[] params, String[] required) {
+        super(name, params, required);
+    }
+
+    @Override public RNode create(ASTNode call, RSymbol[] names, RNode[] exprs) {
+        ArgumentInfo ia = check(call, names, exprs);
+        final int posFilename = ia.position("filename");
+        final int posAppend = ia.position("append");
+        final int posInterval = ia.position("interval");
+        final int posMemory = ia.position("memory.profiling");
+        final int posLine = ia.position("line.profiling");
+        return new Builtin(call, names, exprs) {
+            @Override public RAny doBuiltIn(Frame frame, RAny[] args) {
+                String filename = "Rprof.out";
+                if (posFilename != -1) {
+                    filename = args[posFilename] instanceof RNull ? "" : File.getScalarString(args[posFilename], ast, "filename");
+                }
+                boolean append = posAppend != -1 ? Eigen.parseLogical(args[posAppend], ast, "append") : false;
+                long interval = 20;
+                if (posInterval != -1) {
+                    RDouble d = args[posInterval].asDouble();
+                    if (d.size() != 1 || !(d.getDouble(0) > 0)) { throw RError.getInvalidArgument(ast, "interval"); }
+                    interval = Math.round(d.getDouble(0) * 1000);
+                }
+                boolean memory = posMemory != -1 ? Eigen.parseLogical(args[posMemory], ast, "memory.profiling") : false;
+                boolean lines = posLine != -1 ? Eigen.parseLogical(args[posLine], ast, "line.profiling") : false;
+                try {
+                    if (filename.isEmpty()) {
+                        Profiler.stop();
+                    } else {
+                        Profiler.start(filename, append, interval, memory, lines);
+                    }
+                } catch (IOException e) {
+                    throw RError.getCannotOpenFile(ast, filename, e.toString());
+                }
+                return RNull.getNull();
+            }
+        };
+    }
+}
@@ -3,8 +3,8 @@ package r.builtins;
 import r.*;
 import r.builtins.internal.*;
 import r.data.*;
+import r.data.RDouble.*;
 import r.errors.*;
-import r.ext.*;
 import r.nodes.ast.*;
 import r.nodes.exec.*;
 import r.runtime.*;
@@ -27,12 +27,11 @@ final class Runif extends CallFactory {
 
                 @Override public RAny doBuiltIn(Frame frame, RAny narg) {
                     int n = Random.parseNArgument(narg, ast);
-                    int [] rngKind = Random.updateNativeSeed(ast);
+                    RNG rng = Random.get(ast);
                     try {
-                        return RDouble.RDoubleFactory.getFor(runifStd(n, ast));
+                        return RDouble.RDoubleFactory.getFor(runifStd(n, rng, ast));
                     } finally {
-                        Random.updateWorkspaceSeed(rngKind);
-
+                        Random.put(rng);
                     }
                 }
             };
@@ -51,30 +50,48 @@ final class Runif extends CallFactory {
                 if (min.length == 0 || max.length == 0) {
                     return Random.allNAs(n, ast);
                 }
-                int [] rngKind = Random.updateNativeSeed(ast);
+                RNG rng = Random.get(ast);
                 try {
-                    return RDouble.RDoubleFactory.getFor(runif(n, min, max, ast));
+                    return RDouble.RDoubleFactory.getFor(runif(n, min, max, rng, ast));
                 } finally {
-                    Random.updateWorkspaceSeed(rngKind);
+                    Random.put(rng);
                 }
             }
         };
     }
 
-    public static double[] runifStd(int n, ASTNode ast) {
+    public static double runif(double a, double b, RNG rng) {
+        if (!RDoubleUtils.isFinite(a) || !RDoubleUtils.isFinite(b) || b < a) {
+            return RDouble.NaN;
+        }
+        if (a == b) {
+            return a;
+        }
+        double u;
+        do {
+            u = rng.unifRand();
+        } while (u <= 0 || u >= 1);
+        return a + (b - a) * u;
+    }
+
+    public static double[] runifStd(int n, RNG rng, ASTNode ast) {
         double[] res = new double[n];
-        boolean naProduced = GNUR.runifStd(res,  n);
-        if (naProduced) {
-            RContext.warning(ast, RError.NA_PRODUCED);  // FIXME: can this happen?
+        for (int i = 0; i < n; i++) {
+            res[i] = rng.unifRand();
         }
         return res;
     }
 
-    public static double[] runif(int n, double[] min, double[] max, ASTNode ast) {
+    public static double[] runif(int n, double[] min, double[] max, RNG rng, ASTNode ast) {
         double[] res = new double[n];
-        boolean naProduced = GNUR.runif(res, n, min, min.length, max, max.length);
+        boolean naProduced = false;
+        for (int i = 0; i < n; i++) {
+            double d = runif(min[i % min.length], max[i % max.length], rng);
+            naProduced = naProduced || RDoubleUtils.isNAorNaN(d);
+            res[i] = d;
+        }
         if (naProduced) {
-            RContext.warning(ast, RError.NA_PRODUCED);  // FIXME: can this happen for std normal and R generators?
+            RContext.warning(ast, RError.NA_PRODUCED);
         }
         return res;
     }
@@ -0,0 +1,51 @@
+package r.builtins;
+
+import java.io.*;
+
+import r.*;
+import r.data.*;
+import r.data.internal.*;
+import r.errors.*;
+import r.nodes.ast.*;
+import r.nodes.exec.*;
+import r.runtime.*;
+
+/**
+ * "saveVector"
+ *
+ * <pre>
+ * object -- a logical, integer, double, character vector or a list of such values, with their dimensions, names and attributes
+ * file -- a character string naming the file to write
+ * </pre>
+ *
+ * Writes the object in the binary format of VectorFile, to be read back by loadVector.
+ */
+final class SaveVector extends CallFactory {
+    static final CallFactory _ = new SaveVector("saveVector", new String[]{"object", "file"}, new String[]{"object", "file"});
+
+    private SaveVector(String name, String[] params, String[] required) {
+        super(name, params, required);
+    }
+
+    @Override public RNode create(ASTNode call, RSymbol[] names, RNode[] exprs) {
+        ArgumentInfo ia = check(call, names, exprs);
+        final int posObject = ia.position("object");
+        final int posFile = ia.position("file");
+        return new Builtin(call, names, exprs) {
+            @Override public RAny doBuiltIn(Frame frame, RAny[] args) {
+                RAny object = args[posObject];
+                String unsupported = VectorFile.unsupported(object);
+                if (unsupported != null) { throw RError.getGenericError(ast, "cannot save values of type '" + unsupported + "'"); }
+                String file = File.getScalarString(args[posFile], ast, "file");
+                try {
+                    VectorFile.write(object, file);
+                } catch (FileNotFoundException e) {
+                    throw RError.getCannotOpenFile(ast, file, e.toString());
+                } catch (IOException e) {
+                    throw RError.getGenericError(ast, e.toString());
+                }
+                return RNull.getNull();
+            }
+        };
+    }
+}
@@ -127,6 +127,15 @@ final class Scan extends CallFactory {
                     }
                 }
                 try {
+                    MappedInput mapped = con.mappedInput(ast);
+                    if (mapped != null) {
+                        RAny res = scanMapped(mapped, nmax, ast, what);
+                        if (!quiet) {
+                            int nread = ((RArray) res).size();
+                            Console.println(String.format("Read %d item%s.", nread, nread == 1 ? "" : "s"));
+                        }
+                        return res;
+                    }
                     // TODO: replace this primitive scanning by something more general
                     // note that we cannot simply use Scan because it would buffer too much data (Scan cannot push its remaining buffered data back to the
                     // underlying BufferedReader ; probably will have to implement a custom BufferedScanner for R
@@ -192,8 +201,6 @@ final class Scan extends CallFactory {
         return false;
     }
 
-    private static ConversionStatus cs = new ConversionStatus();
-
     public static RString scanString(ArrayList<String> src, @SuppressWarnings("unused") ASTNode ast) {
         int size = src.size();
         String[] content = new String[size];
@@ -202,7 +209,7 @@ final class Scan extends CallFactory {
 
     public static RComplex scanComplex(ArrayList<String> src, ASTNode ast) {
         int size = src.size();
-        cs.naIntroduced = false;
+        ConversionStatus cs = new ConversionStatus();
         double[] content = new double[2 * size];
         for (int i = 0; i < size; i++) {
             String str = src.get(i);
@@ -222,42 +229,51 @@ final class Scan extends CallFactory {
 
     public static RDouble scanDouble(ArrayList<String> src, ASTNode ast) {
         int size = src.size();
-        cs.naIntroduced = false;
+        ConversionStatus cs = new ConversionStatus();
         double[] content = new double[size];
         for (int i = 0; i < size; i++) {
-            String str = src.get(i);
-            content[i] = Convert.string2double(str, cs);
-            if (cs.naIntroduced) {
-                if (str.equals("NA")) {
-                    cs.naIntroduced = false;
-                } else {
-                    throw RError.getScanUnexpected(ast, "a real", str); }
-                }
+            content[i] = scanDouble(src.get(i), cs, ast);
         }
         return RDouble.RDoubleFactory.getFor(content);
     }
 
+    static double scanDouble(String str, ConversionStatus cs, ASTNode ast) {
+        double d = Convert.string2double(str, cs);
+        if (cs.naIntroduced) {
+            if (str.equals("NA")) {
+                cs.naIntroduced = false;
+            } else {
+                throw RError.getScanUnexpected(ast, "a real", str);
+            }
+        }
+        return d;
+    }
+
     public static RInt scanInt(ArrayList<String> src, ASTNode ast) {
         int size = src.size();
-        cs.naIntroduced = false;
+        ConversionStatus cs = new ConversionStatus();
         int[] content = new int[size];
         for (int i = 0; i < size; i++) {
-            String str = src.get(i);
-            content[i] = Convert.string2int(str, cs);
-            if (cs.naIntroduced) {
-                if (str.equals("NA")) {
-                    cs.naIntroduced = false;
-                } else {
-                    throw RError.getScanUnexpected(ast, "an integer", str);
-                }
-            }
+            content[i] = scanInt(src.get(i), cs, ast);
         }
         return RInt.RIntFactory.getFor(content);
     }
 
+    static int scanInt(String str, ConversionStatus cs, ASTNode ast) {
+        int i = Convert.string2int(str, cs);
+        if (cs.naIntroduced) {
+            if (str.equals("NA")) {
+                cs.naIntroduced = false;
+            } else {
+                throw RError.getScanUnexpected(ast, "an integer", str);
+            }
+        }
+        return i;
+    }
+
     public static RLogical scanLogical(ArrayList<String> src, ASTNode ast) {
         int size = src.size();
-        cs.naIntroduced = false;
+        ConversionStatus cs = new ConversionStatus();
         int[] content = new int[size];
         for (int i = 0; i < size; i++) {
             String str = src.get(i);
@@ -288,7 +304,7 @@ final class Scan extends CallFactory {
 
     public static RRaw scanRaw(ArrayList<String> src, ASTNode ast) {
         int size = src.size();
-        cs.naIntroduced = false;
+        ConversionStatus cs = new ConversionStatus();
         cs.outOfRange = false;
         byte[] content = new byte[size];
         for (int i = 0; i < size; i++) {
@@ -329,6 +345,50 @@ final class Scan extends CallFactory {
         throw RError.getInvalidArgument(ast, "what");
     }
 
+    // numbers are parsed directly from the mapped file, without creating a string for each field
+    public static RAny scanMapped(MappedInput input, int nmax, ASTNode ast, RAny what) throws IOException {
+        if (what instanceof RDouble) {
+            ConversionStatus cs = new ConversionStatus();
+            double[] content = new double[16];
+            int nread = 0;
+            while (input.nextField()) {
+                double d = input.parseFieldDouble() ? input.fieldDouble() : scanDouble(input.fieldString(), cs, ast);
+                if (nread == content.length) {
+                    content = Arrays.copyOf(content, 2 * nread);
+                }
+                content[nread++] = d;
+                if (nread == nmax) {
+                    break;
+                }
+            }
+            return RDouble.RDoubleFactory.getFor(nread == content.length ? content : Arrays.copyOf(content, nread));
+        }
+        if (what instanceof RInt) {
+            ConversionStatus cs = new ConversionStatus();
+            int[] content = new int[16];
+            int nread = 0;
+            while (input.nextField()) {
+                int i = input.parseFieldInt() ? input.fieldInt() : scanInt(input.fieldString(), cs, ast);
+                if (nread == content.length) {
+                    content = Arrays.copyOf(content, 2 * nread);
+                }
+                content[nread++] = i;
+                if (nread == nmax) {
+                    break;
+                }
+            }
+            return RInt.RIntFactory.getFor(nread == content.length ? content : Arrays.copyOf(content, nread));
+        }
+        ArrayList<String> buf = new ArrayList<>();
+        while (input.nextField()) {
+            buf.add(input.fieldString());
+            if (buf.size() == nmax) {
+                break;
+            }
+        }
+        return scan(buf, ast, what);
+    }
+
     public static boolean is_white(int c) {
         return c == '\r' || c == '\n' || c == '\t' || c == ' ';
     }
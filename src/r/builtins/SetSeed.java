@@ -0,0 +1,48 @@
+package r.builtins;
+
+import r.builtins.internal.*;
+import r.data.*;
+import r.errors.*;
+import r.nodes.ast.*;
+import r.nodes.exec.*;
+import r.runtime.*;
+
+/**
+ * "set.seed"
+ *
+ * <pre>
+ * seed -- a single value, interpreted as an integer.
+ * kind -- character or NULL. If kind is a character string, set R's RNG to the kind desired (see RNGkind).
+ * normal.kind -- character string or NULL. If it is a character string, set the method of Normal generation.
+ * </pre>
+ */
+final class SetSeed extends CallFactory {
+
+    static final CallFactory _ = new SetSeed("set.seed", new String[]{"seed", "kind", "normal.kind"}, new String[]{"seed"});
+
+    private SetSeed(String name, String[] params, String[] required) {
+        super(name, params, required);
+    }
+
+    @Override public RNode create(ASTNode call, RSymbol[] names, RNode[] exprs) {
+        ArgumentInfo ia = check(call, names, exprs);
+        final int seedPosition = ia.position("seed");
+        final int kindPosition = ia.position("kind");
+        final int normalKindPosition = ia.position("normal.kind");
+        return new Builtin(call, names, exprs) {
+            @Override public RAny doBuiltIn(Frame frame, RAny[] args) {
+                RInt iseed = args[seedPosition].asInt();
+                if (iseed.size() < 1 || iseed.getInt(0) == RInt.NA) { throw RError.getGenericError(ast, RError.INVALID_SEED); }
+                int kind = kindPosition == -1 ? -1 : RNGKind.parseKind(args[kindPosition], RNG.KIND_NAMES, RNG.DEFAULT_KIND, ast, "kind");
+                int normalKind = normalKindPosition == -1 ? -1 : RNGKind.parseKind(args[normalKindPosition], RNG.NORMAL_KIND_NAMES, RNG.DEFAULT_NORMAL_KIND, ast, "normal.kind");
+                if (kind == -1 || normalKind == -1) {
+                    RNG current = Random.get(ast);
+                    kind = kind == -1 ? current.kind() : kind;
+                    normalKind = normalKind == -1 ? current.normalKind() : normalKind;
+                }
+                Random.put(RNG.fromSeed(kind, normalKind, iseed.getInt(0)));
+                return RNull.getNull();
+            }
+        };
+    }
+}
@@ -3,22 +3,16 @@ package r.builtins;
 import java.util.*;
 
 import r.*;
-import r.builtins.Order.DoubleComparator;
-import r.builtins.Order.IntComparator;
-import r.builtins.Order.LogicalComparator;
-import r.builtins.Order.StringComparator;
 import r.data.*;
 import r.errors.*;
 import r.nodes.ast.*;
 import r.nodes.exec.*;
 import r.runtime.*;
 
-import java.lang.Integer;
-
 // NOTE: in GNU-R, the user can select between a stable version of shellsort and unstable version of quicksort, and the selection is mostly
 // honored except for some cases when shellsort is silently used instead of quicksort (so "stable" instead of "unstable")
-// In FastR, we treat "shell" as requirement for a stable sort and "quick" as that stability is not required, but we use the algorithms from the
-// JDK.
+// In FastR, we treat "shell" as requirement for a stable sort (a merge sort) and "quick" as that stability is not required (a quicksort),
+// see IndexSort.
 
 // NOTE: sort.int is implemented in R in GNU-R
 
@@ -84,7 +78,7 @@ final class Sort extends CallFactory {
                 RInt partial = (partialPosition == -1) ? null : parsePartial(params[partialPosition], ast);
                 int naLast = (naLastPosition == -1) ? RLogical.NA : Order.parseNALast(params[naLastPosition], ast);
                 boolean decreasing = (decreasingPosition == -1) ? false : Order.parseDecreasing(params[decreasingPosition], ast);
-                @SuppressWarnings("unused") boolean quickSort = (methodPosition == -1) ? false : parseMethod(params[methodPosition], ast);
+                boolean quickSort = (methodPosition == -1) ? false : parseMethod(params[methodPosition], ast);
                 boolean indexReturn = (indexReturnPosition == -1) ? false : parseIndexReturn(params[indexReturnPosition], ast);
 
                 if (partial != null) {
@@ -97,189 +91,63 @@ final class Sort extends CallFactory {
                 if (indexReturn && naLast != RInt.NA) {
                     throw RError.getIndexReturnRemoveNA(ast);
                 }
-                if (x.names() == null && !indexReturn && !decreasing) { // faster versions
+                if (x.names() == null && !indexReturn) { // faster versions, stability does not matter without indexes
                     if (x instanceof RDouble) {
                         double[] a = RDouble.RDoubleUtils.copyAsDoubleArray((RDouble) x);
                         // FIXME: could be in-place for temporary non-scalars with no attributes
                         Arrays.sort(a);
+                        if (decreasing) {
+                            reverseNonNAs(a);
+                        }
                         a = fixNAs(a, naLast);
                         return RDouble.RDoubleFactory.getFor(a); // drop attributes
                     }
                     if (x instanceof RInt) {
                         int[] a = RInt.RIntUtils.copyAsIntArray((RInt)x);
                         Arrays.sort(a);
+                        if (decreasing) {
+                            reverseNonNAs(a);
+                        }
                         a = fixNAs(a, naLast);
                         return RInt.RIntFactory.getFor(a); // drop attributes
                     }
                     // FIXME: could add a specialized "sort" for logicals
                 }
-                return sort(x, naLast, decreasing, indexReturn);
-            }
-        };
-    }
-
-    public static RArray sort(RArray x, int naLast, boolean decreasing, boolean indexReturn) {
-        if (x instanceof RDouble) {
-            return sort((RDouble) x, naLast, decreasing, indexReturn);
-        }
-        if (x instanceof RInt) {
-            return sort((RInt) x, naLast, decreasing, indexReturn);
-        }
-        if (x instanceof RString) {
-            return sort((RString) x, naLast, decreasing, indexReturn);
-        }
-        if (x instanceof RLogical) {
-            return sort((RLogical) x, naLast, decreasing, indexReturn);
-        }
-        Utils.nyi("unsupported type for sorting");
-        return null;
-    }
-
-    public static RArray sort(RDouble x, int naLast, final boolean decreasing, boolean indexReturn) {
-        int size = x.size();
-        Integer[] order = new Integer[size]; // TODO: remove Java boxing through primitive sort methods
-        ArrayList<Integer> naorder = new ArrayList<>();  // TODO: replace this by an implementation for primitives
-        int[] naRemoveIndex = indexReturn ? new int[size] : null; // maps each index to index if NA/NaNs were removed
-        int nnas = 0;
-        int oi = 0;
-        boolean naRemove = naLast == RInt.NA;
-        for (int i = 0; i < size; i++) {
-            if (naRemoveIndex != null) {
-                naRemoveIndex[i] = i - nnas;
-            }
-            double d = x.getDouble(i);
-            if (RDouble.RDoubleUtils.isNAorNaN(d)) {
-                if (!naRemove) {
-                    naorder.add(i);
-                } else {
-                    nnas++;
-                }
-            } else {
-                order[oi++] = i;
-            }
-        }
-        final DoubleComparator cmp = new DoubleComparator(x);
-        Comparator<Integer> mainComparator = new Comparator<Integer>() {
-
-            @Override public int compare(Integer o1, Integer o2) {
-                int res = cmp.cmp(o1, o2);
-                return !decreasing ? res : -res;
-            }
-        };
-        Arrays.sort(order, 0, oi, mainComparator);
-        return buildSortResults(x, order, oi, naorder, naLast, naRemoveIndex);
-    }
-
-    public static RArray sort(RInt x, int naLast, final boolean decreasing, boolean indexReturn) {
-        int size = x.size();
-        Integer[] order = new Integer[size]; // TODO: remove Java boxing through primitive sort methods
-        ArrayList<Integer> naorder = new ArrayList<>();  // TODO: replace this by an implementation for primitives
-        int[] naRemoveIndex = indexReturn ? new int[size] : null; // maps each index to index if NA/NaNs were removed
-        int nnas = 0;
-        int oi = 0;
-        boolean naRemove = naLast == RInt.NA;
-        for (int i = 0; i < size; i++) {
-            if (naRemoveIndex != null) {
-                naRemoveIndex[i] = i - nnas;
-            }
-            int v = x.getInt(i);
-            if (v == RInt.NA) {
-                if (!naRemove) {
-                    naorder.add(i);
-                } else {
-                    nnas++;
-                }
-            } else {
-                order[oi++] = i;
-            }
-        }
-        final IntComparator cmp = new IntComparator(x);
-        Comparator<Integer> mainComparator = new Comparator<Integer>() {
-
-            @Override public int compare(Integer o1, Integer o2) {
-                int res = cmp.cmp(o1, o2);
-                return !decreasing ? res : -res;
+                return sort(x, naLast, decreasing, indexReturn, !quickSort, ast);
             }
         };
-        Arrays.sort(order, 0, oi, mainComparator);
-        return buildSortResults(x, order, oi, naorder, naLast, naRemoveIndex);
     }
 
-    public static RArray sort(RString x, int naLast, final boolean decreasing, boolean indexReturn) {
-        int size = x.size();
-        Integer[] order = new Integer[size]; // TODO: remove Java boxing through primitive sort methods
-        ArrayList<Integer> naorder = new ArrayList<>();  // TODO: replace this by an implementation for primitives
-        int[] naRemoveIndex = indexReturn ? new int[size] : null; // maps each index to index if NA/NaNs were removed
-        int nnas = 0;
-        int oi = 0;
-        boolean naRemove = naLast == RInt.NA;
-        for (int i = 0; i < size; i++) {
-            if (naRemoveIndex != null) {
-                naRemoveIndex[i] = i - nnas;
-            }
-            String v = x.getString(i);
-            if (v == RString.NA) {
-                if (!naRemove) {
-                    naorder.add(i);
-                } else {
-                    nnas++;
-                }
-            } else {
-                order[oi++] = i;
-            }
+    public static RArray sort(RArray x, int naLast, boolean decreasing, boolean indexReturn, boolean stable, ASTNode ast) {
+        if (!(x instanceof RDouble || x instanceof RInt || x instanceof RString || x instanceof RLogical)) {
+            Utils.nyi("unsupported type for sorting");
+            return null;
         }
-        final StringComparator cmp = new StringComparator(x);
-        Comparator<Integer> mainComparator = new Comparator<Integer>() {
-
-            @Override public int compare(Integer o1, Integer o2) {
-                int res = cmp.cmp(o1, o2);
-                return !decreasing ? res : -res;
-            }
-        };
-        Arrays.sort(order, 0, oi, mainComparator);
-        return buildSortResults(x, order, oi, naorder, naLast, naRemoveIndex);
-    }
-
-    public static RArray sort(RLogical x, int naLast, final boolean decreasing, boolean indexReturn) {
         int size = x.size();
-        Integer[] order = new Integer[size]; // TODO: remove Java boxing through primitive sort methods
-        ArrayList<Integer> naorder = new ArrayList<>();  // TODO: replace this by an implementation for primitives
+        int[] order = new int[size]; // indexes of non-NA values from the start, of NA/NaN values backwards from the end
         int[] naRemoveIndex = indexReturn ? new int[size] : null; // maps each index to index if NA/NaNs were removed
         int nnas = 0;
         int oi = 0;
-        boolean naRemove = naLast == RInt.NA;
         for (int i = 0; i < size; i++) {
             if (naRemoveIndex != null) {
                 naRemoveIndex[i] = i - nnas;
             }
-            int v = x.getLogical(i);
-            if (v == RLogical.NA) {
-                if (!naRemove) {
-                    naorder.add(i);
-                } else {
-                    nnas++;
-                }
+            if (x.isNAorNaN(i)) {
+                order[size - 1 - nnas] = i;
+                nnas++;
             } else {
                 order[oi++] = i;
             }
         }
-        final LogicalComparator cmp = new LogicalComparator(x);
-        Comparator<Integer> mainComparator = new Comparator<Integer>() {
-
-            @Override public int compare(Integer o1, Integer o2) {
-                int res = cmp.cmp(o1, o2);
-                return !decreasing ? res : -res;
-            }
-        };
-        Arrays.sort(order, 0, oi, mainComparator);
-        return buildSortResults(x, order, oi, naorder, naLast, naRemoveIndex);
+        IndexSort.sort(x, order, oi, decreasing, stable, ast);
+        return buildSortResults(x, order, oi, naLast == RInt.NA ? 0 : nnas, naLast, naRemoveIndex);
     }
 
     private static final RArray.Names resultNames = RArray.Names.create(new RSymbol[]{RSymbol.getSymbol("x"), RSymbol.getSymbol("ix")});
 
-    // naorder will be empty whenever naLast == RInt.NA
-    public static RArray buildSortResults(RArray x, Integer[] order, int orderLen, ArrayList<Integer> naorder, int naLast, int[] naRemoveIndex) {
-        int nalen = naorder.size();
+    // order holds orderLen sorted indexes of non-NA values, followed by (at its end, backwards) nalen indexes of NA
+    // values; nalen is 0 whenever naLast == RInt.NA
+    public static RArray buildSortResults(RArray x, int[] order, int orderLen, int nalen, int naLast, int[] naRemoveIndex) {
         int size = x.size();
 
         RArray.Names names = x.names();
@@ -330,7 +198,7 @@ final class Sort extends CallFactory {
             }
 
             for(int i = 0; i < nalen; i++) {
-                int xi = naorder.get(i);
+                int xi = order[order.length - 1 - i];
                 int resi = i + naStart;
                 res.set(resi, x.get(xi));
                 if (nsymbols != null) {
@@ -359,6 +227,32 @@ final class Sort extends CallFactory {
         return res;
     }
 
+    // a is sorted in ascending order, with NAs and NaNs at the end
+    public static void reverseNonNAs(double[] a) {
+        int n = a.length;
+        while (n > 0 && RDouble.RDoubleUtils.isNAorNaN(a[n - 1])) {
+            n--;
+        }
+        for (int i = 0, j = n - 1; i < j; i++, j--) {
+            double tmp = a[i];
+            a[i] = a[j];
+            a[j] = tmp;
+        }
+    }
+
+    // a is sorted in ascending order, with NAs at the beginning
+    public static void reverseNonNAs(int[] a) {
+        int first = 0;
+        while (first < a.length && a[first] == RInt.NA) {
+            first++;
+        }
+        for (int i = first, j = a.length - 1; i < j; i++, j--) {
+            int tmp = a[i];
+            a[i] = a[j];
+            a[j] = tmp;
+        }
+    }
+
     public static double[] fixNAs(double[] a, int naLast) {
         // all NAs and NaNs will be at the end of the array
         if (naLast == RLogical.TRUE) {
@@ -50,7 +50,7 @@ final class Sqrt extends MathBase {
     // FIXME: could also optimize for the case that the operation does produce NaNs (although that is not so common)
     public static void sqrt(double[] x, double[] res, ASTNode ast) {
         int size = x.length;
-        if (!RDoubleUtils.ARITH_NA_CHECKS && RContext.hasMKL() && MKL.use(size)) {
+        if (!RDoubleUtils.ARITH_NA_CHECKS && Backends.SQRT.useNative(size)) {
             MKL.vdSqrt(size, x, res);
             return;
         }
@@ -4,6 +4,7 @@ import java.util.*;
 import java.util.regex.*;
 
 import r.*;
+import r.builtins.internal.*;
 import r.data.*;
 import r.nodes.ast.*;
 import r.nodes.exec.*;
@@ -23,7 +24,7 @@ import r.runtime.*;
  *         encodings are not converted. This is forced (with a warning) if any input is found which is marked as "bytes".
  * </pre>
  */
-// FIXME: this implementation is very slow and is only partial
+// FIXME: this implementation is only partial
 // the supported regular expressions may not be exactly like in GNU-R
 final class Strsplit extends CallFactory {
     static final CallFactory _ = new Strsplit("strsplit", new String[]{"x", "split", "fixed", "perl", "useBytes"}, new String[]{"x", "split"});
@@ -40,20 +41,21 @@ final class Strsplit extends CallFactory {
         final int posPerl = ia.position("perl");
         final int posSplit = ia.position("split");
         return new Builtin(call, names, exprs) {
+            final Regex.Cache cache = new Regex.Cache();
+
             @Override public RAny doBuiltIn(Frame frame, RAny[] args) {
                 RString x = Convert.coerceToStringError(args[posX], ast);
                 RString split = Convert.coerceToStringError(args[posSplit], ast);
                 boolean fixed = posFixed != -1 ? Convert.checkFirstLogical(args[posFixed], RLogical.TRUE) : false;
                 boolean perl = posPerl != -1 ? Convert.checkFirstLogical(args[posPerl], RLogical.TRUE) : false;
 
-                return strsplit(ast, x, split, fixed, perl);
+                return strsplit(ast, x, split, fixed, perl, cache);
             }
         };
     }
 
-    // FIXME: could get rid of ArrayList (also fixed matching below)
-    // FIXME: could cache compiled regular expression evaluators, and particularly so when the regular expression is a constant
-    public static RAny strSplitRE(RString x, RString split) {
+    // FIXME: could get rid of ArrayList (like strSplitFixed)
+    public static RAny strSplitRE(RString x, RString split, boolean perl, Regex.Cache cache) {
         int splitIndex = 0;
         int splitSize = split.size();
         Pattern[] patterns = new Pattern[splitSize];
@@ -64,14 +66,18 @@ final class Strsplit extends CallFactory {
             Pattern p = patterns[splitIndex];
             if (p == null) {
                 String separator = split.getString(splitIndex);
-                p = Pattern.compile(separator);
+                p = splitSize == 1 ? cache.get(separator, false, false, perl) : Regex.compile(separator, false, false, perl);
                 patterns[splitIndex] = p;
-                splitIndex++;
-                if (splitIndex == splitSize) {
-                    splitIndex = 0;
-                }
+            }
+            splitIndex++;
+            if (splitIndex == splitSize) {
+                splitIndex = 0;
             }
             String str = x.getString(i);
+            if (str == RString.NA) {
+                content[i] = RString.BOXED_NA;
+                continue;
+            }
             int strLen = str.length();
             Matcher m = p.matcher(str);
             buf.clear();
@@ -95,70 +101,44 @@ final class Strsplit extends CallFactory {
         return RList.RListFactory.getFor(content);
     }
 
-    // FIXME: wouldn't it be just faster & simpler to use Java's regexes with Pattern.LITERAL flag?
-
-    // FIXME: this could be optimized by getting rid of ArrayList (R does two passes, one to count number of occurrences, then allocates, then another)
-    //        we could speculate that elements of x will have always the same number of matches (e.g. lines of input in fixed format)
-    // FIXME: this could also be optimized by using a better algorithm to search text, e.g. KMG
-    //        who knows if using Java's regex wouldn't be faster than this implementation
     public static RAny strSplitFixed(RString x, RString split) {
-        int xsize = x.size();
+        String[] xcontent = StringKernels.content(x);
+        String[] separators = StringKernels.content(split);
+        int xsize = xcontent.length;
         RAny[] content = new RAny[xsize];
         int splitIndex = 0;
-        int splitSize = split.size();
-        ArrayList<String> buf = new ArrayList<>();
         for (int i = 0; i < xsize; i++) {
-            String separator = split.getString(splitIndex++);
-            int separatorLength = separator.length();
-            if (splitIndex == splitSize) {
+            String separator = separators[splitIndex++];
+            if (splitIndex == separators.length) {
                 splitIndex = 0;
             }
-            String str = x.getString(i);
-            if (separatorLength > 0) {
-                int strLen = str.length();
-                int j = 0;
-                buf.clear();
-                while (j < strLen) {
-                    int separatorStart = str.indexOf(separator, j);
-                    if (separatorStart != -1) {
-                        buf.add(str.substring(j, separatorStart));
-                        j = separatorStart + separatorLength;
-                    } else {
-                        if (j < strLen) {
-                            buf.add(str.substring(j));
-                        }
-                        break;
-                    }
-                }
-                String[] econtent = new String[buf.size()];
-                content[i] = RString.RStringFactory.getFor(buf.toArray(econtent));
-            } else {
-                content[i] = RString.RStringFactory.getFor(stringToChars(str));
-            }
-
+            String str = xcontent[i];
+            content[i] = RString.RStringFactory.getFor(separator.length() > 0 ? StringKernels.split(str, separator) : StringKernels.chars(str));
         }
         return RList.RListFactory.getFor(content);
     }
 
-    public static String[] stringToChars(String str) {
-        int strLen = str.length();
-        String[] chars = new String[strLen];
-        for (int j = 0; j < strLen; j++) {
-            chars[j] = String.valueOf(str.charAt(j)); // ?? would substring be faster?
-        }
-        return chars;
-    }
-
     public static RAny strSplitChars(RString x) {
-        int xsize = x.size();
+        String[] xcontent = StringKernels.content(x);
+        int xsize = xcontent.length;
         RAny[] content = new RAny[xsize];
         for (int i = 0; i < xsize; i++) {
-            content[i] = RString.RStringFactory.getFor(stringToChars(x.getString(i)));
+            content[i] = RString.RStringFactory.getFor(StringKernels.chars(xcontent[i]));
         }
         return RList.RListFactory.getFor(content);
     }
 
-    public static RAny strsplit(ASTNode ast, RString x, RString split, boolean fixed, boolean perl) {
+    static boolean allLiteral(RString split) {
+        int size = split.size();
+        for (int i = 0; i < size; i++) {
+            if (!Regex.isLiteral(split.getString(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static RAny strsplit(ASTNode ast, RString x, RString split, boolean fixed, boolean perl, Regex.Cache cache) {
         int splitSize = split.size();
         if (splitSize == 0) { return strSplitChars(x); }
         if (splitSize == 1) {
@@ -168,7 +148,10 @@ final class Strsplit extends CallFactory {
             if (!perl) {
                 RContext.warning(ast, "Using a Perl-like regular expression syntax (non-Perl not implemented yet).");
             }
-            return strSplitRE(x, split);
+            if (allLiteral(split)) {
+                return strSplitFixed(x, split);
+            }
+            return strSplitRE(x, split, perl, cache);
         } else {
             return strSplitFixed(x, split);
         }
@@ -3,6 +3,7 @@ package r.builtins;
 import java.util.regex.*;
 
 import r.*;
+import r.builtins.internal.*;
 import r.data.*;
 import r.errors.*;
 import r.nodes.ast.*;
@@ -45,6 +46,8 @@ class Sub extends CallFactory {
         final int posFixed = ia.position("fixed");
         final int posUseBytes = ia.position("useBytes");
         return new Builtin(call, names, exprs) {
+            final Regex.Cache cache = new Regex.Cache();
+
             @Override public final RAny doBuiltIn(Frame frame, RAny[] args) {
                 if (posUseBytes != -1) {
                     RContext.warning(ast, "Ignoring useBytes.");
@@ -55,7 +58,7 @@ class Sub extends CallFactory {
                 boolean ignoreCase = posIgnoreCase != -1 ? Convert.checkFirstLogical(args[posIgnoreCase], RLogical.TRUE) : false;
                 boolean perl = posPerl != -1 ? Convert.checkFirstLogical(args[posPerl], RLogical.TRUE) : false;
                 boolean fixed = posFixed != -1 ? Convert.checkFirstLogical(args[posFixed], RLogical.TRUE) : false;
-                return sub(ast, pattern, replacement, x, ignoreCase, perl, fixed, global);
+                return sub(ast, pattern, replacement, x, ignoreCase, perl, fixed, global, cache);
             }
         };
     }
@@ -70,24 +73,28 @@ class Sub extends CallFactory {
         throw RError.getInvalidArgument(ast, argName);
     }
 
-    public static RString sub(ASTNode ast, String pattern, String replacement, RString x, boolean ignoreCase, boolean perl, boolean fixed, boolean global) {
+    public static RString sub(ASTNode ast, String pattern, String replacement, RString x, boolean ignoreCase, boolean perl, boolean fixed, boolean global, Regex.Cache cache) {
         if (pattern == RString.NA || replacement == RString.NA) { return RString.RStringFactory.getNAArray(x.size()); }
         if (!perl) {
             RContext.warning(ast, "Using a Perl-like regular expression syntax (non-Perl not implemented yet).");
         }
         if (!fixed) {
-            return subRE(pattern, replacement, x, ignoreCase, global);
+            if (!ignoreCase && Regex.isLiteral(pattern) && replacement.indexOf('\\') == -1) { // no groups to refer to
+                return subFixed(ast, pattern, replacement, x, false, global);
+            }
+            return subRE(cache.get(pattern, false, ignoreCase, perl), replacement, x, global);
         } else {
             return subFixed(ast, pattern, replacement, x, ignoreCase, global);
         }
     }
 
+    private static final Pattern groupReference = Pattern.compile("\\\\([1-9])");
+
     public static String convertReplacement(String replacementArg) { // FIXME: handle octal constants correctly when no groups exist
-        return replacementArg.replaceAll("\\\\([1-9])", "\\$$1");
+        return groupReference.matcher(replacementArg).replaceAll("\\$$1");
     }
 
-    public static RString subRE(String pattern, String replacementArg, RString x, boolean ignoreCase, boolean global) {
-        Pattern p = Pattern.compile(pattern, ignoreCase ? Pattern.CASE_INSENSITIVE : 0); // FIXME: can add UNICODE_CASE
+    public static RString subRE(Pattern p, String replacementArg, RString x, boolean global) {
         int size = x.size();
         String[] content = new String[size];
         String replacement = convertReplacement(replacementArg);
@@ -2,6 +2,7 @@ package r.builtins;
 
 import r.Convert.ConversionStatus;
 import r.*;
+import r.builtins.internal.*;
 import r.data.*;
 import r.errors.*;
 import r.nodes.ast.*;
@@ -25,7 +26,6 @@ class Substr extends CallFactory {
         super(name, params, required);
     }
 
-    static final ConversionStatus warn = new ConversionStatus(); // WARNING: calls not re-entrant
 
     @Override public RNode create(ASTNode call, RSymbol[] names, RNode[] exprs) {
         ArgumentInfo ia = check(call, names, exprs);
@@ -35,7 +35,7 @@ class Substr extends CallFactory {
         return new Builtin(call, names, exprs) {
             @Override public final RAny doBuiltIn(Frame frame, RAny[] args) {
                 RString x = args[posX].asString();
-                warn.naIntroduced = false;
+                ConversionStatus warn = new ConversionStatus();
                 RDouble start = args[posStart].asDouble(warn);
                 RDouble stop = args[posStop].asDouble(warn);
                 RString res = substr(x, start, stop, ast);
@@ -57,6 +57,7 @@ class Substr extends CallFactory {
         if (xsize == 0) { return RString.EMPTY; }
         if (startSize == 0) { throw RError.getInvalidArgument(ast, "start"); }// not exactly R-warning       
         if (stopSize == 0) { throw RError.getInvalidArgument(ast, "stop"); }// not exactly R-warning       
+        String[] xcontent = StringKernels.content(x);
         String[] content = new String[xsize];
         for (int i = 0; i < xsize; i++) {
             double nstart = start.getDouble(startIndex++);
@@ -67,14 +68,9 @@ class Substr extends CallFactory {
             if (stopIndex == stopSize) {
                 stopIndex = 0;
             }
-            String str = x.getString(i);
+            String str = xcontent[i];
             if (!RDouble.RDoubleUtils.isNAorNaN(nstart) && !RDouble.RDoubleUtils.isNAorNaN(nstop) && str != RString.NA) {
-                int stp = (int) nstop;
-                int len = str.length();
-                if (stp > len) {
-                    stp = len;
-                }
-                content[i] = str.substring(((int) nstart) - 1, stp);
+                content[i] = StringKernels.substring(str, (int) nstart, (int) nstop);
             } else {
                 content[i] = RString.NA;
             }
@@ -2,6 +2,7 @@ package r.builtins;
 
 import r.Convert.ConversionStatus;
 import r.*;
+import r.builtins.internal.*;
 import r.data.*;
 import r.errors.*;
 import r.nodes.ast.*;
@@ -25,7 +26,6 @@ class Substring extends CallFactory {
         super(name, params, required);
     }
 
-    static final ConversionStatus warn = new ConversionStatus(); // WARNING: calls not re-entrant
 
     @Override public RNode create(ASTNode call, RSymbol[] names, RNode[] exprs) {
         final ArgumentInfo ia = check(call, names, exprs);
@@ -36,7 +36,7 @@ class Substring extends CallFactory {
         return new Builtin(call, names, exprs) {
             @Override public RAny doBuiltIn(Frame frame, RAny[] args) {
                 RString text = args[posText].asString();
-                warn.naIntroduced = false;
+                ConversionStatus warn = new ConversionStatus();
                 RDouble first = args[posFirst].asDouble(warn);
                 RDouble last;
                 last = posLast != -1 ? args[posLast].asDouble(warn) : defaultLast;
@@ -63,6 +63,7 @@ class Substring extends CallFactory {
 
         int n = Math.max(textSize, Math.max(firstSize, lastSize));
 
+        String[] tcontent = StringKernels.content(text);
         String[] content = new String[n];
         for (int i = 0; i < n; i++) {
             double nfirst = first.getDouble(firstIndex++);
@@ -73,17 +74,12 @@ class Substring extends CallFactory {
             if (lastIndex == lastSize) {
                 lastIndex = 0;
             }
-            String str = text.getString(textIndex++);
+            String str = tcontent[textIndex++];
             if (textIndex == textSize) {
                 textIndex = 0;
             }
             if (!RDouble.RDoubleUtils.isNAorNaN(nfirst) && !RDouble.RDoubleUtils.isNAorNaN(nlast) && str != RString.NA) {
-                int stp = (int) nlast;
-                int len = str.length();
-                if (stp > len) {
-                    stp = len;
-                }
-                content[i] = str.substring(((int) nfirst) - 1, stp);
+                content[i] = StringKernels.substring(str, (int) nfirst, (int) nlast);
             } else {
                 content[i] = RString.NA;
             }
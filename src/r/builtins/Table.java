@@ -0,0 +1,242 @@
+package r.builtins;
+
+import java.util.*;
+
+import r.*;
+import r.builtins.internal.*;
+import r.data.*;
+import r.data.RAny.Attributes;
+import r.errors.*;
+import r.nodes.ast.*;
+import r.nodes.exec.*;
+import r.runtime.*;
+
+/**
+ * "table"
+ *
+ * <pre>
+ * ... -- one or more objects which can be interpreted as factors (including character strings)
+ * useNA -- whether to include NA values in the table. See 'Details'.
+ * </pre>
+ */
+// FIXME: only a single factor is supported, the result is a named integer vector (no dimensions, dimnames or class)
+// integers, logicals, doubles and strings are counted in a single pass through a hash index of the distinct values (or
+// directly by value when the integers span a small range), the counts are then ordered by the values, like the levels
+// of a factor; a factor (an integer vector with levels) is counted by its codes
+final class Table extends CallFactory {
+    static final CallFactory _ = new Table("table", new String[]{"...", "useNA"}, new String[]{});
+
+    private Table(String name, String[] params, String[] required) {
+        super(name, params, required);
+    }
+
+    static final RSymbol levelsSymbol = RSymbol.getSymbol("levels");
+
+    static final int USE_NA_NO = 0;
+    static final int USE_NA_IFANY = 1;
+    static final int USE_NA_ALWAYS = 2;
+
+    @Override public RNode create(ASTNode call, RSymbol[] names, RNode[] exprs) {
+        ArgumentInfo ia = check(call, names, exprs);
+        final int posUseNA = ia.position("useNA");
+        if (exprs.length != (posUseNA != -1 ? 2 : 1)) { throw Utils.nyi("only a single factor is supported"); }
+        final int posX = posUseNA == 0 ? 1 : 0;
+        return new Builtin(call, names, exprs) {
+            @Override public RAny doBuiltIn(Frame frame, RAny[] args) {
+                int useNA = posUseNA != -1 ? parseUseNA(ast, args[posUseNA]) : USE_NA_NO;
+                return table(ast, args[posX], useNA);
+            }
+        };
+    }
+
+    static int parseUseNA(ASTNode ast, RAny arg) {
+        if (arg instanceof RString && ((RString) arg).size() >= 1) {
+            String s = ((RString) arg).getString(0);
+            if ("no".equals(s)) { return USE_NA_NO; }
+            if ("ifany".equals(s)) { return USE_NA_IFANY; }
+            if ("always".equals(s)) { return USE_NA_ALWAYS; }
+        }
+        throw RError.getInvalidArgument(ast, "useNA");
+    }
+
+    static RString levels(RAny x) {
+        Attributes attr = x.attributes();
+        if (attr == null) { return null; }
+        RAny l = attr.map().get(levelsSymbol);
+        return l instanceof RString ? (RString) l : null;
+    }
+
+    public static RInt table(ASTNode ast, RAny x, int useNA) {
+        RString levels = levels(x);
+        if (levels != null && x instanceof RInt) { return tableFactor((RInt) x, levels, useNA); }
+        if (x instanceof RString) { return tableStrings((RString) x, useNA); }
+        if (x instanceof RDouble) { return tableDoubles((RDouble) x, useNA); }
+        if (x instanceof RInt || x instanceof RLogical) { return tableInts(x.asInt(), x instanceof RLogical, useNA); }
+        throw RError.getInvalidArgument(ast, "...");
+    }
+
+    // the counts of the values, followed by the count of NA when requested
+    static RInt result(int[] counts, String[] valueNames, int nas, int useNA) {
+        boolean addNA = useNA == USE_NA_ALWAYS || (useNA == USE_NA_IFANY && nas > 0);
+        int n = counts.length;
+        int[] content = addNA ? Arrays.copyOf(counts, n + 1) : counts;
+        RSymbol[] symbols = new RSymbol[content.length];
+        for (int i = 0; i < n; i++) {
+            symbols[i] = RSymbol.getSymbol(valueNames[i]);
+        }
+        if (addNA) {
+            content[n] = nas;
+            symbols[n] = RSymbol.NA_SYMBOL;
+        }
+        return RInt.RIntFactory.getFor(content, null, RArray.Names.create(symbols));
+    }
+
+    static RInt tableFactor(RInt x, RString levels, int useNA) {
+        int nlevels = levels.size();
+        int[] counts = new int[nlevels];
+        int nas = 0;
+        int size = x.size();
+        for (int i = 0; i < size; i++) {
+            int v = x.getInt(i);
+            if (v >= 1 && v <= nlevels) {
+                counts[v - 1]++;
+            } else if (v == RInt.NA) {
+                nas++;
+            }
+        }
+        String[] valueNames = new String[nlevels];
+        for (int i = 0; i < nlevels; i++) {
+            valueNames[i] = levels.getString(i);
+        }
+        return result(counts, valueNames, nas, useNA);
+    }
+
+    static final int DENSE_RANGE = 1 << 16; // integers spanning at most max(size, DENSE_RANGE) are counted directly
+
+    static RInt tableInts(RInt x, boolean logical, int useNA) {
+        int size = x.size();
+        int nas = 0;
+        int min = java.lang.Integer.MAX_VALUE;
+        int max = java.lang.Integer.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            int v = x.getInt(i);
+            if (v == RInt.NA) {
+                nas++;
+            } else {
+                if (v < min) {
+                    min = v;
+                }
+                if (v > max) {
+                    max = v;
+                }
+            }
+        }
+        int[] values;
+        int[] counts;
+        if (nas == size) {
+            values = new int[0];
+            counts = values;
+        } else if ((long) max - min < Math.max(size, DENSE_RANGE)) {
+            int[] byValue = new int[max - min + 1];
+            for (int i = 0; i < size; i++) {
+                int v = x.getInt(i);
+                if (v != RInt.NA) {
+                    byValue[v - min]++;
+                }
+            }
+            int n = 0;
+            for (int c : byValue) {
+                if (c != 0) {
+                    n++;
+                }
+            }
+            values = new int[n];
+            counts = new int[n];
+            for (int v = 0, j = 0; j < n; v++) {
+                if (byValue[v] != 0) {
+                    values[j] = v + min;
+                    counts[j++] = byValue[v];
+                }
+            }
+        } else {
+            HashIndex.Ints index = new HashIndex.Ints(16);
+            int[] byId = new int[16];
+            for (int i = 0; i < size; i++) {
+                int v = x.getInt(i);
+                if (v != RInt.NA) {
+                    int id = index.add(v);
+                    if (id == byId.length) {
+                        byId = Arrays.copyOf(byId, id * 2);
+                    }
+                    byId[id]++;
+                }
+            }
+            values = index.keys();
+            Arrays.sort(values);
+            counts = new int[values.length];
+            for (int j = 0; j < values.length; j++) {
+                counts[j] = byId[index.find(values[j])];
+            }
+        }
+        String[] valueNames = new String[values.length];
+        for (int j = 0; j < values.length; j++) {
+            valueNames[j] = logical ? Convert.logical2string(values[j]) : Convert.int2string(values[j]);
+        }
+        return result(counts, valueNames, nas, useNA);
+    }
+
+    // like in GNU-R, NaN is a value of its own (sorted last) when NA values are included, otherwise it is excluded with NA
+    static RInt tableDoubles(RDouble x, int useNA) {
+        int size = x.size();
+        int nas = 0;
+        boolean nanIsValue = useNA != USE_NA_NO;
+        HashIndex.Doubles index = new HashIndex.Doubles(16);
+        int[] byId = new int[16];
+        for (int i = 0; i < size; i++) {
+            double v = x.getDouble(i);
+            if (nanIsValue ? RDouble.RDoubleUtils.isNA(v) : RDouble.RDoubleUtils.isNAorNaN(v)) {
+                nas++;
+            } else {
+                int id = index.add(v);
+                if (id == byId.length) {
+                    byId = Arrays.copyOf(byId, id * 2);
+                }
+                byId[id]++;
+            }
+        }
+        double[] values = index.keys();
+        Arrays.sort(values);
+        int[] counts = new int[values.length];
+        String[] valueNames = new String[values.length];
+        for (int j = 0; j < values.length; j++) {
+            counts[j] = byId[index.find(values[j])];
+            valueNames[j] = Convert.double2string(values[j] == 0 ? 0 : values[j]); // -0 is shown as 0
+        }
+        return result(counts, valueNames, nas, useNA);
+    }
+
+    static RInt tableStrings(RString x, int useNA) {
+        String[] content = StringKernels.content(x);
+        int nas = 0;
+        HashIndex.Strings index = new HashIndex.Strings(16);
+        int[] byId = new int[16];
+        for (String v : content) {
+            if (v == RString.NA) {
+                nas++;
+            } else {
+                int id = index.add(v);
+                if (id == byId.length) {
+                    byId = Arrays.copyOf(byId, id * 2);
+                }
+                byId[id]++;
+            }
+        }
+        String[] values = index.keys();
+        Arrays.sort(values);
+        int[] counts = new int[values.length];
+        for (int j = 0; j < values.length; j++) {
+            counts[j] = byId[index.find(values[j])];
+        }
+        return result(counts, values, nas, useNA);
+    }
+}
@@ -0,0 +1,70 @@
+package r.builtins;
+
+import r.*;
+import r.data.*;
+import r.errors.*;
+import r.nodes.ast.*;
+import r.nodes.exec.*;
+import r.runtime.*;
+
+/**
+ * "tabulate"
+ *
+ * <pre>
+ * bin -- a numeric vector (of positive integers), or a factor. Long vectors are supported.
+ * nbins -- the number of bins to be used.
+ * </pre>
+ */
+final class Tabulate extends CallFactory {
+    static final CallFactory _ = new Tabulate("tabulate", new String[]{"bin", "nbins"}, new String[]{"bin"});
+
+    private Tabulate(String name, String[] params, String[] required) {
+        super(name, params, required);
+    }
+
+    @Override public RNode create(ASTNode call, RSymbol[] names, RNode[] exprs) {
+        ArgumentInfo ia = check(call, names, exprs);
+        final int posBin = ia.position("bin");
+        final int posNbins = ia.position("nbins");
+        return new Builtin(call, names, exprs) {
+            @Override public RAny doBuiltIn(Frame frame, RAny[] args) {
+                RInt bin = Convert.coerceToIntWarning(args[posBin], ast);
+                int nbins;
+                if (posNbins != -1) {
+                    RInt n = Convert.coerceToIntWarning(args[posNbins], ast);
+                    if (n.size() < 1 || n.getInt(0) == RInt.NA || n.getInt(0) < 0) { throw RError.getInvalidArgument(ast, "nbins"); }
+                    nbins = n.getInt(0);
+                } else {
+                    nbins = maxBin(bin);
+                }
+                return RInt.RIntFactory.getFor(tabulate(bin, nbins));
+            }
+        };
+    }
+
+    // max(1, bin, na.rm = TRUE)
+    static int maxBin(RInt bin) {
+        int max = 1;
+        int size = bin.size();
+        for (int i = 0; i < size; i++) {
+            int v = bin.getInt(i);
+            if (v != RInt.NA && v > max) {
+                max = v;
+            }
+        }
+        return max;
+    }
+
+    /** Counts the occurrences of 1..nbins, ignoring NA and the values out of the range. */
+    public static int[] tabulate(RInt bin, int nbins) {
+        int[] counts = new int[nbins];
+        int size = bin.size();
+        for (int i = 0; i < size; i++) {
+            int v = bin.getInt(i);
+            if (v >= 1 && v <= nbins) { // NA is negative
+                counts[v - 1]++;
+            }
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,264 @@
+package r.builtins.internal;
+
+import r.data.*;
+
+/**
+ * An index of distinct values: each distinct value added gets an id, the number of distinct values added before it.
+ * The table uses open addressing with linear probing and refers to the values by their ids, so that adding or finding a
+ * primitive value neither boxes nor allocates. Doubles are compared as in R: 0 and -0 are the same value, NA and NaN
+ * are different values.
+ */
+public abstract class HashIndex {
+
+    private static final int GOLDEN = 0x9E3779B9;
+
+    int[] slots; // id + 1 of the value in the slot, 0 when empty
+    int size; // number of distinct values
+    int shift;
+
+    HashIndex(int expectedSize) {
+        int cap = 8;
+        while (cap < 2 * expectedSize) {
+            cap <<= 1;
+        }
+        allocate(cap);
+    }
+
+    private void allocate(int capacity) {
+        slots = new int[capacity];
+        shift = 32 - Integer.numberOfTrailingZeros(capacity);
+    }
+
+    /** The number of distinct values. */
+    public final int size() {
+        return size;
+    }
+
+    final int slot(int hash) {
+        return (hash * GOLDEN) >>> shift;
+    }
+
+    abstract int hashOf(int id);
+
+    abstract void growKeys(int capacity);
+
+    // records a new value, which the caller has already stored under the id size, in slot i
+    final int insertAt(int i) {
+        int id = size++;
+        slots[i] = id + 1;
+        if (size * 2 > slots.length) {
+            int[] oldSlots = slots;
+            allocate(oldSlots.length * 2);
+            int mask = slots.length - 1;
+            for (int s : oldSlots) {
+                if (s != 0) {
+                    int j = slot(hashOf(s - 1));
+                    while (slots[j] != 0) {
+                        j = (j + 1) & mask;
+                    }
+                    slots[j] = s;
+                }
+            }
+        }
+        return id;
+    }
+
+    final void ensureKeyCapacity(int length) {
+        if (size == length) {
+            growKeys(Math.max(8, length * 2));
+        }
+    }
+
+    public static final class Ints extends HashIndex {
+        int[] keys;
+
+        public Ints(int expectedSize) {
+            super(expectedSize);
+            keys = new int[Math.max(8, expectedSize)];
+        }
+
+        @Override int hashOf(int id) {
+            return keys[id];
+        }
+
+        @Override void growKeys(int capacity) {
+            int[] k = new int[capacity];
+            System.arraycopy(keys, 0, k, 0, size);
+            keys = k;
+        }
+
+        /** Returns the id of the value, adding it if not present. */
+        public int add(int key) {
+            int mask = slots.length - 1;
+            int i = slot(key);
+            for (;; i = (i + 1) & mask) {
+                int s = slots[i];
+                if (s == 0) {
+                    break;
+                }
+                if (keys[s - 1] == key) {
+                    return s - 1;
+                }
+            }
+            ensureKeyCapacity(keys.length);
+            keys[size] = key;
+            return insertAt(i);
+        }
+
+        /** Returns the id of the value, or -1 when not present. */
+        public int find(int key) {
+            int mask = slots.length - 1;
+            for (int i = slot(key);; i = (i + 1) & mask) {
+                int s = slots[i];
+                if (s == 0) {
+                    return -1;
+                }
+                if (keys[s - 1] == key) {
+                    return s - 1;
+                }
+            }
+        }
+
+        /** The distinct values, by id. */
+        public int[] keys() {
+            int[] res = new int[size];
+            System.arraycopy(keys, 0, res, 0, size);
+            return res;
+        }
+    }
+
+    public static final class Doubles extends HashIndex {
+        double[] keys;
+
+        public Doubles(int expectedSize) {
+            super(expectedSize);
+            keys = new double[Math.max(8, expectedSize)];
+        }
+
+        static long bits(double d) {
+            if (d == 0) {
+                return 0L; // also -0
+            }
+            if (d != d && !RDouble.RDoubleUtils.isNA(d)) {
+                return Double.doubleToLongBits(Double.NaN);
+            }
+            return Double.doubleToRawLongBits(d);
+        }
+
+        static int hash(long bits) {
+            return (int) (bits ^ (bits >>> 32));
+        }
+
+        @Override int hashOf(int id) {
+            return hash(bits(keys[id]));
+        }
+
+        @Override void growKeys(int capacity) {
+            double[] k = new double[capacity];
+            System.arraycopy(keys, 0, k, 0, size);
+            keys = k;
+        }
+
+        public int add(double key) {
+            long b = bits(key);
+            int mask = slots.length - 1;
+            int i = slot(hash(b));
+            for (;; i = (i + 1) & mask) {
+                int s = slots[i];
+                if (s == 0) {
+                    break;
+                }
+                if (bits(keys[s - 1]) == b) {
+                    return s - 1;
+                }
+            }
+            ensureKeyCapacity(keys.length);
+            keys[size] = key;
+            return insertAt(i);
+        }
+
+        public int find(double key) {
+            long b = bits(key);
+            int mask = slots.length - 1;
+            for (int i = slot(hash(b));; i = (i + 1) & mask) {
+                int s = slots[i];
+                if (s == 0) {
+                    return -1;
+                }
+                if (bits(keys[s - 1]) == b) {
+                    return s - 1;
+                }
+            }
+        }
+
+        public double[] keys() {
+            double[] res = new double[size];
+            System.arraycopy(keys, 0, res, 0, size);
+            return res;
+        }
+    }
+
+    /** NA (null) is a value like any other. */
+    public static final class Strings extends HashIndex {
+        String[] keys;
+
+        public Strings(int expectedSize) {
+            super(expectedSize);
+            keys = new String[Math.max(8, expectedSize)];
+        }
+
+        static int hash(String s) {
+            return s != RString.NA ? s.hashCode() : 0;
+        }
+
+        static boolean same(String a, String b) {
+            return a == b || (a != RString.NA && a.equals(b));
+        }
+
+        @Override int hashOf(int id) {
+            return hash(keys[id]);
+        }
+
+        @Override void growKeys(int capacity) {
+            String[] k = new String[capacity];
+            System.arraycopy(keys, 0, k, 0, size);
+            keys = k;
+        }
+
+        public int add(String key) {
+            int mask = slots.length - 1;
+            int i = slot(hash(key));
+            for (;; i = (i + 1) & mask) {
+                int s = slots[i];
+                if (s == 0) {
+                    break;
+                }
+                if (same(keys[s - 1], key)) {
+                    return s - 1;
+                }
+            }
+            ensureKeyCapacity(keys.length);
+            keys[size] = key;
+            return insertAt(i);
+        }
+
+        public int find(String key) {
+            int mask = slots.length - 1;
+            for (int i = slot(hash(key));; i = (i + 1) & mask) {
+                int s = slots[i];
+                if (s == 0) {
+                    return -1;
+                }
+                if (same(keys[s - 1], key)) {
+                    return s - 1;
+                }
+            }
+        }
+
+        public String[] keys() {
+            String[] res = new String[size];
+            System.arraycopy(keys, 0, res, 0, size);
+            return res;
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package r.builtins.internal;
+
+import java.util.*;
+
+import r.*;
+import r.data.*;
+import r.data.internal.*;
+import r.errors.*;
+import r.nodes.ast.*;
+
+/**
+ * Kernels of match, %in%, unique and duplicated. Values are looked up in a HashIndex of the table, with the R
+ * semantics of equality: NA matches NA, NaN matches NaN (but not NA), 0 matches -0. The index of a table is kept with
+ * the table vector (see NonScalarArrayImpl.setIndex), so that repeated lookups in the same table, e.g. "x %in% table"
+ * in a loop, build it only once.
+ */
+public final class Matching {
+
+    static final int MIN_KEPT_INDEX_SIZE = 16; // the index of a smaller table is not kept with the table
+    static final int MAX_SCAN_WORK = 64; // x is searched for in the table without an index if size(x) * size(table) is at most this
+
+    /** The index of a table: the ids of the distinct values and the position of the first occurrence of each. */
+    static final class TableIndex {
+        final HashIndex index;
+        final int[] firstPosition; // by id
+
+        TableIndex(HashIndex index, int[] firstPosition) {
+            this.index = index;
+            this.firstPosition = firstPosition;
+        }
+    }
+
+    /** Converts x and table to their common type, as match does. */
+    public static RArray[] unify(ASTNode ast, RAny x, RAny table) {
+        // note: R also converts raw to string, but using int seems functionally equivalent
+        // note: this requires list to string conversion
+        if (x instanceof RString || table instanceof RString || x instanceof RList || table instanceof RList) {
+            return new RArray[]{x.asString(), table.asString()};
+        }
+        if (x instanceof RComplex || table instanceof RComplex) {
+            return new RArray[]{x.asComplex(), table.asComplex()};
+        }
+        if (x instanceof RDouble || table instanceof RDouble) {
+            return new RArray[]{x.asDouble(), table.asDouble()};
+        }
+        if (x instanceof RInt || table instanceof RInt || x instanceof RRaw || table instanceof RRaw) {
+            return new RArray[]{x.asInt(), table.asInt()};
+        }
+        if (x instanceof RLogical && table instanceof RLogical) {
+            return new RArray[]{x.asLogical(), table.asLogical()};
+        }
+        throw RError.getMatchVectorArgs(ast);
+    }
+
+    /** The positions (1-based) of the first occurrences of the values of x in table, or nomatch. Both must be of the same type. */
+    public static int[] match(RArray x, RArray table, int nomatch) {
+        int xsize = x.size();
+        int tableSize = table.size();
+        int[] res = new int[xsize];
+        if (x instanceof RComplex) {
+            matchBoxed(x, table, nomatch, res);
+        } else if ((long) xsize * tableSize <= MAX_SCAN_WORK) {
+            matchByScan(x, table, nomatch, res);
+        } else {
+            TableIndex ti = index(table);
+            int[] firstPosition = ti.firstPosition;
+            if (x instanceof RString) {
+                HashIndex.Strings index = (HashIndex.Strings) ti.index;
+                String[] content = StringKernels.content((RString) x);
+                for (int i = 0; i < xsize; i++) {
+                    int id = index.find(content[i]);
+                    res[i] = id != -1 ? firstPosition[id] + 1 : nomatch;
+                }
+            } else if (x instanceof RDouble) {
+                HashIndex.Doubles index = (HashIndex.Doubles) ti.index;
+                RDouble dx = (RDouble) x;
+                for (int i = 0; i < xsize; i++) {
+                    int id = index.find(dx.getDouble(i));
+                    res[i] = id != -1 ? firstPosition[id] + 1 : nomatch;
+                }
+            } else {
+                HashIndex.Ints index = (HashIndex.Ints) ti.index;
+                RInt ix = ints(x);
+                for (int i = 0; i < xsize; i++) {
+                    int id = index.find(ix.getInt(i));
+                    res[i] = id != -1 ? firstPosition[id] + 1 : nomatch;
+                }
+            }
+        }
+        return res;
+    }
+
+    /** Like match, but returns a logical vector content telling whether each value of x is in table. */
+    public static int[] in(RArray x, RArray table) {
+        int[] res = match(x, table, 0);
+        for (int i = 0; i < res.length; i++) {
+            res[i] = res[i] != 0 ? RLogical.TRUE : RLogical.FALSE;
+        }
+        return res;
+    }
+
+    static RInt ints(RArray x) {
+        return x instanceof RLogical ? ((RLogical) x).asInt() : (RInt) x;
+    }
+
+    // a small number of lookups in a small table, without allocating an index
+    static void matchByScan(RArray x, RArray table, int nomatch, int[] res) {
+        int xsize = x.size();
+        int tableSize = table.size();
+        if (x instanceof RString) {
+            RString sx = (RString) x;
+            RString st = (RString) table;
+            for (int i = 0; i < xsize; i++) {
+                String v = sx.getString(i);
+                int pos = nomatch;
+                for (int j = 0; j < tableSize; j++) {
+                    if (HashIndex.Strings.same(v, st.getString(j))) {
+                        pos = j + 1;
+                        break;
+                    }
+                }
+                res[i] = pos;
+            }
+        } else if (x instanceof RDouble) {
+            RDouble dx = (RDouble) x;
+            RDouble dt = (RDouble) table;
+            for (int i = 0; i < xsize; i++) {
+                long v = HashIndex.Doubles.bits(dx.getDouble(i));
+                int pos = nomatch;
+                for (int j = 0; j < tableSize; j++) {
+                    if (HashIndex.Doubles.bits(dt.getDouble(j)) == v) {
+                        pos = j + 1;
+                        break;
+                    }
+                }
+                res[i] = pos;
+            }
+        } else {
+            RInt ix = ints(x);
+            RInt it = ints(table);
+            for (int i = 0; i < xsize; i++) {
+                int v = ix.getInt(i);
+                int pos = nomatch;
+                for (int j = 0; j < tableSize; j++) {
+                    if (it.getInt(j) == v) {
+                        pos = j + 1;
+                        break;
+                    }
+                }
+                res[i] = pos;
+            }
+        }
+    }
+
+    // FIXME: complex numbers are boxed
+    static void matchBoxed(RArray x, RArray table, int nomatch, int[] res) {
+        int tableSize = table.size();
+        HashMap<Object, Integer> positions = new HashMap<>(tableSize);
+        for (int j = tableSize - 1; j >= 0; j--) {
+            positions.put(table.get(j), j + 1);
+        }
+        for (int i = 0; i < res.length; i++) {
+            Integer pos = positions.get(x.get(i));
+            res[i] = pos != null ? pos : nomatch;
+        }
+    }
+
+    /** The index of the table, the one kept with the table if any. */
+    static TableIndex index(RArray table) {
+        NonScalarArrayImpl impl = table instanceof NonScalarArrayImpl ? (NonScalarArrayImpl) table : null;
+        if (impl != null) {
+            Object kept = impl.getIndex();
+            if (kept instanceof TableIndex) {
+                return (TableIndex) kept;
+            }
+        }
+        TableIndex ti = buildIndex(table);
+        if (impl != null && table.size() >= MIN_KEPT_INDEX_SIZE) {
+            impl.setIndex(ti);
+        }
+        return ti;
+    }
+
+    static TableIndex buildIndex(RArray table) {
+        int size = table.size();
+        int[] firstPosition = new int[size];
+        HashIndex index;
+        if (table instanceof RString) {
+            HashIndex.Strings si = new HashIndex.Strings(size);
+            String[] content = StringKernels.content((RString) table);
+            for (int j = 0; j < size; j++) {
+                if (si.add(content[j]) == si.size() - 1) {
+                    firstPosition[si.size() - 1] = j;
+                }
+            }
+            index = si;
+        } else if (table instanceof RDouble) {
+            HashIndex.Doubles di = new HashIndex.Doubles(size);
+            RDouble dt = (RDouble) table;
+            for (int j = 0; j < size; j++) {
+                if (di.add(dt.getDouble(j)) == di.size() - 1) {
+                    firstPosition[di.size() - 1] = j;
+                }
+            }
+            index = di;
+        } else {
+            HashIndex.Ints ii = new HashIndex.Ints(size);
+            RInt it = ints(table);
+            for (int j = 0; j < size; j++) {
+                if (ii.add(it.getInt(j)) == ii.size() - 1) {
+                    firstPosition[ii.size() - 1] = j;
+                }
+            }
+            index = ii;
+        }
+        return new TableIndex(index, firstPosition);
+    }
+
+    /** Logical vector content telling which values of x are repeated, searching from the first or from the last value. */
+    public static int[] duplicated(RArray x, boolean fromLast) {
+        int size = x.size();
+        int[] res = new int[size];
+        int start = fromLast ? size - 1 : 0;
+        int step = fromLast ? -1 : 1;
+        if (x instanceof RString) {
+            String[] content = StringKernels.content((RString) x);
+            HashIndex.Strings index = new HashIndex.Strings(size);
+            for (int k = 0, i = start; k < size; k++, i += step) {
+                int n = index.size();
+                res[i] = index.add(content[i]) < n ? RLogical.TRUE : RLogical.FALSE;
+            }
+        } else if (x instanceof RDouble) {
+            RDouble dx = (RDouble) x;
+            HashIndex.Doubles index = new HashIndex.Doubles(size);
+            for (int k = 0, i = start; k < size; k++, i += step) {
+                int n = index.size();
+                res[i] = index.add(dx.getDouble(i)) < n ? RLogical.TRUE : RLogical.FALSE;
+            }
+        } else if (x instanceof RInt || x instanceof RLogical) {
+            RInt ix = ints(x);
+            HashIndex.Ints index = new HashIndex.Ints(size);
+            for (int k = 0, i = start; k < size; k++, i += step) {
+                int n = index.size();
+                res[i] = index.add(ix.getInt(i)) < n ? RLogical.TRUE : RLogical.FALSE;
+            }
+        } else {
+            throw Utils.nyi("unsupported type");
+        }
+        return res;
+    }
+
+    /**
+     * The distinct values of x, without attributes. With fromLast, the last occurrence of each value is kept, the values
+     * are still in the order of x.
+     */
+    public static RArray unique(RArray x, boolean fromLast) {
+        if (fromLast) {
+            return notDuplicated(x, duplicated(x, true));
+        }
+        int size = x.size();
+        if (x instanceof RString) {
+            String[] content = StringKernels.content((RString) x);
+            HashIndex.Strings index = new HashIndex.Strings(size);
+            for (int i = 0; i < size; i++) {
+                index.add(content[i]);
+            }
+            return RString.RStringFactory.getFor(index.keys());
+        }
+        if (x instanceof RDouble) {
+            RDouble dx = (RDouble) x;
+            HashIndex.Doubles index = new HashIndex.Doubles(size);
+            for (int i = 0; i < size; i++) {
+                index.add(dx.getDouble(i));
+            }
+            return RDouble.RDoubleFactory.getFor(index.keys());
+        }
+        if (x instanceof RInt || x instanceof RLogical) {
+            RInt ix = ints(x);
+            HashIndex.Ints index = new HashIndex.Ints(size);
+            for (int i = 0; i < size; i++) {
+                index.add(ix.getInt(i));
+            }
+            int[] keys = index.keys();
+            return x instanceof RLogical ? RLogical.RLogicalFactory.getFor(keys) : RInt.RIntFactory.getFor(keys);
+        }
+        throw Utils.nyi("unsupported type");
+    }
+
+    static RArray notDuplicated(RArray x, int[] duplicated) {
+        int size = x.size();
+        int n = 0;
+        for (int d : duplicated) {
+            if (d == RLogical.FALSE) {
+                n++;
+            }
+        }
+        if (x instanceof RString) {
+            RString sx = (RString) x;
+            String[] res = new String[n];
+            for (int i = 0, j = 0; i < size; i++) {
+                if (duplicated[i] == RLogical.FALSE) {
+                    res[j++] = sx.getString(i);
+                }
+            }
+            return RString.RStringFactory.getFor(res);
+        }
+        if (x instanceof RDouble) {
+            RDouble dx = (RDouble) x;
+            double[] res = new double[n];
+            for (int i = 0, j = 0; i < size; i++) {
+                if (duplicated[i] == RLogical.FALSE) {
+                    res[j++] = dx.getDouble(i);
+                }
+            }
+            return RDouble.RDoubleFactory.getFor(res);
+        }
+        RInt ix = ints(x);
+        int[] res = new int[n];
+        for (int i = 0, j = 0; i < size; i++) {
+            if (duplicated[i] == RLogical.FALSE) {
+                res[j++] = ix.getInt(i);
+            }
+        }
+        return x instanceof RLogical ? RLogical.RLogicalFactory.getFor(res) : RInt.RIntFactory.getFor(res);
+    }
+}
@@ -0,0 +1,431 @@
+package r.builtins.internal;
+
+import java.math.*;
+
+/**
+ * The uniform random number generators of GNU-R and its normal and exponential deviates, so that the same .Random.seed
+ * gives the same numbers as in GNU-R. The state is the content of .Random.seed (without the kind code, which is the
+ * first element), it is read and written back by each builtin that draws random numbers (see Random).
+ *
+ * Supported are the Marsaglia-Multicarry, Mersenne-Twister and L'Ecuyer-CMRG generators and the Inversion and Box-Muller
+ * normal generators. The L'Ecuyer-CMRG generator can be split into independent streams (see nextStream).
+ */
+public abstract class RNG {
+
+    public static final int MARSAGLIA_MULTICARRY = 1;
+    public static final int MERSENNE_TWISTER = 3;
+    public static final int LECUYER_CMRG = 7;
+    public static final int DEFAULT_KIND = MERSENNE_TWISTER;
+
+    public static final int BOX_MULLER = 2;
+    public static final int INVERSION = 4;
+    public static final int DEFAULT_NORMAL_KIND = INVERSION;
+
+    public static final String[] KIND_NAMES = {"Wichmann-Hill", "Marsaglia-Multicarry", "Super-Duper", "Mersenne-Twister", "Knuth-TAOCP", "user-supplied", "Knuth-TAOCP-2002",
+                    "L'Ecuyer-CMRG"};
+    public static final String[] NORMAL_KIND_NAMES = {"Buggy Kinderman-Ramage", "Ahrens-Dieter", "Box-Muller", "user-supplied", "Inversion", "Kinderman-Ramage"};
+
+    static final double I2_32M1 = 2.328306437080797e-10; // 1/(2^32 - 1)
+
+    final int[] seeds;
+    int normalKind;
+    double boxMullerKeep; // the second deviate of the last Box-Muller pair, not part of .Random.seed (like in GNU-R)
+
+    RNG(int[] seeds, int normalKind) {
+        this.seeds = seeds;
+        this.normalKind = normalKind;
+    }
+
+    public abstract int kind();
+
+    /** A uniform deviate in (0, 1). */
+    public abstract double unifRand();
+
+    abstract void fixupSeeds(boolean initial);
+
+    public static boolean isSupported(int kind) {
+        return kind == MARSAGLIA_MULTICARRY || kind == MERSENNE_TWISTER || kind == LECUYER_CMRG;
+    }
+
+    public static boolean isSupportedNormal(int normalKind) {
+        return normalKind == BOX_MULLER || normalKind == INVERSION;
+    }
+
+    public static int seedLength(int kind) {
+        switch (kind) {
+            case MARSAGLIA_MULTICARRY:
+                return 2;
+            case MERSENNE_TWISTER:
+                return 625;
+            case LECUYER_CMRG:
+                return 6;
+            default:
+                throw new IllegalArgumentException();
+        }
+    }
+
+    static RNG create(int kind, int normalKind, int[] seeds) {
+        switch (kind) {
+            case MARSAGLIA_MULTICARRY:
+                return new MarsagliaMulticarry(seeds, normalKind);
+            case MERSENNE_TWISTER:
+                return new MersenneTwister(seeds, normalKind);
+            case LECUYER_CMRG:
+                return new LEcuyerCMRG(seeds, normalKind);
+            default:
+                throw new IllegalArgumentException();
+        }
+    }
+
+    /** A generator with the given state (as in .Random.seed[-1]), which is copied. */
+    public static RNG fromSeeds(int kind, int normalKind, int[] seeds, int offset) {
+        int[] s = new int[seedLength(kind)];
+        System.arraycopy(seeds, offset, s, 0, s.length);
+        RNG res = create(kind, normalKind, s);
+        res.fixupSeeds(false);
+        return res;
+    }
+
+    /** A generator initialized from an integer seed, like set.seed. */
+    public static RNG fromSeed(int kind, int normalKind, int seed) {
+        RNG res = create(kind, normalKind, new int[seedLength(kind)]);
+        res.init(seed);
+        return res;
+    }
+
+    /** A generator of a different kind, initialized from a number drawn from this one, like RNGkind. */
+    public RNG changeKind(int newKind) {
+        double u = unifRand();
+        return fromSeed(newKind, normalKind, (int) (long) (u * 4294967295.0));
+    }
+
+    public void setNormalKind(int newNormalKind) {
+        if (newNormalKind == BOX_MULLER) {
+            boxMullerKeep = 0;
+        }
+        normalKind = newNormalKind;
+    }
+
+    public int normalKind() {
+        return normalKind;
+    }
+
+    /** The content of .Random.seed. */
+    public int[] toSeed() {
+        int[] res = new int[seeds.length + 1];
+        res[0] = kind() + 100 * normalKind;
+        System.arraycopy(seeds, 0, res, 1, seeds.length);
+        return res;
+    }
+
+    // RNG_Init of GNU-R
+    void init(int seed) {
+        boxMullerKeep = 0;
+        for (int j = 0; j < 50; j++) {
+            seed = 69069 * seed + 1;
+        }
+        for (int j = 0; j < seeds.length; j++) {
+            seed = 69069 * seed + 1;
+            seeds[j] = seed;
+        }
+        fixupSeeds(true);
+    }
+
+    static double fixup(double x) { // ensure 0 and 1 are never returned
+        if (x <= 0) {
+            return 0.5 * I2_32M1;
+        }
+        if (1 - x <= 0) {
+            return 1 - 0.5 * I2_32M1;
+        }
+        return x;
+    }
+
+    static final double BIG = 134217728; // 2^27
+
+    /** A standard normal deviate. */
+    public double normRand() {
+        if (normalKind == BOX_MULLER) {
+            if (boxMullerKeep != 0) { // an exact test is intentional
+                double s = boxMullerKeep;
+                boxMullerKeep = 0;
+                return s;
+            }
+            double theta = 2 * Math.PI * unifRand();
+            double r = Math.sqrt(-2 * Math.log(unifRand())) + 10 * Double.MIN_NORMAL; // ensure non-zero
+            boxMullerKeep = r * Math.sin(theta);
+            return r * Math.cos(theta);
+        }
+        // unifRand() alone is not of high enough precision
+        double u = unifRand();
+        u = (int) (BIG * u) + unifRand();
+        return qnorm(u / BIG);
+    }
+
+    // q[k-1] = sum(log(2)^k / k!), k = 1..16
+    static final double[] EXP_Q = {0.6931471805599453, 0.9333736875190459, 0.9888777961838675, 0.9984959252914960040, 0.9998292811061389, 0.9999833164100727,
+                    0.9999985691438767, 0.9999998906925558, 0.9999999924734159, 0.9999999995283275, 0.9999999999728814, 0.9999999999985598, 0.9999999999999289,
+                    0.9999999999999968, 0.9999999999999999, 1.0000000000000000};
+
+    /** A standard exponential deviate (Ahrens and Dieter, 1972). */
+    public double expRand() {
+        double a = 0;
+        double u = unifRand();
+        while (u <= 0 || u >= 1) {
+            u = unifRand();
+        }
+        for (;;) {
+            u += u;
+            if (u > 1) {
+                break;
+            }
+            a += EXP_Q[0];
+        }
+        u -= 1;
+        if (u <= EXP_Q[0]) {
+            return a + u;
+        }
+        int i = 0;
+        double ustar = unifRand();
+        double umin = ustar;
+        do {
+            ustar = unifRand();
+            if (umin > ustar) {
+                umin = ustar;
+            }
+            i++;
+        } while (u > EXP_Q[i]);
+        return a + umin * EXP_Q[0];
+    }
+
+    /** The quantile function of the standard normal distribution, for 0 < p < 1 (Wichura, 1988, AS 241). */
+    public static double qnorm(double p) {
+        double q = p - 0.5;
+        double r;
+        double val;
+        if (Math.abs(q) <= 0.425) { // 0.075 <= p <= 0.925
+            r = .180625 - q * q;
+            return q * (((((((r * 2509.0809287301226727 + 33430.575583588128105) * r + 67265.770927008700853) * r + 45921.953931549871457) * r + 13731.693765509461125) * r + 1971.5909503065514427) * r + 133.14166789178437745) * r + 3.387132872796366608) /
+                            (((((((r * 5226.495278852545925 + 28729.085735721942674) * r + 39307.89580009271061) * r + 21213.794301586595867) * r + 5394.1960214247511077) * r + 687.1870074920579083) * r + 42.313330701600911252) * r + 1.);
+        }
+        r = q < 0 ? p : 1 - p; // min(p, 1-p) < 0.075
+        r = Math.sqrt(-Math.log(r));
+        if (r <= 5.) { // min(p, 1-p) >= exp(-25) ~= 1.3888e-11
+            r += -1.6;
+            val = (((((((r * 7.7454501427834140764e-4 + .0227238449892691845833) * r + .24178072517745061177) * r + 1.27045825245236838258) * r + 3.64784832476320460504) * r + 5.7694972214606914055) * r + 4.6303378461565452959) * r + 1.42343711074968357734) /
+                            (((((((r * 1.05075007164441684324e-9 + 5.475938084995344946e-4) * r + .0151986665636164571966) * r + .14810397642748007459) * r + .68976733498510000455) * r + 1.6763848301838038494) * r + 2.05319162663775882187) * r + 1.);
+        } else { // very close to 0 or 1
+            r += -5.;
+            val = (((((((r * 2.01033439929228813265e-7 + 2.71155556874348757815e-5) * r + .0012426609473880784386) * r + .026532189526576123093) * r + .29656057112000658) * r + 1.7848265399172913358) * r + 5.4637849111641143699) * r + 6.6579046435011037772) /
+                            (((((((r * 2.04426310338993978564e-15 + 1.4215117583164458887e-7) * r + 1.8463183175100546818e-5) * r + 7.868691311456132591e-4) * r + .0148753612908506148525) * r + .13692988092273580531) * r + .59983220655588793769) * r + 1.);
+        }
+        return q < 0.0 ? -val : val;
+    }
+
+    static final class MarsagliaMulticarry extends RNG {
+
+        MarsagliaMulticarry(int[] seeds, int normalKind) {
+            super(seeds, normalKind);
+        }
+
+        @Override public int kind() {
+            return MARSAGLIA_MULTICARRY;
+        }
+
+        @Override public double unifRand() {
+            int i1 = seeds[0] = 36969 * (seeds[0] & 0xffff) + (seeds[0] >>> 16);
+            int i2 = seeds[1] = 18000 * (seeds[1] & 0xffff) + (seeds[1] >>> 16);
+            return fixup((((i1 << 16) ^ (i2 & 0xffff)) & 0xffffffffL) * I2_32M1); // in [0,1)
+        }
+
+        @Override void fixupSeeds(boolean initial) {
+            if (seeds[0] == 0) {
+                seeds[0] = 1;
+            }
+            if (seeds[1] == 0) {
+                seeds[1] = 1;
+            }
+        }
+    }
+
+    /** Matsumoto and Nishimura, 1998. seeds[0] is the position in the state, seeds[1..624] is the state. */
+    static final class MersenneTwister extends RNG {
+
+        static final int N = 624;
+        static final int M = 397;
+        static final int MATRIX_A = 0x9908b0df;
+        static final int UPPER_MASK = 0x80000000;
+        static final int LOWER_MASK = 0x7fffffff;
+        static final int TEMPERING_MASK_B = 0x9d2c5680;
+        static final int TEMPERING_MASK_C = 0xefc60000;
+
+        MersenneTwister(int[] seeds, int normalKind) {
+            super(seeds, normalKind);
+        }
+
+        @Override public int kind() {
+            return MERSENNE_TWISTER;
+        }
+
+        private void sgenrand(int seed) {
+            int[] mt = seeds;
+            for (int i = 1; i <= N; i++) {
+                mt[i] = seed & 0xffff0000;
+                seed = 69069 * seed + 1;
+                mt[i] |= (seed & 0xffff0000) >>> 16;
+                seed = 69069 * seed + 1;
+            }
+            seeds[0] = N;
+        }
+
+        @Override public double unifRand() {
+            int[] mt = seeds; // mt[i] of GNU-R is at i + 1
+            int mti = seeds[0];
+            int y;
+            if (mti >= N) {
+                if (mti == N + 1) {
+                    sgenrand(4357);
+                }
+                int kk;
+                for (kk = 0; kk < N - M; kk++) {
+                    y = (mt[kk + 1] & UPPER_MASK) | (mt[kk + 2] & LOWER_MASK);
+                    mt[kk + 1] = mt[kk + M + 1] ^ (y >>> 1) ^ ((y & 1) != 0 ? MATRIX_A : 0);
+                }
+                for (; kk < N - 1; kk++) {
+                    y = (mt[kk + 1] & UPPER_MASK) | (mt[kk + 2] & LOWER_MASK);
+                    mt[kk + 1] = mt[kk + (M - N) + 1] ^ (y >>> 1) ^ ((y & 1) != 0 ? MATRIX_A : 0);
+                }
+                y = (mt[N] & UPPER_MASK) | (mt[1] & LOWER_MASK);
+                mt[N] = mt[M] ^ (y >>> 1) ^ ((y & 1) != 0 ? MATRIX_A : 0);
+                mti = 0;
+            }
+            y = mt[++mti];
+            y ^= y >>> 11;
+            y ^= (y << 7) & TEMPERING_MASK_B;
+            y ^= (y << 15) & TEMPERING_MASK_C;
+            y ^= y >>> 18;
+            seeds[0] = mti;
+            return fixup((y & 0xffffffffL) * 2.3283064365386963e-10); // [0,1)
+        }
+
+        @Override void fixupSeeds(boolean initial) {
+            if (initial || seeds[0] <= 0) {
+                seeds[0] = N;
+            }
+            for (int j = 1; j <= N; j++) {
+                if (seeds[j] != 0) {
+                    return;
+                }
+            }
+            init((int) System.nanoTime()); // all zeroes
+        }
+    }
+
+    /** L'Ecuyer, 1999, combined multiple recursive generator MRG32k3a. */
+    static final class LEcuyerCMRG extends RNG {
+
+        static final long M1 = 4294967087L;
+        static final long M2 = 4294944443L;
+        static final double NORMC = 2.328306549295727688e-10;
+        static final long A12 = 1403580;
+        static final long A13N = 810728;
+        static final long A21 = 527612;
+        static final long A23N = 1370589;
+
+        // the state transition matrices advanced by 2^127 steps, the distance between streams
+        static final long[][] A1P127 = { {2427906178L, 3580155704L, 949770784L}, {226153695L, 1230515664L, 3580155704L}, {1988835001L, 986791581L, 1230515664L}};
+        static final long[][] A2P127 = { {1464411153L, 277697599L, 1610723613L}, {32183930L, 1464411153L, 1022607788L}, {2824425944L, 32183930L, 2093834863L}};
+
+        LEcuyerCMRG(int[] seeds, int normalKind) {
+            super(seeds, normalKind);
+        }
+
+        @Override public int kind() {
+            return LECUYER_CMRG;
+        }
+
+        static long unsigned(int i) {
+            return i & 0xffffffffL;
+        }
+
+        @Override public double unifRand() {
+            int[] s = seeds;
+            long p1 = A12 * unsigned(s[1]) - A13N * unsigned(s[0]);
+            p1 %= M1;
+            if (p1 < 0) {
+                p1 += M1;
+            }
+            s[0] = s[1];
+            s[1] = s[2];
+            s[2] = (int) p1;
+
+            long p2 = A21 * unsigned(s[5]) - A23N * unsigned(s[3]);
+            p2 %= M2;
+            if (p2 < 0) {
+                p2 += M2;
+            }
+            s[3] = s[4];
+            s[4] = s[5];
+            s[5] = (int) p2;
+
+            return ((p1 > p2) ? (p1 - p2) : (p1 - p2 + M1)) * NORMC;
+        }
+
+        @Override void init(int seed) {
+            boxMullerKeep = 0;
+            for (int j = 0; j < 50; j++) {
+                seed = 69069 * seed + 1;
+            }
+            for (int j = 0; j < seeds.length; j++) {
+                seed = 69069 * seed + 1;
+                while (unsigned(seed) >= M2) {
+                    seed = 69069 * seed + 1;
+                }
+                seeds[j] = seed;
+            }
+        }
+
+        @Override void fixupSeeds(boolean initial) {
+            if (!valid(0, M1) || !valid(3, M2)) {
+                init((int) System.nanoTime());
+            }
+        }
+
+        private boolean valid(int from, long m) {
+            boolean notAllZero = false;
+            for (int j = from; j < from + 3; j++) {
+                long s = unsigned(seeds[j]);
+                if (s >= m) {
+                    return false;
+                }
+                notAllZero |= s != 0;
+            }
+            return notAllZero;
+        }
+    }
+
+    private static final BigInteger TWO_64 = BigInteger.ONE.shiftLeft(64);
+
+    /**
+     * The state (.Random.seed) of the next L'Ecuyer-CMRG stream, 2^127 numbers further, like nextRNGStream of the
+     * parallel package. Streams obtained by repeated calls do not overlap for any practical use.
+     */
+    public static int[] nextStream(int[] seed) {
+        int[] res = seed.clone();
+        advance(seed, 1, LEcuyerCMRG.A1P127, LEcuyerCMRG.M1, res);
+        advance(seed, 4, LEcuyerCMRG.A2P127, LEcuyerCMRG.M2, res);
+        return res;
+    }
+
+    // the arithmetic is unsigned 64-bit, as in GNU-R
+    private static void advance(int[] seed, int offset, long[][] a, long m, int[] res) {
+        BigInteger bm = BigInteger.valueOf(m);
+        for (int i = 0; i < 3; i++) {
+            BigInteger tmp = BigInteger.ZERO;
+            for (int j = 0; j < 3; j++) {
+                tmp = tmp.add(BigInteger.valueOf(a[i][j]).multiply(BigInteger.valueOf(LEcuyerCMRG.unsigned(seed[offset + j])))).mod(TWO_64).mod(bm);
+            }
+            res[offset + i] = tmp.intValue();
+        }
+    }
+}
@@ -4,24 +4,39 @@ import r.*;
 import r.data.*;
 import r.data.internal.*;
 import r.errors.*;
-import r.ext.*;
 import r.nodes.ast.*;
 
+/**
+ * The random number generator state of the workspace, .Random.seed, as in GNU-R. The random number builtins get the
+ * generator (RNG) before drawing numbers and put it back afterwards, which stores its new state to .Random.seed.
+ *
+ * A thread can instead be given an independent L'Ecuyer-CMRG stream (see setStream), then its random numbers do not come
+ * from .Random.seed, which is left unchanged. This is how mclapply runs simulations in parallel.
+ */
 public final class Random {
     private static RSymbol seedSymbol = RSymbol.getSymbol(".Random.seed");
 
-    // the seed used by default by libRMath, changing this default will break tests
+    // the seed used by default, changing this default will break tests
     public static final RInt defaultSeed = (RInt) RArray.RArrayUtils.markShared(RInt.RIntFactory.getFor(new int[] {401, 1234, 5678}));
 
+    private static final ThreadLocal<RNG> stream = new ThreadLocal<>();
 
     public static void resetSeed() {
-        seedSymbol.setValue(defaultSeed);
+        setSeed(defaultSeed);
     }
 
-    // returns the retrieved direct pointer to the workspace seed, to be later passed to updateWorkspaceSeed
-    public static int[] updateNativeSeed(ASTNode ast) {
+    // like an assignment, the variable holds a reference
+    private static void setSeed(RInt value) {
+        seedSymbol.setValue(value);
+        value.ref();
+    }
+
+    public static RNG get(ASTNode ast) {
+        RNG s = stream.get();
+        if (s != null) {
+            return s;
+        }
         Object v = seedSymbol.getValue(); // FIXME: check R semantics when running in eval
-        int[] kind;
         if (v == null) {
                 // TODO: should ideally randomize here
             v = defaultSeed;
@@ -31,22 +46,63 @@ public final class Random {
         }
         RInt iv = (RInt) v;
         int size = iv.size();
-        if (size < 3) {
+        if (size < 1) {
             throw RError.getSeedLength(ast);
         }
-        if (!(iv instanceof IntImpl) || !iv.isTemporary()) {
-            iv = RInt.RIntFactory.copy(iv);
-            seedSymbol.setValue(iv);
+        int code = iv.getInt(0);
+        int kind = code % 100;
+        int normalKind = code % 10000 / 100;
+        if (code == RInt.NA || code < 0 || !RNG.isSupported(kind)) {
+            throw RError.getGenericError(ast, String.format(RError.RNG_KIND_NOT_SUPPORTED, code == RInt.NA || code < 0 || kind >= RNG.KIND_NAMES.length ? "invalid" : RNG.KIND_NAMES[kind]));
+        }
+        if (!RNG.isSupportedNormal(normalKind)) {
+            throw RError.getGenericError(ast, String.format(RError.RNG_KIND_NOT_SUPPORTED, normalKind < RNG.NORMAL_KIND_NAMES.length ? RNG.NORMAL_KIND_NAMES[normalKind] : "invalid"));
         }
-        kind = iv.getContent();
+        if (size < RNG.seedLength(kind) + 1) {
+            throw RError.getSeedLength(ast);
+        }
+        int[] seeds = iv.getContent();
+        RNG rng = RNG.fromSeeds(kind, normalKind, seeds, 1);
+        rng.boxMullerKeep = RContext.boxMullerKeep(); // kept between the calls, like in GNU-R, by each context
+        return rng;
+    }
 
-        GNUR.set_seed(kind);
-        return kind;
+    /** Stores the state of the generator to .Random.seed. */
+    public static void put(RNG rng) {
+        if (stream.get() == rng) {
+            return;
+        }
+        RContext.setBoxMullerKeep(rng.boxMullerKeep);
+        setSeed(RInt.RIntFactory.getFor(rng.toSeed()));
+    }
+
+    /** Makes the calling thread draw random numbers from the given generator (null restores .Random.seed). */
+    public static void setStream(RNG rng) {
+        if (rng == null) {
+            stream.remove();
+        } else {
+            stream.set(rng);
+        }
     }
 
-    // to be called after returning from native code (/random number generation)
-    public static void updateWorkspaceSeed(int[] res) {
-        GNUR.get_seed(res);
+    /**
+     * Returns n independent L'Ecuyer-CMRG streams following the current one, advancing .Random.seed past them, or null
+     * when the current generator is of a different kind.
+     */
+    public static RNG[] nextStreams(int n, ASTNode ast) {
+        Object v = seedSymbol.getValue();
+        if (stream.get() != null || !(v instanceof RInt) || ((RInt) v).size() < 1 || ((RInt) v).getInt(0) % 100 != RNG.LECUYER_CMRG) {
+            return null;
+        }
+        RNG rng = get(ast);
+        RNG[] res = new RNG[n];
+        int[] seed = rng.toSeed();
+        for (int i = 0; i < n; i++) {
+            seed = RNG.nextStream(seed);
+            res[i] = RNG.fromSeeds(RNG.LECUYER_CMRG, rng.normalKind(), seed, 1);
+        }
+        setSeed(RInt.RIntFactory.getFor(RNG.nextStream(seed)));
+        return res;
     }
 
     // for functions like rnorm, etc
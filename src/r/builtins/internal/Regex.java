@@ -0,0 +1,116 @@
+package r.builtins.internal;
+
+import java.util.*;
+import java.util.regex.*;
+
+import r.*;
+
+/**
+ * Compiled regular expressions for sub, gsub, regexpr, gregexpr and strsplit. Patterns are kept in a bounded global LRU
+ * cache (fastr.regex.cacheSize entries, 0 disables it) keyed by the pattern and the options, and a call site keeps the
+ * last pattern it used (see Cache), so that the same pattern applied in a loop is compiled only once. Patterns without
+ * regular expression meta-characters can be matched as literals, without the regular expression engine.
+ */
+public final class Regex {
+
+    static final int CACHE_SIZE = Utils.getProperty("fastr.regex.cacheSize", 256);
+
+    private static final Map<Key, Pattern> cache = new LinkedHashMap<Key, Pattern>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override protected boolean removeEldestEntry(Map.Entry<Key, Pattern> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    static final class Key {
+        final String pattern;
+        final boolean fixed;
+        final boolean ignoreCase;
+        final boolean perl;
+
+        Key(String pattern, boolean fixed, boolean ignoreCase, boolean perl) {
+            this.pattern = pattern;
+            this.fixed = fixed;
+            this.ignoreCase = ignoreCase;
+            this.perl = perl;
+        }
+
+        boolean matches(String p, boolean f, boolean ic, boolean pl) {
+            return (pattern == p || pattern.equals(p)) && fixed == f && ignoreCase == ic && perl == pl;
+        }
+
+        @Override public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key k = (Key) o;
+            return k.matches(pattern, fixed, ignoreCase, perl);
+        }
+
+        @Override public int hashCode() {
+            return pattern.hashCode() * 8 + (fixed ? 4 : 0) + (ignoreCase ? 2 : 0) + (perl ? 1 : 0);
+        }
+    }
+
+    // NOTE: perl is part of the key, but does not change the compiled pattern yet (only the Perl-like syntax is supported)
+    public static Pattern compile(String pattern, boolean fixed, boolean ignoreCase, boolean perl) {
+        int flags = (ignoreCase ? Pattern.CASE_INSENSITIVE : 0) | (fixed ? Pattern.LITERAL : 0); // FIXME: can add UNICODE_CASE
+        if (CACHE_SIZE == 0) {
+            return Pattern.compile(pattern, flags);
+        }
+        Key key = new Key(pattern, fixed, ignoreCase, perl);
+        Pattern p;
+        synchronized (cache) {
+            p = cache.get(key);
+        }
+        if (p == null) {
+            p = Pattern.compile(pattern, flags); // outside the lock, two threads may compile the same pattern
+            synchronized (cache) {
+                cache.put(key, p);
+            }
+        }
+        return p;
+    }
+
+    /** A call site cache of the last compiled pattern, for the common case of a constant pattern. */
+    public static final class Cache {
+        private Entry last; // a single field, so that concurrent calls see a consistent entry
+
+        static final class Entry {
+            final Key key;
+            final Pattern pattern;
+
+            Entry(Key key, Pattern pattern) {
+                this.key = key;
+                this.pattern = pattern;
+            }
+        }
+
+        public Pattern get(String pattern, boolean fixed, boolean ignoreCase, boolean perl) {
+            Entry e = last;
+            if (e != null && e.key.matches(pattern, fixed, ignoreCase, perl)) {
+                return e.pattern;
+            }
+            Pattern p = compile(pattern, fixed, ignoreCase, perl);
+            last = new Entry(new Key(pattern, fixed, ignoreCase, perl), p);
+            return p;
+        }
+    }
+
+    /** Returns true if the pattern only matches itself, so it can be searched for as a literal string. */
+    public static boolean isLiteral(String pattern) {
+        int len = pattern.length();
+        if (len == 0) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            switch (pattern.charAt(i)) {
+                case '\\': case '^': case '$': case '.': case '|': case '?': case '*': case '+':
+                case '(': case ')': case '[': case ']': case '{': case '}':
+                    return false;
+            }
+        }
+        return true;
+    }
+}
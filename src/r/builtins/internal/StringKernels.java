@@ -0,0 +1,192 @@
+package r.builtins.internal;
+
+import r.data.*;
+import r.data.internal.*;
+
+/**
+ * Kernels of the string builtins (paste, nchar, substr, substring, strsplit) working on the String[] content of
+ * vectors. Results are built in pre-sized arrays, concatenation goes through a single character buffer re-used for all
+ * elements, and a collapsed result is assembled in one buffer of the exact final length.
+ *
+ * NOTE: Java strings cannot share the characters of another string, so split and substring results are copies.
+ */
+public final class StringKernels {
+
+    static final String NA_STRING = "NA"; // how paste shows NA
+
+    /** The elements of the vector, without copying when it is materialized. */
+    public static String[] content(RString s) {
+        if (s instanceof StringImpl) {
+            return ((StringImpl) s).getContent();
+        }
+        int size = s.size();
+        String[] res = new String[size];
+        for (int i = 0; i < size; i++) {
+            res[i] = s.getString(i);
+        }
+        return res;
+    }
+
+    private static String show(String s) {
+        return s != RString.NA ? s : NA_STRING;
+    }
+
+    // zero-length arguments are treated as ""
+    private static String[][] recyclable(String[][] args) {
+        for (int j = 0; j < args.length; j++) {
+            if (args[j].length == 0) {
+                args[j] = new String[]{""};
+            }
+        }
+        return args;
+    }
+
+    /** Concatenates the i-th elements of the arguments (recycled), separated by sep, for i in [0, n). */
+    public static String[] paste(String[][] args, String sep, int n) {
+        recyclable(args);
+        int nargs = args.length;
+        int sepLen = sep.length();
+        int[] idx = new int[nargs];
+        String[] res = new String[n];
+        char[] buf = new char[64];
+        for (int i = 0; i < n; i++) {
+            int len = sepLen * (nargs - 1);
+            for (int j = 0; j < nargs; j++) {
+                len += show(args[j][idx[j]]).length();
+            }
+            if (len > buf.length) {
+                buf = new char[Math.max(len, buf.length * 2)];
+            }
+            int pos = 0;
+            for (int j = 0; j < nargs; j++) {
+                if (j > 0) {
+                    sep.getChars(0, sepLen, buf, pos);
+                    pos += sepLen;
+                }
+                String s = show(args[j][idx[j]]);
+                s.getChars(0, s.length(), buf, pos);
+                pos += s.length();
+                if (++idx[j] == args[j].length) {
+                    idx[j] = 0;
+                }
+            }
+            res[i] = new String(buf, 0, len);
+        }
+        return res;
+    }
+
+    /** Like paste, but returns the results joined by collapse, without creating them. */
+    public static String paste(String[][] args, String sep, int n, String collapse) {
+        recyclable(args);
+        int nargs = args.length;
+        int sepLen = sep.length();
+        int collapseLen = collapse.length();
+        long total = n == 0 ? 0 : (long) collapseLen * (n - 1) + (long) sepLen * (nargs - 1) * n;
+        for (int j = 0; j < nargs; j++) {
+            String[] a = args[j];
+            long argLen = 0;
+            for (String s : a) {
+                argLen += show(s).length();
+            }
+            total += argLen * (n / a.length); // whole cycles
+            for (int i = 0; i < n % a.length; i++) {
+                total += show(a[i]).length();
+            }
+        }
+        char[] buf = new char[(int) total];
+        int[] idx = new int[nargs];
+        int pos = 0;
+        for (int i = 0; i < n; i++) {
+            if (i > 0) {
+                collapse.getChars(0, collapseLen, buf, pos);
+                pos += collapseLen;
+            }
+            for (int j = 0; j < nargs; j++) {
+                if (j > 0) {
+                    sep.getChars(0, sepLen, buf, pos);
+                    pos += sepLen;
+                }
+                String s = show(args[j][idx[j]]);
+                s.getChars(0, s.length(), buf, pos);
+                pos += s.length();
+                if (++idx[j] == args[j].length) {
+                    idx[j] = 0;
+                }
+            }
+        }
+        return new String(buf);
+    }
+
+    /** Returns the number of characters of each string, naLength for NA. */
+    public static int[] nchar(String[] x, int naLength) {
+        int size = x.length;
+        int[] res = new int[size];
+        for (int i = 0; i < size; i++) {
+            String s = x[i];
+            res[i] = s != RString.NA ? s.length() : naLength;
+        }
+        return res;
+    }
+
+    /** The characters first..last (1-based, inclusive) of s, clamped to the string as in substr. */
+    public static String substring(String s, int first, int last) {
+        int len = s.length();
+        if (first < 1) {
+            first = 1;
+        }
+        if (last > len) {
+            last = len;
+        }
+        if (first > last) {
+            return "";
+        }
+        return s.substring(first - 1, last);
+    }
+
+    /**
+     * Splits s at each occurrence of the non-empty separator. A separator at the end does not produce an empty piece, as
+     * in strsplit. Like R, counts the pieces first, so that the result is allocated with its exact size.
+     */
+    public static String[] split(String s, String sep) {
+        if (s == RString.NA) {
+            return new String[]{RString.NA};
+        }
+        int strLen = s.length();
+        int sepLen = sep.length();
+        char sepChar = sep.charAt(0);
+        int n = 0;
+        for (int j = 0; j < strLen; n++) {
+            int k = sepLen == 1 ? s.indexOf(sepChar, j) : s.indexOf(sep, j);
+            if (k == -1) {
+                n++;
+                break;
+            }
+            j = k + sepLen;
+        }
+        String[] res = new String[n];
+        int j = 0;
+        for (int p = 0; p < n; p++) {
+            int k = sepLen == 1 ? s.indexOf(sepChar, j) : s.indexOf(sep, j);
+            if (k == -1) {
+                res[p] = s.substring(j);
+                break;
+            }
+            res[p] = s.substring(j, k);
+            j = k + sepLen;
+        }
+        return res;
+    }
+
+    /** Splits s into single characters. */
+    public static String[] chars(String s) {
+        if (s == RString.NA) {
+            return new String[]{RString.NA};
+        }
+        int strLen = s.length();
+        String[] res = new String[strLen];
+        for (int j = 0; j < strLen; j++) {
+            res[j] = String.valueOf(s.charAt(j));
+        }
+        return res;
+    }
+}
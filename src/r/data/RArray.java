@@ -3,8 +3,6 @@ package r.data;
 import r.data.internal.*;
 import r.data.internal.View.RListProxy;
 
-import java.util.HashMap;
-
 /**
  * The interface for all arrays. R makes the distinction between vectors and
  * arrays. In R, a array can be considered as a multiply subscripted collection
@@ -69,8 +67,12 @@ public interface RArray extends RAny {
     public static class RArrayUtils {
 
         public static RArray markShared(RArray a) {
-            a.ref();
-            a.ref();
+            if (a instanceof NonScalarArrayImpl) {
+                ((NonScalarArrayImpl) a).markSharedForever();
+            } else {
+                a.ref();
+                a.ref();
+            }
             return a;
         }
     }
@@ -93,7 +95,7 @@ public interface RArray extends RAny {
      *
      * <pre>
      * FIXME: Should we really have an object that wraps around an array. This seems slightly wasteful.
-     * FIXME: Note that when using a hashmap we have to be careful. The same symbol can occur multiple times
+     * FIXME: Note that when using a map we have to be careful. The same symbol can occur multiple times
      * the R behavior seems to be to return the first occurrence of the symbol.
      * FIXME: In R, when we set dim, the names attribute appears to be lost. (Check that we do the same)
      * </pre>
@@ -102,9 +104,9 @@ public interface RArray extends RAny {
 
         RSymbol[] names;
         /* map is lazily initialized. */
-        HashMap<RSymbol, Integer> map;
+        SymbolIntMap map;
 
-        private Names(RSymbol[] names, HashMap<RSymbol, Integer> preparedMap) {
+        private Names(RSymbol[] names, SymbolIntMap preparedMap) {
             this.names = names;
             map = preparedMap;
         }
@@ -121,7 +123,7 @@ public interface RArray extends RAny {
             return new Names(names, null);
         }
 
-        public static Names create(RSymbol[] names, HashMap<RSymbol, Integer> preparedMap) {
+        public static Names create(RSymbol[] names, SymbolIntMap preparedMap) {
             return new Names(names, preparedMap);
         }
 
@@ -184,38 +186,38 @@ public interface RArray extends RAny {
         }
 
         /**
-         * NA and "" never match, and thus need not be put in the hashmap. For
+         * NA and "" never match, and thus need not be put in the map. For
          * multiply occurring names we return the first index.
          */
         private void initializeMapIfNeeded() {
             if (map != null) { return; }
-            map = new HashMap<>(names.length);
+            SymbolIntMap m = new SymbolIntMap(names.length);
             for (int i = 0; i < names.length; i++) {
                 RSymbol name = names[i];
-                if (name != RSymbol.EMPTY_SYMBOL && name != RSymbol.NA_SYMBOL && !map.containsKey(name)) {
-                    map.put(names[i], i);
+                if (name != null && name != RSymbol.EMPTY_SYMBOL && name != RSymbol.NA_SYMBOL) {
+                    m.putIfAbsent(name, i);
                 }
             }
+            map = m;
         }
 
-        public HashMap<RSymbol, Integer> stealMap() { // do this when the map is very likely to be needed with a new value instead
-            HashMap<RSymbol, Integer> stolenMap = map;
+        public SymbolIntMap stealMap() { // do this when the map is very likely to be needed with a new value instead
+            SymbolIntMap stolenMap = map;
             map = null;
             return stolenMap;
         }
 
         public int map(RSymbol name) {
             initializeMapIfNeeded();
-            Integer index = map.get(name);
-            return index == null ? -1 : index.intValue();
+            return map.get(name);
         }
 
-        public HashMap<RSymbol, Integer> getMap() {
+        public SymbolIntMap getMap() {
             initializeMapIfNeeded();
             return map;
         }
 
-        // returns true if the Names implementation internally manages a hashmap
+        // returns true if the Names implementation internally manages a map
         // now this is always the case, but initially it wasn't and it may not pay off to always be
         //
         // (this is used by optimized algorithms e.g. on vector update to know that a map should be built anyway,
@@ -45,6 +45,11 @@ public interface REnvironment extends RAny {
             return false;
         }
 
+        @Override
+        public boolean eagerArguments() {
+            return false;
+        }
+
         @Override
         public RFunction enclosingFunction() {
             // TODO Auto-generated method stub
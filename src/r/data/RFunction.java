@@ -21,6 +21,7 @@ public interface RFunction {
     int nlocals();
     int nparams();
     int dotsIndex();
+    boolean eagerArguments(); // arguments may be passed as values, see EagerArguments
 
     public static final class EnclosingSlot {
 
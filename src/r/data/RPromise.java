@@ -1,5 +1,6 @@
 package r.data;
 
+import r.*;
 import r.data.internal.*;
 import r.errors.*;
 import r.nodes.ast.*;
@@ -17,6 +18,7 @@ public final class RPromise {
     private static final int MISSING_DIRTY_MASK = 1 << 1;
     private static final int MISSING_MASK = 1 << 2 | 1 << 3;
     private static final int MISSING_SHIFT = 2;
+    private static final int RELEASED_MASK = 1 << 4;
 
     private static final int MISSING_BITS_DEFAULT = 2 << MISSING_SHIFT;
     private static final int MISSING_BITS_MISSING = 1 << MISSING_SHIFT; // NOTE: we use different encoding of missing states from GNU-R
@@ -28,6 +30,9 @@ public final class RPromise {
     }
 
     public static RPromise createNormal(RNode expression, Frame frame) {
+        if (frame != null) {
+            frame.markEscaped();
+        }
         return new RPromise(expression, frame, 0);
     }
 
@@ -66,10 +71,21 @@ public final class RPromise {
                 markForceClean();
             }
             value.ref();
+        } else if ((bits & RELEASED_MASK) != 0) {
+            bits &= ~RELEASED_MASK;
+            value.ref();
         }
         return value;
     }
 
+    /** Drops the reference of the value, when the frame holding the promise returns (see Frame.release). */
+    public void release() {
+        if (value != null && (bits & RELEASED_MASK) == 0) {
+            bits |= RELEASED_MASK;
+            Utils.unref(value);
+        }
+    }
+
     public static Object force(Object o) {
         if (FunctionCall.PROMISES && o instanceof RPromise) {
             return ((RPromise) o).forceOrGet();
@@ -106,6 +122,10 @@ public final class RPromise {
         return (bits & MISSING_MASK) == MISSING_BITS_MISSING;
     }
 
+    public boolean isForced() {
+        return value != null;
+    }
+
     public RNode expression() {
         return expression;
     }
@@ -33,18 +33,39 @@ public final class RSymbol extends BaseObject implements RAny {
     public static final RSymbol TIMES_SYMBOL = RSymbol.getSymbol("times");
 
     final String name;
-    // The next two fields are for the topLevel
-    Object value;
-    int version;
-    ArrayList<SymbolChangeListener> changeListeners;
+    final int bindingIndex; // of the binding in an RContext (symbols are numbered in the order of creation)
+    // The binding of the symbol at top level in the primary context (other contexts keep their own bindings)
+    final Binding binding = new Binding();
 
     // The next is for the builtins registration
     PrimitiveEntry primitive;
 
     final static String TYPE_STRING = "symbol";
 
-    private RSymbol(String identifier) {
+    private RSymbol(String identifier, int bindingIndex) {
         name = identifier;
+        this.bindingIndex = bindingIndex;
+    }
+
+    /** The top-level value of a symbol in an RContext. */
+    public static final class Binding {
+        Object value;
+        int version;
+        ArrayList<SymbolChangeListener> changeListeners;
+
+        void reset() {
+            value = null;
+            version = 0;
+            changeListeners = null;
+        }
+    }
+
+    private Binding binding() {
+        if (!RContext.hasMultipleContexts()) {
+            return binding;
+        }
+        RContext context = RContext.current();
+        return RContext.isPrimary(context) ? binding : context.binding(this);
     }
 
     public static RSymbol getSymbol(String name) {
@@ -92,30 +113,109 @@ public final class RSymbol extends BaseObject implements RAny {
         return hashCode(); // id = currentId++;
     }
 
+    public int bindingIndex() {
+        return bindingIndex;
+    }
+
     public int hash() { // TODO add a field for filtering!
         return hashCode(); // hash = 1 << (currentHash = currentHash + 1 % Integer.size);
     }
 
     private static class SymbolTable {
-        // TODO A less stupid implementation for symbol table
-        // i.e., close to a set implementation with linear probing
-        final Map<String, RSymbol> table = new HashMap<>();
+        // open addressing with linear probing on the hash of the name; a lookup of an existing symbol does not lock, a
+        // symbol is added under the lock (symbols are never removed, a reader that misses one being added retries there)
+        // NOTE: shared by all contexts
+        volatile RSymbol[] table = new RSymbol[1 << 12];
+        int size;
+        int nextId;
+        final RSymbol naSymbol = new RSymbol(RString.NA, nextId++); // kept aside, found by identity of the NA string
 
         private RSymbol get(String name) {
-            RSymbol sym = table.get(name);
-            if (sym == null) {
-                table.put(name, sym = new RSymbol(name));
+            if (name == RString.NA) {
+                return naSymbol;
+            }
+            RSymbol sym = find(table, name);
+            return sym != null ? sym : add(name);
+        }
+
+        private static int slot(String name, int mask) {
+            int h = name.hashCode();
+            return (h ^ (h >>> 16)) & mask;
+        }
+
+        private static RSymbol find(RSymbol[] t, String name) {
+            int mask = t.length - 1;
+            for (int i = slot(name, mask);; i = (i + 1) & mask) {
+                RSymbol s = t[i];
+                if (s == null) {
+                    return null;
+                }
+                if (s.name.equals(name)) {
+                    return s;
+                }
+            }
+        }
+
+        private static void insert(RSymbol[] t, RSymbol sym) {
+            int mask = t.length - 1;
+            int i = slot(sym.name, mask);
+            while (t[i] != null) {
+                i = (i + 1) & mask;
+            }
+            t[i] = sym;
+        }
+
+        private synchronized RSymbol add(String name) {
+            RSymbol[] t = table;
+            RSymbol sym = find(t, name);
+            if (sym != null) {
+                return sym;
+            }
+            sym = new RSymbol(name, nextId++);
+            if (++size * 2 > t.length) {
+                RSymbol[] nt = new RSymbol[t.length * 2];
+                for (RSymbol s : t) {
+                    if (s != null) {
+                        insert(nt, s);
+                    }
+                }
+                insert(nt, sym);
+                table = nt; // published fully built
+            } else {
+                insert(t, sym);
             }
             return sym;
         }
 
+        private Collection<RSymbol> values() {
+            RSymbol[] t = table;
+            ArrayList<RSymbol> values = new ArrayList<>(t.length / 2);
+            for (RSymbol s : t) {
+                if (s != null) {
+                    values.add(s);
+                }
+            }
+            values.add(naSymbol);
+            return values;
+        }
+
+        private Set<String> names() {
+            HashSet<String> names = new HashSet<>();
+            for (RSymbol s : table) {
+                if (s != null) {
+                    names.add(s.name);
+                }
+            }
+            return names;
+        }
+
         private RSymbol[] list() { // NOTE: this includes "null" values for symbols currently unused
-            RSymbol[] res = new RSymbol[table.size()];
-            return table.values().toArray(res);
+            Collection<RSymbol> values = values();
+            return values.toArray(new RSymbol[values.size()]);
         }
 
         private RSymbol[] listUsed(boolean includingHidden) { // FIXME: unnecessary copying
-            Collection<RSymbol> values = table.values();
+            Collection<RSymbol> values = values();
             ArrayList<RSymbol> used = new ArrayList<>(values.size());
 
             for(RSymbol s : values) {
@@ -136,11 +236,9 @@ public final class RSymbol extends BaseObject implements RAny {
         // TODO: fix this when adding packages, namespaces
     }
 
-    public static void resetTable() {
-        for (RSymbol s : symbolTable.table.values()) {
-            s.value = null;
-            s.version = 0;
-            s.changeListeners = null;
+    public static void resetTable() { // resets the top-level bindings of the current context
+        for (RSymbol s : symbolTable.values()) {
+            s.binding().reset();
         }
         RSymbol.getSymbol(".GlobalEnv").setValue(REnvironment.GLOBAL);
         // TODO: .GlobalEnv should be set in some other environment
@@ -148,7 +246,7 @@ public final class RSymbol extends BaseObject implements RAny {
     }
 
     public static Set<String> symbols() {
-        return symbolTable.table.keySet();
+        return symbolTable.names();
     }
 
     @Override public RRaw asRaw() {
@@ -187,21 +285,22 @@ public final class RSymbol extends BaseObject implements RAny {
     }
 
     public Object getValue() {
-        return RPromise.force(value);
+        return RPromise.force(binding().value);
     }
 
     public Object getValueNoForce() {
-        return value;
+        return binding().value;
     }
 
     // don't call directly unless needed (risk of breaking reference counting with materialize on assignment
     public void setValue(Object val) {
-        value = val;
-        notifyChangeListeners();
+        Binding b = binding();
+        b.value = val;
+        notifyChangeListeners(b);
     }
 
     public int getVersion() {
-        return version;
+        return binding().version;
     }
 
     public PrimitiveEntry getPrimitiveEntry() {
@@ -213,19 +312,23 @@ public final class RSymbol extends BaseObject implements RAny {
     }
 
     public void markDirty() {
-        version++;
-        notifyChangeListeners();
+        Binding b = binding();
+        b.version++;
+        notifyChangeListeners(b);
     }
 
-    private void notifyChangeListeners() {
+    private void notifyChangeListeners(Binding b) {
 
-        ArrayList<SymbolChangeListener> listeners = changeListeners;
-        changeListeners = null;
+        ArrayList<SymbolChangeListener> listeners;
+        synchronized (b) {
+            listeners = b.changeListeners;
+            b.changeListeners = null;
+        }
         if (listeners != null) {
             for (SymbolChangeListener l : listeners) {
                 boolean keep = l.onChange(this);
                 if (keep) {
-                    addChangeListener(l);
+                    addChangeListener(b, l);
                 }
             }
         }
@@ -258,10 +361,16 @@ public final class RSymbol extends BaseObject implements RAny {
     }
 
     public void addChangeListener(SymbolChangeListener l) {
-        if (changeListeners == null) {
-            changeListeners = new ArrayList<>();
+        addChangeListener(binding(), l);
+    }
+
+    private static void addChangeListener(Binding b, SymbolChangeListener l) {
+        synchronized (b) { // call nodes may be built by worker threads
+            if (b.changeListeners == null) {
+                b.changeListeners = new ArrayList<>();
+            }
+            b.changeListeners.add(l);
         }
-        changeListeners.add(l);
     }
 
     @Override public void ref() {}
@@ -332,7 +441,8 @@ public final class RSymbol extends BaseObject implements RAny {
     }
 
     public boolean builtinIsOverridden() {
-        return value != null || version != 0;
+        Binding b = binding();
+        return b.value != null || b.version != 0;
     }
 
     @Override
@@ -41,6 +41,11 @@ public abstract class Connection {
     public abstract BufferedReader reader(ASTNode ast);
     public abstract OutputStream output(ASTNode ast);
 
+    /** Returns the mapped input to read from instead of the reader, or null if the connection is not read that way. */
+    public MappedInput mappedInput(ASTNode ast) {
+        return null;
+    }
+
     @Override
     public void finalize() throws Throwable {
         if (isOpen()) {
@@ -55,6 +60,7 @@ public abstract class Connection {
         FileInputStream input;
         FileOutputStream output;
         BufferedReader reader;
+        MappedInput mapped;
 
         FileConnection(String name, ConnectionMode mode, ConnectionMode defaultMode) {
             super(name, mode, defaultMode);
@@ -101,6 +107,10 @@ public abstract class Connection {
             }
             Utils.check(file != null);
             try {
+                if (mapped != null) { // continue where the mapped input stopped
+                    reader = mapped.reader();
+                    return reader;
+                }
                 if (input == null) {
                     input = new FileInputStream(file.getFD());
                 }
@@ -115,6 +125,25 @@ public abstract class Connection {
             }
         }
 
+        @Override
+        public MappedInput mappedInput(ASTNode ast) {
+            if (mapped != null) {
+                return mapped;
+            }
+            Utils.check(file != null);
+            if (reader != null || mode.write() || mode.append()) {
+                return null;
+            }
+            try {
+                if (MappedInput.useFor(file)) {
+                    mapped = new MappedInput(file.getChannel());
+                }
+                return mapped;
+            } catch (IOException e) {
+                throw RError.getGenericError(ast, e.toString());
+            }
+        }
+
         @Override
         public OutputStream output(ASTNode ast) {
             if (output != null) {
@@ -150,6 +179,7 @@ public abstract class Connection {
                 output = null;
                 input = null;
                 reader = null;
+                mapped = null;
                 mode = null;
             } catch (IOException e) {
                 throw RError.getGenericError(ast, e.toString());
@@ -39,9 +39,7 @@ public class DoubleImpl extends NonScalarArrayImpl implements RDouble {
 
     public DoubleImpl(RDouble d, boolean valuesOnly) {
         content = new double[d.size()];
-        for (int i = 0; i < content.length; i++) {
-            content[i] = d.getDouble(i);
-        }
+        copyValues(d, content);
         if (!valuesOnly) {
             dimensions = d.dimensions();
             names = d.names();
@@ -51,14 +49,22 @@ public class DoubleImpl extends NonScalarArrayImpl implements RDouble {
 
     public DoubleImpl(RDouble d, int[] dimensions, Names names, Attributes attributes) {
         content = new double[d.size()];
-        for (int i = 0; i < content.length; i++) {
-            content[i] = d.getDouble(i);
-        }
+        copyValues(d, content);
         this.dimensions = dimensions;
         this.names = names;
         this.attributes = attributes;
     }
 
+    private static void copyValues(RDouble d, double[] content) {
+        if (d instanceof View.RDoubleView) {
+            ((View.RDoubleView) d).materializeInto(content); // views can materialize faster than by getDouble
+            return;
+        }
+        for (int i = 0; i < content.length; i++) {
+            content[i] = d.getDouble(i);
+        }
+    }
+
     @Override
     public int size() {
         return content.length;
@@ -29,6 +29,9 @@ public class FunctionImpl extends BaseR implements RFunction {
     final EnclosingSlot[] readSet;
     final int readSetBloom;
 
+    final Tier2 tier2; // null when the function cannot be compiled
+    final EagerArguments eagerArguments; // null when the arguments have to be promises
+
     private static final boolean DEBUG_CALLS = false;
 
     public FunctionImpl(Function source, RSymbol[] paramNames, RNode[] paramValues, RNode body, RFunction enclosingFunction, RSymbol[] writeSet, EnclosingSlot[] readSet) {
@@ -71,6 +74,13 @@ public class FunctionImpl extends BaseR implements RFunction {
             }
         }
         dotsIndex = tmpDotsIndex;
+        tier2 = Tier2.create(this);
+        eagerArguments = EagerArguments.create(source, enclosingFunction);
+    }
+
+    /** A copy of this function with different (not yet executed) nodes, e.g. to be executed by another thread. */
+    public FunctionImpl copy(RNode[] newParamValues, RNode newBody) {
+        return new FunctionImpl(source, paramNames, newParamValues, newBody, enclosingFunction, writeSet, readSet);
     }
 
     @Override
@@ -83,7 +93,8 @@ public class FunctionImpl extends BaseR implements RFunction {
                 RNode n = paramValues[i];
                 if (n != null) {
                     if (FunctionCall.PROMISES) {
-                        frame.set(i, RPromise.createDefault(n, frame));
+                        RAny dvalue = eagerArguments() ? EagerArguments.defaultValue(n) : null;
+                        frame.set(i, dvalue != null ? dvalue : RPromise.createDefault(n, frame));
                     } else {
                         RAny rvalue = (RAny) n.execute(frame);
 
@@ -102,23 +113,37 @@ public class FunctionImpl extends BaseR implements RFunction {
             }
         }
 
-        Object res;
-        try {
-            res = body.execute(frame);
-        } catch (ReturnException re) {
-            res = frame.returnValue();
-        }
-        return res;
+        return run(frame);
     }
 
     @Override
     public Object callNoDefaults(Frame frame) {
+        return run(frame);
+    }
+
+    private Object run(Frame frame) {
         Object res;
+        if (tier2 != null) {
+            res = tier2.call(frame);
+            if (res != null) {
+                frame.release();
+                return res;
+            }
+        }
+        int callerDepth = Profiler.active ? Profiler.enter(this) : -1;
         try {
             res = body.execute(frame);
         } catch (ReturnException re) {
             res = frame.returnValue();
+        } finally {
+            if (callerDepth != -1) {
+                Profiler.exit(callerDepth);
+            }
         }
+        if (tier2 != null) {
+            tier2.profile(frame);
+        }
+        frame.release();
         return res;
     }
 
@@ -175,6 +200,11 @@ public class FunctionImpl extends BaseR implements RFunction {
         return dotsIndex;
     }
 
+    @Override
+    public boolean eagerArguments() {
+        return eagerArguments != null && eagerArguments.accepts();
+    }
+
     @Override
     public int positionInLocalWriteSet(RSymbol sym) {
         if (isIn(sym.hash(), writeSetBloom)) {
@@ -231,6 +261,9 @@ public class FunctionImpl extends BaseR implements RFunction {
     }
 
     @Override public RClosure createClosure(Frame enclosingEnvironment) {
+        if (enclosingEnvironment != null) {
+            enclosingEnvironment.markEscaped();
+        }
         return new ClosureImpl(this, enclosingEnvironment);
     }
 
@@ -0,0 +1,387 @@
+package r.data.internal;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.*;
+
+import r.*;
+
+/**
+ * Reads a file through a memory-mapped window. Lines and white-space delimited fields are found directly in the mapped
+ * bytes and numeric fields can be parsed from them without creating strings. Only the window is mapped, it moves forward
+ * as the file is read, so a file larger than the heap (or than 2GB) can be processed in chunks, e.g. by repeated calls
+ * to readLines or scan on an open connection.
+ *
+ * Files of at least fastr.io.mmapThreshold bytes opened by a file connection for reading only are read this way (0
+ * disables it).
+ */
+public final class MappedInput {
+
+    static int threshold = Utils.getProperty("fastr.io.mmapThreshold", 1 << 20);
+    static final int WINDOW_SIZE = Utils.getProperty("fastr.io.mmapWindow", 64 << 20);
+    static final int MIN_LINE_SIZE = 1 << 16; // a line that starts closer to the end of the window is read from a new window
+
+    static final Charset ASCII = StandardCharsets.ISO_8859_1; // any mapping would do for ASCII, this is the fastest
+
+    final FileChannel channel;
+    final long size;
+
+    MappedByteBuffer window;
+    long windowStart; // offset of the window in the file
+    int limit; // size of the window
+    int pos; // current position in the window
+
+    int fieldStart; // bounds of the last field in the window
+    int fieldEnd;
+    String longField; // the last field, if it did not fit in the window
+    double fieldDouble;
+    int fieldInt;
+
+    MappedInput(FileChannel channel) throws IOException {
+        this.channel = channel;
+        this.size = channel.size();
+        map(0);
+    }
+
+    public static int threshold() {
+        return threshold;
+    }
+
+    public static void setThreshold(int size) {
+        threshold = size;
+    }
+
+    static boolean useFor(RandomAccessFile file) throws IOException {
+        return threshold > 0 && file.length() >= threshold;
+    }
+
+    private void map(long offset) throws IOException {
+        long len = Math.min(WINDOW_SIZE, size - offset);
+        window = channel.map(MapMode.READ_ONLY, offset, len);
+        windowStart = offset;
+        limit = (int) len;
+        pos = 0;
+    }
+
+    private boolean windowAtEnd() {
+        return windowStart + limit >= size;
+    }
+
+    // moves the window to start at the current position, if less than n bytes are left in it
+    private void ensure(int n) throws IOException {
+        if (limit - pos < n && !windowAtEnd()) {
+            map(windowStart + pos);
+        }
+    }
+
+    public boolean atEnd() {
+        return pos == limit && windowAtEnd();
+    }
+
+    public int read() throws IOException {
+        if (pos == limit) {
+            if (windowAtEnd()) {
+                return -1;
+            }
+            map(windowStart + pos);
+        }
+        return window.get(pos++) & 0xff;
+    }
+
+    /** Reads a line terminated by LF, CRLF, CR or the end of file, returns null at the end of file. */
+    public String readLine() throws IOException {
+        if (atEnd()) {
+            return null;
+        }
+        ensure(MIN_LINE_SIZE);
+        ByteArrayOutputStream longLine = null; // for lines that do not fit in the window
+        int start = pos;
+        boolean ascii = true;
+        for (;;) {
+            if (pos == limit) {
+                if (windowAtEnd()) {
+                    return decode(longLine, start, pos, ascii); // no line terminator at the end of file
+                }
+                if (start > 0) {
+                    int read = pos - start;
+                    map(windowStart + start); // the line now starts at 0
+                    pos = read;
+                    start = 0;
+                    continue;
+                }
+                if (longLine == null) {
+                    longLine = new ByteArrayOutputStream();
+                }
+                longLine.write(bytes(0, limit), 0, limit);
+                map(windowStart + limit);
+                continue;
+            }
+            byte b = window.get(pos);
+            if (b == '\n' || b == '\r') {
+                String line = decode(longLine, start, pos, ascii);
+                pos++;
+                if (b == '\r') {
+                    ensure(1);
+                    if (pos < limit && window.get(pos) == '\n') {
+                        pos++;
+                    }
+                }
+                return line;
+            }
+            if (b < 0) {
+                ascii = false;
+            }
+            pos++;
+        }
+    }
+
+    private byte[] bytes(int from, int to) {
+        byte[] res = new byte[to - from];
+        ByteBuffer b = window.duplicate();
+        b.position(from);
+        b.get(res);
+        return res;
+    }
+
+    private String decode(ByteArrayOutputStream prefix, int from, int to, boolean ascii) {
+        if (prefix == null) {
+            return new String(bytes(from, to), ascii ? ASCII : Charset.defaultCharset());
+        }
+        prefix.write(bytes(from, to), 0, to - from);
+        return new String(prefix.toByteArray(), Charset.defaultCharset());
+    }
+
+    static boolean isWhite(byte b) { // as in scan
+        return b == ' ' || b == '\n' || b == '\t' || b == '\r';
+    }
+
+    /**
+     * Skips white space and delimits the next field, consuming also the white space character that ends it. Returns
+     * false at the end of file.
+     */
+    public boolean nextField() throws IOException {
+        for (;;) {
+            if (pos == limit) {
+                if (windowAtEnd()) {
+                    return false;
+                }
+                map(windowStart + pos);
+            }
+            if (!isWhite(window.get(pos))) {
+                break;
+            }
+            pos++;
+        }
+        int start = pos;
+        longField = null;
+        ByteArrayOutputStream prefix = null;
+        for (;;) {
+            if (pos == limit) {
+                if (windowAtEnd()) {
+                    break;
+                }
+                if (start == 0) { // the field does not fit in the window
+                    if (prefix == null) {
+                        prefix = new ByteArrayOutputStream();
+                    }
+                    prefix.write(bytes(0, limit), 0, limit);
+                    map(windowStart + limit);
+                    continue;
+                }
+                int read = pos - start;
+                map(windowStart + start);
+                pos = read;
+                start = 0;
+                continue;
+            }
+            if (isWhite(window.get(pos))) {
+                break;
+            }
+            pos++;
+        }
+        fieldStart = start;
+        fieldEnd = pos;
+        if (prefix != null) {
+            longField = decode(prefix, start, pos, false);
+        }
+        if (pos < limit) {
+            pos++;
+        }
+        return true;
+    }
+
+    public double fieldDouble() {
+        return fieldDouble;
+    }
+
+    public int fieldInt() {
+        return fieldInt;
+    }
+
+    public String fieldString() {
+        if (longField != null) {
+            return longField;
+        }
+        return decode(null, fieldStart, fieldEnd, false);
+    }
+
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    /**
+     * Parses the field if it is a plain decimal number ([+-]digits[.digits][(e|E)[+-]digits]) that can be converted
+     * exactly with a single rounding (at most 15 significant digits and a decimal exponent of at most 22), storing the
+     * result to fieldDouble. Returns false otherwise (NA, Inf, hexadecimal, ...), the field then has to be converted from
+     * its string, which gives the same result for the plain numbers.
+     */
+    public boolean parseFieldDouble() {
+        if (longField != null) {
+            return false;
+        }
+        int i = fieldStart;
+        int end = fieldEnd;
+        boolean negative = false;
+        byte b = window.get(i);
+        if (b == '-' || b == '+') {
+            negative = b == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean dot = false;
+        boolean anyDigit = false;
+        for (; i < end; i++) {
+            b = window.get(i);
+            if (b >= '0' && b <= '9') {
+                anyDigit = true;
+                if (mantissa != 0 || b != '0') {
+                    if (++digits > 15) {
+                        return false;
+                    }
+                }
+                mantissa = mantissa * 10 + (b - '0');
+                if (dot) {
+                    scale--;
+                }
+            } else if (b == '.' && !dot) {
+                dot = true;
+            } else {
+                break;
+            }
+        }
+        if (!anyDigit) {
+            return false;
+        }
+        if (i < end) {
+            b = window.get(i);
+            if (b != 'e' && b != 'E') {
+                return false;
+            }
+            i++;
+            boolean negativeExponent = false;
+            if (i < end) {
+                b = window.get(i);
+                if (b == '-' || b == '+') {
+                    negativeExponent = b == '-';
+                    i++;
+                }
+            }
+            if (i == end) {
+                return false;
+            }
+            int exponent = 0;
+            for (; i < end; i++) {
+                b = window.get(i);
+                if (b < '0' || b > '9' || exponent > 1000) {
+                    return false;
+                }
+                exponent = exponent * 10 + (b - '0');
+            }
+            scale += negativeExponent ? -exponent : exponent;
+        }
+        double d = mantissa;
+        if (mantissa != 0) {
+            if (scale < -22 || scale > 22) {
+                return false;
+            }
+            d = scale >= 0 ? d * POWERS_OF_TEN[scale] : d / POWERS_OF_TEN[-scale];
+        }
+        fieldDouble = negative ? -d : d;
+        return true;
+    }
+
+    /**
+     * Parses the field if it is a plain decimal integer of at most 9 digits (without leading zeros, which would make it
+     * octal), storing the result to fieldInt. Returns false otherwise.
+     */
+    public boolean parseFieldInt() {
+        if (longField != null) {
+            return false;
+        }
+        int i = fieldStart;
+        int end = fieldEnd;
+        boolean negative = false;
+        byte b = window.get(i);
+        if (b == '-' || b == '+') {
+            negative = b == '-';
+            i++;
+        }
+        int n = end - i;
+        if (n == 0 || n > 9 || (n > 1 && window.get(i) == '0')) {
+            return false;
+        }
+        int v = 0;
+        for (; i < end; i++) {
+            b = window.get(i);
+            if (b < '0' || b > '9') {
+                return false;
+            }
+            v = v * 10 + (b - '0');
+        }
+        fieldInt = negative ? -v : v;
+        return true;
+    }
+
+    /**
+     * A reader from the current position. It does not read ahead, so the mapped input continues where the reader stopped,
+     * and it reads lines like readLine.
+     */
+    public BufferedReader reader() {
+        final Reader unbuffered = new Reader() {
+            @Override
+            public int read(char[] cbuf, int off, int len) throws IOException {
+                if (len == 0) {
+                    return 0;
+                }
+                int c = MappedInput.this.read();
+                if (c == -1) {
+                    return -1;
+                }
+                cbuf[off] = (char) c; // ISO-8859-1, as in readLine
+                return 1;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        return new BufferedReader(unbuffered, 1) {
+            @Override
+            public int read() throws IOException {
+                return MappedInput.this.read();
+            }
+
+            @Override
+            public int read(char[] cbuf, int off, int len) throws IOException {
+                return unbuffered.read(cbuf, off, len);
+            }
+
+            @Override
+            public String readLine() throws IOException {
+                return MappedInput.this.readLine();
+            }
+        };
+    }
+}
@@ -1,6 +1,7 @@
 package r.data.internal;
 
 import java.util.*;
+import java.util.concurrent.atomic.*;
 
 import r.*;
 import r.data.*;
@@ -14,12 +15,20 @@ public abstract class NonScalarArrayImpl extends ArrayImpl implements RArray {
 
     protected int[] dimensions; // the content shall never be modified once set
     protected Names names;
-    protected int refcount;
+    protected int refcount; // the number of references (variables, promises, lists, ...), SHARED_FOREVER for constants
     protected Attributes attributes;
+    private Object index; // a lookup structure over the values (e.g. a hash index for match), see setIndex
+
+    static final int SHARED_FOREVER = Integer.MAX_VALUE;
+
+    // the reference counts are not atomic, references dropped while other threads may be using the same values are not
+    // counted (the count stays higher); the suspensions are counted by the context, and in total, so that unref() only
+    // looks up the context while some context has suspended it
+    private static final AtomicInteger unrefSuspended = new AtomicInteger();
 
     @Override
     public final boolean isShared() {
-        return refcount > 1;  // ==2
+        return refcount > 1;
     }
 
     @Override
@@ -29,11 +38,68 @@ public abstract class NonScalarArrayImpl extends ArrayImpl implements RArray {
 
     @Override
     public final void ref() {
+        if (refcount != SHARED_FOREVER) {
+            refcount++;
+        }
+    }
+
+    /**
+     * Drops a reference counted by ref(), so that a vector that is no longer shared can be updated in place. The count
+     * does not go below 1, a vector that has been referenced once is never again treated as temporary, because some
+     * holders (e.g. views) do not count their references.
+     */
+    public final void unref() {
+        if (refcount > 1 && refcount != SHARED_FOREVER && !unrefSuspended()) {
+            refcount--;
+        }
+    }
+
+    /** The vector will never be updated in place. */
+    public final void markSharedForever() {
+        refcount = SHARED_FOREVER;
+    }
+
+    /**
+     * Makes unref() ignored in the current context until resumeUnref(), for the time values are referenced from multiple
+     * threads.
+     */
+    public static void suspendUnref() {
+        RContext.unrefSuspended().incrementAndGet();
+        unrefSuspended.incrementAndGet();
+    }
+
+    public static void resumeUnref() {
+        unrefSuspended.decrementAndGet();
+        RContext.unrefSuspended().decrementAndGet();
+    }
+
+    public static boolean unrefSuspended() {
+        return unrefSuspended.get() != 0 && RContext.unrefSuspended().get() != 0;
+    }
+
+    /**
+     * Keeps a lookup structure over the values with the vector, so that it can be re-used by later operations on the same
+     * vector. The index holds a reference, so that the vector is no longer updated in place and the index stays valid.
+     * Temporary vectors do not keep an index.
+     */
+    public final void setIndex(Object index) {
         if (refcount == 0) {
-            refcount = 1;
-        } else if (refcount == 1) {
-            refcount = 2;
+            return;
+        }
+        if (this.index == null) {
+            ref();
+        }
+        this.index = index;
+    }
+
+    /** The index kept with the vector, or null. */
+    public final Object getIndex() {
+        Object i = index;
+        if (i != null && refcount <= 1) { // the reference of the index has been dropped, the vector may have changed
+            index = null;
+            return null;
         }
+        return i;
     }
 
     @Override
@@ -0,0 +1,167 @@
+package r.data.internal;
+
+import java.nio.*;
+
+import r.*;
+import r.data.*;
+import r.data.RArray.Names;
+import r.data.RAny.Attributes;
+
+/**
+ * Storage of large vectors outside of the Java heap, in direct (or memory-mapped) buffers, so that they do not slow down
+ * the garbage collector and are not limited by the heap size. A vector is split into segments, because a single buffer
+ * cannot hold more than 2GB.
+ *
+ * Double, integer and logical vectors of at least fastr.offheap.threshold elements (0 disables it) created by the
+ * generic array factories (Utils.createArray, double(), integer(), logical(), matrix()) are stored off-heap. Elements
+ * are read and written through getDouble/set as usual, materialize() returns a copy on the heap for the kernels that
+ * need getContent().
+ */
+public final class OffHeap {
+
+    static int threshold = Utils.getProperty("fastr.offheap.threshold", 1 << 26);
+
+    public static final int SEGMENT_SHIFT = 27; // elements per segment
+    public static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+    public static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    /** Implemented by the off-heap vectors. */
+    public interface Array extends RArray {
+        /** Returns a writable off-heap copy, with the same attributes. */
+        RArray copyOffHeap();
+
+        /** Drops a reference counted by ref(), like NonScalarArrayImpl.unref. */
+        void unref();
+    }
+
+    public static int threshold() {
+        return threshold;
+    }
+
+    public static void setThreshold(int size) {
+        threshold = size;
+    }
+
+    public static boolean use(int size) {
+        return threshold > 0 && size >= threshold;
+    }
+
+    public static boolean isOffHeap(RAny value) {
+        return value instanceof Array;
+    }
+
+    static int nsegments(int size) {
+        return (size + SEGMENT_MASK) >>> SEGMENT_SHIFT;
+    }
+
+    static int segmentLength(int size, int segment) {
+        return Math.min(SEGMENT_SIZE, size - (segment << SEGMENT_SHIFT));
+    }
+
+    // direct buffers are zeroed
+    static DoubleBuffer[] allocateDoubles(int size) {
+        DoubleBuffer[] res = new DoubleBuffer[nsegments(size)];
+        for (int s = 0; s < res.length; s++) {
+            res[s] = ByteBuffer.allocateDirect(segmentLength(size, s) * 8).order(ByteOrder.nativeOrder()).asDoubleBuffer();
+        }
+        return res;
+    }
+
+    static IntBuffer[] allocateInts(int size) {
+        IntBuffer[] res = new IntBuffer[nsegments(size)];
+        for (int s = 0; s < res.length; s++) {
+            res[s] = ByteBuffer.allocateDirect(segmentLength(size, s) * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+        }
+        return res;
+    }
+
+    static DoubleBuffer[] copy(DoubleBuffer[] src, int size) {
+        DoubleBuffer[] res = allocateDoubles(size);
+        for (int s = 0; s < res.length; s++) {
+            res[s].put(src[s].duplicate());
+            res[s].clear();
+        }
+        return res;
+    }
+
+    static IntBuffer[] copy(IntBuffer[] src, int size) {
+        IntBuffer[] res = allocateInts(size);
+        for (int s = 0; s < res.length; s++) {
+            res[s].put(src[s].duplicate());
+            res[s].clear();
+        }
+        return res;
+    }
+
+    static void get(DoubleBuffer[] segments, int from, double[] dst, int offset, int len) {
+        while (len > 0) {
+            DoubleBuffer b = segments[from >>> SEGMENT_SHIFT].duplicate();
+            b.position(from & SEGMENT_MASK);
+            int n = Math.min(len, b.remaining());
+            b.get(dst, offset, n);
+            from += n;
+            offset += n;
+            len -= n;
+        }
+    }
+
+    static void put(DoubleBuffer[] segments, int from, double[] src, int offset, int len) {
+        while (len > 0) {
+            DoubleBuffer b = segments[from >>> SEGMENT_SHIFT].duplicate();
+            b.position(from & SEGMENT_MASK);
+            int n = Math.min(len, b.remaining());
+            b.put(src, offset, n);
+            from += n;
+            offset += n;
+            len -= n;
+        }
+    }
+
+    static void get(IntBuffer[] segments, int from, int[] dst, int offset, int len) {
+        while (len > 0) {
+            IntBuffer b = segments[from >>> SEGMENT_SHIFT].duplicate();
+            b.position(from & SEGMENT_MASK);
+            int n = Math.min(len, b.remaining());
+            b.get(dst, offset, n);
+            from += n;
+            offset += n;
+            len -= n;
+        }
+    }
+
+    public static RArray createArray(RAny type, int size, int[] dimensions, Names names, Attributes attributes) {
+        if (type instanceof RDouble) { return new OffHeapDoubleImpl(allocateDoubles(size), size, dimensions, names, attributes, false); }
+        if (type instanceof RInt) { return new OffHeapIntImpl(allocateInts(size), size, dimensions, names, attributes, false); }
+        if (type instanceof RLogical) { return new OffHeapLogicalImpl(allocateInts(size), size, dimensions, names, attributes, false); }
+        return null;
+    }
+
+    /**
+     * Reads the elements [from, from + len) of the vector into dst, without materializing it. For kernels that process
+     * large vectors by blocks.
+     */
+    public static void getDoubles(RDouble v, int from, double[] dst, int offset, int len) {
+        if (v instanceof OffHeapDoubleImpl) {
+            get(((OffHeapDoubleImpl) v).segments, from, dst, offset, len);
+        } else if (v instanceof DoubleImpl) {
+            System.arraycopy(((DoubleImpl) v).getContent(), from, dst, offset, len);
+        } else {
+            for (int i = 0; i < len; i++) {
+                dst[offset + i] = v.getDouble(from + i);
+            }
+        }
+    }
+
+    /** Writes src into the elements [from, from + len) of a vector that is not shared. */
+    public static void putDoubles(RDouble v, int from, double[] src, int offset, int len) {
+        if (v instanceof OffHeapDoubleImpl) {
+            put(((OffHeapDoubleImpl) v).segments, from, src, offset, len);
+        } else if (v instanceof DoubleImpl) {
+            System.arraycopy(src, offset, ((DoubleImpl) v).getContent(), from, len);
+        } else {
+            for (int i = 0; i < len; i++) {
+                v.set(from + i, src[offset + i]);
+            }
+        }
+    }
+}
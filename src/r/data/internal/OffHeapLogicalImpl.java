@@ -0,0 +1,148 @@
+package r.data.internal;
+
+import java.nio.*;
+
+import r.data.*;
+
+/**
+ * A logical vector stored off-heap (see OffHeap). A read-only one is a view of a memory-mapped file (see VectorFile).
+ */
+public final class OffHeapLogicalImpl extends View.RLogicalView implements RLogical, OffHeap.Array {
+
+    final IntBuffer[] segments;
+    final int size;
+    final boolean readOnly;
+    int[] dimensions;
+    Names names;
+    Attributes attributes;
+    int refcount; // as in NonScalarArrayImpl, SHARED_FOREVER when read-only
+
+    OffHeapLogicalImpl(IntBuffer[] segments, int size, int[] dimensions, Names names, Attributes attributes, boolean readOnly) {
+        this.segments = segments;
+        this.size = size;
+        this.dimensions = dimensions;
+        this.names = names;
+        this.attributes = attributes;
+        this.readOnly = readOnly;
+        this.refcount = readOnly ? NonScalarArrayImpl.SHARED_FOREVER : 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int getLogical(int i) {
+        return segments[i >>> OffHeap.SEGMENT_SHIFT].get(i & OffHeap.SEGMENT_MASK);
+    }
+
+    @Override
+    public RLogical set(int i, int val) {
+        if (isShared()) {
+            return copyOffHeap().set(i, val);
+        }
+        segments[i >>> OffHeap.SEGMENT_SHIFT].put(i & OffHeap.SEGMENT_MASK, val);
+        return this;
+    }
+
+    @Override
+    public RArray set(int i, Object val) {
+        return set(i, ((Integer) val).intValue());
+    }
+
+    @Override
+    public OffHeapLogicalImpl copyOffHeap() {
+        return new OffHeapLogicalImpl(OffHeap.copy(segments, size), size, dimensions, names, attributesRef(), false);
+    }
+
+    @Override
+    public void materializeInto(int[] res) {
+        OffHeap.get(segments, 0, res, 0, size);
+    }
+
+    @Override
+    public int[] dimensions() {
+        return dimensions;
+    }
+
+    @Override
+    public Names names() {
+        return names;
+    }
+
+    @Override
+    public Attributes attributes() {
+        return attributes;
+    }
+
+    @Override
+    public Attributes attributesRef() {
+        return Attributes.markShared(attributes);
+    }
+
+    @Override
+    public RArray setDimensions(int[] newDimensions) {
+        if (readOnly) {
+            return new OffHeapLogicalImpl(segments, size, newDimensions, names, attributes, true);
+        }
+        dimensions = newDimensions;
+        return this;
+    }
+
+    @Override
+    public RArray setNames(Names newNames) {
+        if (readOnly) {
+            return new OffHeapLogicalImpl(segments, size, dimensions, newNames, attributes, true);
+        }
+        names = newNames;
+        return this;
+    }
+
+    @Override
+    public RArray setAttributes(Attributes newAttributes) {
+        if (readOnly) {
+            return new OffHeapLogicalImpl(segments, size, dimensions, names, newAttributes, true);
+        }
+        attributes = newAttributes;
+        return this;
+    }
+
+    @Override
+    public boolean isShared() {
+        return refcount > 1;
+    }
+
+    @Override
+    public boolean isSharedReal() {
+        return isShared();
+    }
+
+    @Override
+    public void ref() {
+        if (refcount != NonScalarArrayImpl.SHARED_FOREVER) {
+            refcount++;
+        }
+    }
+
+    @Override
+    public void unref() {
+        if (refcount > 1 && refcount != NonScalarArrayImpl.SHARED_FOREVER && !NonScalarArrayImpl.unrefSuspended()) {
+            refcount--;
+        }
+    }
+
+    @Override
+    public boolean dependsOn(RAny value) {
+        return value == this;
+    }
+
+    @Override
+    public void visit_all(ValueVisitor v) {
+    }
+
+    @Override
+    public void accept(ValueVisitor v) {
+        v.visit(this);
+    }
+}
@@ -26,7 +26,6 @@ public interface ProfilingView {
         int maxRecursiveUseCount;
 
         public void onNewView(RArray realView) {
-            depth = 0; // TODO
             size = realView.size();
             created = true;
             if (DEBUG_PROFILING) {
@@ -91,6 +90,16 @@ public interface ProfilingView {
             return isInternal;
         }
 
+        public int depth() {
+            return depth;
+        }
+
+        /** Profiles a view that is the root of a tree of given depth (number of views involved). */
+        public static <T extends RArray> T profile(RArray orig, ViewProfile profile, int depth) {
+            profile.depth = depth;
+            return profile(orig, profile);
+        }
+
         public static <T extends RArray> T profile(RArray orig, ViewProfile profile) {
             RArray res;
             if (orig instanceof RDouble) {
@@ -151,7 +160,7 @@ public interface ProfilingView {
         public boolean shouldBeLazy() {
             boolean res = shouldBeLazyReal();
             if (DEBUG_PROFILING) {
-                System.err.println("should be lazy?: size=" + size + " G/M/S external " + externalGetCount + "/" + externalMaterializeCount + "/" + externalSumCount +
+                System.err.println("should be lazy?: size=" + size + " depth=" + depth + " G/M/S external " + externalGetCount + "/" + externalMaterializeCount + "/" + externalSumCount +
                         "  internal " + internalGetCount + "/" + internalMaterializeCount + "/" + internalSumCount +
                         " maxRecursiveUseCount " + maxRecursiveUseCount);
                 System.err.println("should be lazy heuristic advice: " + res + " (profiling view " + this + ")");
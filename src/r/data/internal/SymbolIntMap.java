@@ -0,0 +1,136 @@
+package r.data.internal;
+
+import r.*;
+import r.data.*;
+
+/**
+ * A map from symbols to non-negative integers (e.g. positions of names or of variables). Symbols are compared by
+ * identity and hashed by their number, the table uses open addressing with linear probing, so that a lookup neither
+ * allocates nor boxes. Entries cannot be removed.
+ */
+public final class SymbolIntMap {
+
+    private static final int GOLDEN = 0x9E3779B9; // spreads the consecutive numbers of symbols over the table
+
+    RSymbol[] keys;
+    int[] values;
+    int size;
+    int shift;
+
+    public SymbolIntMap() {
+        this(4);
+    }
+
+    /** Creates a map that holds expectedSize entries without rehashing. */
+    public SymbolIntMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    public SymbolIntMap(SymbolIntMap map) {
+        keys = map.keys.clone();
+        values = map.values.clone();
+        size = map.size;
+        shift = map.shift;
+    }
+
+    static int capacityFor(int expectedSize) { // keeps the table at most half full
+        int cap = 8;
+        while (cap < 2 * expectedSize) {
+            cap <<= 1;
+        }
+        return cap;
+    }
+
+    private void allocate(int capacity) {
+        keys = new RSymbol[capacity];
+        values = new int[capacity];
+        shift = 32 - Integer.numberOfTrailingZeros(capacity);
+    }
+
+    private int slot(RSymbol key) {
+        return (key.bindingIndex() * GOLDEN) >>> shift;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Returns the value of the key, or -1 when not present. */
+    public int get(RSymbol key) {
+        RSymbol[] k = keys;
+        int mask = k.length - 1;
+        for (int i = slot(key);; i = (i + 1) & mask) {
+            RSymbol s = k[i];
+            if (s == key) {
+                return values[i];
+            }
+            if (s == null) {
+                return -1;
+            }
+        }
+    }
+
+    public boolean containsKey(RSymbol key) {
+        return get(key) != -1;
+    }
+
+    public void put(RSymbol key, int value) {
+        insert(key, value, true);
+    }
+
+    /** Adds the key unless it is already present (keeping the first value of repeated names), returns true if added. */
+    public boolean putIfAbsent(RSymbol key, int value) {
+        return insert(key, value, false);
+    }
+
+    private boolean insert(RSymbol key, int value, boolean replace) {
+        assert Utils.check(value >= 0);
+        RSymbol[] k = keys;
+        int mask = k.length - 1;
+        int i = slot(key);
+        for (;; i = (i + 1) & mask) {
+            RSymbol s = k[i];
+            if (s == key) {
+                if (replace) {
+                    values[i] = value;
+                }
+                return false;
+            }
+            if (s == null) {
+                break;
+            }
+        }
+        k[i] = key;
+        values[i] = value;
+        if (++size * 2 > k.length) {
+            rehash(k.length * 2);
+        }
+        return true;
+    }
+
+    /** Makes room for n entries in total, so that a bulk insertion does not rehash repeatedly. */
+    public void ensureCapacity(int n) {
+        int cap = capacityFor(n);
+        if (cap > keys.length) {
+            rehash(cap);
+        }
+    }
+
+    private void rehash(int capacity) {
+        RSymbol[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            RSymbol key = oldKeys[j];
+            if (key != null) {
+                int i = slot(key);
+                while (keys[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = key;
+                values[i] = oldValues[j];
+            }
+        }
+    }
+}
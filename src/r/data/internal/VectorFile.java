@@ -0,0 +1,470 @@
+package r.data.internal;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+
+import r.*;
+import r.data.*;
+import r.data.RArray.Names;
+import r.data.RAny.Attributes;
+
+/**
+ * A binary file format for vectors (saveVector, loadVector). A vector is stored as its type, size, dimensions, names
+ * and attributes, followed by its elements. Numbers are little-endian and the elements of double, integer and logical
+ * vectors are 8-byte aligned, so that they can be read directly from a memory-mapped file.
+ *
+ * When loaded, double, integer and logical vectors of at least MAP_MIN_BYTES bytes are read-only off-heap vectors over the
+ * mapped file (see OffHeap): opening the file is fast regardless of the vector size and only the touched pages are read.
+ * Strings, lists and small vectors are read eagerly.
+ */
+public final class VectorFile {
+
+    static final int MAGIC = 0x31565246; // "FRV1"
+
+    static final byte NULL = 0;
+    static final byte LOGICAL = 1;
+    static final byte INT = 2;
+    static final byte DOUBLE = 3;
+    static final byte STRING = 4;
+    static final byte LIST = 5;
+
+    static final int MAP_MIN_BYTES = 4096;
+
+    static final int BUFFER_SIZE = 1 << 16;
+    static final Charset UTF8 = StandardCharsets.UTF_8;
+
+    public static class FormatException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public FormatException(String msg) {
+            super(msg);
+        }
+    }
+
+    /**
+     * Writes the value to a temporary file in the same directory, which then replaces the file. A loaded vector may still
+     * map the old file, which must not be truncated under it.
+     */
+    public static void write(RAny value, String path) throws IOException {
+        File target = new File(path).getAbsoluteFile();
+        File tmp = File.createTempFile(".frv", ".tmp", target.getParentFile());
+        boolean done = false;
+        try {
+            try (FileChannel channel = new RandomAccessFile(tmp, "rw").getChannel()) {
+                Output out = new Output(channel);
+                out.putInt(MAGIC);
+                out.put(value);
+                out.flush();
+            }
+            try {
+                Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            done = true;
+        } finally {
+            if (!done) {
+                tmp.delete();
+            }
+        }
+    }
+
+    public static RAny read(String path) throws IOException {
+        try (FileChannel channel = new RandomAccessFile(path, "r").getChannel()) {
+            Input in = new Input(channel);
+            if (in.getInt() != MAGIC) {
+                throw new FormatException("not a vector file");
+            }
+            return in.get();
+        }
+    }
+
+    /** Returns null if the value can be stored. */
+    public static String unsupported(RAny value) {
+        if (value instanceof RNull || value instanceof RLogical || value instanceof RInt || value instanceof RDouble || value instanceof RString) {
+            return unsupportedAttributes(value);
+        }
+        if (value instanceof RList) {
+            RList l = (RList) value;
+            int size = l.size();
+            for (int i = 0; i < size; i++) {
+                String res = unsupported(l.getRAny(i));
+                if (res != null) {
+                    return res;
+                }
+            }
+            return unsupportedAttributes(value);
+        }
+        return value.typeOf();
+    }
+
+    private static String unsupportedAttributes(RAny value) {
+        Attributes attr = value.attributes();
+        if (attr != null) {
+            for (RAny a : attr.map().values()) {
+                String res = unsupported(a);
+                if (res != null) {
+                    return res;
+                }
+            }
+        }
+        return null;
+    }
+
+    static final class Output {
+        final FileChannel channel;
+        final ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        long written;
+
+        Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void flush() throws IOException {
+            buf.flip();
+            while (buf.hasRemaining()) {
+                written += channel.write(buf);
+            }
+            buf.clear();
+        }
+
+        void ensure(int n) throws IOException {
+            if (buf.remaining() < n) {
+                flush();
+            }
+        }
+
+        long position() {
+            return written + buf.position();
+        }
+
+        void align() throws IOException {
+            int pad = (int) (-position() & 7);
+            ensure(pad);
+            for (int i = 0; i < pad; i++) {
+                buf.put((byte) 0);
+            }
+        }
+
+        void putByte(byte b) throws IOException {
+            ensure(1);
+            buf.put(b);
+        }
+
+        void putInt(int i) throws IOException {
+            ensure(4);
+            buf.putInt(i);
+        }
+
+        void putDouble(double d) throws IOException {
+            ensure(8);
+            buf.putDouble(d);
+        }
+
+        void putString(String s) throws IOException {
+            if (s == null) {
+                putInt(-1);
+                return;
+            }
+            byte[] bytes = s.getBytes(UTF8);
+            putInt(bytes.length);
+            if (bytes.length > buf.capacity()) {
+                flush();
+                ByteBuffer b = ByteBuffer.wrap(bytes);
+                while (b.hasRemaining()) {
+                    written += channel.write(b);
+                }
+            } else {
+                ensure(bytes.length);
+                buf.put(bytes);
+            }
+        }
+
+        void put(RAny value) throws IOException {
+            if (value instanceof RNull) {
+                putByte(NULL);
+                return;
+            }
+            RArray a = (RArray) value;
+            putByte(tag(a));
+            int size = a.size();
+            putInt(size);
+            int[] dims = a.dimensions();
+            if (dims == null) {
+                putInt(-1);
+            } else {
+                putInt(dims.length);
+                for (int d : dims) {
+                    putInt(d);
+                }
+            }
+            Names names = a.names();
+            if (names == null) {
+                putInt(-1);
+            } else {
+                RSymbol[] s = names.sequence();
+                putInt(s.length);
+                for (RSymbol n : s) {
+                    putString(n.name());
+                }
+            }
+            Attributes attr = a.attributes();
+            if (attr == null) {
+                putInt(0);
+            } else {
+                LinkedHashMap<RSymbol, RAny> map = attr.map();
+                putInt(map.size());
+                for (Map.Entry<RSymbol, RAny> e : map.entrySet()) {
+                    putString(e.getKey().name());
+                    put(e.getValue());
+                }
+            }
+            if (a instanceof RDouble) {
+                RDouble d = (RDouble) a;
+                align();
+                for (int i = 0; i < size; i++) {
+                    putDouble(d.getDouble(i));
+                }
+            } else if (a instanceof RInt) {
+                RInt v = (RInt) a;
+                align();
+                for (int i = 0; i < size; i++) {
+                    putInt(v.getInt(i));
+                }
+            } else if (a instanceof RLogical) {
+                RLogical v = (RLogical) a;
+                align();
+                for (int i = 0; i < size; i++) {
+                    putInt(v.getLogical(i));
+                }
+            } else if (a instanceof RString) {
+                RString v = (RString) a;
+                for (int i = 0; i < size; i++) {
+                    putString(v.getString(i));
+                }
+            } else {
+                RList v = (RList) a;
+                for (int i = 0; i < size; i++) {
+                    put(v.getRAny(i));
+                }
+            }
+        }
+
+        static byte tag(RArray a) {
+            if (a instanceof RDouble) {
+                return DOUBLE;
+            }
+            if (a instanceof RInt) {
+                return INT;
+            }
+            if (a instanceof RLogical) {
+                return LOGICAL;
+            }
+            if (a instanceof RString) {
+                return STRING;
+            }
+            Utils.check(a instanceof RList);
+            return LIST;
+        }
+    }
+
+    static final class Input {
+        final FileChannel channel;
+        final ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        long bufStart; // file offset of the buffer
+        final long size;
+
+        Input(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            buf.limit(0);
+        }
+
+        long position() {
+            return bufStart + buf.position();
+        }
+
+        void seek(long pos) throws IOException {
+            if (pos > size) {
+                throw new FormatException("truncated vector file");
+            }
+            bufStart = pos;
+            buf.clear();
+            while (buf.hasRemaining() && channel.read(buf, bufStart + buf.position()) > 0) {
+                // read as much as available
+            }
+            buf.flip();
+        }
+
+        void ensure(int n) throws IOException {
+            if (buf.remaining() < n) {
+                seek(position());
+                if (buf.remaining() < n) {
+                    throw new FormatException("truncated vector file");
+                }
+            }
+        }
+
+        void align() throws IOException {
+            ensure((int) (-position() & 7));
+            buf.position(buf.position() + (int) (-position() & 7));
+        }
+
+        byte getByte() throws IOException {
+            ensure(1);
+            return buf.get();
+        }
+
+        int getInt() throws IOException {
+            ensure(4);
+            return buf.getInt();
+        }
+
+        double getDouble() throws IOException {
+            ensure(8);
+            return buf.getDouble();
+        }
+
+        String getString() throws IOException {
+            int len = getInt();
+            if (len == -1) {
+                return RString.NA;
+            }
+            if (len < 0) {
+                throw new FormatException("invalid string length");
+            }
+            byte[] bytes = new byte[len];
+            if (len > buf.capacity()) {
+                ByteBuffer b = ByteBuffer.wrap(bytes);
+                long pos = position();
+                while (b.hasRemaining()) {
+                    if (channel.read(b, pos + b.position()) < 0) {
+                        throw new FormatException("truncated vector file");
+                    }
+                }
+                seek(pos + len);
+            } else {
+                ensure(len);
+                buf.get(bytes);
+            }
+            return new String(bytes, UTF8);
+        }
+
+        RAny get() throws IOException {
+            byte tag = getByte();
+            if (tag == NULL) {
+                return RNull.getNull();
+            }
+            int size = getInt();
+            if (size < 0) {
+                throw new FormatException("invalid vector size");
+            }
+            int ndims = getInt();
+            int[] dims = null;
+            if (ndims >= 0) {
+                dims = new int[ndims];
+                for (int i = 0; i < ndims; i++) {
+                    dims[i] = getInt();
+                }
+            }
+            int nnames = getInt();
+            Names names = null;
+            if (nnames >= 0) {
+                RSymbol[] s = new RSymbol[nnames];
+                for (int i = 0; i < nnames; i++) {
+                    s[i] = RSymbol.getSymbol(getString());
+                }
+                names = Names.create(s);
+            }
+            int nattr = getInt();
+            Attributes attr = null;
+            if (nattr > 0) {
+                attr = new Attributes();
+                for (int i = 0; i < nattr; i++) {
+                    RSymbol key = RSymbol.getSymbol(getString());
+                    attr.put(key, get());
+                }
+            }
+            switch (tag) {
+                case DOUBLE: {
+                    align();
+                    if ((long) size * 8 >= MAP_MIN_BYTES) {
+                        ByteBuffer[] segments = map(size, 8);
+                        DoubleBuffer[] doubles = new DoubleBuffer[segments.length];
+                        for (int i = 0; i < segments.length; i++) {
+                            doubles[i] = segments[i].asDoubleBuffer();
+                        }
+                        return new OffHeapDoubleImpl(doubles, size, dims, names, Attributes.markShared(attr), true);
+                    }
+                    double[] content = new double[size];
+                    for (int i = 0; i < size; i++) {
+                        content[i] = getDouble();
+                    }
+                    return RDouble.RDoubleFactory.getFor(content, dims, names, attr);
+                }
+                case INT:
+                case LOGICAL: {
+                    align();
+                    if ((long) size * 4 >= MAP_MIN_BYTES) {
+                        ByteBuffer[] segments = map(size, 4);
+                        IntBuffer[] ints = new IntBuffer[segments.length];
+                        for (int i = 0; i < segments.length; i++) {
+                            ints[i] = segments[i].asIntBuffer();
+                        }
+                        if (tag == INT) {
+                            return new OffHeapIntImpl(ints, size, dims, names, Attributes.markShared(attr), true);
+                        }
+                        return new OffHeapLogicalImpl(ints, size, dims, names, Attributes.markShared(attr), true);
+                    }
+                    int[] content = new int[size];
+                    for (int i = 0; i < size; i++) {
+                        content[i] = getInt();
+                    }
+                    if (tag == INT) {
+                        return RInt.RIntFactory.getFor(content, dims, names, attr);
+                    }
+                    return RLogical.RLogicalFactory.getFor(content, dims, names, attr);
+                }
+                case STRING: {
+                    String[] content = new String[size];
+                    for (int i = 0; i < size; i++) {
+                        content[i] = getString();
+                    }
+                    return RString.RStringFactory.getFor(content, dims, names, attr);
+                }
+                case LIST: {
+                    RAny[] content = new RAny[size];
+                    for (int i = 0; i < size; i++) {
+                        content[i] = get();
+                    }
+                    return RList.RListFactory.getFor(content, dims, names, attr);
+                }
+                default:
+                    throw new FormatException("invalid vector type");
+            }
+        }
+
+        // maps the elements at the current position, the mapping stays valid after the channel is closed
+        ByteBuffer[] map(int n, int elementSize) throws IOException {
+            long start = position();
+            long end = start + (long) n * elementSize;
+            if (end > size) {
+                throw new FormatException("truncated vector file");
+            }
+            ByteBuffer[] segments = new ByteBuffer[OffHeap.nsegments(n)];
+            long pos = start;
+            for (int i = 0; i < segments.length; i++) {
+                long len = (long) OffHeap.segmentLength(n, i) * elementSize;
+                segments[i] = channel.map(MapMode.READ_ONLY, pos, len).order(ByteOrder.LITTLE_ENDIAN);
+                pos += len;
+            }
+            seek(end);
+            return segments;
+        }
+    }
+}
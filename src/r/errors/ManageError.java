@@ -7,7 +7,7 @@ import r.nodes.tools.*;
 
 public class ManageError {
 
-    private PrintStream out;
+    private PrintStream out; // System.err (when it is used) if null
 
     public static final String WARNING = "Warning";
     public static final String ERROR = "Error";
@@ -41,7 +41,7 @@ public class ManageError {
         throw err;
     }
 
-    private static void displayMessage(String prefix, ASTNode cause, String msg) {
+    private synchronized void displayMessage(String prefix, ASTNode cause, String msg) {
         StringBuilder str = new StringBuilder(prefix);
         if (cause != null) {
             str.append(" in ").append(PrettyPrinter.prettyPrint(cause));
@@ -49,6 +49,6 @@ public class ManageError {
         // FIXME: in order to mimic GNU-R more closely, we would have to traverse up to a function in the AST tree
         str.append(": ");
         str.append(msg);
-        System.err.println(str);
+        (out != null ? out : System.err).println(str);
     }
 }
@@ -181,6 +181,8 @@ public abstract class RError extends RuntimeException {
     public static final String EXACT_SINGULARITY = "exact singularity in '%s'";
     public static final String SINGULAR_SOLVE = "singular matrix '%s' in solve";
     public static final String SEED_TYPE = ".Random.seed is not an integer vector but of type '%s'";
+    public static final String RNG_KIND_NOT_SUPPORTED = "RNG kind '%s' is not supported";
+    public static final String INVALID_SEED = "supplied seed is not a valid integer";
     public static final String INVALID_USE = "invalid use of '%s'";
     public static final String FORMAL_MATCHED_MULTIPLE = "formal argument \"%s\" matched by multiple actual arguments";
     public static final String ARGUMENT_MATCHES_MULTIPLE = "argument %d matches multiple formal arguments";
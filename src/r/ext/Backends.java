@@ -0,0 +1,475 @@
+package r.ext;
+
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+import r.*;
+
+/**
+ * Chooses, for each vector math operation, whether it is computed in Java, by MKL or by the system libraries (libm).
+ *
+ * MKL is used for vectors of at least a threshold size. The thresholds are calibrated in a background thread started
+ * the first time an operation could use MKL, by timing the Java and the MKL kernel on vectors of increasing size
+ * (fastr.backends.calibrate, on by default); until then, or without calibration, the threshold is MKL_DEFAULT_THRESHOLD.
+ * The system libraries are used whenever available, as they compute the same results as GNU-R.
+ *
+ * fastr.backends forces a backend for all operations ("java", "mkl" or "system"), fastr.backends.OP for the operation
+ * OP (e.g. fastr.backends.exp=java); a forced backend that does not implement the operation, or is not available, is
+ * ignored. The backend can also be forced at run time (see force).
+ *
+ * Once __backends has been called (or with fastr.backends.count), each operation counts the elements processed by each
+ * backend. Scalar operations are not counted.
+ */
+public final class Backends {
+
+    public enum Backend {
+        JAVA, MKL, SYSTEM;
+
+        private int available = -1; // the library is loaded at most once, so this can be cached (RContext.hasMKL is synchronized)
+
+        boolean isAvailable() {
+            int a = available;
+            if (a == -1) {
+                switch (this) {
+                    case MKL:
+                        a = RContext.hasMKL() ? 1 : 0;
+                        break;
+                    case SYSTEM:
+                        a = RContext.hasSystemLibs() ? 1 : 0;
+                        break;
+                    default:
+                        a = 1;
+                }
+                available = a;
+            }
+            return a == 1;
+        }
+
+        public String pretty() {
+            return name().toLowerCase();
+        }
+
+        public static Backend fromString(String s) {
+            for (Backend b : values()) {
+                if (b.pretty().equals(s)) {
+                    return b;
+                }
+            }
+            return null;
+        }
+    }
+
+    static final boolean CALIBRATE = Utils.getProperty("fastr.backends.calibrate", true);
+    static final int[] CALIBRATION_SIZES = {8, 16, 32, 64, 128, 256, 512, 1024, 4096};
+    static final long CALIBRATION_NANOS = 2000000; // time spent on each kernel and size
+
+    private static volatile Backend forced = Backend.fromString(Utils.getProperty("fastr.backends", "auto"));
+    private static volatile boolean counting = Utils.getProperty("fastr.backends.count", false);
+    private static final AtomicBoolean calibrationStarted = new AtomicBoolean();
+
+    private static final List<Op> ops = new ArrayList<>();
+
+    /** A vector operation, its native backends and counters. */
+    public static class Op {
+        final String name;
+        final Backend[] backends; // the native backends implementing the operation, in the order of preference
+        final AtomicLongArray elements = new AtomicLongArray(Backend.values().length);
+        volatile Backend forcedForOp;
+
+        Op(String name, Backend... backends) {
+            this.name = name;
+            this.backends = backends;
+            this.forcedForOp = Backend.fromString(Utils.getProperty("fastr.backends." + name, "auto"));
+            synchronized (ops) {
+                ops.add(this);
+            }
+        }
+
+        boolean implementedBy(Backend b) {
+            if (b == Backend.JAVA) {
+                return true;
+            }
+            for (Backend nb : backends) {
+                if (nb == b) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        Backend forcedBackend() {
+            Backend f = forcedForOp;
+            if (f == null) {
+                f = forced;
+            }
+            return f != null && implementedBy(f) && f.isAvailable() ? f : null;
+        }
+
+        /** The backend to compute the operation on a vector of size elements, which are counted for that backend. */
+        public final Backend select(int size) {
+            Backend b = choose(size);
+            if (counting) {
+                elements.addAndGet(b.ordinal(), size);
+            }
+            return b;
+        }
+
+        /** Like select(size), true when the native backend is chosen, for operations with a single native backend. */
+        public final boolean useNative(int size) {
+            return select(size) != Backend.JAVA;
+        }
+
+        /** Like useNative(1), but not counted, for operations on scalars. */
+        public final boolean useNativeForScalar() {
+            return choose(1) != Backend.JAVA;
+        }
+
+        final Backend choose(int size) {
+            Backend b = forcedBackend();
+            if (b != null) {
+                return b;
+            }
+            for (Backend nb : backends) {
+                if (nb.isAvailable() && size >= threshold(nb)) {
+                    return nb;
+                }
+            }
+            return Backend.JAVA;
+        }
+
+        int threshold(Backend b) {
+            return 0;
+        }
+
+        String describe(Backend b) {
+            return "";
+        }
+
+        /** A line describing the choice and the counters. */
+        public String report() {
+            StringBuilder sb = new StringBuilder(name);
+            sb.append(":");
+            Backend f = forcedBackend();
+            if (f != null) {
+                sb.append(" forced ").append(f.pretty());
+            }
+            for (Backend nb : backends) {
+                sb.append(" ").append(nb.pretty());
+                sb.append(nb.isAvailable() ? describe(nb) : " (not available)");
+            }
+            for (Backend b : Backend.values()) {
+                if (implementedBy(b)) {
+                    sb.append(", ").append(b.pretty()).append("=").append(elements.get(b.ordinal()));
+                }
+            }
+            return sb.toString();
+        }
+    }
+
+    /** An operation implemented by MKL, with the kernels to calibrate the size from which MKL is used. */
+    abstract static class CalibratedOp extends Op {
+        volatile int mklThreshold = -1; // -1 until calibrated
+
+        CalibratedOp(String name, Backend... backends) {
+            super(name, backends);
+        }
+
+        @Override
+        int threshold(Backend b) {
+            if (b != Backend.MKL) {
+                return 0;
+            }
+            int t = mklThreshold;
+            if (t == -1) {
+                if (CALIBRATE) {
+                    startCalibration();
+                }
+                return MKL_DEFAULT_THRESHOLD;
+            }
+            return t;
+        }
+
+        @Override
+        String describe(Backend b) {
+            if (b != Backend.MKL) {
+                return "";
+            }
+            int t = mklThreshold;
+            return t == -1 ? " (not calibrated, size >= " + MKL_DEFAULT_THRESHOLD + ")" : t == Integer.MAX_VALUE ? " (never)" : " (size >= " + t + ")";
+        }
+
+        // the smallest of the sizes from which MKL is faster than Java, Integer.MAX_VALUE when MKL is not faster even on the largest size
+        int calibrate() {
+            int threshold = Integer.MAX_VALUE;
+            for (int i = CALIBRATION_SIZES.length - 1; i >= 0; i--) {
+                int n = CALIBRATION_SIZES[i];
+                if (time(n, false) >= time(n, true)) { // MKL is not faster
+                    break;
+                }
+                threshold = n;
+            }
+            return threshold;
+        }
+
+        // nanoseconds per call of the kernel, on a vector of n elements
+        long time(int n, boolean java) {
+            double[] x = new double[2 * n];
+            double[] y = new double[2 * n];
+            double[] res = new double[2 * n];
+            for (int i = 0; i < x.length; i++) {
+                x[i] = 1 + i % 7;
+                y[i] = 1 + i % 5;
+            }
+            long start = System.nanoTime();
+            long calls = 0;
+            long elapsed;
+            do {
+                for (int i = 0; i < 16; i++) {
+                    if (java) {
+                        javaKernel(x, y, res, n);
+                    } else {
+                        mklKernel(x, y, res, n);
+                    }
+                }
+                calls += 16;
+                elapsed = System.nanoTime() - start;
+            } while (elapsed < CALIBRATION_NANOS);
+            return elapsed / calls;
+        }
+
+        // kernels timed by the calibration
+        abstract void javaKernel(double[] x, double[] y, double[] res, int n);
+
+        abstract void mklKernel(double[] x, double[] y, double[] res, int n);
+
+    }
+
+    static final int MKL_DEFAULT_THRESHOLD = 50; // Intel recommends 40, but that is without JNI cost
+
+    // calibrates all operations implemented by MKL, once, in a daemon thread, so that no computation waits for it
+    static void startCalibration() {
+        if (!calibrationStarted.compareAndSet(false, true)) {
+            return;
+        }
+        Thread t = new Thread("FastR MKL calibration") {
+            @Override
+            public void run() {
+                List<CalibratedOp> calibrated = new ArrayList<>();
+                synchronized (ops) {
+                    for (Op op : ops) {
+                        if (op instanceof CalibratedOp) {
+                            calibrated.add((CalibratedOp) op);
+                        }
+                    }
+                }
+                for (CalibratedOp op : calibrated) {
+                    op.mklThreshold = op.calibrate();
+                }
+            }
+        };
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        t.start();
+    }
+
+    public static final Op ADD = new CalibratedOp("add", Backend.MKL) {
+        @Override void javaKernel(double[] x, double[] y, double[] res, int n) {
+            for (int i = 0; i < n; i++) {
+                res[i] = x[i] + y[i];
+            }
+        }
+        @Override void mklKernel(double[] x, double[] y, double[] res, int n) {
+            MKL.vdAdd(n, x, y, res);
+        }
+    };
+    public static final Op SUB = new CalibratedOp("sub", Backend.MKL) {
+        @Override void javaKernel(double[] x, double[] y, double[] res, int n) {
+            for (int i = 0; i < n; i++) {
+                res[i] = x[i] - y[i];
+            }
+        }
+        @Override void mklKernel(double[] x, double[] y, double[] res, int n) {
+            MKL.vdSub(n, x, y, res);
+        }
+    };
+    public static final Op MUL = new CalibratedOp("mul", Backend.MKL) {
+        @Override void javaKernel(double[] x, double[] y, double[] res, int n) {
+            for (int i = 0; i < n; i++) {
+                res[i] = x[i] * y[i];
+            }
+        }
+        @Override void mklKernel(double[] x, double[] y, double[] res, int n) {
+            MKL.vdMul(n, x, y, res);
+        }
+    };
+    public static final Op DIV = new CalibratedOp("div", Backend.MKL) {
+        @Override void javaKernel(double[] x, double[] y, double[] res, int n) {
+            for (int i = 0; i < n; i++) {
+                res[i] = x[i] / y[i];
+            }
+        }
+        @Override void mklKernel(double[] x, double[] y, double[] res, int n) {
+            MKL.vdDiv(n, x, y, res);
+        }
+    };
+    public static final Op POW = new CalibratedOp("pow", Backend.MKL, Backend.SYSTEM) {
+        @Override void javaKernel(double[] x, double[] y, double[] res, int n) {
+            for (int i = 0; i < n; i++) {
+                res[i] = Math.pow(x[i], y[i]);
+            }
+        }
+        @Override void mklKernel(double[] x, double[] y, double[] res, int n) {
+            MKL.vdPow(n, x, y, res);
+        }
+    };
+    /** A vector to the power of a scalar. */
+    public static final Op POWX = new CalibratedOp("powx", Backend.MKL, Backend.SYSTEM) {
+        @Override void javaKernel(double[] x, double[] y, double[] res, int n) {
+            double e = y[0];
+            for (int i = 0; i < n; i++) {
+                res[i] = Math.pow(x[i], e);
+            }
+        }
+        @Override void mklKernel(double[] x, double[] y, double[] res, int n) {
+            MKL.vdPowx(n, x, y[0], res);
+        }
+    };
+    /** A scalar to the power of a vector, or of a scalar. */
+    public static final Op POW_SCALAR = new Op("pow.scalar", Backend.SYSTEM);
+    public static final Op FMOD = new Op("fmod", Backend.SYSTEM);
+    public static final Op EXP = new Op("exp", Backend.SYSTEM);
+    public static final Op SQRT = new CalibratedOp("sqrt", Backend.MKL) {
+        @Override void javaKernel(double[] x, double[] y, double[] res, int n) {
+            for (int i = 0; i < n; i++) {
+                res[i] = Math.sqrt(x[i]);
+            }
+        }
+        @Override void mklKernel(double[] x, double[] y, double[] res, int n) {
+            MKL.vdSqrt(n, x, res);
+        }
+    };
+    public static final Op ABS = new CalibratedOp("abs", Backend.MKL) {
+        @Override void javaKernel(double[] x, double[] y, double[] res, int n) {
+            for (int i = 0; i < n; i++) {
+                res[i] = Math.abs(x[i]);
+            }
+        }
+        @Override void mklKernel(double[] x, double[] y, double[] res, int n) {
+            MKL.vdAbs(n, x, res);
+        }
+    };
+    // complex vectors, timed on n / 2 complex numbers
+    public static final Op COMPLEX_ADD = new CalibratedOp("complex.add", Backend.MKL) {
+        @Override void javaKernel(double[] x, double[] y, double[] res, int n) {
+            for (int i = 0; i < 2 * n; i++) {
+                res[i] = x[i] + y[i];
+            }
+        }
+        @Override void mklKernel(double[] x, double[] y, double[] res, int n) {
+            MKL.vzAdd(n, x, y, res);
+        }
+    };
+    public static final Op COMPLEX_SUB = new CalibratedOp("complex.sub", Backend.MKL) {
+        @Override void javaKernel(double[] x, double[] y, double[] res, int n) {
+            for (int i = 0; i < 2 * n; i++) {
+                res[i] = x[i] - y[i];
+            }
+        }
+        @Override void mklKernel(double[] x, double[] y, double[] res, int n) {
+            MKL.vzSub(n, x, y, res);
+        }
+    };
+    public static final Op COMPLEX_MUL = new CalibratedOp("complex.mul", Backend.MKL) {
+        @Override void javaKernel(double[] x, double[] y, double[] res, int n) {
+            for (int i = 0; i < 2 * n; i += 2) {
+                double a = x[i];
+                double b = x[i + 1];
+                double c = y[i];
+                double d = y[i + 1];
+                res[i] = a * c - b * d;
+                res[i + 1] = a * d + b * c;
+            }
+        }
+        @Override void mklKernel(double[] x, double[] y, double[] res, int n) {
+            MKL.vzMul(n, x, y, res);
+        }
+    };
+    public static final Op COMPLEX_DIV = new CalibratedOp("complex.div", Backend.MKL) {
+        @Override void javaKernel(double[] x, double[] y, double[] res, int n) {
+            for (int i = 0; i < 2 * n; i += 2) {
+                double a = x[i];
+                double b = x[i + 1];
+                double c = y[i];
+                double d = y[i + 1];
+                double m = c * c + d * d;
+                res[i] = (a * c + b * d) / m;
+                res[i + 1] = (b * c - a * d) / m;
+            }
+        }
+        @Override void mklKernel(double[] x, double[] y, double[] res, int n) {
+            MKL.vzDiv(n, x, y, res);
+        }
+    };
+    public static final Op COMPLEX_POW = new CalibratedOp("complex.pow", Backend.MKL) {
+        @Override void javaKernel(double[] x, double[] y, double[] res, int n) {
+            for (int i = 0; i < 2 * n; i += 2) {
+                double logr = Math.log(Math.hypot(x[i], x[i + 1]));
+                double theta = Math.atan2(x[i + 1], x[i]);
+                double r = Math.exp(logr * y[i] - y[i + 1] * theta);
+                double phi = y[i + 1] * logr + y[i] * theta;
+                res[i] = r * Math.cos(phi);
+                res[i + 1] = r * Math.sin(phi);
+            }
+        }
+        @Override void mklKernel(double[] x, double[] y, double[] res, int n) {
+            MKL.vzPow(n, x, y, res);
+        }
+    };
+    public static final Op COMPLEX_ABS = new CalibratedOp("complex.abs", Backend.MKL) {
+        @Override void javaKernel(double[] x, double[] y, double[] res, int n) {
+            for (int i = 0; i < n; i++) {
+                res[i] = Math.hypot(x[2 * i], x[2 * i + 1]);
+            }
+        }
+        @Override void mklKernel(double[] x, double[] y, double[] res, int n) {
+            MKL.vzAbs(n, x, res);
+        }
+    };
+
+    /** Forces the backend for all operations, null for the automatic choice. Returns the previously forced backend. */
+    public static Backend force(Backend backend) {
+        Backend old = forced;
+        forced = backend;
+        return old;
+    }
+
+    public static Backend forced() {
+        return forced;
+    }
+
+    /** Starts counting the elements processed by each backend, if not counting already. */
+    public static void startCounting() {
+        counting = true;
+    }
+
+    public static void resetCounters() {
+        synchronized (ops) {
+            for (Op op : ops) {
+                for (int i = 0; i < op.elements.length(); i++) {
+                    op.elements.set(i, 0);
+                }
+            }
+        }
+    }
+
+    /** The choices and counters of all operations, one line for each. */
+    public static String[] report() {
+        synchronized (ops) {
+            String[] res = new String[ops.size()];
+            for (int i = 0; i < res.length; i++) {
+                res[i] = ops.get(i).report();
+            }
+            return res;
+        }
+    }
+}
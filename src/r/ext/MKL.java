@@ -4,10 +4,6 @@ import r.*;
 
 public class MKL {
 
-    public static boolean use(int vectorSize) {
-        return vectorSize >= 50; // Intel recommends 40, but that is without JNI cost
-    }
-
     // VML
     public static native void vdAdd(int n, double[] a, double[] b, double[] y);
     public static native void vdSub(int n, double[] a, double[] b, double[] y);
@@ -5,6 +5,8 @@ import java.util.*;
 
 public class Sequence extends ASTNode {
     ASTNode[] exprs;
+    int[] lines; // source line of each expression, or null when not parsed from source
+
     Sequence(ASTNode[] e) {
         exprs = updateParent(e); // FIXME or not ... do we need to duplicate this array
     }
@@ -18,6 +20,15 @@ public class Sequence extends ASTNode {
         return exprs;
     }
 
+    public int[] getLines() {
+        return lines;
+    }
+
+    /** The source line of the i-th expression, 0 when not known. */
+    public int getLine(int i) {
+        return lines != null && i < lines.length ? lines[i] : 0;
+    }
+
     @Override
     public void visit_all(Visitor v) {
         for (ASTNode e: exprs) {
@@ -48,4 +59,19 @@ public class Sequence extends ASTNode {
     public static Sequence create(ASTNode[] exprs) {
         return new Sequence(exprs);
     }
+
+    public static Sequence create(ASTNode[] exprs, int[] lines) {
+        Sequence s = create(exprs);
+        s.lines = lines;
+        return s;
+    }
+
+    public static Sequence create(ArrayList<ASTNode> exprs, ArrayList<Integer> lines) {
+        Sequence s = create(exprs);
+        s.lines = new int[lines.size()];
+        for (int i = 0; i < s.lines.length; i++) {
+            s.lines[i] = lines.get(i);
+        }
+        return s;
+    }
 }
@@ -249,10 +249,11 @@ public abstract class AbstractCall extends BaseR {
         RSymbol[] dnames = dotsInfo.names;
         if (dotsIndex == -1) {  // FIXME: turn into node-rewriting ?
             // no dots symbol in target
+            boolean eager = newFrame.function().eagerArguments();
             for (i = 0; i < argExprs.length; i++) {
                 int p = argPositions[i] - 1;
                 assert Utils.check(p >= 0);
-                newFrame.set(p, promiseForArgument(callerFrame, i));
+                newFrame.set(p, eager ? valueForArgument(callerFrame, i) : promiseForArgument(callerFrame, i));
             }
         } else {
             Object[] dargs = new Object[dnames.length];
@@ -270,6 +271,18 @@ public abstract class AbstractCall extends BaseR {
         }
     }
 
+    // the value of a constant or variable argument when the callee accepts values (see EagerArguments), otherwise a promise
+    protected final Object valueForArgument(Frame callerFrame, int argIndex) {
+        RNode argExpr = argExprs[argIndex];
+        if (argExpr != null) {
+            RAny value = EagerArguments.value(argExpr, callerFrame);
+            if (value != null) {
+                return value;
+            }
+        }
+        return promiseForArgument(callerFrame, argIndex);
+    }
+
     protected final Object promiseForArgument(Frame callerFrame, int argIndex) {
         RNode argExpr = argExprs[argIndex];
         if (argExpr != null) {
@@ -13,6 +13,9 @@ import r.data.RDouble.RDoubleUtils;
 import r.data.internal.*;
 import r.data.internal.IntImpl.RIntSequence;
 import r.data.internal.IntImpl.RIntSimpleRange;
+import r.data.internal.ProfilingView.RComplexProfilingView;
+import r.data.internal.ProfilingView.RDoubleProfilingView;
+import r.data.internal.ProfilingView.RIntProfilingView;
 import r.data.internal.ProfilingView.ViewProfile;
 import r.data.internal.TracingView.*;
 import r.errors.*;
@@ -31,9 +34,51 @@ public class Arithmetic extends BaseR {
     final VectorArithmetic vectorArit;
 
     private static final boolean SINGLE_CHILD_TIGHT_LOOP_MATERIALIZATION = true;
-    private static final boolean EAGER = false;
-    private static final boolean LIMIT_VIEW_DEPTH = false && !(Frame.MATERIALIZE_ON_ASSIGNMENT && AbstractCall.MATERIALIZE_FUNCTION_ARGUMENTS);
-    private static final int MAX_VIEW_DEPTH = 5;
+
+    /** How vector arithmetic is evaluated. Selected at startup using the fastr.arith.policy property or the
+     * --arith-policy console option.
+     */
+    public enum VectorPolicy {
+        LAZY,      // always build views
+        EAGER,     // always compute the result into a new vector
+        ADAPTIVE;  // small vectors eagerly, otherwise decided per node from a profile of the first result
+
+        public static VectorPolicy fromString(String s) {
+            try {
+                return valueOf(s.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                System.err.println("Unknown arithmetic policy '" + s + "', using adaptive");
+                return ADAPTIVE;
+            }
+        }
+    }
+
+    // the policy can be changed at run time (see setVectorPolicy), and is read by worker threads (e.g. of mclapply)
+    private static volatile VectorPolicy policy = VectorPolicy.fromString(Utils.getProperty("fastr.arith.policy", "adaptive"));
+    private static volatile boolean eager = policy == VectorPolicy.EAGER;
+
+    // views deeper than this are materialized when created (and when profiling, the node becomes eager); 0 means unlimited
+    private static volatile int maxViewDepth = Utils.getProperty("fastr.arith.maxViewDepth", 8);
+    private static volatile boolean limitViewDepth = maxViewDepth > 0 && !(Frame.MATERIALIZE_ON_ASSIGNMENT && AbstractCall.MATERIALIZE_FUNCTION_ARGUMENTS);
+
+    // with the adaptive policy, operations on vectors smaller than this are always eager
+    private static final int EAGER_SIZE_LIMIT = Utils.getProperty("fastr.arith.eagerSize", 30);
+
+    public static VectorPolicy vectorPolicy() {
+        return policy;
+    }
+
+    /** Changes the policy for nodes that are yet to specialize. Should be called at startup. */
+    public static void setVectorPolicy(VectorPolicy newPolicy, int maxViewDepth) {
+        policy = newPolicy;
+        eager = newPolicy == VectorPolicy.EAGER;
+        Arithmetic.maxViewDepth = maxViewDepth;
+        limitViewDepth = maxViewDepth > 0 && !(Frame.MATERIALIZE_ON_ASSIGNMENT && AbstractCall.MATERIALIZE_FUNCTION_ARGUMENTS);
+    }
+
+    public static int maxViewDepth() {
+        return maxViewDepth;
+    }
 
     private static final boolean DEBUG_AR = false;
 
@@ -81,6 +126,34 @@ public class Arithmetic extends BaseR {
         return execute(lexpr, rexpr);
     }
 
+    // typed execution, when the result is a scalar integer or double, installs ScalarTyped to compute it without boxing
+    @Override
+    public double executeScalarDouble(Frame frame) throws SpecializationException {
+        return RValueConversion.expectScalarDouble(executeScalar(frame));
+    }
+
+    @Override
+    public int executeScalarInteger(Frame frame) throws SpecializationException {
+        return RValueConversion.expectScalarInteger(executeScalar(frame));
+    }
+
+    private RAny executeScalar(Frame frame) {
+        Object lexpr = left.execute(frame);
+        if (getNewNode() != null) {
+            return (RAny) ((Arithmetic) getNewNode()).executeWithLexpr(frame, lexpr);
+        }
+        Object rexpr = right.execute(frame);
+        if (getNewNode() != null) {
+            return (RAny) ((Arithmetic) getNewNode()).execute(lexpr, rexpr);
+        }
+        if (ScalarTyped.isScalar(lexpr) && ScalarTyped.isScalar(rexpr)) {
+            ScalarTyped tn = new ScalarTyped(ast, left, right, arit, vectorArit, lexpr instanceof ScalarIntImpl, rexpr instanceof ScalarIntImpl);
+            replace(tn, "install ScalarTyped from Arithmetic");
+            return (RAny) tn.execute(lexpr, rexpr);
+        }
+        return (RAny) execute(lexpr, rexpr);
+    }
+
     public Object execute(Object lexpr, Object rexpr) {
         try {
             throw new SpecializationException(null);
@@ -291,7 +364,18 @@ public class Arithmetic extends BaseR {
             }
 
             // vectors
-            return createProfiling(ast, left, right, arit);
+            return createVectorNode(leftTemplate, rightTemplate, ast, left, right, arit);
+        }
+
+        public static Specialized createVectorNode(RAny leftTemplate, RAny rightTemplate, ASTNode ast, RNode left, RNode right, ValueArithmetic arit) {
+            switch (policy) {
+                case LAZY:
+                    return createSpecializedVector(leftTemplate, rightTemplate, ast, left, right, arit, LAZY_VECTOR);
+                case EAGER:
+                    return createSpecializedVector(leftTemplate, rightTemplate, ast, left, right, arit, EAGER_VECTOR);
+                default:
+                    return createProfiling(ast, left, right, arit);
+            }
         }
 
         public static Specialized createSpecializedVector(RAny leftTemplate, RAny rightTemplate, final ASTNode ast, RNode left, RNode right, final ValueArithmetic arit, final VectorArithmetic vectorArit) {
@@ -455,7 +539,8 @@ public class Arithmetic extends BaseR {
                     if (profile == null) {
                         profile = new ViewProfile();
                         RArray res = genericCalc(lexpr, rexpr, arit, returnsDouble, LAZY_VECTOR, ast);
-                        return ProfilingView.ViewProfile.profile(res, profile);
+                        int depth = (lexpr instanceof RArray ? viewDepth((RArray) lexpr) : 0) + (rexpr instanceof RArray ? viewDepth((RArray) rexpr) : 0) + 1;
+                        return ProfilingView.ViewProfile.profile(res, profile, depth);
                     } else {
                         throw new SpecializationException(chooseVectorArithmetic(profile));
                     }
@@ -499,7 +584,7 @@ public class Arithmetic extends BaseR {
                 }
 
                 if (vectorArit == null) {
-                    Specialized sn = createProfiling(ast, left, right, arit);
+                    Specialized sn = createVectorNode((RAny) lexpr, (RAny) rexpr, ast, left, right, arit);
                     replace(sn, "install Profiling from Specialized-?");
                     return sn.execute(lexpr, rexpr);
                 }
@@ -574,6 +659,162 @@ public class Arithmetic extends BaseR {
 //    }
 
 
+    // scalar integer and double operands, read through the typed execute methods of the children, which for local
+    // variables, loop variables and nested arithmetic avoids boxing; the semantics is that of Specialized for the same types
+    static class ScalarTyped extends Arithmetic {
+        final boolean leftInt;
+        final boolean rightInt;
+        final boolean resultDouble;
+
+        public ScalarTyped(ASTNode ast, RNode left, RNode right, ValueArithmetic arit, VectorArithmetic vectorArit, boolean leftInt, boolean rightInt) {
+            super(ast, left, right, arit, vectorArit);
+            this.leftInt = leftInt;
+            this.rightInt = rightInt;
+            this.resultDouble = !(leftInt && rightInt) || arit.returnsDouble();
+        }
+
+        static boolean isScalar(Object value) {
+            return value instanceof ScalarIntImpl || value instanceof ScalarDoubleImpl;
+        }
+
+        @Override
+        public double executeScalarDouble(Frame frame) throws SpecializationException {
+            if (!resultDouble) {
+                return RValueConversion.expectScalarDouble((RAny) execute(frame));
+            }
+            double ldbl;
+            boolean na;
+            try {
+                if (leftInt) {
+                    int lint = left.executeScalarInteger(frame);
+                    na = lint == RInt.NA;
+                    ldbl = lint;
+                } else {
+                    ldbl = left.executeScalarDouble(frame);
+                    na = RDouble.RDoubleUtils.arithIsNA(ldbl);
+                }
+            } catch (SpecializationException e) {
+                return RValueConversion.expectScalarDouble(deopt(e.getResult(), right.execute(frame)));
+            }
+            if (getNewNode() != null) {
+                return RValueConversion.expectScalarDouble((RAny) ((Arithmetic) getNewNode()).executeWithLexpr(frame, boxLeft(ldbl, na)));
+            }
+            double rdbl;
+            try {
+                if (rightInt) {
+                    int rint = right.executeScalarInteger(frame);
+                    na = na || rint == RInt.NA;
+                    rdbl = rint;
+                } else {
+                    rdbl = right.executeScalarDouble(frame);
+                    na = na || RDouble.RDoubleUtils.arithIsNA(rdbl);
+                }
+            } catch (SpecializationException e) {
+                return RValueConversion.expectScalarDouble(deopt(boxLeft(ldbl, na), e.getResult()));
+            }
+            if (na) {
+                return RDouble.NA;
+            }
+            return arit.op(ast, ldbl, rdbl);
+        }
+
+        @Override
+        public int executeScalarInteger(Frame frame) throws SpecializationException {
+            if (resultDouble) {
+                return RValueConversion.expectScalarInteger((RAny) execute(frame));
+            }
+            int lint;
+            try {
+                lint = left.executeScalarInteger(frame);
+            } catch (SpecializationException e) {
+                return RValueConversion.expectScalarInteger(deopt(e.getResult(), right.execute(frame)));
+            }
+            if (getNewNode() != null) {
+                return RValueConversion.expectScalarInteger((RAny) ((Arithmetic) getNewNode()).executeWithLexpr(frame, RInt.RIntFactory.getScalar(lint)));
+            }
+            int rint;
+            try {
+                rint = right.executeScalarInteger(frame);
+            } catch (SpecializationException e) {
+                return RValueConversion.expectScalarInteger(deopt(RInt.RIntFactory.getScalar(lint), e.getResult()));
+            }
+            if (lint == RInt.NA || rint == RInt.NA) {
+                return RInt.NA;
+            }
+            return arit.opWarnOverflow(ast, lint, rint);
+        }
+
+        private RAny boxLeft(double ldbl, boolean na) {
+            if (leftInt) {
+                return RInt.RIntFactory.getScalar(na ? RInt.NA : (int) ldbl);
+            }
+            return RDouble.RDoubleFactory.getScalar(ldbl);
+        }
+
+        // an operand of a different type, re-specialize from the boxed values
+        private RAny deopt(Object lexpr, Object rexpr) {
+            Arithmetic an = new Arithmetic(ast, left, right, arit, vectorArit);
+            replace(an, "install Arithmetic from ScalarTyped");
+            return (RAny) an.execute(lexpr, rexpr);
+        }
+
+        @Override
+        public Object execute(Frame frame) {
+            try {
+                if (resultDouble) {
+                    return RDouble.RDoubleFactory.getScalar(executeScalarDouble(frame));
+                }
+                return RInt.RIntFactory.getScalar(executeScalarInteger(frame));
+            } catch (SpecializationException e) {
+                return e.getResult();
+            }
+        }
+
+        @Override
+        public Object execute(Object lexpr, Object rexpr) {
+            if (leftInt ? lexpr instanceof ScalarIntImpl : lexpr instanceof ScalarDoubleImpl) {
+                if (rightInt ? rexpr instanceof ScalarIntImpl : rexpr instanceof ScalarDoubleImpl) {
+                    return calc(lexpr, rexpr);
+                }
+            }
+            return deopt(lexpr, rexpr);
+        }
+
+        private RAny calc(Object lexpr, Object rexpr) {
+            if (!resultDouble) {
+                int lint = ((ScalarIntImpl) lexpr).getInt();
+                int rint = ((ScalarIntImpl) rexpr).getInt();
+                if (lint == RInt.NA || rint == RInt.NA) {
+                    return RInt.BOXED_NA;
+                }
+                return RInt.RIntFactory.getScalar(arit.opWarnOverflow(ast, lint, rint));
+            }
+            double ldbl;
+            double rdbl;
+            boolean na;
+            if (leftInt) {
+                int lint = ((ScalarIntImpl) lexpr).getInt();
+                na = lint == RInt.NA;
+                ldbl = lint;
+            } else {
+                ldbl = ((ScalarDoubleImpl) lexpr).getDouble();
+                na = RDouble.RDoubleUtils.arithIsNA(ldbl);
+            }
+            if (rightInt) {
+                int rint = ((ScalarIntImpl) rexpr).getInt();
+                na = na || rint == RInt.NA;
+                rdbl = rint;
+            } else {
+                rdbl = ((ScalarDoubleImpl) rexpr).getDouble();
+                na = na || RDouble.RDoubleUtils.arithIsNA(rdbl);
+            }
+            if (na) {
+                return RDouble.BOXED_NA;
+            }
+            return RDouble.RDoubleFactory.getScalar(arit.op(ast, ldbl, rdbl));
+        }
+    }
+
     static class SpecializedConst extends Arithmetic {
         final String dbg;
         final Calculator calc;
@@ -1161,6 +1402,11 @@ public class Arithmetic extends BaseR {
         public abstract int op(ASTNode ast, int a, int b);
         public abstract void emitOverflowWarning(ASTNode ast);
 
+        /** Returns true when the double operation can emit a warning, so it must not be run in parallel. */
+        public boolean mayWarn() {
+            return false;
+        }
+
         public final int opWarnOverflow(ASTNode ast, int a, int b) {
             int res = op(ast, a, b);
             if (res == RInt.NA) {
@@ -1302,20 +1548,39 @@ public class Arithmetic extends BaseR {
         public abstract void opDoubleASized(ASTNode ast, double[] x, double[] y, double[] res, int size, int bsize);
         public abstract void opDoubleBSized(ASTNode ast, double[] x, double[] y, double[] res, int size, int asize);
 
+        // the kernels are split across threads for large vectors, see ParallelArithmetic
+        public final void opDoubleEqualSizeMaybeParallel(ASTNode ast, double[] x, double[] y, double[] res, int size) {
+            if (!ParallelArithmetic.opDoubleEqualSize(this, ast, x, y, res, size)) {
+                opDoubleEqualSize(ast, x, y, res, size);
+            }
+        }
+
+        public final void opDoubleScalarMaybeParallel(ASTNode ast, double[] x, double y, double[] res, int size) {
+            if (!ParallelArithmetic.opDoubleScalar(this, ast, x, y, res, size)) {
+                opDoubleScalar(ast, x, y, res, size);
+            }
+        }
+
+        public final void opScalarDoubleMaybeParallel(ASTNode ast, double x, double[] y, double[] res, int size) {
+            if (!ParallelArithmetic.opScalarDouble(this, ast, x, y, res, size)) {
+                opScalarDouble(ast, x, y, res, size);
+            }
+        }
+
         public RDouble opDoubleImplEqualSize(ASTNode ast, DoubleImpl xdbl, DoubleImpl ydbl, int size, int[] dimensions, Names names, Attributes attributes) {
             double[] x = xdbl.getContent();
             double[] y = ydbl.getContent();
             if (xdbl.isTemporary()) {
-                opDoubleEqualSize(ast, x, y, x, size);
+                opDoubleEqualSizeMaybeParallel(ast, x, y, x, size);
                 xdbl.setNames(names).setDimensions(dimensions).setAttributes(attributes);
                 return xdbl;
             } else if (ydbl.isTemporary()) {
-                opDoubleEqualSize(ast, x, y, y, size);
+                opDoubleEqualSizeMaybeParallel(ast, x, y, y, size);
                 ydbl.setNames(names).setDimensions(dimensions).setAttributes(attributes);
                 return ydbl;
             } else {
                 double[] res = new double[size];
-                opDoubleEqualSize(ast, x, y, res, size);
+                opDoubleEqualSizeMaybeParallel(ast, x, y, res, size);
                 return RDouble.RDoubleFactory.getFor(res, dimensions, names, attributes);
             }
         }
@@ -1323,12 +1588,12 @@ public class Arithmetic extends BaseR {
         public RDouble opDoubleImplScalar(ASTNode ast, DoubleImpl xdbl, double y, int size, int[] dimensions, Names names, Attributes attributes) {
             double[] x = xdbl.getContent();
             if (xdbl.isTemporary()) {
-                opDoubleScalar(ast, x, y, x, size);
+                opDoubleScalarMaybeParallel(ast, x, y, x, size);
                 xdbl.setNames(names).setDimensions(dimensions).setAttributes(attributes);
                 return xdbl;
             } else {
                 double[] res = new double[size];
-                opDoubleScalar(ast, x, y, res, size);
+                opDoubleScalarMaybeParallel(ast, x, y, res, size);
                 return RDouble.RDoubleFactory.getFor(res, dimensions, names, attributes);
             }
         }
@@ -1363,12 +1628,12 @@ public class Arithmetic extends BaseR {
         public RDouble opScalarDoubleImpl(ASTNode ast, double x, DoubleImpl ydbl, int size, int[] dimensions, Names names, Attributes attributes) {
             double[] y = ydbl.getContent();
             if (ydbl.isTemporary()) {
-                opScalarDouble(ast, x, y, y, size);
+                opScalarDoubleMaybeParallel(ast, x, y, y, size);
                 ydbl.setNames(names).setDimensions(dimensions).setAttributes(attributes);
                 return ydbl;
             } else {
                 double[] res = new double[size];
-                opScalarDouble(ast, x, y, res, size);
+                opScalarDoubleMaybeParallel(ast, x, y, res, size);
                 return RDouble.RDoubleFactory.getFor(res, dimensions, names, attributes);
             }
         }
@@ -1603,7 +1868,7 @@ public class Arithmetic extends BaseR {
 
         @Override
         public void opComplexEqualSize(ASTNode ast, double[] x, double[] y, double[] res, int size) {
-            if (!RDoubleUtils.ARITH_NA_CHECKS && RContext.hasMKL() && MKL.use(size)) {
+            if (!RDoubleUtils.ARITH_NA_CHECKS && Backends.COMPLEX_ADD.useNative(size)) {
                 MKL.vzAdd(size, x, y, res);
                 return;
             }
@@ -1701,7 +1966,7 @@ public class Arithmetic extends BaseR {
 
         @Override
         public void opDoubleEqualSize(ASTNode ast, double[] x, double[] y, double[] res, int size) {
-            if (!RDoubleUtils.ARITH_NA_CHECKS && RContext.hasMKL() && MKL.use(size)) {
+            if (!RDoubleUtils.ARITH_NA_CHECKS && Backends.ADD.useNative(size)) {
                 MKL.vdAdd(size, x, y, res);
                 return;
             }
@@ -1981,7 +2246,7 @@ public class Arithmetic extends BaseR {
 
         @Override
         public void opComplexEqualSize(ASTNode ast, double[] x, double[] y, double[] res, int size) {
-            if (!RDoubleUtils.ARITH_NA_CHECKS && RContext.hasMKL() && MKL.use(size)) {
+            if (!RDoubleUtils.ARITH_NA_CHECKS && Backends.COMPLEX_SUB.useNative(size)) {
                 MKL.vzSub(size, x, y, res);
                 return;
             }
@@ -2085,7 +2350,7 @@ public class Arithmetic extends BaseR {
         }
         @Override
         public void opDoubleEqualSize(ASTNode ast, double[] x, double[] y, double[] res, int size) {
-            if (!RDoubleUtils.ARITH_NA_CHECKS && RContext.hasMKL() && MKL.use(size)) {
+            if (!RDoubleUtils.ARITH_NA_CHECKS && Backends.SUB.useNative(size)) {
                 MKL.vdSub(size, x, y, res);
                 return;
             }
@@ -2437,7 +2702,7 @@ public class Arithmetic extends BaseR {
         }
         @Override
         public void opComplexEqualSize(ASTNode ast, double[] x, double[] y, double[] res, int size) {
-            if (!RDoubleUtils.ARITH_NA_CHECKS && RContext.hasMKL() && MKL.use(size)) {
+            if (!RDoubleUtils.ARITH_NA_CHECKS && Backends.COMPLEX_MUL.useNative(size)) {
                 MKL.vzMul(size, x, y, res);
                 return;
             }
@@ -2524,7 +2789,7 @@ public class Arithmetic extends BaseR {
 
         @Override
         public void opDoubleEqualSize(ASTNode ast, double[] x, double[] y, double[] res, int size) {
-            if (!RDoubleUtils.ARITH_NA_CHECKS && RContext.hasMKL() && MKL.use(size)) {
+            if (!RDoubleUtils.ARITH_NA_CHECKS && Backends.MUL.useNative(size)) {
                 if (x == y) {
                     MKL.vdSqr(size, x, res);
                 } else {
@@ -2760,6 +3025,10 @@ public class Arithmetic extends BaseR {
     }
 
     public static final class Pow extends ValueArithmetic {
+        @Override
+        public boolean mayWarn() {
+            return true; // loss of accuracy in fmod for (-Inf) ^ n
+        }
 
         private static void creciprocal(double[] z, int offset) {
             // LICENSE: this code is derived from the division code, which is transcribed code from GCC, which is licensed under GPL
@@ -2956,7 +3225,7 @@ public class Arithmetic extends BaseR {
 
         @Override
         public void opComplexEqualSize(ASTNode ast, double[] x, double[] y, double[] res, int size) {
-            if (!RDoubleUtils.ARITH_NA_CHECKS && RContext.hasMKL() && MKL.use(size)) { // FIXME: check it has the same semantics as GNU-R
+            if (!RDoubleUtils.ARITH_NA_CHECKS && Backends.COMPLEX_POW.useNative(size)) { // FIXME: check it has the same semantics as GNU-R
                 MKL.vzPow(size, x, y, res);
                 return;
             }
@@ -3107,11 +3376,12 @@ public class Arithmetic extends BaseR {
 
         @Override
         public void opDoubleEqualSize(ASTNode ast, double[] x, double[] y, double[] res, int size) {
-            if (!RDoubleUtils.ARITH_NA_CHECKS && RContext.hasMKL() && MKL.use(size)) {
+            Backends.Backend backend = Backends.POW.select(size);
+            if (!RDoubleUtils.ARITH_NA_CHECKS && backend == Backends.Backend.MKL) {
                 MKL.vdPow(size, x, y, res);
                 return;
             }
-            if (!RContext.hasSystemLibs()) {
+            if (backend != Backends.Backend.SYSTEM) {
                 for (int i = 0; i < size; i++) {
                     double a = x[i];
                     double b = y[i];
@@ -3130,11 +3400,12 @@ public class Arithmetic extends BaseR {
         }
         @Override
         public void opDoubleScalar(ASTNode ast, double[] x, double y, double[] res, int size) {
-            if (!RDoubleUtils.ARITH_NA_CHECKS && RContext.hasMKL() && MKL.use(size)) {
+            Backends.Backend backend = Backends.POWX.select(size);
+            if (!RDoubleUtils.ARITH_NA_CHECKS && backend == Backends.Backend.MKL) {
                 MKL.vdPowx(size, x, y, res);
                 return;
             }
-            if (!RContext.hasSystemLibs()) {
+            if (backend != Backends.Backend.SYSTEM) {
                 for (int i = 0; i < size; i++) {
                     double a = x[i];
                     if (RDouble.RDoubleUtils.arithIsNA(a)) {
@@ -3149,7 +3420,7 @@ public class Arithmetic extends BaseR {
         }
         @Override
         public void opScalarDouble(ASTNode ast, double x, double[] y, double[] res, int size) {
-            if (!RContext.hasSystemLibs()) {
+            if (!Backends.POW_SCALAR.useNative(size)) {
                 for (int i = 0; i < size; i++) {
                     double b = y[i];
                     if (RDouble.RDoubleUtils.arithIsNA(b)) {
@@ -3345,7 +3616,7 @@ public class Arithmetic extends BaseR {
     }
 
     public static double pow(double a, double b) {
-        if (!RContext.hasSystemLibs()) {
+        if (!Backends.POW_SCALAR.useNativeForScalar()) {
             return Math.pow(a, b);
         } else {
             return SystemLibs.pow(a, b);
@@ -3428,7 +3699,7 @@ public class Arithmetic extends BaseR {
 
         @Override
         public void opComplexEqualSize(ASTNode ast, double[] x, double[] y, double[] res, int size) {
-            if (!RDoubleUtils.ARITH_NA_CHECKS && RContext.hasMKL() && MKL.use(size)) {
+            if (!RDoubleUtils.ARITH_NA_CHECKS && Backends.COMPLEX_DIV.useNative(size)) {
                 MKL.vzDiv(size, x, y, res);
                 return;
             }
@@ -3528,7 +3799,7 @@ public class Arithmetic extends BaseR {
 
         @Override
         public void opDoubleEqualSize(ASTNode ast, double[] x, double[] y, double[] res, int size) {
-            if (!RDoubleUtils.ARITH_NA_CHECKS && RContext.hasMKL() && MKL.use(size)) {
+            if (!RDoubleUtils.ARITH_NA_CHECKS && Backends.DIV.useNative(size)) {
                 MKL.vdDiv(size, x, y, res);
                 return;
             }
@@ -3740,6 +4011,10 @@ public class Arithmetic extends BaseR {
     }
 
     public static final class IntegerDiv extends ValueArithmetic {
+        @Override
+        public boolean mayWarn() {
+            return true; // kept sequential together with Mod
+        }
         @Override
         public double opReal(ASTNode ast, double a, double b, double c, double d) {
             throw RError.getUnimplementedComplex(ast);
@@ -4015,7 +4290,7 @@ public class Arithmetic extends BaseR {
         double q = a / b;
         if (b != 0) {
             double tmp = a - Math.floor(q) * b;
-            if (RDouble.RDoubleUtils.isFinite(q) && Math.abs(q) > 1 / RDouble.EPSILON) {
+            if (fmodLosesAccuracy(a, b)) {
                 RContext.warning(ast, RError.ACCURACY_MODULUS);
             }
             return tmp - Math.floor(tmp / b) * b;
@@ -4024,7 +4299,17 @@ public class Arithmetic extends BaseR {
         }
     }
 
+    /** True when fmod warns that the result may not be accurate. */
+    public static boolean fmodLosesAccuracy(double a, double b) {
+        double q = a / b;
+        return b != 0 && RDouble.RDoubleUtils.isFinite(q) && Math.abs(q) > 1 / RDouble.EPSILON;
+    }
+
     public static final class Mod extends ValueArithmetic {
+        @Override
+        public boolean mayWarn() {
+            return true; // loss of accuracy in fmod
+        }
         @Override
         public double opReal(ASTNode ast, double a, double b, double c, double d) {
             throw RError.getUnimplementedComplex(ast);
@@ -4080,7 +4365,7 @@ public class Arithmetic extends BaseR {
         }
         @Override
         public void opDoubleEqualSize(ASTNode ast, double[] x, double[] y, double[] res, int size) {
-            if (!RContext.hasSystemLibs()) {
+            if (!Backends.FMOD.useNative(size)) {
                 for (int i = 0; i < size; i++) {
                     double a = x[i];
                     double b = y[i];
@@ -4328,7 +4613,7 @@ public class Arithmetic extends BaseR {
         @Override
         public RComplex complexBinary(RComplex a, RComplex b, ValueArithmetic arit, ASTNode ast) {
             int depth = 0;
-            if (LIMIT_VIEW_DEPTH) {
+            if (limitViewDepth) {
                 depth = complexViewDepth(a) + complexViewDepth(b) + 1;
             }
             int[] dim = resultDimensions(ast, a, b);
@@ -4353,7 +4638,7 @@ public class Arithmetic extends BaseR {
                 }
             }
             res = TracingView.ViewTrace.trace(res);
-            if (EAGER || (LIMIT_VIEW_DEPTH && (depth > MAX_VIEW_DEPTH)) || (na == 1 && nb == 1)) {
+            if (eager || (limitViewDepth && (depth > maxViewDepth)) || (na == 1 && nb == 1)) {
                 return res.materialize();
             }
             return res;
@@ -4362,7 +4647,7 @@ public class Arithmetic extends BaseR {
         @Override
         public RDouble doubleBinary(RDouble a, RDouble b, ValueArithmetic arit, ASTNode ast) {
             int depth = 0;
-            if (LIMIT_VIEW_DEPTH) {
+            if (limitViewDepth) {
                 depth = doubleViewDepth(a) + doubleViewDepth(b) + 1;
             }
             int[] dim = resultDimensions(ast, a, b);
@@ -4402,7 +4687,7 @@ public class Arithmetic extends BaseR {
                 }
             }
             res = TracingView.ViewTrace.trace(res);
-            if (EAGER || (LIMIT_VIEW_DEPTH && (depth > MAX_VIEW_DEPTH)) || (na == 1 && nb == 1)) {
+            if (eager || (limitViewDepth && (depth > maxViewDepth)) || (na == 1 && nb == 1)) {
                 return res.materialize();
             }
             return res;
@@ -4412,7 +4697,7 @@ public class Arithmetic extends BaseR {
         @Override
         public RDouble doubleBinary(RDouble a, RInt b, ValueArithmetic arit, ASTNode ast) {
             int depth = 0;
-            if (LIMIT_VIEW_DEPTH) {
+            if (limitViewDepth) {
                 depth = doubleViewDepth(a) + intViewDepth(b) + 1;
             }
             int[] dim = resultDimensions(ast, a, b);
@@ -4463,7 +4748,7 @@ public class Arithmetic extends BaseR {
                 }
             }
             res = TracingView.ViewTrace.trace(res);
-            if (EAGER || (LIMIT_VIEW_DEPTH && (depth > MAX_VIEW_DEPTH)) ||  (na == 1 && nb == 1)) {
+            if (eager || (limitViewDepth && (depth > maxViewDepth)) ||  (na == 1 && nb == 1)) {
                 return res.materialize();
             }
             return res;
@@ -4473,7 +4758,7 @@ public class Arithmetic extends BaseR {
         @Override
         public RDouble doubleBinary(RInt a, RDouble b, ValueArithmetic arit, ASTNode ast) {
             int depth = 0;
-            if (LIMIT_VIEW_DEPTH) {
+            if (limitViewDepth) {
                 depth = intViewDepth(a) + doubleViewDepth(b) + 1;
             }
             int[] dim = resultDimensions(ast, a, b);
@@ -4524,7 +4809,7 @@ public class Arithmetic extends BaseR {
                 }
             }
             res = TracingView.ViewTrace.trace(res);
-            if (EAGER || (LIMIT_VIEW_DEPTH && (depth > MAX_VIEW_DEPTH)) ||  (na == 1 && nb == 1)) {
+            if (eager || (limitViewDepth && (depth > maxViewDepth)) ||  (na == 1 && nb == 1)) {
                 return res.materialize();
             }
             return res;
@@ -4537,7 +4822,7 @@ public class Arithmetic extends BaseR {
             assert Utils.check(!arit.returnsDouble());
 
             int depth = 0;
-            if (LIMIT_VIEW_DEPTH) {
+            if (limitViewDepth) {
                 depth = intViewDepth(a) + intViewDepth(b) + 1;
             }
             int[] dim = resultDimensions(ast, a, b);
@@ -4620,7 +4905,7 @@ public class Arithmetic extends BaseR {
                 }
             }
             res = TracingView.ViewTrace.trace(res);
-            if (EAGER || (LIMIT_VIEW_DEPTH && (depth > MAX_VIEW_DEPTH)) ||  (na == 1 && nb == 1)) {
+            if (eager || (limitViewDepth && (depth > maxViewDepth)) ||  (na == 1 && nb == 1)) {
                 return res.materialize();
             }
             return res;
@@ -4763,11 +5048,18 @@ public class Arithmetic extends BaseR {
 
     public static VectorArithmetic chooseVectorArithmetic(Object leftTemplate, Object rightTemplate, ValueArithmetic arit) {
 
+        switch (policy) {
+            case LAZY:
+                return LAZY_VECTOR;
+            case EAGER:
+                return EAGER_VECTOR;
+            default:
+        }
         if (leftTemplate instanceof RArray && rightTemplate instanceof RArray) {
             int lsize = ((RArray) leftTemplate).size();
             int rsize = ((RArray) rightTemplate).size();
 
-            if (lsize < 30 && rsize < 30) {
+            if (lsize < EAGER_SIZE_LIMIT && rsize < EAGER_SIZE_LIMIT) {
                 return EAGER_VECTOR;
             }
         }
@@ -4776,6 +5068,10 @@ public class Arithmetic extends BaseR {
 
     public static VectorArithmetic chooseVectorArithmetic(ViewProfile profile) {
 
+        if (limitViewDepth && profile.depth() > maxViewDepth) {
+            // the view would be materialized anyway, re-reading it until then is wasted
+            return EAGER_VECTOR;
+        }
         if (profile.shouldBeLazy()) {
             return LAZY_VECTOR;
         } else {
@@ -5321,12 +5617,28 @@ public class Arithmetic extends BaseR {
         }
     }
 
+    public static int viewDepth(RArray a) {
+        if (a instanceof RDouble) {
+            return doubleViewDepth((RDouble) a);
+        } else if (a instanceof RInt) {
+            return intViewDepth((RInt) a);
+        } else if (a instanceof RComplex) {
+            return complexViewDepth((RComplex) a);
+        }
+        return 0;
+    }
+
     private static int doubleViewDepth(RDouble a) {
         RDouble x = a;
 
-        if (TracingView.VIEW_TRACING) {
-            if (a instanceof RDoubleTracingView) {
-                x = ((RDoubleTracingView) a).orig;
+        // the views of arithmetic nodes may be wrapped for tracing and profiling
+        for (;;) {
+            if (TracingView.VIEW_TRACING && x instanceof RDoubleTracingView) {
+                x = ((RDoubleTracingView) x).orig;
+            } else if (x instanceof RDoubleProfilingView) {
+                x = ((RDoubleProfilingView) x).orig;
+            } else {
+                break;
             }
         }
         if (x instanceof DoubleView) {
@@ -5339,9 +5651,14 @@ public class Arithmetic extends BaseR {
     private static int intViewDepth(RInt a) {
         RInt x = a;
 
-        if (TracingView.VIEW_TRACING) {
-            if (a instanceof RIntTracingView) {
-                x = ((RIntTracingView) a).orig;
+        // the views of arithmetic nodes may be wrapped for tracing and profiling
+        for (;;) {
+            if (TracingView.VIEW_TRACING && x instanceof RIntTracingView) {
+                x = ((RIntTracingView) x).orig;
+            } else if (x instanceof RIntProfilingView) {
+                x = ((RIntProfilingView) x).orig;
+            } else {
+                break;
             }
         }
         if (x instanceof IntView) {
@@ -5354,9 +5671,14 @@ public class Arithmetic extends BaseR {
     private static int complexViewDepth(RComplex a) {
         RComplex x = a;
 
-        if (TracingView.VIEW_TRACING) {
-            if (a instanceof RComplexTracingView) {
-                x = ((RComplexTracingView) a).orig;
+        // the views of arithmetic nodes may be wrapped for tracing and profiling
+        for (;;) {
+            if (TracingView.VIEW_TRACING && x instanceof RComplexTracingView) {
+                x = ((RComplexTracingView) x).orig;
+            } else if (x instanceof RComplexProfilingView) {
+                x = ((RComplexProfilingView) x).orig;
+            } else {
+                break;
             }
         }
         if (x instanceof ComplexView) {
@@ -5433,6 +5755,18 @@ public class Arithmetic extends BaseR {
             return depth;
         }
 
+        @Override
+        public void materializeInto(double[] resContent) {
+            if (!materializeIntoFused(resContent)) {
+                super.materializeInto(resContent);
+            }
+        }
+
+        // in parallel for large views, then as a single fused loop for trees of views
+        protected final boolean materializeIntoFused(double[] resContent) {
+            return ParallelArithmetic.materializeInto(this, resContent) || FusedMaterializer.materializeInto(this, resContent);
+        }
+
         // TODO: implement more efficient versions of materializeIntoOnTheFly
         //   note that one can change to DoubleImpl, and then use .dependsOn to rule out a dependency, and hence fall back
         //   to tight loops
@@ -5602,6 +5936,9 @@ public class Arithmetic extends BaseR {
 
             @Override
             public void materializeInto(double[] resContent) {
+                if (materializeIntoFused(resContent)) {
+                    return;
+                }
                 if (a instanceof DoubleImpl) {
                     if (b instanceof DoubleImpl) {
                         arit.opDoubleEqualSize(ast, a.getContent(), b.getContent(), resContent, n);
@@ -5667,6 +6004,9 @@ public class Arithmetic extends BaseR {
 
             @Override
             public void materializeInto(double[] resContent) {
+                if (materializeIntoFused(resContent)) {
+                    return;
+                }
                 if (a instanceof DoubleImpl) {
                     arit.opDoubleScalar(ast, a.getContent(), bdbl, resContent, n);
                 } else if (a instanceof RDoubleView) {
@@ -5776,6 +6116,9 @@ public class Arithmetic extends BaseR {
 
             @Override
             public void materializeInto(double[] resContent) {
+                if (materializeIntoFused(resContent)) {
+                    return;
+                }
                 if (b instanceof DoubleImpl) {
                     arit.opScalarDouble(ast, adbl, b.getContent(), resContent, n);
                 } else if (b instanceof RDoubleView) {
@@ -6101,6 +6444,9 @@ public class Arithmetic extends BaseR {
 
             @Override
             public void materializeInto(double[] resContent) {
+                if (materializeIntoFused(resContent)) {
+                    return;
+                }
                 if (a instanceof DoubleImpl) {
                     if (b instanceof IntImpl) {
                         arit.opDoubleIntEqualSize(ast, a.getContent(), b.getContent(), resContent, n);
@@ -73,6 +73,28 @@ public abstract class ArithmeticUpdateVariable extends BaseR {
                 return constantAddReplaceAndExecute(frame);
             }
         }
+
+        @Override
+        public Object executeVoid(Frame frame) {
+            int i;
+            if (frame.isUnboxedInt(slot)) {
+                i = frame.getUnboxedInt(slot);
+            } else {
+                Object value = frame.getObjectForcingPromises(slot);
+                if (!(value instanceof ScalarIntImpl)) {
+                    constantAddReplaceAndExecute(frame);
+                    return RNull.getNull();
+                }
+                i = ((ScalarIntImpl) value).getInt();
+            }
+            int newi = i + 1;
+            if (i != RInt.NA && newi != RInt.NA) {
+                frame.writeIntNoRef(slot, newi); // the result is not used, it need not be boxed
+            } else {
+                constantAddReplaceAndExecute(frame);
+            }
+            return RNull.getNull();
+        }
     }
 
     // recovery method for a constant add x <- x - c
@@ -125,5 +147,27 @@ public abstract class ArithmeticUpdateVariable extends BaseR {
                 return constantSubReplaceAndExecute(frame);
             }
         }
+
+        @Override
+        public Object executeVoid(Frame frame) {
+            int i;
+            if (frame.isUnboxedInt(slot)) {
+                i = frame.getUnboxedInt(slot);
+            } else {
+                Object value = frame.getObjectForcingPromises(slot);
+                if (!(value instanceof ScalarIntImpl)) {
+                    constantSubReplaceAndExecute(frame);
+                    return RNull.getNull();
+                }
+                i = ((ScalarIntImpl) value).getInt();
+            }
+            int newi = i - 1;
+            if (i != RInt.NA && newi != RInt.NA) {
+                frame.writeIntNoRef(slot, newi); // the result is not used, it need not be boxed
+            } else {
+                constantSubReplaceAndExecute(frame);
+            }
+            return RNull.getNull();
+        }
     }
 }
@@ -651,8 +651,57 @@ public class Comparison extends BaseR {
                 return RLogicalFactory.getNAArray(n, a.dimensions());
             }
             int[] content = new int[n];
+            if (ParallelArithmetic.isParallel(n)) {
+                cmpParallel(a.materialize(), b, content);
+            } else {
+                cmp(a, b, content, 0, n);
+            }
+            return RLogical.RLogicalFactory.getFor(content, a.dimensions(), a.names());
+        }
+        public RLogical cmp(double a, RDouble b) {
+            int n = b.size();
+            if (RDouble.RDoubleUtils.isNAorNaN(a)) {
+                return RLogicalFactory.getNAArray(n, b.dimensions());
+            }
+            int[] content = new int[n];
+            if (ParallelArithmetic.isParallel(n)) {
+                cmpParallel(a, b.materialize(), content);
+            } else {
+                cmp(a, b, content, 0, n);
+            }
+            return RLogical.RLogicalFactory.getFor(content, b.dimensions(), b.names());
+        }
+        public RLogical cmp(RInt a, int b) {
+            int n = a.size();
+            if (b == RInt.NA) {
+                return RLogicalFactory.getNAArray(n, a.dimensions());
+            }
+            int[] content = new int[n];
+            if (ParallelArithmetic.isParallel(n)) {
+                cmpParallel(a.materialize(), b, content);
+            } else {
+                cmp(a, b, content, 0, n);
+            }
+            return RLogical.RLogicalFactory.getFor(content, a.dimensions(), a.names());
+        }
+        public RLogical cmp(int a, RInt b) {
+            int n = b.size();
+            if (a == RInt.NA) {
+                return RLogicalFactory.getNAArray(n, b.dimensions());
+            }
+            int[] content = new int[n];
+            if (ParallelArithmetic.isParallel(n)) {
+                cmpParallel(a, b.materialize(), content);
+            } else {
+                cmp(a, b, content, 0, n);
+            }
+            return RLogical.RLogicalFactory.getFor(content, b.dimensions(), b.names());
+        }
+
+        // element-wise comparisons of [from, to), the operands are already checked for a scalar NA
+        public void cmp(RDouble a, double b, int[] content, int from, int to) {
             if (resultForNaN() == false) {
-                for (int i = 0; i < n; i++) {
+                for (int i = from; i < to; i++) {
                     double adbl = a.getDouble(i);
                     if (cmp(adbl, b)) {
                         content[i] = RLogical.TRUE;
@@ -662,7 +711,7 @@ public class Comparison extends BaseR {
                     }
                 }
             } else {
-                for (int i = 0; i < n; i++) {
+                for (int i = from; i < to; i++) {
                     double adbl = a.getDouble(i);
                     if (cmp(adbl, b)) {
                         content[i] = /* RDouble.RDoubleUtils.isNAorNaN(adbl) */ adbl != adbl ? RLogical.NA : RLogical.TRUE;
@@ -670,18 +719,11 @@ public class Comparison extends BaseR {
                         content[i] = RLogical.FALSE;
                     }
                 }
-
             }
-            return RLogical.RLogicalFactory.getFor(content, a.dimensions(), a.names());
         }
-        public RLogical cmp(double a, RDouble b) {
-            int n = b.size();
-            if (RDouble.RDoubleUtils.isNAorNaN(a)) {
-                return RLogicalFactory.getNAArray(n, b.dimensions());
-            }
-            int[] content = new int[n];
+        public void cmp(double a, RDouble b, int[] content, int from, int to) {
             if (resultForNaN() == false) {
-                for (int i = 0; i < n; i++) {
+                for (int i = from; i < to; i++) {
                     double bdbl = b.getDouble(i);
                     if (cmp(a, bdbl)) {
                         content[i] = RLogical.TRUE;
@@ -690,7 +732,7 @@ public class Comparison extends BaseR {
                     }
                 }
             } else {
-                for (int i = 0; i < n; i++) {
+                for (int i = from; i < to; i++) {
                     double bdbl = b.getDouble(i);
                     if (cmp(a, bdbl)) {
                         content[i] = /* RDouble.RDoubleUtils.isNAorNaN(bdbl) */ bdbl != bdbl ? RLogical.NA : RLogical.TRUE;
@@ -698,17 +740,10 @@ public class Comparison extends BaseR {
                         content[i] = RLogical.FALSE;
                     }
                 }
-
             }
-            return RLogical.RLogicalFactory.getFor(content, b.dimensions(), b.names());
         }
-        public RLogical cmp(RInt a, int b) {
-            int n = a.size();
-            if (b == RInt.NA) {
-                return RLogicalFactory.getNAArray(n, a.dimensions());
-            }
-            int[] content = new int[n];
-            for (int i = 0; i < n; i++) {
+        public void cmp(RInt a, int b, int[] content, int from, int to) {
+            for (int i = from; i < to; i++) {
                 int aint = a.getInt(i);
                 if (aint == RInt.NA) {
                     content[i] = RLogical.NA;
@@ -716,15 +751,9 @@ public class Comparison extends BaseR {
                     content[i] = cmp(aint, b) ? RLogical.TRUE : RLogical.FALSE;
                 }
             }
-            return RLogical.RLogicalFactory.getFor(content, a.dimensions(), a.names());
         }
-        public RLogical cmp(int a, RInt b) {
-            int n = b.size();
-            if (a == RInt.NA) {
-                return RLogicalFactory.getNAArray(n, b.dimensions());
-            }
-            int[] content = new int[n];
-            for (int i = 0; i < n; i++) {
+        public void cmp(int a, RInt b, int[] content, int from, int to) {
+            for (int i = from; i < to; i++) {
                 int bint = b.getInt(i);
                 if (bint == RInt.NA) {
                     content[i] = RLogical.NA;
@@ -732,7 +761,40 @@ public class Comparison extends BaseR {
                     content[i] = cmp(a, bint) ? RLogical.TRUE : RLogical.FALSE;
                 }
             }
-            return RLogical.RLogicalFactory.getFor(content, b.dimensions(), b.names());
+        }
+
+        // the vector operands are materialized, as views are not safe to read concurrently
+        private void cmpParallel(final RDouble a, final double b, final int[] content) {
+            ParallelArithmetic.run(new ParallelArithmetic.RangeTask() {
+                @Override
+                public void compute(int from, int to) {
+                    cmp(a, b, content, from, to);
+                }
+            }, content.length);
+        }
+        private void cmpParallel(final double a, final RDouble b, final int[] content) {
+            ParallelArithmetic.run(new ParallelArithmetic.RangeTask() {
+                @Override
+                public void compute(int from, int to) {
+                    cmp(a, b, content, from, to);
+                }
+            }, content.length);
+        }
+        private void cmpParallel(final RInt a, final int b, final int[] content) {
+            ParallelArithmetic.run(new ParallelArithmetic.RangeTask() {
+                @Override
+                public void compute(int from, int to) {
+                    cmp(a, b, content, from, to);
+                }
+            }, content.length);
+        }
+        private void cmpParallel(final int a, final RInt b, final int[] content) {
+            ParallelArithmetic.run(new ParallelArithmetic.RangeTask() {
+                @Override
+                public void compute(int from, int to) {
+                    cmp(a, b, content, from, to);
+                }
+            }, content.length);
         }
 
         public RLogical cmp(RString a, RString b, ASTNode ast) {
@@ -0,0 +1,195 @@
+package r.nodes.exec;
+
+import java.util.*;
+
+import r.*;
+import r.data.*;
+import r.nodes.ast.*;
+import r.nodes.tools.*;
+import r.runtime.*;
+
+/**
+ * Promise elision: an argument that is a constant, or a variable of the caller that already has a value (a local, a
+ * forced promise or a top-level variable), is passed to a closure as the value, without allocating a promise, when the
+ * closure cannot tell the difference. This is so when the closure has no ..., defines no functions, does not assign via
+ * <<- or replacement functions, and only calls builtins that compute with the values of their arguments (not, e.g.,
+ * missing, substitute, eval or delayedAssign) and that are neither shadowed by the closure or the functions enclosing
+ * it, nor overridden at top level. Then nothing can change the variable before the closure forces the argument, and
+ * nothing can look at the promise. Likewise, a default that is a constant is stored as the value.
+ *
+ * A variable holding a promise that has not been forced yet (e.g. by delayedAssign, or a missing argument) is always
+ * passed as a promise.
+ */
+public final class EagerArguments {
+
+    public static final boolean ENABLED = Utils.getProperty("fastr.call.eagerArguments", true);
+
+    private static final Set<RSymbol> PURE_BUILTINS = new HashSet<>();
+    static {
+        String[] names = {"abs", "all", "any", "array", "as.character", "as.double", "as.integer", "as.logical", "as.vector", "c", "ceiling", "character", "cumsum", "dim",
+                        "double", "exp", "floor", "identical", "integer", "is.character", "is.double", "is.integer", "is.logical", "is.na", "is.null", "is.numeric", "length",
+                        "list", "log", "log10", "log2", "logical", "matrix", "max", "min", "names", "nchar", "ncol", "nrow", "numeric", "paste", "rep", "rep.int", "return", "rev",
+                        "round", "seq", "sqrt", "sum", "typeof", "unlist", "which"};
+        for (String s : names) {
+            PURE_BUILTINS.add(RSymbol.getSymbol(s));
+        }
+    }
+
+    final RSymbol[] builtins; // called by the function
+
+    private EagerArguments(RSymbol[] builtins) {
+        this.builtins = builtins;
+    }
+
+    /** Returns the analysis of a function, or null when its arguments always have to be promises. */
+    public static EagerArguments create(r.nodes.ast.Function source, RFunction enclosingFunction) {
+        if (!ENABLED) {
+            return null;
+        }
+        Checker checker = new Checker();
+        for (ArgumentList.Entry e : source.getSignature()) {
+            RSymbol name = e.getName();
+            if (name == RSymbol.THREE_DOTS_SYMBOL) {
+                return null;
+            }
+            checker.written.add(name);
+            if (e.getValue() != null) {
+                e.getValue().accept(checker);
+            }
+        }
+        source.getBody().accept(checker);
+        if (!checker.supported) {
+            return null;
+        }
+        for (RSymbol s : checker.builtins) {
+            if (checker.written.contains(s)) {
+                return null;
+            }
+            for (RFunction f = enclosingFunction; f != null; f = f.enclosingFunction()) {
+                if (f.hasLocalSlot(s)) {
+                    return null;
+                }
+            }
+        }
+        return new EagerArguments(checker.builtins.toArray(new RSymbol[checker.builtins.size()]));
+    }
+
+    /** Returns true when the arguments can be passed as values, that is when none of the builtins has been overridden. */
+    public boolean accepts() {
+        for (RSymbol s : builtins) {
+            if (s.builtinIsOverridden()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Returns the value of an argument (referenced), or null when the argument has to be passed as a promise. */
+    public static RAny value(RNode argExpr, Frame callerFrame) {
+        if (argExpr instanceof Constant) {
+            return constant((Constant) argExpr);
+        }
+        // NOTE: the nodes are checked, not the ASTs, as calls made by builtins (e.g. lapply) pass values via nodes with other ASTs
+        if (!(argExpr instanceof ReadVariable)) {
+            return null;
+        }
+        RSymbol symbol = ((ReadVariable) argExpr).symbol;
+        if (symbol == RSymbol.THREE_DOTS_SYMBOL || symbol.dotDotValue() != -1) {
+            return null;
+        }
+        Object value;
+        if (callerFrame == null) {
+            value = symbol.getValueNoForce();
+        } else {
+            int slot = callerFrame.findVariable(symbol);
+            if (slot == -1) {
+                return null; // not a local variable
+            }
+            if (callerFrame.isUnboxedInt(slot)) {
+                value = RInt.RIntFactory.getScalar(callerFrame.getUnboxedInt(slot));
+            } else if (callerFrame.isUnboxedDouble(slot)) {
+                value = RDouble.RDoubleFactory.getScalar(callerFrame.getUnboxedDouble(slot));
+            } else {
+                value = callerFrame.get(slot);
+            }
+        }
+        if (value instanceof RPromise) {
+            RPromise p = (RPromise) value;
+            if (!p.isForced()) {
+                return null;
+            }
+            value = p.forceOrGet();
+        }
+        if (!(value instanceof RAny)) {
+            return null;
+        }
+        RAny rvalue = (RAny) value;
+        rvalue.ref();
+        return rvalue;
+    }
+
+    /** Returns the value of a default (referenced), or null when the default has to be a promise. */
+    public static RAny defaultValue(RNode defaultExpr) {
+        return defaultExpr instanceof Constant ? constant((Constant) defaultExpr) : null;
+    }
+
+    private static RAny constant(Constant node) {
+        RAny value = node.value();
+        value.ref();
+        return value;
+    }
+
+    static final class Checker extends BasicVisitor {
+        final Set<RSymbol> builtins = new HashSet<>();
+        final Set<RSymbol> written = new HashSet<>();
+        boolean supported = true;
+
+        @Override public void visit(ASTNode n) {
+            if (supported) {
+                n.visit_all(this);
+            }
+        }
+
+        @Override public void visit(r.nodes.ast.Function n) {
+            supported = false;
+        }
+
+        @Override public void visit(r.nodes.ast.FunctionCall n) {
+            RSymbol name = n.getName();
+            if (n.isAssignment() || n.isSuper() || !PURE_BUILTINS.contains(name)) {
+                supported = false;
+                return;
+            }
+            builtins.add(name);
+            visit((ASTNode) n);
+        }
+
+        @Override public void visit(SimpleAssignVariable n) {
+            if (n.isSuper()) {
+                supported = false;
+                return;
+            }
+            written.add(n.getSymbol());
+            visit((ASTNode) n);
+        }
+
+        @Override public void visit(For n) {
+            written.add(n.getCVar());
+            visit((ASTNode) n);
+        }
+
+        @Override public void visit(r.nodes.ast.UpdateVector n) {
+            supported &= !n.isSuper();
+            visit((ASTNode) n);
+        }
+
+        @Override public void visit(UpdateField n) {
+            supported &= !n.isSuper();
+            visit((ASTNode) n);
+        }
+
+        @Override public void visit(UpdateExpression n) {
+            supported = false;
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package r.nodes.exec;
+
+import java.util.*;
+
+import r.*;
+import r.data.*;
+import r.data.internal.*;
+import r.nodes.ast.*;
+import r.nodes.exec.Arithmetic.ValueArithmetic;
+import r.nodes.tools.*;
+import r.runtime.*;
+
+/**
+ * A for loop over an index sequence whose body is an element-wise update of a double vector, like
+ *
+ * <pre>
+ * for (i in 1:n) y[i] &lt;- a * x[i] + b
+ * </pre>
+ *
+ * where the right-hand side only uses numeric constants, the loop variable, variables not updated by the loop and
+ * elements x[i] of vectors at the loop index, combined by +, -, *, / and ^. The variables are read once, and when the
+ * target is a private double vector covering the range and each operation has a double operand (so there is no
+ * integer overflow), the loop is executed as a tight loop over the primitive arrays, updating the target in place.
+ * Otherwise the node rewrites itself to the regular loop.
+ */
+public class ElementwiseLoop extends BaseR {
+
+    @Child Loop.For loop;
+    @Children final RNode[] reads; // the variables read by the body
+    final Pattern pattern;
+    final RSymbol cvar;
+    final RSymbol target;
+
+    private static final boolean DEBUG_EL = false;
+
+    ElementwiseLoop(ASTNode ast, Loop.For loop, RSymbol cvar, RSymbol target, Pattern pattern, RNode[] reads) {
+        super(ast);
+        this.loop = adoptChild(loop);
+        this.reads = adoptChildren(reads);
+        this.cvar = cvar;
+        this.target = target;
+        this.pattern = pattern;
+    }
+
+    /** Returns the element-wise loop node for the loop, or null when the body is not an element-wise update. */
+    public static RNode create(For ast, Loop.For loop) {
+        ASTNode body = BuildExecutableTree.skipTrivialSequences(ast.getBody());
+        if (!(body instanceof r.nodes.ast.UpdateVector)) {
+            return null;
+        }
+        r.nodes.ast.UpdateVector update = (r.nodes.ast.UpdateVector) body;
+        AccessVector lhs = update.getVector();
+        RSymbol cvar = ast.getCVar();
+        if (update.isSuper() || !isElementAccess(lhs, cvar)) {
+            return null;
+        }
+        RSymbol target = ((SimpleAccessVariable) lhs.getVector()).getSymbol();
+        if (target == cvar) {
+            return null;
+        }
+        ArrayList<RNode> reads = new ArrayList<>();
+        Pattern pattern = createPattern(update.getRHS(), cvar, target, reads);
+        if (pattern == null) {
+            return null;
+        }
+        return new ElementwiseLoop(ast, loop, cvar, target, pattern, reads.toArray(new RNode[reads.size()]));
+    }
+
+    // x[i], for a variable x and the loop variable i
+    static boolean isElementAccess(AccessVector a, RSymbol cvar) {
+        if (!a.isSubset() || !(a.getVector() instanceof SimpleAccessVariable) || a.getArgs().size() != 1) {
+            return false;
+        }
+        ArgumentList.Entry arg = a.getArgs().first();
+        return arg.getName() == null && arg.getValue() instanceof SimpleAccessVariable && ((SimpleAccessVariable) arg.getValue()).getSymbol() == cvar;
+    }
+
+    static Pattern createPattern(ASTNode ast, RSymbol cvar, RSymbol target, ArrayList<RNode> reads) {
+        if (ast instanceof r.nodes.ast.Constant) {
+            RAny value = ((r.nodes.ast.Constant) ast).getValue();
+            if ((value instanceof RDouble || value instanceof RInt) && ((RArray) value).size() == 1) {
+                return new Invariant(value);
+            }
+            return null;
+        }
+        if (ast instanceof SimpleAccessVariable) {
+            RSymbol sym = ((SimpleAccessVariable) ast).getSymbol();
+            if (sym == cvar) {
+                return new Index();
+            }
+            if (sym == target || sym.dotDotValue() != -1) {
+                return null;
+            }
+            reads.add(ReadVariable.getUninitialized(ast, sym));
+            return new Invariant(reads.size() - 1);
+        }
+        if (ast instanceof AccessVector) {
+            AccessVector a = (AccessVector) ast;
+            if (!isElementAccess(a, cvar)) {
+                return null;
+            }
+            SimpleAccessVariable v = (SimpleAccessVariable) a.getVector();
+            if (v.getSymbol() == cvar) {
+                return null;
+            }
+            if (v.getSymbol() == target) {
+                return new Elements(-1); // the target itself, read before it is updated at the same index
+            }
+            reads.add(ReadVariable.getUninitialized(v, v.getSymbol()));
+            return new Elements(reads.size() - 1);
+        }
+        if (ast instanceof Add || ast instanceof Sub || ast instanceof Mult || ast instanceof Div || ast instanceof Pow) {
+            BinaryOperation op = (BinaryOperation) ast;
+            Pattern left = createPattern(op.getLHS(), cvar, target, reads);
+            if (left == null) {
+                return null;
+            }
+            Pattern right = createPattern(op.getRHS(), cvar, target, reads);
+            if (right == null) {
+                return null;
+            }
+            return new Binary(ast, BuildExecutableTree.getValueArithmetic(ast), left, right);
+        }
+        return null;
+    }
+
+    @Override
+    public final Object execute(Frame frame) {
+        Object rval = loop.range.execute(frame);
+        try {
+            if (!IntImpl.RIntSequence.isInstance(rval) && !IntImpl.RIntSimpleRange.isInstance(rval)) {
+                throw new SpecializationException(null);
+            }
+            int from;
+            int to;
+            if (IntImpl.RIntSimpleRange.isInstance(rval)) {
+                from = 1;
+                to = IntImpl.RIntSimpleRange.cast(rval).to();
+            } else {
+                IntImpl.RIntSequence sval = IntImpl.RIntSequence.cast(rval);
+                if (sval.step() != 1) {
+                    throw new SpecializationException(null);
+                }
+                from = sval.from();
+                to = sval.to();
+            }
+            int cvarSlot = -1;
+            Object base;
+            if (frame == null) {
+                base = target.getValue();
+            } else {
+                int slot = frame.findVariable(target);
+                cvarSlot = frame.findVariable(cvar);
+                // the target has to be local, as the update would otherwise create a local copy
+                base = slot == -1 || cvarSlot == -1 ? null : frame.getObjectForcingPromises(slot);
+            }
+            if (!(base instanceof DoubleImpl) || from < 1 || to > ((DoubleImpl) base).size() || ((DoubleImpl) base).isShared()) {
+                throw new SpecializationException(null);
+            }
+            DoubleImpl dbase = (DoubleImpl) base;
+            Object[] values = new Object[reads.length];
+            for (int k = 0; k < reads.length; k++) {
+                values[k] = reads[k].execute(frame);
+            }
+            Term term = pattern.bind(values, dbase, to);
+            double[] content = dbase.getContent();
+            for (int i = from; i <= to; i++) {
+                content[i - 1] = term.get(i);
+            }
+            // the loop variable keeps the last value
+            if (frame == null) {
+                Frame.writeToTopLevelNoRef(cvar, RInt.RIntFactory.getScalar(to));
+            } else {
+                frame.writeIntNoRef(cvarSlot, to);
+            }
+            return RNull.getNull();
+        } catch (SpecializationException e) {
+            if (DEBUG_EL) { Utils.debug("element-wise loop failed, installing the regular loop"); }
+            pushBack(loop.range, rval);
+            Loop.For l = loop;
+            replace(l, "install For from ElementwiseLoop");
+            return l.execute(frame);
+        }
+    }
+
+    @Override
+    protected <N extends RNode> N replaceChild(RNode oldNode, N newNode) {
+        assert oldNode != null;
+        if (loop == oldNode) {
+            loop = Utils.cast(newNode);
+            return adoptInternal(newNode);
+        }
+        for (int i = 0; i < reads.length; i++) {
+            if (reads[i] == oldNode) {
+                reads[i] = newNode;
+                return adoptInternal(newNode);
+            }
+        }
+        return super.replaceChild(oldNode, newNode);
+    }
+
+    // the right-hand side of the update, bound to the values of the variables for an execution of the loop
+    abstract static class Pattern {
+        abstract Term bind(Object[] values, DoubleImpl target, int to) throws SpecializationException;
+    }
+
+    // the value of the right-hand side for loop index i
+    abstract static class Term {
+        final boolean isDouble;
+
+        Term(boolean isDouble) {
+            this.isDouble = isDouble;
+        }
+
+        abstract double get(int i);
+    }
+
+    static final class Invariant extends Pattern {
+        final RAny constant;
+        final int read;
+
+        Invariant(RAny constant) {
+            this.constant = constant;
+            this.read = -1;
+        }
+
+        Invariant(int read) {
+            this.constant = null;
+            this.read = read;
+        }
+
+        @Override Term bind(Object[] values, DoubleImpl target, int to) throws SpecializationException {
+            Object v = read == -1 ? constant : values[read];
+            if (!(v instanceof RDouble || v instanceof RInt) || ((RArray) v).size() != 1) {
+                throw new SpecializationException(null);
+            }
+            final double d;
+            boolean isDouble = v instanceof RDouble;
+            if (isDouble) {
+                d = ((RDouble) v).getDouble(0);
+            } else {
+                int iv = ((RInt) v).getInt(0);
+                d = iv == RInt.NA ? RDouble.NA : iv;
+            }
+            return new Term(isDouble) {
+                @Override double get(int i) {
+                    return d;
+                }
+            };
+        }
+    }
+
+    static final class Index extends Pattern {
+        @Override Term bind(Object[] values, DoubleImpl target, int to) {
+            return new Term(false) {
+                @Override double get(int i) {
+                    return i;
+                }
+            };
+        }
+    }
+
+    static final class Elements extends Pattern {
+        final int read; // -1 for the target
+
+        Elements(int read) {
+            this.read = read;
+        }
+
+        @Override Term bind(Object[] values, DoubleImpl target, int to) throws SpecializationException {
+            Object v = read == -1 ? target : values[read];
+            if (v != target && (!(v instanceof RArray) || ((RAny) v).dependsOn(target))) {
+                throw new SpecializationException(null);
+            }
+            if (v instanceof DoubleImpl && ((DoubleImpl) v).size() >= to) {
+                final double[] content = ((DoubleImpl) v).getContent();
+                return new Term(true) {
+                    @Override double get(int i) {
+                        return content[i - 1];
+                    }
+                };
+            }
+            if (v instanceof IntImpl && ((IntImpl) v).size() >= to) {
+                final int[] content = ((IntImpl) v).getContent();
+                return new Term(false) {
+                    @Override double get(int i) {
+                        int iv = content[i - 1];
+                        return iv == RInt.NA ? RDouble.NA : iv;
+                    }
+                };
+            }
+            if (v instanceof RDouble && ((RDouble) v).size() >= to) {
+                final RDouble dv = (RDouble) v;
+                return new Term(true) {
+                    @Override double get(int i) {
+                        return dv.getDouble(i - 1);
+                    }
+                };
+            }
+            if (v instanceof RInt && ((RInt) v).size() >= to) {
+                final RInt iv = (RInt) v;
+                return new Term(false) {
+                    @Override double get(int i) {
+                        int x = iv.getInt(i - 1);
+                        return x == RInt.NA ? RDouble.NA : x;
+                    }
+                };
+            }
+            throw new SpecializationException(null);
+        }
+    }
+
+    static final class Binary extends Pattern {
+        final ASTNode ast;
+        final ValueArithmetic arit;
+        final Pattern left;
+        final Pattern right;
+
+        Binary(ASTNode ast, ValueArithmetic arit, Pattern left, Pattern right) {
+            this.ast = ast;
+            this.arit = arit;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override Term bind(Object[] values, DoubleImpl target, int to) throws SpecializationException {
+            final Term l = left.bind(values, target, to);
+            final Term r = right.bind(values, target, to);
+            if (!l.isDouble && !r.isDouble && !arit.returnsDouble()) {
+                throw new SpecializationException(null); // integer arithmetic, with overflow checks
+            }
+            return new Term(true) {
+                @Override double get(int i) {
+                    double a = l.get(i);
+                    double b = r.get(i);
+                    if (RDouble.RDoubleUtils.arithIsNA(a) || RDouble.RDoubleUtils.arithIsNA(b)) {
+                        return RDouble.NA;
+                    }
+                    return arit.op(ast, a, b);
+                }
+            };
+        }
+    }
+}
@@ -14,6 +14,8 @@ public abstract class FunctionCall extends AbstractCall {
 
     public final static boolean PROMISES = true; // note, this has been on true for a long time, probably won't work without anymore
 
+    static int cacheSize = Utils.getProperty("fastr.call.cacheSize", 4); // functions per call site in GenericCall
+
     @Child RNode callableExpr;
     protected final int[] dotsArgs; // FIXME: move to FunctionCall?
 
@@ -23,6 +25,14 @@ public abstract class FunctionCall extends AbstractCall {
         this.dotsArgs = dotsArgs;
     }
 
+    public static int cacheSize() {
+        return cacheSize;
+    }
+
+    public static synchronized void configure(int functionsPerSite) {
+        cacheSize = functionsPerSite;
+    }
+
     @Override
     protected <N extends RNode> N replaceChild(RNode oldNode, N newNode) {
         assert oldNode != null;
@@ -415,7 +425,8 @@ public abstract class FunctionCall extends AbstractCall {
 
             @Override public Object execute(Frame callerFrame) {
                 Frame newFrame = function.createFrame(null);
-                newFrame.set(0, RPromise.createNormal(argExprs[0], callerFrame));
+                boolean eager = function.eagerArguments();
+                newFrame.set(0, eager ? valueForArgument(callerFrame, 0) : RPromise.createNormal(argExprs[0], callerFrame));
                 return function.callNoDefaults(newFrame);
             }
         }
@@ -428,8 +439,9 @@ public abstract class FunctionCall extends AbstractCall {
 
             @Override public Object execute(Frame callerFrame) {
                 Frame newFrame = function.createFrame(null);
-                newFrame.set(0, RPromise.createNormal(argExprs[0], callerFrame));
-                newFrame.set(1, RPromise.createNormal(argExprs[1], callerFrame));
+                boolean eager = function.eagerArguments();
+                newFrame.set(0, eager ? valueForArgument(callerFrame, 0) : RPromise.createNormal(argExprs[0], callerFrame));
+                newFrame.set(1, eager ? valueForArgument(callerFrame, 1) : RPromise.createNormal(argExprs[1], callerFrame));
                 return function.callNoDefaults(newFrame);
             }
         }
@@ -442,9 +454,10 @@ public abstract class FunctionCall extends AbstractCall {
 
             @Override public Object execute(Frame callerFrame) {
                 Frame newFrame = function.createFrame(null);
-                newFrame.set(0, RPromise.createNormal(argExprs[0], callerFrame));
-                newFrame.set(1, RPromise.createNormal(argExprs[1], callerFrame));
-                newFrame.set(2, RPromise.createNormal(argExprs[2], callerFrame));
+                boolean eager = function.eagerArguments();
+                newFrame.set(0, eager ? valueForArgument(callerFrame, 0) : RPromise.createNormal(argExprs[0], callerFrame));
+                newFrame.set(1, eager ? valueForArgument(callerFrame, 1) : RPromise.createNormal(argExprs[1], callerFrame));
+                newFrame.set(2, eager ? valueForArgument(callerFrame, 2) : RPromise.createNormal(argExprs[2], callerFrame));
                 return function.callNoDefaults(newFrame);
             }
         }
@@ -459,16 +472,18 @@ public abstract class FunctionCall extends AbstractCall {
     }
 
 
+    /**
+     * A call whose callable may change. Closures are dispatched through a polymorphic inline cache keyed on the function
+     * (so shared by all closures created from the same definition), which holds the argument positions computed by
+     * exact, partial and positional matching for that function. When more than fastr.call.cacheSize different functions
+     * are called from the site, the cache is dropped and the arguments are matched on each call.
+     */
     public static final class GenericCall extends FunctionCall {
 
-        Object lastCallable; // RCallable, but using Object to avoid cast
-
         // for functions
-        RClosure lastClosure; // null when last callable wasn't a function (closure)
-        RFunction closureFunction;
-        int[] functionArgPositions;
-        Frame closureEnclosingFrame;
-        final DotsInfo functionDotsInfo = new DotsInfo();
+        CachedFunction cachedFunctions; // most recently added first
+        int nCachedFunctions;
+        boolean megamorphic;
 
         // for builtins
         RBuiltIn lastBuiltIn; // null when last callable wasn't a builtin
@@ -481,26 +496,60 @@ public abstract class FunctionCall extends AbstractCall {
 
         @Override public Object execute(Frame callerFrame) {
             Object callable = callableExpr.execute(callerFrame);
-            if (callable == lastClosure) {
-                Frame newFrame = closureFunction.createFrame(closureEnclosingFrame);
-                placeArgs(callerFrame, newFrame, functionArgPositions, functionDotsInfo, closureFunction.dotsIndex());
-                return closureFunction.call(newFrame);
+            if (callable instanceof RClosure) {
+                return callClosure(callerFrame, (RClosure) callable);
             }
-            if (callable == lastBuiltIn) { return builtInNode.execute(callerFrame); }
+            return builtInNode(callable).execute(callerFrame);
+        }
+
+        @Override public int executeScalarLogical(Frame callerFrame) throws SpecializationException {
+            Object callable = callableExpr.execute(callerFrame);
             if (callable instanceof RClosure) {
-                RClosure closure = (RClosure) callable;
-                RFunction function = closure.function();
-                if (function != closureFunction) {
-                    closureFunction = function;
-                    functionArgPositions = computePositions(closureFunction, functionDotsInfo);
-                }
-                closureEnclosingFrame = closure.enclosingFrame();
-                lastClosure = closure;
-                lastBuiltIn = null;
-                Frame newFrame = closureFunction.createFrame(closureEnclosingFrame);
-                placeArgs(callerFrame, newFrame, functionArgPositions, functionDotsInfo, closureFunction.dotsIndex());
-                return closureFunction.call(newFrame);
+                return RValueConversion.expectScalarLogical((RAny) callClosure(callerFrame, (RClosure) callable));
+            }
+            return builtInNode(callable).executeScalarLogical(callerFrame);
+        }
+
+        @Override public int executeScalarNonNALogical(Frame callerFrame) throws SpecializationException {
+            Object callable = callableExpr.execute(callerFrame);
+            if (callable instanceof RClosure) {
+                return RValueConversion.expectScalarNonNALogical((RAny) callClosure(callerFrame, (RClosure) callable));
+            }
+            return builtInNode(callable).executeScalarNonNALogical(callerFrame);
+        }
+
+        private Object callClosure(Frame callerFrame, RClosure closure) {
+            RFunction function = closure.function();
+            int[] argPositions;
+            DotsInfo dotsInfo;
+            CachedFunction c = cachedFunctions;
+            while (c != null && c.function != function) {
+                c = c.next;
+            }
+            if (c != null) {
+                argPositions = c.argPositions;
+                dotsInfo = c.dotsInfo;
             } else {
+                dotsInfo = new DotsInfo();
+                argPositions = computePositions(function, dotsInfo);
+                if (!megamorphic && nCachedFunctions < cacheSize) {
+                    cachedFunctions = new CachedFunction(function, argPositions, dotsInfo, cachedFunctions);
+                    nCachedFunctions++;
+                } else {
+                    // too many functions called from here, only remember the last one, as the same function is often
+                    // called several times in a row
+                    cachedFunctions = new CachedFunction(function, argPositions, dotsInfo, null);
+                    nCachedFunctions = 1;
+                    megamorphic = true;
+                }
+            }
+            Frame newFrame = function.createFrame(closure.enclosingFrame());
+            placeArgs(callerFrame, newFrame, argPositions, dotsInfo, function.dotsIndex());
+            return function.call(newFrame);
+        }
+
+        private RNode builtInNode(Object callable) {
+            if (callable != lastBuiltIn) {
                 // callable instanceof RBuiltin
                 RBuiltIn builtIn = (RBuiltIn) callable;
                 RSymbol name = builtIn.name();
@@ -513,9 +562,8 @@ public abstract class FunctionCall extends AbstractCall {
                     }
                 }
                 lastBuiltIn = builtIn;
-                lastClosure = null;
-                return builtInNode.execute(callerFrame);
             }
+            return builtInNode;
         }
 
         @Override
@@ -528,88 +576,19 @@ public abstract class FunctionCall extends AbstractCall {
             return super.replaceChild(oldNode, newNode);
         }
 
-        // FIXME: essentially copy paste of execute
-        // TODO: it would be far more important to have these in simple and stable builtin call than here
-        @Override public int executeScalarLogical(Frame callerFrame) throws SpecializationException {
-            Object callable = callableExpr.execute(callerFrame);
-            if (callable == lastClosure) {
-                Frame newFrame = closureFunction.createFrame(closureEnclosingFrame);
-                placeArgs(callerFrame, newFrame, functionArgPositions, functionDotsInfo, closureFunction.dotsIndex());
-                return RValueConversion.expectScalarLogical((RAny) closureFunction.call(newFrame));
-            }
-            if (callable == lastBuiltIn) { return builtInNode.executeScalarLogical(callerFrame); }
-            if (callable instanceof RClosure) {
-                RClosure closure = (RClosure) callable;
-                RFunction function = closure.function();
-                if (function != closureFunction) {
-                    closureFunction = function;
-                    functionArgPositions = computePositions(closureFunction, functionDotsInfo);
-                }
-                closureEnclosingFrame = closure.enclosingFrame();
-                lastClosure = closure;
-                lastBuiltIn = null;
-                Frame newFrame = closureFunction.createFrame(closureEnclosingFrame);
-                placeArgs(callerFrame, newFrame, functionArgPositions, functionDotsInfo, closureFunction.dotsIndex());
-                return RValueConversion.expectScalarLogical((RAny) closureFunction.call(newFrame));
-            } else {
-                // callable instanceof RBuiltin
-                RBuiltIn builtIn = (RBuiltIn) callable;
-                RSymbol name = builtIn.name();
-                if (name != builtInName) {
-                    builtInName = name;
-                    if (builtInNode == null) {
-                        builtInNode = adoptChild(builtIn.callFactory().create(ast, argNames, argExprs));
-                    } else {
-                        builtInNode.replace(builtIn.callFactory().create(ast, argNames, argExprs));
-                    }
-                }
-                lastBuiltIn = builtIn;
-                lastClosure = null;
-                return builtInNode.executeScalarLogical(callerFrame);
-            }
-        }
+        static final class CachedFunction {
+            final RFunction function;
+            final int[] argPositions;
+            final DotsInfo dotsInfo;
+            final CachedFunction next;
 
-        // FIXME: essentially copy paste of execute
-        // TODO: it would be far more important to have these in simple and stable builtin call than here
-        @Override public int executeScalarNonNALogical(Frame callerFrame) throws SpecializationException {
-            Object callable = callableExpr.execute(callerFrame);
-            if (callable == lastClosure) {
-                Frame newFrame = closureFunction.createFrame(closureEnclosingFrame);
-                placeArgs(callerFrame, newFrame, functionArgPositions, functionDotsInfo, closureFunction.dotsIndex());
-                return RValueConversion.expectScalarNonNALogical((RAny) closureFunction.call(newFrame));
-            }
-            if (callable == lastBuiltIn) { return builtInNode.executeScalarNonNALogical(callerFrame); }
-            if (callable instanceof RClosure) {
-                RClosure closure = (RClosure) callable;
-                RFunction function = closure.function();
-                if (function != closureFunction) {
-                    closureFunction = function;
-                    functionArgPositions = computePositions(closureFunction, functionDotsInfo);
-                }
-                closureEnclosingFrame = closure.enclosingFrame();
-                lastClosure = closure;
-                lastBuiltIn = null;
-                Frame newFrame = closureFunction.createFrame(closureEnclosingFrame);
-                placeArgs(callerFrame, newFrame, functionArgPositions, functionDotsInfo, closureFunction.dotsIndex());
-                return RValueConversion.expectScalarNonNALogical((RAny) closureFunction.call(newFrame));
-            } else {
-                // callable instanceof RBuiltin
-                RBuiltIn builtIn = (RBuiltIn) callable;
-                RSymbol name = builtIn.name();
-                if (name != builtInName) {
-                    builtInName = name;
-                    if (builtInNode == null) {
-                        builtInNode = adoptChild(builtIn.callFactory().create(ast, argNames, argExprs));
-                    } else {
-                        builtInNode.replace(builtIn.callFactory().create(ast, argNames, argExprs));
-                    }
-                }
-                lastBuiltIn = builtIn;
-                lastClosure = null;
-                return builtInNode.executeScalarNonNALogical(callerFrame);
+            CachedFunction(RFunction function, int[] argPositions, DotsInfo dotsInfo, CachedFunction next) {
+                this.function = function;
+                this.argPositions = argPositions;
+                this.dotsInfo = dotsInfo;
+                this.next = next;
             }
         }
-
     }
 
     // function call that passes "..."
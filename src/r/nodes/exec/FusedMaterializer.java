@@ -0,0 +1,295 @@
+package r.nodes.exec;
+
+import r.*;
+import r.data.*;
+import r.data.internal.*;
+import r.data.internal.IntImpl.RIntSequence;
+import r.data.internal.IntImpl.RIntSimpleRange;
+import r.nodes.ast.*;
+import r.nodes.exec.Arithmetic.DoubleView;
+import r.nodes.exec.Arithmetic.DoubleViewForDoubleDouble;
+import r.nodes.exec.Arithmetic.DoubleViewForDoubleInt;
+import r.nodes.exec.Arithmetic.DoubleViewForIntDouble;
+import r.nodes.exec.Arithmetic.ValueArithmetic;
+
+/**
+ * Materializes a tree of double arithmetic views in a single pass over the leaves. The tree is compiled into a tree of
+ * evaluators, which is then run over chunks of the result. Each operation processes a whole chunk using the tight
+ * array kernel of its ValueArithmetic (opDoubleEqualSize, opDoubleScalar, opScalarDouble), so the per-element cost is
+ * that of the kernels, not that of a chain of virtual getDouble calls. The chunks are small enough to stay in the L1
+ * cache.
+ *
+ * Only operations that do not recycle are fused, i.e. those where each operand has the size of the result or is a
+ * scalar. Leaves are DoubleImpl and IntImpl vectors, int sequences and simple ranges, scalars, and int vectors viewed as
+ * double; any other vector is read element by element within the chunk.
+ */
+public final class FusedMaterializer {
+
+    public static final boolean ENABLED = Utils.getProperty("fastr.arith.fuse", true);
+
+    static final int CHUNK = 1024;
+    static final int MIN_OPERATIONS = 2; // a single operation is already materialized using a tight loop
+    static final int MAX_OPERATIONS = 64;
+
+    /**
+     * Materializes the view into res (which has the size of the view) if the view is a tree that can be fused.
+     * Returns false otherwise, leaving res untouched.
+     */
+    public static boolean materializeInto(DoubleView view, double[] res) {
+        Evaluator root = compile(view);
+        if (root == null) {
+            return false;
+        }
+        run(root, res, 0, view.n);
+        return true;
+    }
+
+    /** Returns an evaluator for the view, or null when it cannot be fused. Evaluators are not thread-safe. */
+    public static Evaluator compile(DoubleView view) {
+        return ENABLED ? compile(view, MIN_OPERATIONS, false) : null;
+    }
+
+    /**
+     * Returns an evaluator for the view if it has at least minOperations fused operations, null otherwise. For parallel
+     * evaluation, also returns null when some leaf would have to be read element by element or some operation may warn.
+     */
+    static Evaluator compile(DoubleView view, int minOperations, boolean parallel) {
+        if (view.n < 2) {
+            return null;
+        }
+        Compiler c = new Compiler(view.n);
+        Evaluator root = c.compile(view);
+        if (c.operations < minOperations || c.operations > MAX_OPERATIONS || root instanceof Scalar || (parallel && (c.generic || c.mayWarn))) {
+            return null;
+        }
+        return root;
+    }
+
+    /** Evaluates elements [from, to) into res, at the same indexes. */
+    public static void run(Evaluator root, double[] res, int from, int to) {
+        double[] chunk = new double[Math.min(CHUNK, to - from)];
+        for (int i = from; i < to; i += CHUNK) {
+            int len = Math.min(CHUNK, to - i);
+            root.eval(i, len, chunk);
+            System.arraycopy(chunk, 0, res, i, len);
+        }
+    }
+
+    static final class Compiler {
+        final int n;
+        int operations;
+        boolean generic;
+        boolean mayWarn;
+
+        Compiler(int n) {
+            this.n = n;
+        }
+
+        Evaluator compile(RDouble v) {
+            if (v.size() == 1) {
+                return new Scalar(v.getDouble(0));
+            }
+            if (v instanceof DoubleImpl) {
+                return new DoubleLeaf(((DoubleImpl) v).getContent());
+            }
+            if (v instanceof RInt.RDoubleView) {
+                return compile(((RInt.RDoubleView) v).orig);
+            }
+            if (v.size() == n && operations < MAX_OPERATIONS) {
+                if (v instanceof DoubleViewForDoubleDouble) {
+                    DoubleViewForDoubleDouble dv = (DoubleViewForDoubleDouble) v;
+                    return operation(dv, dv.a, dv.b);
+                }
+                if (v instanceof DoubleViewForDoubleInt) {
+                    DoubleViewForDoubleInt dv = (DoubleViewForDoubleInt) v;
+                    return operation(dv, dv.a, dv.b);
+                }
+                if (v instanceof DoubleViewForIntDouble) {
+                    DoubleViewForIntDouble dv = (DoubleViewForIntDouble) v;
+                    return operation(dv, dv.a, dv.b);
+                }
+            }
+            return generic(v);
+        }
+
+        Evaluator compile(RInt v) {
+            if (v.size() == 1) {
+                int i = v.getInt(0);
+                return new Scalar(i == RInt.NA ? RDouble.NA : i);
+            }
+            if (v instanceof IntImpl) {
+                return new IntLeaf(((IntImpl) v).getContent());
+            }
+            if (RIntSimpleRange.isInstance(v)) {
+                return new SequenceLeaf(1, 1);
+            }
+            if (RIntSequence.isInstance(v)) {
+                RIntSequence s = RIntSequence.cast(v);
+                return new SequenceLeaf(s.from(), s.step());
+            }
+            return generic(v.asDouble());
+        }
+
+        Evaluator compile(RArray v) {
+            return v instanceof RInt ? compile((RInt) v) : compile((RDouble) v);
+        }
+
+        Evaluator operation(DoubleView v, RArray a, RArray b) {
+            int na = a.size();
+            int nb = b.size();
+            if (!((na == n || na == 1) && (nb == n || nb == 1))) {
+                return generic(v);
+            }
+            operations++;
+            mayWarn |= v.arit.mayWarn();
+            Evaluator left = compile(a);
+            Evaluator right = compile(b);
+            return new Operation(v.arit, v.ast, left, right, left instanceof Scalar || right instanceof Scalar ? null : new double[CHUNK]);
+        }
+
+        Evaluator generic(RDouble v) {
+            generic = true;
+            return new GenericLeaf(v);
+        }
+    }
+
+    public abstract static class Evaluator {
+        /** Writes elements [from, from + len) into res[0, len). */
+        abstract void eval(int from, int len, double[] res);
+
+        /** For leaves with int content, overwrites with NA the result elements where the int source is NA. */
+        void fixIntNA(int from, int len, double[] res) {
+        }
+    }
+
+    static final class Operation extends Evaluator {
+        final ValueArithmetic arit;
+        final ASTNode ast;
+        final Evaluator left;
+        final Evaluator right;
+        final double[] tmp;
+
+        Operation(ValueArithmetic arit, ASTNode ast, Evaluator left, Evaluator right, double[] tmp) {
+            this.arit = arit;
+            this.ast = ast;
+            this.left = left;
+            this.right = right;
+            this.tmp = tmp;
+        }
+
+        @Override
+        void eval(int from, int len, double[] res) {
+            if (left instanceof Scalar) {
+                right.eval(from, len, res);
+                arit.opScalarDouble(ast, ((Scalar) left).value, res, res, len);
+            } else if (right instanceof Scalar) {
+                left.eval(from, len, res);
+                arit.opDoubleScalar(ast, res, ((Scalar) right).value, res, len);
+            } else {
+                left.eval(from, len, res);
+                right.eval(from, len, tmp);
+                arit.opDoubleEqualSize(ast, res, tmp, res, len);
+            }
+            // R semantics: an operation on int NA is NA (and not NaN, which the kernels could produce)
+            left.fixIntNA(from, len, res);
+            right.fixIntNA(from, len, res);
+        }
+    }
+
+    static final class Scalar extends Evaluator {
+        final double value;
+
+        Scalar(double value) {
+            this.value = value;
+        }
+
+        @Override
+        void eval(int from, int len, double[] res) {
+            for (int i = 0; i < len; i++) {
+                res[i] = value;
+            }
+        }
+    }
+
+    static final class DoubleLeaf extends Evaluator {
+        final double[] content;
+
+        DoubleLeaf(double[] content) {
+            this.content = content;
+        }
+
+        @Override
+        void eval(int from, int len, double[] res) {
+            System.arraycopy(content, from, res, 0, len);
+        }
+    }
+
+    static final class IntLeaf extends Evaluator {
+        final int[] content;
+        boolean sawNA;
+
+        IntLeaf(int[] content) {
+            this.content = content;
+        }
+
+        @Override
+        void eval(int from, int len, double[] res) {
+            boolean na = false;
+            for (int i = 0; i < len; i++) {
+                int v = content[from + i];
+                if (v == RInt.NA) {
+                    res[i] = RDouble.NA;
+                    na = true;
+                } else {
+                    res[i] = v;
+                }
+            }
+            sawNA = na;
+        }
+
+        @Override
+        void fixIntNA(int from, int len, double[] res) {
+            if (sawNA) {
+                for (int i = 0; i < len; i++) {
+                    if (content[from + i] == RInt.NA) {
+                        res[i] = RDouble.NA;
+                    }
+                }
+            }
+        }
+    }
+
+    static final class SequenceLeaf extends Evaluator {
+        final int first;
+        final int step;
+
+        SequenceLeaf(int first, int step) {
+            this.first = first;
+            this.step = step;
+        }
+
+        @Override
+        void eval(int from, int len, double[] res) {
+            int v = first + from * step;
+            for (int i = 0; i < len; i++) {
+                res[i] = v;
+                v += step;
+            }
+        }
+    }
+
+    static final class GenericLeaf extends Evaluator {
+        final RDouble value;
+
+        GenericLeaf(RDouble value) {
+            this.value = value;
+        }
+
+        @Override
+        void eval(int from, int len, double[] res) {
+            for (int i = 0; i < len; i++) {
+                res[i] = value.getDouble(from + i);
+            }
+        }
+    }
+}
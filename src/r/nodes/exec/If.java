@@ -120,6 +120,25 @@ public class If extends BaseR {
             }
         }
 
+        @Override
+        public final Object executeVoid(Frame frame) {
+            int ifVal;
+            try {
+                ifVal = cond.executeScalarNonNALogical(frame);
+            } catch (SpecializationException e) {
+                RAny result = (RAny) e.getResult();
+                RNode theCond = cond;
+                ConvertToLogicalOne castNode = ConvertToLogicalOne.createAndInsertNode(cond, result);
+                If ifnode = new If(ast, castNode, trueBranch, r.nodes.exec.Constant.getNull());
+                replace(theCond, result, ifnode, frame);
+                return RNull.getNull();
+            }
+            if (ifVal == RLogical.TRUE) {
+                trueBranch.executeVoid(frame);
+            }
+            return RNull.getNull();
+        }
+
         @Override
         protected <N extends RNode> N replaceChild(RNode oldNode, N newNode) {
             assert oldNode != null;
@@ -170,6 +189,27 @@ public class If extends BaseR {
             }
         }
 
+        @Override
+        public final Object executeVoid(Frame frame) {
+            int ifVal;
+            try {
+                ifVal = cond.executeScalarNonNALogical(frame);
+            } catch (SpecializationException e) {
+                RAny result = (RAny) e.getResult();
+                RNode theCond = cond;
+                ConvertToLogicalOne castNode = ConvertToLogicalOne.createAndInsertNode(cond, result);
+                If ifnode = new If(ast, castNode, trueBranch, falseBranch);
+                replace(theCond, result, ifnode, frame);
+                return RNull.getNull();
+            }
+            if (ifVal == RLogical.TRUE) {
+                trueBranch.executeVoid(frame);
+            } else {
+                falseBranch.executeVoid(frame);
+            }
+            return RNull.getNull();
+        }
+
         @Override
         protected <N extends RNode> N replaceChild(RNode oldNode, N newNode) {
             assert oldNode != null;
@@ -88,7 +88,12 @@ public abstract class LogicalOperation extends BaseR {
             if (leftValue == RLogical.TRUE) {
                 return RLogical.TRUE;
             }
-            return extractRightValue(frame);
+            int rightValue = extractRightValue(frame);
+            if (leftValue == RLogical.FALSE || rightValue == RLogical.TRUE) {
+                return rightValue;
+            }
+            // leftValue == RLogical.NA
+            return RLogical.NA;
         }
     }
 
@@ -84,13 +84,13 @@ public abstract class Loop extends BaseR {
             try {
                 if (DEBUG_LO) Utils.debug("loop - entering repeat loop");
                 try {
-                    bodyFirst.execute(frame);
+                    bodyFirst.executeVoid(frame);
                 } catch (ContinueException ce) {
                     if (DEBUG_LO) Utils.debug("loop - repeat loop received continue exception");
                 }
                 for (;;) {
                     try {
-                        body.execute(frame);
+                        body.executeVoid(frame);
                     } catch (ContinueException ce) {
                         if (DEBUG_LO) Utils.debug("loop - repeat loop received continue exception");
                     }
@@ -131,7 +131,7 @@ public abstract class Loop extends BaseR {
                     if (condVal == RLogical.NA) {
                         throw RError.getUnexpectedNA(ast);
                     }
-                    bodyFirst.execute(frame);
+                    bodyFirst.executeVoid(frame);
                 } catch (ContinueException ce) {
                     if (DEBUG_LO) Utils.debug("loop - while loop received continue exception");
                 }
@@ -152,7 +152,7 @@ public abstract class Loop extends BaseR {
                         if (condVal == RLogical.NA) {
                             throw RError.getUnexpectedNA(ast);
                         }
-                        body.execute(frame);
+                        body.executeVoid(frame);
                     } catch (ContinueException ce) {
                         if (DEBUG_LO) Utils.debug("loop - while loop received continue exception");
                     }
@@ -349,7 +349,7 @@ public abstract class Loop extends BaseR {
                         try {
                             Frame.writeToTopLevelNoRef(cvar, RInt.RIntFactory.getScalar(from));
                             try {
-                                bodyFirst.execute(frame);
+                                bodyFirst.executeVoid(frame);
                             } catch (ContinueException ce) { }
                             if (size == 1) {
                                 return RNull.getNull();
@@ -357,7 +357,7 @@ public abstract class Loop extends BaseR {
                             for (int i = from + step;; i += step) {
                                 Frame.writeToTopLevelNoRef(cvar, RInt.RIntFactory.getScalar(i));
                                 try {
-                                    body.execute(frame);
+                                    body.executeVoid(frame);
                                 } catch (ContinueException ce) { }
                                 if (i == to) {
                                     break;
@@ -388,15 +388,15 @@ public abstract class Loop extends BaseR {
                                 throw new SpecializationException(null);
                             }
                             try {
-                                frame.writeAtNoRef(slot, RInt.RIntFactory.getScalar(1));
+                                frame.writeIntNoRef(slot, 1);
                                 try {
-                                    bodyFirst.execute(frame);
+                                    bodyFirst.executeVoid(frame);
                                 } catch (ContinueException ce) { }
                                 for (int i = 2; i <= to; i++) {
                                     // no ref needed because scalars do not have reference counts
-                                    frame.writeAtNoRef(slot, RInt.RIntFactory.getScalar(i));
+                                    frame.writeIntNoRef(slot, i);
                                     try {
-                                        body.execute(frame);
+                                        body.executeVoid(frame);
                                     } catch (ContinueException ce) { }
                                 }
                             } catch (BreakException be) { }
@@ -425,18 +425,18 @@ public abstract class Loop extends BaseR {
                         final int to = sval.to();
                         final int step = sval.step();
                         try {
-                            frame.writeAtNoRef(slot, RInt.RIntFactory.getScalar(from));
+                            frame.writeIntNoRef(slot, from);
                             try {
-                                bodyFirst.execute(frame);
+                                bodyFirst.executeVoid(frame);
                             } catch (ContinueException ce) { }
                             if (size == 1) {
                                 return RNull.getNull();
                             }
                             for (int i = from + step;; i += step) {
                                 // no ref needed because scalars do not have reference counts
-                                frame.writeAtNoRef(slot, RInt.RIntFactory.getScalar(i));
+                                frame.writeIntNoRef(slot, i);
                                 try {
-                                    body.execute(frame);
+                                    body.executeVoid(frame);
                                 } catch (ContinueException ce) { }
                                 if (i == to) {
                                     break;
@@ -458,7 +458,7 @@ public abstract class Loop extends BaseR {
                         try {
                             frame.writeToExtension(cvar, RInt.RIntFactory.getScalar(from));
                             try {
-                                bodyFirst.execute(frame);
+                                bodyFirst.executeVoid(frame);
                             } catch (ContinueException ce) { }
                             if (size == 1) {
                                 return RNull.getNull();
@@ -468,7 +468,7 @@ public abstract class Loop extends BaseR {
                                 // TODO: this is super-inefficient
                                 frame.writeToExtension(cvar, RInt.RIntFactory.getScalar(i));
                                 try {
-                                    body.execute(frame);
+                                    body.executeVoid(frame);
                                 } catch (ContinueException ce) { }
                                 if (i == to) {
                                     break;
@@ -564,12 +564,12 @@ public abstract class Loop extends BaseR {
                         try {
                             Frame.writeToTopLevelNoRef(cvar, RInt.RIntFactory.getScalar(1));
                             try {
-                                bodyFirst.execute(frame);
+                                bodyFirst.executeVoid(frame);
                             } catch (ContinueException ce) { }
                             for (int i = 2; i <= to; i++) {
                                 Frame.writeToTopLevelNoRef(cvar, RInt.RIntFactory.getScalar(i));
                                 try {
-                                    body.execute(frame);
+                                    body.executeVoid(frame);
                                 } catch (ContinueException ce) { }
                             }
                         } catch (BreakException be) { }
@@ -590,15 +590,15 @@ public abstract class Loop extends BaseR {
                             IntImpl.RIntSimpleRange sval = IntImpl.RIntSimpleRange.cast(rval);
                             int to = sval.to();
                             try {
-                                frame.writeAtNoRef(slot, RInt.RIntFactory.getScalar(1));
+                                frame.writeIntNoRef(slot, 1);
                                 try {
-                                    bodyFirst.execute(frame);
+                                    bodyFirst.executeVoid(frame);
                                 } catch (ContinueException ce) { }
                                 for (int i = 2; i <= to; i++) {
                                     // no ref needed because scalars do not have reference counts
-                                    frame.writeAtNoRef(slot, RInt.RIntFactory.getScalar(i));
+                                    frame.writeIntNoRef(slot, i);
                                     try {
-                                        body.execute(frame);
+                                        body.executeVoid(frame);
                                     } catch (ContinueException ce) { }
                                 }
                             } catch (BreakException be) { }
@@ -626,14 +626,14 @@ public abstract class Loop extends BaseR {
                         try {
                             frame.writeToExtension(cvar, RInt.RIntFactory.getScalar(1));
                             try {
-                                bodyFirst.execute(frame);
+                                bodyFirst.executeVoid(frame);
                             } catch (ContinueException ce) { }
                             for (int i = 2; i <= to; i++) {
                                 // no ref needed because scalars do not have reference counts
                                 // TODO: this is super-inefficient
                                 frame.writeToExtension(cvar, RInt.RIntFactory.getScalar(i));
                                 try {
-                                    body.execute(frame);
+                                    body.executeVoid(frame);
                                 } catch (ContinueException ce) { }
                             }
                         } catch (BreakException be) { }
@@ -674,13 +674,13 @@ public abstract class Loop extends BaseR {
                             RAny vvalue = arange instanceof RList ? ((RList) arange).getRAny(0) : arange.boxedGet(0);
                             Frame.writeToTopLevelRef(cvar, vvalue); // FIXME: ref is only needed if the value is a list
                             try {
-                                bodyFirst.execute(frame);
+                                bodyFirst.executeVoid(frame);
                             } catch (ContinueException ce) { }
                             for (int i = 1; i < size; i++) {
                                 vvalue = arange instanceof RList ? ((RList) arange).getRAny(i) : arange.boxedGet(i);
                                 Frame.writeToTopLevelRef(cvar, vvalue); // FIXME: ref is only needed if the value is a list
                                 try {
-                                    body.execute(frame);
+                                    body.executeVoid(frame);
                                 } catch (ContinueException ce) { }
                             }
                         } catch (BreakException be) { }
@@ -705,13 +705,13 @@ public abstract class Loop extends BaseR {
                             RAny vvalue = arange.boxedGet(0);
                             frame.writeAtRef(slot, vvalue);
                             try {
-                                bodyFirst.execute(frame);
+                                bodyFirst.executeVoid(frame);
                             } catch (ContinueException ce) { }
                             for (int i = 1; i < size; i++) {
                                 vvalue = arange.boxedGet(i);
                                 frame.writeAtRef(slot, vvalue);
                                 try {
-                                    body.execute(frame);
+                                    body.executeVoid(frame);
                                 } catch (ContinueException ce) { }
                             }
                         } catch (BreakException be) { }
@@ -736,13 +736,13 @@ public abstract class Loop extends BaseR {
                             RAny vvalue = arange.boxedGet(0);
                             frame.writeToExtension(cvar, vvalue); // TODO: this is inefficient
                             try {
-                                bodyFirst.execute(frame);
+                                bodyFirst.executeVoid(frame);
                             } catch (ContinueException ce) { }
                             for (int i = 1; i < size; i++) {
                                 vvalue = arange.boxedGet(i);
                                 frame.writeToExtension(cvar, vvalue); // TODO: this is inefficient
                                 try {
-                                    body.execute(frame);
+                                    body.executeVoid(frame);
                                 } catch (ContinueException ce) { }
                             }
                         } catch (BreakException be) { }
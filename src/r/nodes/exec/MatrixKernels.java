@@ -0,0 +1,228 @@
+package r.nodes.exec;
+
+import org.netlib.blas.*;
+
+import r.*;
+import r.data.*;
+import r.data.internal.*;
+import r.nodes.exec.ParallelArithmetic.RangeTask;
+
+/**
+ * Pure Java matrix products, for when the BLAS in use is the Java translation of the reference implementation (JBLAS),
+ * which multiplies by naive loops. The loops are blocked, so that the blocks of the operands are re-used from the cache,
+ * and the columns of a large result are computed in parallel, in the fork/join pool of ParallelArithmetic. Each element
+ * of the result is computed by a single thread, in the same order for any number of threads.
+ *
+ * fastr.matrix.kernels selects the implementation: "auto" (default) uses BLAS only when it is native, "blas" always uses
+ * BLAS, "java" never does. Products of at least fastr.matrix.parallelThreshold multiply-adds (0 disables the parallel
+ * mode) are computed in parallel.
+ */
+public final class MatrixKernels {
+
+    static final String MODE = Utils.getProperty("fastr.matrix.kernels", "auto");
+    static int parallelThreshold = Utils.getProperty("fastr.matrix.parallelThreshold", 1 << 20);
+
+    static final boolean USE_BLAS = "blas".equals(MODE) || (!"java".equals(MODE) && !BLAS.getInstance().getClass().getName().equals("org.netlib.blas.JBLAS"));
+
+    static final int KB = 128; // rows of b in a block of a product
+    static final int MB = 256; // rows of a in a block of a product, a block of a (MB x KB) fits into the L2 cache
+    static final int DOT_KB = 256; // rows of a and b in a block of a product of the transposed a
+    static final int DOT_IB = 64; // columns of a in a block of a product of the transposed a
+
+    public static boolean useBlas() {
+        return USE_BLAS;
+    }
+
+    public static void setParallelThreshold(int work) {
+        parallelThreshold = work;
+    }
+
+    /** The elements of a materialized vector, or null (e.g. for an off-heap vector or a scalar). */
+    public static double[] content(RDouble x) {
+        return x instanceof DoubleImpl ? ((DoubleImpl) x).getContent() : null;
+    }
+
+    static boolean isParallel(long work) {
+        return parallelThreshold > 0 && work >= parallelThreshold && ParallelArithmetic.parallelism() > 1;
+    }
+
+    // computes the range [0, n) of the result (e.g. columns), in parallel when the work is large enough
+    static void run(RangeTask task, int n, long work) {
+        if (n > 1 && isParallel(work)) {
+            ParallelArithmetic.run(task, n, n / (ParallelArithmetic.parallelism() * ParallelArithmetic.TASKS_PER_THREAD));
+        } else {
+            task.compute(0, n);
+        }
+    }
+
+    /** a (m x n) times b (n x p). Each element is summed in the order of k, like in the naive loop. */
+    public static double[] gemm(final double[] a, final double[] b, final int m, final int n, final int p) {
+        final double[] c = new double[m * p];
+        run(new RangeTask() {
+            @Override
+            public void compute(int from, int to) {
+                gemmColumns(a, b, c, m, n, from, to);
+            }
+        }, p, (long) m * n * p);
+        return c;
+    }
+
+    static void gemmColumns(double[] a, double[] b, double[] c, int m, int n, int from, int to) {
+        for (int kk = 0; kk < n; kk += KB) {
+            int kend = Math.min(n, kk + KB);
+            for (int ii = 0; ii < m; ii += MB) {
+                int iend = Math.min(m, ii + MB);
+                int j = from;
+                for (; j + 1 < to; j += 2) { // two columns of the result at a time, reading each element of a once
+                    int c0 = j * m;
+                    int c1 = c0 + m;
+                    int b0 = j * n;
+                    int b1 = b0 + n;
+                    for (int k = kk; k < kend; k++) {
+                        double bk0 = b[b0 + k];
+                        double bk1 = b[b1 + k];
+                        int ak = k * m;
+                        for (int i = ii; i < iend; i++) {
+                            double aik = a[ak + i];
+                            c[c0 + i] += aik * bk0;
+                            c[c1 + i] += aik * bk1;
+                        }
+                    }
+                }
+                if (j < to) {
+                    int c0 = j * m;
+                    int b0 = j * n;
+                    for (int k = kk; k < kend; k++) {
+                        double bk0 = b[b0 + k];
+                        int ak = k * m;
+                        for (int i = ii; i < iend; i++) {
+                            c[c0 + i] += a[ak + i] * bk0;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /** t(a) times b, a is n x m, b is n x p, the result is m x p (crossprod). Summed in the order of k, like gemm. */
+    public static double[] gemmTN(final double[] a, final double[] b, final int m, final int n, final int p) {
+        final double[] c = new double[m * p];
+        run(new RangeTask() {
+            @Override
+            public void compute(int from, int to) {
+                dotColumns(a, b, c, m, n, from, to, false);
+            }
+        }, p, (long) m * n * p);
+        return c;
+    }
+
+    /** t(x) times x, x is n x m, the result is m x m. Only the upper triangle is computed, the lower one is copied. */
+    public static double[] syrk(final double[] x, final int n, final int m) {
+        final double[] c = new double[m * m];
+        run(new RangeTask() {
+            @Override
+            public void compute(int from, int to) {
+                dotColumns(x, x, c, m, n, from, to, true);
+            }
+        }, m, (long) m * m * n / 2);
+        for (int j = 0; j < m; j++) {
+            for (int i = j + 1; i < m; i++) {
+                c[j * m + i] = c[i * m + j];
+            }
+        }
+        return c;
+    }
+
+    /** Like syrk, using BLAS. */
+    public static double[] syrkBlas(double[] x, int n, int m) {
+        double[] c = new double[m * m];
+        if (n > 0 && m > 0) {
+            BLAS.getInstance().dsyrk("U", "T", m, n, 1.0, x, n, 0.0, c, m);
+            for (int j = 0; j < m; j++) {
+                for (int i = j + 1; i < m; i++) {
+                    c[j * m + i] = c[i * m + j];
+                }
+            }
+        }
+        return c;
+    }
+
+    // the columns [from, to) of t(a) %*% b as dot products of the columns of a and b, by blocks of rows and of columns of a;
+    // each element is summed in the order of k, like in the naive loop
+    static void dotColumns(double[] a, double[] b, double[] c, int m, int n, int from, int to, boolean upper) {
+        for (int kk = 0; kk < n; kk += DOT_KB) {
+            int kend = Math.min(n, kk + DOT_KB);
+            for (int ii = 0; ii < m; ii += DOT_IB) {
+                for (int j = from; j < to; j++) {
+                    int iend = Math.min(upper ? j + 1 : m, ii + DOT_IB);
+                    int bj = j * n;
+                    int cj = j * m;
+                    for (int i = ii; i < iend; i++) {
+                        int ai = i * n;
+                        double d = c[cj + i]; // continues the sum of the previous blocks, in the order of k
+                        for (int k = kk; k < kend; k++) {
+                            d += a[ai + k] * b[bj + k];
+                        }
+                        c[cj + i] = d;
+                    }
+                }
+            }
+        }
+    }
+
+    /** a (m x n) times the vector x (of n elements). */
+    public static double[] gemv(final double[] a, final double[] x, final int m, final int n) {
+        final double[] y = new double[m];
+        run(new RangeTask() {
+            @Override
+            public void compute(int from, int to) {
+                for (int k = 0; k < n; k++) {
+                    double xk = x[k];
+                    int ak = k * m;
+                    for (int i = from; i < to; i++) {
+                        y[i] += a[ak + i] * xk;
+                    }
+                }
+            }
+        }, m, (long) m * n);
+        return y;
+    }
+
+    /** The vector x (of m elements) times a (m x n). */
+    public static double[] gevm(final double[] x, final double[] a, final int m, final int n) {
+        final double[] y = new double[n];
+        run(new RangeTask() {
+            @Override
+            public void compute(int from, int to) {
+                for (int j = from; j < to; j++) {
+                    int aj = j * m;
+                    double d = 0;
+                    for (int k = 0; k < m; k++) {
+                        d += x[k] * a[aj + k];
+                    }
+                    y[j] = d;
+                }
+            }
+        }, n, (long) m * n);
+        return y;
+    }
+
+    /** The outer product of x (m elements) and y (n elements), an m x n matrix. */
+    public static double[] outer(final double[] x, final double[] y) {
+        final int m = x.length;
+        final double[] c = new double[m * y.length];
+        run(new RangeTask() {
+            @Override
+            public void compute(int from, int to) {
+                for (int j = from; j < to; j++) {
+                    double yj = y[j];
+                    int cj = j * m;
+                    for (int i = 0; i < m; i++) {
+                        c[cj + i] = x[i] * yj;
+                    }
+                }
+            }
+        }, y.length, (long) m * y.length);
+        return c;
+    }
+}
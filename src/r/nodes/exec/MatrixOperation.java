@@ -1,5 +1,7 @@
 package r.nodes.exec;
 
+import java.util.*;
+
 import org.netlib.blas.*;
 
 import r.*;
@@ -70,6 +72,12 @@ public abstract class MatrixOperation extends BaseR {
         return RDouble.RDoubleFactory.getMatrixFor(new double[] {res}, 1, 1);
     }
 
+    // off-heap operands are not materialized, the kernels read them by blocks or through getters
+    public static RDouble operand(RAny x) {
+        RDouble d = x.asDouble();
+        return OffHeap.isOffHeap(d) ? d : d.materialize();
+    }
+
     public static void checkNumeric(RAny l, RAny r, ASTNode ast) {
         // TODO: support also complex matrices
         checkNumeric(l, ast);
@@ -98,6 +106,11 @@ public abstract class MatrixOperation extends BaseR {
 
             if (s == m) {
                 // treat vector as 1 x m (row), result is 1 x n
+                double[] vc = MatrixKernels.content(vector);
+                double[] mc = MatrixKernels.content(matrix);
+                if (vc != null && mc != null) {
+                    return RDouble.RDoubleFactory.getFor(MatrixKernels.gevm(vc, mc, m, n), new int[] {1, n}, null);
+                }
                 double[] content = new double[n];
                 for (int j = 0; j < n; j++) {
                     double d = 0;
@@ -130,6 +143,11 @@ public abstract class MatrixOperation extends BaseR {
 
             if (s == n) {
                 // treat vector as n x 1 (column), result is m x 1
+                double[] mc = MatrixKernels.content(matrix);
+                double[] vc = MatrixKernels.content(vector);
+                if (mc != null && vc != null) {
+                    return RDouble.RDoubleFactory.getFor(MatrixKernels.gemv(mc, vc, m, n), new int[] {m, 1}, null);
+                }
                 double[] content = new double[m];
                 for (int i = 0; i < m; i++) {
                     double d = 0;
@@ -165,8 +183,13 @@ public abstract class MatrixOperation extends BaseR {
             }
             int p = dimb[1];
 
+            if (OffHeap.isOffHeap(a) || OffHeap.isOffHeap(b)) {
+                return matrixTimesMatrixByColumns(a, b, m, n, p);
+            }
             double[] res;
-            if (DGEMM_NA_WORKAROUND && (RDouble.RDoubleUtils.hasNAorNaN(a) || RDouble.RDoubleUtils.hasNAorNaN(b)) ||
+            if (!MatrixKernels.useBlas()) {
+                res = MatrixKernels.gemm(((DoubleImpl) a.materialize()).getContent(), ((DoubleImpl) b.materialize()).getContent(), m, n, p);
+            } else if (DGEMM_NA_WORKAROUND && (RDouble.RDoubleUtils.hasNAorNaN(a) || RDouble.RDoubleUtils.hasNAorNaN(b)) ||
                     m == 0 || n == 0 || p == 0) {
                 if (USE_PRIMITIVE_ACCESS && a.size() > 1 && b.size() > 1) {
                     res =  matrixTimesMatrixPrimitive(((DoubleImpl) a.materialize()).getContent(), ((DoubleImpl) b.materialize()).getContent(), m, n, p);
@@ -197,6 +220,28 @@ public abstract class MatrixOperation extends BaseR {
             return content;
         }
 
+        // for off-heap operands, which are not materialized; the columns of the operands are read by blocks and the
+        // elements of the result are summed in the same order as in matrixTimesMatrixGetters
+        public static RDouble matrixTimesMatrixByColumns(RDouble a, RDouble b, int m, int n, int p) {
+            RDouble res = (RDouble) Utils.createArray(a, m * p, new int[] {m, p}, null, null);
+            double[] acol = new double[m];
+            double[] bcol = new double[n];
+            double[] rcol = new double[m];
+            for (int j = 0; j < p; j++) {
+                OffHeap.getDoubles(b, j * n, bcol, 0, n);
+                Arrays.fill(rcol, 0);
+                for (int k = 0; k < n; k++) {
+                    OffHeap.getDoubles(a, k * m, acol, 0, m);
+                    double bkj = bcol[k];
+                    for (int i = 0; i < m; i++) {
+                        rcol[i] += acol[i] * bkj;
+                    }
+                }
+                OffHeap.putDoubles(res, j * m, rcol, 0, m);
+            }
+            return res;
+        }
+
         public static double[] matrixTimesMatrixPrimitive(double[] a, double[] b, int m, int n, int p) {
             // surprisingly, this is not any faster than using .getDouble
 
@@ -226,8 +271,8 @@ public abstract class MatrixOperation extends BaseR {
         public Object execute(RAny l, RAny r) {
 
             checkNumeric(l, r, ast); // TODO: support also complex matrices
-            RDouble ld = l.asDouble().materialize(); // FIXME: double materialization (again in matrixTimesMatrixNative)
-            RDouble rd = r.asDouble().materialize();
+            RDouble ld = operand(l); // FIXME: double materialization (again in matrixTimesMatrixNative)
+            RDouble rd = operand(r);
             int[] ldims = ld.dimensions();
             int nldims = ldims == null ? 0 : ldims.length;
             int[] rdims = rd.dimensions();
@@ -243,13 +288,80 @@ public abstract class MatrixOperation extends BaseR {
                 if (nrdims != 2) {
                     return matrixTimesVector(ast, ld, rd);
                 } else {
-                    // note - here we know that materializing ld, rd will give DoubleImpl - because both have dimensions
+                    // note - here we know that materializing ld, rd will give DoubleImpl - because both have dimensions, unless they are off-heap
                     return matrixTimesMatrix(ast, ld, rd);
                 }
             }
         }
     }
 
+    /**
+     * t(x) %*% x, computed as crossprod(x) without creating the transposed matrix, and computing only one half of the
+     * symmetric result (see MatrixKernels.syrk). Falls back to the general product when t is redefined, or when the
+     * result would differ (arrays of more than two dimensions, BLAS and NA).
+     */
+    public static class TransposedProduct extends BaseR {
+        @Child RNode x;
+        @Child RNode general;
+
+        public static final RSymbol T_SYMBOL = RSymbol.getSymbol("t");
+
+        public TransposedProduct(ASTNode ast, RNode x, RNode general) {
+            super(ast);
+            this.x = adoptChild(x);
+            this.general = adoptChild(general);
+        }
+
+        @Override
+        public Object execute(Frame frame) {
+            if (T_SYMBOL.builtinIsOverridden()) {
+                return replace(general, "install MatrixProduct from TransposedProduct").execute(frame);
+            }
+            RAny value = (RAny) x.execute(frame);
+            checkNumeric(value, ast);
+            RDouble xd = operand(value);
+            int[] dims = xd.dimensions();
+            if (dims == null || dims.length == 1) {
+                return dotProduct(xd);
+            }
+            double[] content = MatrixKernels.content(xd);
+            if (dims.length != 2 || content == null || MatrixKernels.useBlas() && DGEMM_NA_WORKAROUND && RDouble.RDoubleUtils.hasNAorNaN(xd)) {
+                return general.execute(frame);
+            }
+            int row = dims[0];
+            int col = dims[1];
+            double[] res = MatrixKernels.useBlas() ? MatrixKernels.syrkBlas(content, row, col) : MatrixKernels.syrk(content, row, col);
+            return RDouble.RDoubleFactory.getFor(res, new int[] {col, col}, null);
+        }
+
+        @Override
+        protected <N extends RNode> N replaceChild(RNode oldNode, N newNode) {
+            assert oldNode != null;
+            if (x == oldNode) {
+                x = newNode;
+                return adoptInternal(newNode);
+            }
+            if (general == oldNode) {
+                general = newNode;
+                return adoptInternal(newNode);
+            }
+            return super.replaceChild(oldNode, newNode);
+        }
+    }
+
+    static double[] elements(RDouble x) {
+        double[] content = MatrixKernels.content(x);
+        if (content != null) {
+            return content;
+        }
+        int size = x.size();
+        double[] res = new double[size];
+        for (int i = 0; i < size; i++) {
+            res[i] = x.getDouble(i);
+        }
+        return res;
+    }
+
     public static class OuterProduct extends MatrixOperation {
         public OuterProduct(ASTNode ast, RNode left, RNode right) {
             super(ast, left, right);
@@ -268,12 +380,7 @@ public abstract class MatrixOperation extends BaseR {
 
             int m = ld.size();
             int n = rd.size();
-            double[] content = new double[m * n];
-            for (int i = 0; i < m; i++) {
-                for (int j = 0; j < n; j++) {
-                    content[j * m + i] = ld.getDouble(i) * rd.getDouble(j);
-                }
-            }
+            double[] content = MatrixKernels.outer(elements(ld), elements(rd));
             int[] ldims = ld.dimensions();
             int[] rdims = rd.dimensions();
             if (ldims == null && rdims == null) {
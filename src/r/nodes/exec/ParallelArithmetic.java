@@ -0,0 +1,180 @@
+package r.nodes.exec;
+
+import java.util.concurrent.*;
+
+import r.*;
+import r.nodes.ast.*;
+import r.nodes.exec.Arithmetic.DoubleView;
+import r.nodes.exec.Arithmetic.ValueArithmetic;
+import r.nodes.exec.FusedMaterializer.DoubleLeaf;
+import r.nodes.exec.FusedMaterializer.Evaluator;
+import r.nodes.exec.FusedMaterializer.Operation;
+import r.nodes.exec.FusedMaterializer.Scalar;
+
+/**
+ * Splits the computation of large element-wise results across the threads of a fork/join pool. Each task computes a
+ * contiguous range of the result using the same kernels as the sequential code, element by element, so the results are
+ * bit-identical to the sequential ones. Only computations that cannot emit warnings are run in parallel.
+ *
+ * Vectors of at least fastr.arith.parallelThreshold elements (0 disables the parallel mode) are split between
+ * fastr.arith.parallelism threads (by default the number of processors).
+ */
+public final class ParallelArithmetic {
+
+    static int threshold = Utils.getProperty("fastr.arith.parallelThreshold", 1 << 20);
+    static int parallelism = Utils.getProperty("fastr.arith.parallelism", Runtime.getRuntime().availableProcessors());
+
+    static final int MIN_TASK_SIZE = 64 * FusedMaterializer.CHUNK;
+    static final int TASKS_PER_THREAD = 4; // for load balancing
+
+    private static ForkJoinPool pool;
+
+    public static int threshold() {
+        return threshold;
+    }
+
+    public static int parallelism() {
+        return parallelism;
+    }
+
+    public static synchronized void configure(int size, int threads) {
+        threshold = size;
+        if (threads != parallelism) {
+            parallelism = threads;
+            if (pool != null) {
+                pool.shutdown();
+                pool = null;
+            }
+        }
+    }
+
+    public static boolean isParallel(int size) {
+        return threshold > 0 && size >= threshold && parallelism > 1;
+    }
+
+    /** A computation of a range of a result, which may run concurrently with computations of disjoint ranges. */
+    public abstract static class RangeTask {
+        public abstract void compute(int from, int to);
+    }
+
+    /** Runs the task over [0, size), in parallel. */
+    public static void run(RangeTask task, int size) {
+        ForkJoinPool p = pool();
+        int grain = Math.max(MIN_TASK_SIZE, size / (p.getParallelism() * TASKS_PER_THREAD) + 1);
+        p.invoke(new Split(task, 0, size, grain));
+    }
+
+    /** Runs the task over [0, size), in parallel, splitting the range down to grain elements. */
+    public static void run(RangeTask task, int size, int grain) {
+        pool().invoke(new Split(task, 0, size, Math.max(1, grain)));
+    }
+
+    /** Runs the task in the pool used for arithmetic, e.g. for other divide-and-conquer algorithms on vectors. */
+    public static <T> T invoke(ForkJoinTask<T> task) {
+        return pool().invoke(task);
+    }
+
+    private static synchronized ForkJoinPool pool() {
+        if (pool == null) {
+            pool = new ForkJoinPool(parallelism); // the workers are daemon threads
+        }
+        return pool;
+    }
+
+    static final class Split extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        final RangeTask task;
+        final int from;
+        final int to;
+        final int grain;
+
+        Split(RangeTask task, int from, int to, int grain) {
+            this.task = task;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                task.compute(from, to);
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Split(task, from, mid, grain), new Split(task, mid, to, grain));
+            }
+        }
+    }
+
+    /**
+     * Materializes the view into res in parallel, if it is large enough and all its leaves can be read concurrently
+     * (see FusedMaterializer). Returns false otherwise, leaving res untouched.
+     */
+    public static boolean materializeInto(final DoubleView view, double[] res) {
+        if (!isParallel(view.n) || FusedMaterializer.compile(view, 1, true) == null) {
+            return false;
+        }
+        evaluate(new EvaluatorFactory() {
+            @Override
+            Evaluator create() {
+                return FusedMaterializer.compile(view, 1, true);
+            }
+        }, res, view.n);
+        return true;
+    }
+
+    public static boolean opDoubleEqualSize(final ValueArithmetic arit, final ASTNode ast, final double[] x, final double[] y, double[] res, int size) {
+        if (!isParallel(size) || arit.mayWarn()) {
+            return false;
+        }
+        evaluate(new EvaluatorFactory() {
+            @Override
+            Evaluator create() {
+                return new Operation(arit, ast, new DoubleLeaf(x), new DoubleLeaf(y), new double[FusedMaterializer.CHUNK]);
+            }
+        }, res, size);
+        return true;
+    }
+
+    public static boolean opDoubleScalar(final ValueArithmetic arit, final ASTNode ast, final double[] x, final double y, double[] res, int size) {
+        if (!isParallel(size) || arit.mayWarn()) {
+            return false;
+        }
+        evaluate(new EvaluatorFactory() {
+            @Override
+            Evaluator create() {
+                return new Operation(arit, ast, new DoubleLeaf(x), new Scalar(y), null);
+            }
+        }, res, size);
+        return true;
+    }
+
+    public static boolean opScalarDouble(final ValueArithmetic arit, final ASTNode ast, final double x, final double[] y, double[] res, int size) {
+        if (!isParallel(size) || arit.mayWarn()) {
+            return false;
+        }
+        evaluate(new EvaluatorFactory() {
+            @Override
+            Evaluator create() {
+                return new Operation(arit, ast, new Scalar(x), new DoubleLeaf(y), null);
+            }
+        }, res, size);
+        return true;
+    }
+
+    abstract static class EvaluatorFactory {
+        abstract Evaluator create();
+    }
+
+    // evaluators are not thread-safe, so each task gets its own; each chunk of the result is only written after the
+    // same chunk of the operands has been read, so res can be one of the operands
+    static void evaluate(final EvaluatorFactory factory, final double[] res, int size) {
+        run(new RangeTask() {
+            @Override
+            public void compute(int from, int to) {
+                FusedMaterializer.run(factory.create(), res, from, to);
+            }
+        }, size);
+    }
+}
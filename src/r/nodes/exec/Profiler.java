@@ -0,0 +1,269 @@
+package r.nodes.exec;
+
+import java.io.*;
+import java.lang.management.*;
+import java.util.*;
+
+import r.*;
+import r.data.*;
+import r.nodes.ast.*;
+import r.nodes.ast.Function;
+import r.nodes.ast.Sequence;
+
+/**
+ * A sampling profiler of R code. While it runs, the interpreter thread that started it keeps a shadow stack of the
+ * closures it executes and of the statement currently executed in each of them (recorded by the Sequence nodes). A
+ * daemon thread samples that stack at a fixed interval, attributing to it the time elapsed and the bytes allocated by
+ * the interpreter thread since the previous sample. A frame is labelled by the name of the function (the variable it
+ * was assigned to when defined) and, with line profiling, the source line of the statement, e.g. "f:12".
+ *
+ * When stopped, the profile is written in the collapsed stack format read by flame graph tools (e.g. flamegraph.pl):
+ * one line per distinct stack, with the frames from the outermost separated by ";", followed by the time in
+ * microseconds. With memory profiling, the allocated bytes are written the same way to a second file, FILE.alloc.
+ *
+ * The profiler is started by Rprof or from the command line (--profile FILE). When it is not running, the interpreter
+ * only tests the active flag on each statement and call.
+ */
+public final class Profiler {
+
+    public static final int DEFAULT_INTERVAL = Utils.getProperty("fastr.profile.interval", 10); // milliseconds
+
+    static final String TOPLEVEL = "<toplevel>";
+    static final String ANONYMOUS = "<anonymous>";
+
+    public static boolean active; // not volatile, only the profiled thread has to see it
+    static Thread owner;
+
+    // the shadow stack, frame 0 is the top level; read without synchronization by the sampler, which only makes some
+    // samples inaccurate
+    static RFunction[] functions = new RFunction[64];
+    static ASTNode[] statements = new ASTNode[64];
+    static int depth;
+
+    static Sampler sampler;
+
+    static final class Counts {
+        long samples;
+        long nanos;
+        long bytes;
+    }
+
+    static final class Sampler extends Thread {
+        final long interval;
+        final boolean lines;
+        final boolean memory;
+        final String file;
+        final boolean append;
+        volatile boolean running = true;
+
+        final HashMap<String, Counts> stacks = new HashMap<>();
+        final IdentityHashMap<RFunction, String> names = new IdentityHashMap<>();
+        final IdentityHashMap<ASTNode, Integer> lineNumbers = new IdentityHashMap<>();
+        long samples;
+
+        Sampler(String file, boolean append, long interval, boolean memory, boolean lines) {
+            super("FastR profiler");
+            setDaemon(true);
+            this.file = file;
+            this.append = append;
+            this.interval = interval;
+            this.memory = memory;
+            this.lines = lines;
+        }
+
+        @Override public void run() {
+            long last = System.nanoTime();
+            long lastBytes = memory ? allocatedBytes(owner) : 0;
+            while (running) {
+                try {
+                    Thread.sleep(interval);
+                } catch (InterruptedException e) {
+                    // stopped, record the last sample
+                }
+                long now = System.nanoTime();
+                long bytes = memory ? allocatedBytes(owner) : 0;
+                sample(now - last, bytes - lastBytes);
+                last = now;
+                lastBytes = bytes;
+            }
+        }
+
+        void sample(long nanos, long bytes) {
+            RFunction[] fs = functions;
+            ASTNode[] ss = statements;
+            int d = Math.min(depth, Math.min(fs.length, ss.length) - 1);
+            StringBuilder key = new StringBuilder();
+            for (int i = 0; i <= d; i++) {
+                if (i > 0) {
+                    key.append(';');
+                }
+                RFunction f = i == 0 ? null : fs[i];
+                key.append(f == null ? TOPLEVEL : name(f));
+                if (lines) {
+                    ASTNode statement = ss[i];
+                    int line = line(statement != null ? statement : f != null ? f.getSource() : null);
+                    if (line != 0) {
+                        key.append(':').append(line);
+                    }
+                }
+            }
+            String k = key.toString();
+            Counts c = stacks.get(k);
+            if (c == null) {
+                c = new Counts();
+                stacks.put(k, c);
+            }
+            c.samples++;
+            c.nanos += nanos;
+            c.bytes += bytes;
+            samples++;
+        }
+
+        String name(RFunction f) {
+            String n = names.get(f);
+            if (n == null) {
+                n = functionName(f);
+                names.put(f, n);
+            }
+            return n;
+        }
+
+        int line(ASTNode ast) {
+            if (ast == null) {
+                return 0;
+            }
+            Integer l = lineNumbers.get(ast);
+            if (l == null) {
+                l = sourceLine(ast);
+                lineNumbers.put(ast, l);
+            }
+            return l;
+        }
+
+        void write() throws IOException {
+            writeStacks(file, false);
+            if (memory) {
+                writeStacks(file + ".alloc", true);
+            }
+        }
+
+        void writeStacks(String fileName, boolean allocated) throws IOException {
+            try (PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(fileName, append)))) {
+                for (Map.Entry<String, Counts> e : stacks.entrySet()) {
+                    long value = allocated ? e.getValue().bytes : e.getValue().nanos / 1000;
+                    if (value > 0) {
+                        out.print(e.getKey());
+                        out.print(' ');
+                        out.println(value);
+                    }
+                }
+            }
+        }
+    }
+
+    /** Starts profiling the current thread, stopping (and writing) the profile being taken, if any. */
+    public static void start(String file, boolean append, long interval, boolean memory, boolean lines) throws IOException {
+        stop();
+        owner = Thread.currentThread();
+        depth = 0;
+        functions[0] = null;
+        statements[0] = null;
+        sampler = new Sampler(file, append, Math.max(1, interval), memory, lines);
+        active = true;
+        sampler.start();
+    }
+
+    /** Stops profiling and writes the profile. Returns the number of samples, or -1 when the profiler was not running. */
+    public static long stop() throws IOException {
+        Sampler s = sampler;
+        if (s == null) {
+            return -1;
+        }
+        active = false;
+        sampler = null;
+        s.running = false;
+        s.interrupt();
+        try {
+            s.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        owner = null;
+        s.write();
+        return s.samples;
+    }
+
+    /** Pushes a closure on the shadow stack, returns the depth to restore on exit, or -1 if not profiled. */
+    public static int enter(RFunction function) {
+        if (Thread.currentThread() != owner) {
+            return -1;
+        }
+        int d = depth + 1;
+        if (d == functions.length) {
+            // the sampler may still read the old arrays, they are not modified
+            RFunction[] fs = Arrays.copyOf(functions, d * 2);
+            ASTNode[] ss = Arrays.copyOf(statements, d * 2);
+            functions = fs;
+            statements = ss;
+        }
+        functions[d] = function;
+        statements[d] = null;
+        depth = d;
+        return d - 1;
+    }
+
+    public static void exit(int callerDepth) {
+        if (callerDepth < depth) { // the profiler may have been restarted by the callee
+            depth = callerDepth;
+        }
+    }
+
+    /** Records the statement being executed by the current closure. */
+    public static void statement(RNode node) {
+        if (Thread.currentThread() == owner) {
+            statements[depth] = node.getAST();
+        }
+    }
+
+    static long allocatedBytes(Thread t) {
+        ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        if (t != null && mx instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) mx).getThreadAllocatedBytes(t.getId());
+        }
+        return 0;
+    }
+
+    // the variable the function was assigned to when defined, e.g. f in f <- function(x) ...
+    static String functionName(RFunction f) {
+        ASTNode source = f.getSource();
+        ASTNode parent = source != null ? source.getParent() : null;
+        if (parent instanceof SimpleAssignVariable) {
+            return ((SimpleAssignVariable) parent).getSymbol().pretty();
+        }
+        return ANONYMOUS;
+    }
+
+    // the line of the statement of a sequence containing the node, 0 when not known
+    static int sourceLine(ASTNode ast) {
+        ASTNode n = ast;
+        for (ASTNode p = n.getParent(); p != null; n = p, p = p.getParent()) {
+            if (p instanceof Sequence) {
+                Sequence s = (Sequence) p;
+                ASTNode[] exprs = s.getExprs();
+                for (int i = 0; i < exprs.length; i++) {
+                    if (exprs[i] == n) {
+                        int line = s.getLine(i);
+                        if (line != 0) {
+                            return line;
+                        }
+                        break;
+                    }
+                }
+            } else if (p instanceof Function) {
+                // a statement not in a sequence of its function, e.g. the body x + 1 of function(x) x + 1
+                return sourceLine(p);
+            }
+        }
+        return 0;
+    }
+}
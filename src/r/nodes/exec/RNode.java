@@ -58,6 +58,10 @@ public abstract class RNode {
         return RValueConversion.expectScalarInteger((RAny) execute(frame));
     }
 
+    public double executeScalarDouble(Frame frame) throws SpecializationException {
+        return RValueConversion.expectScalarDouble((RAny) execute(frame));
+    }
+
     public int executeScalarNonNALogical(Frame frame) throws SpecializationException {
         return RValueConversion.expectScalarNonNALogical((RAny) execute(frame));
     }
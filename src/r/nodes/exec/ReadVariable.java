@@ -84,8 +84,34 @@ public abstract class ReadVariable extends BaseR {
         };
     }
 
+    /** A read of a local variable, which reads an unboxed value of the slot without boxing it. */
+    abstract static class ReadLocal extends ReadVariable {
+        final int slot;
+
+        ReadLocal(ASTNode orig, RSymbol sym, int slot) {
+            super(orig, sym);
+            this.slot = slot;
+        }
+
+        @Override
+        public final int executeScalarInteger(Frame frame) throws SpecializationException {
+            if (frame.isUnboxedInt(slot)) {
+                return frame.getUnboxedInt(slot);
+            }
+            return RValueConversion.expectScalarInteger((RAny) execute(frame));
+        }
+
+        @Override
+        public final double executeScalarDouble(Frame frame) throws SpecializationException {
+            if (frame.isUnboxedDouble(slot)) {
+                return frame.getUnboxedDouble(slot);
+            }
+            return RValueConversion.expectScalarDouble((RAny) execute(frame));
+        }
+    }
+
     private static ReadVariable getSimpleReadLocal(ASTNode orig, RSymbol sym, final int slot) {
-        return new ReadVariable(orig, sym) {
+        return new ReadLocal(orig, sym, slot) {
 
             @Override
             public final Object execute(Frame frame) {
@@ -109,13 +135,17 @@ public abstract class ReadVariable extends BaseR {
         // surprisingly, this is not helping so much...
 
         if (frameTemplate instanceof SmallFrame.SmallFrame1Slot && slot == 0) {
-            return new ReadVariable(orig, sym) {
+            return new ReadLocal(orig, sym, slot) {
 
                 @Override
                 public final Object execute(Frame frame) {
                     SmallFrame.SmallFrame1Slot sframe = Utils.cast(frame);
                     try {
-                        Object value =  RPromise.force(sframe.slot1);
+                        Object value = sframe.slot1;
+                        if (value instanceof Frame.Unboxed) {
+                            value = sframe.get(slot);
+                        }
+                        value = RPromise.force(value);
                         if (value == null) {
                             throw new SpecializationException(null);
                         }
@@ -127,13 +157,17 @@ public abstract class ReadVariable extends BaseR {
             };
         }
         if (frameTemplate instanceof SmallFrame.SmallFrame2Slots && slot == 0) {
-            return new ReadVariable(orig, sym) {
+            return new ReadLocal(orig, sym, slot) {
 
                 @Override
                 public final Object execute(Frame frame) {
                     SmallFrame.SmallFrame2Slots sframe = Utils.cast(frame);
                     try {
-                        Object value =  RPromise.force(sframe.slot1);
+                        Object value = sframe.slot1;
+                        if (value instanceof Frame.Unboxed) {
+                            value = sframe.get(slot);
+                        }
+                        value = RPromise.force(value);
                         if (value == null) {
                             throw new SpecializationException(null);
                         }
@@ -145,13 +179,17 @@ public abstract class ReadVariable extends BaseR {
             };
         }
         if (frameTemplate instanceof SmallFrame.SmallFrame2Slots && slot == 1) {
-            return new ReadVariable(orig, sym) {
+            return new ReadLocal(orig, sym, slot) {
 
                 @Override
                 public final Object execute(Frame frame) {
                     SmallFrame.SmallFrame2Slots sframe = Utils.cast(frame);
                     try {
-                        Object value =  RPromise.force(sframe.slot2);
+                        Object value = sframe.slot2;
+                        if (value instanceof Frame.Unboxed) {
+                            value = sframe.get(slot);
+                        }
+                        value = RPromise.force(value);
                         if (value == null) {
                             throw new SpecializationException(null);
                         }
@@ -168,7 +206,7 @@ public abstract class ReadVariable extends BaseR {
 
 
     private static ReadVariable getReadLocal(ASTNode orig, RSymbol sym, final int slot) {
-        return new ReadVariable(orig, sym) {
+        return new ReadLocal(orig, sym, slot) {
 
             @Override
             public final Object execute(Frame frame) {
@@ -1,5 +1,6 @@
 package r.nodes.exec;
 
+import r.data.*;
 import r.nodes.ast.*;
 import r.runtime.*;
 
@@ -15,12 +16,31 @@ public class Sequence extends BaseR {
 
     @Override public final Object execute(Frame frame) {
 
-        Object res = null;
+        int last = exprs.length - 1;
+        if (last < 0) {
+            return null;
+        }
+        for (int i = 0; i < last; i++) {
+            RNode e = exprs[i];
+            if (Profiler.active) {
+                Profiler.statement(e);
+            }
+            e.executeVoid(frame); // NOTE: not keeping the value allows the GC to clean-up temporaries
+        }
+        if (Profiler.active) {
+            Profiler.statement(exprs[last]);
+        }
+        return exprs[last].execute(frame);
+    }
+
+    @Override public final Object executeVoid(Frame frame) {
         for (RNode e : exprs) {
-            res = null; // NOTE: this line is important, it allows the GC to clean-up temporaries
-            res = e.execute(frame);
+            if (Profiler.active) {
+                Profiler.statement(e);
+            }
+            e.executeVoid(frame);
         }
-        return res;
+        return RNull.getNull();
     }
 
     @Override
@@ -48,10 +68,28 @@ public class Sequence extends BaseR {
         }
 
         @Override public final Object execute(Frame frame) {
-            child1.execute(frame);
+            if (Profiler.active) {
+                Profiler.statement(child1);
+            }
+            child1.executeVoid(frame);
+            if (Profiler.active) {
+                Profiler.statement(child2);
+            }
             return child2.execute(frame);
         }
 
+        @Override public final Object executeVoid(Frame frame) {
+            if (Profiler.active) {
+                Profiler.statement(child1);
+            }
+            child1.executeVoid(frame);
+            if (Profiler.active) {
+                Profiler.statement(child2);
+            }
+            child2.executeVoid(frame);
+            return RNull.getNull();
+        }
+
         @Override
         protected <N extends RNode> N replaceChild(RNode oldNode, N newNode) {
             assert oldNode != null;
@@ -81,11 +119,36 @@ public class Sequence extends BaseR {
         }
 
         @Override public final Object execute(Frame frame) {
-            child1.execute(frame);
-            child2.execute(frame);
+            if (Profiler.active) {
+                Profiler.statement(child1);
+            }
+            child1.executeVoid(frame);
+            if (Profiler.active) {
+                Profiler.statement(child2);
+            }
+            child2.executeVoid(frame);
+            if (Profiler.active) {
+                Profiler.statement(child3);
+            }
             return child3.execute(frame);
         }
 
+        @Override public final Object executeVoid(Frame frame) {
+            if (Profiler.active) {
+                Profiler.statement(child1);
+            }
+            child1.executeVoid(frame);
+            if (Profiler.active) {
+                Profiler.statement(child2);
+            }
+            child2.executeVoid(frame);
+            if (Profiler.active) {
+                Profiler.statement(child3);
+            }
+            child3.executeVoid(frame);
+            return RNull.getNull();
+        }
+
         @Override
         protected <N extends RNode> N replaceChild(RNode oldNode, N newNode) {
             assert oldNode != null;
@@ -121,12 +184,44 @@ public class Sequence extends BaseR {
         }
 
         @Override public final Object execute(Frame frame) {
-            child1.execute(frame);
-            child2.execute(frame);
-            child3.execute(frame);
+            if (Profiler.active) {
+                Profiler.statement(child1);
+            }
+            child1.executeVoid(frame);
+            if (Profiler.active) {
+                Profiler.statement(child2);
+            }
+            child2.executeVoid(frame);
+            if (Profiler.active) {
+                Profiler.statement(child3);
+            }
+            child3.executeVoid(frame);
+            if (Profiler.active) {
+                Profiler.statement(child4);
+            }
             return child4.execute(frame);
         }
 
+        @Override public final Object executeVoid(Frame frame) {
+            if (Profiler.active) {
+                Profiler.statement(child1);
+            }
+            child1.executeVoid(frame);
+            if (Profiler.active) {
+                Profiler.statement(child2);
+            }
+            child2.executeVoid(frame);
+            if (Profiler.active) {
+                Profiler.statement(child3);
+            }
+            child3.executeVoid(frame);
+            if (Profiler.active) {
+                Profiler.statement(child4);
+            }
+            child4.executeVoid(frame);
+            return RNull.getNull();
+        }
+
         @Override
         protected <N extends RNode> N replaceChild(RNode oldNode, N newNode) {
             assert oldNode != null;
@@ -168,13 +263,52 @@ public class Sequence extends BaseR {
         }
 
         @Override public final Object execute(Frame frame) {
-            child1.execute(frame);
-            child2.execute(frame);
-            child3.execute(frame);
-            child4.execute(frame);
+            if (Profiler.active) {
+                Profiler.statement(child1);
+            }
+            child1.executeVoid(frame);
+            if (Profiler.active) {
+                Profiler.statement(child2);
+            }
+            child2.executeVoid(frame);
+            if (Profiler.active) {
+                Profiler.statement(child3);
+            }
+            child3.executeVoid(frame);
+            if (Profiler.active) {
+                Profiler.statement(child4);
+            }
+            child4.executeVoid(frame);
+            if (Profiler.active) {
+                Profiler.statement(child5);
+            }
             return child5.execute(frame);
         }
 
+        @Override public final Object executeVoid(Frame frame) {
+            if (Profiler.active) {
+                Profiler.statement(child1);
+            }
+            child1.executeVoid(frame);
+            if (Profiler.active) {
+                Profiler.statement(child2);
+            }
+            child2.executeVoid(frame);
+            if (Profiler.active) {
+                Profiler.statement(child3);
+            }
+            child3.executeVoid(frame);
+            if (Profiler.active) {
+                Profiler.statement(child4);
+            }
+            child4.executeVoid(frame);
+            if (Profiler.active) {
+                Profiler.statement(child5);
+            }
+            child5.executeVoid(frame);
+            return RNull.getNull();
+        }
+
         @Override
         protected <N extends RNode> N replaceChild(RNode oldNode, N newNode) {
             assert oldNode != null;
@@ -222,14 +356,60 @@ public class Sequence extends BaseR {
         }
 
         @Override public final Object execute(Frame frame) {
-            child1.execute(frame);
-            child2.execute(frame);
-            child3.execute(frame);
-            child4.execute(frame);
-            child5.execute(frame);
+            if (Profiler.active) {
+                Profiler.statement(child1);
+            }
+            child1.executeVoid(frame);
+            if (Profiler.active) {
+                Profiler.statement(child2);
+            }
+            child2.executeVoid(frame);
+            if (Profiler.active) {
+                Profiler.statement(child3);
+            }
+            child3.executeVoid(frame);
+            if (Profiler.active) {
+                Profiler.statement(child4);
+            }
+            child4.executeVoid(frame);
+            if (Profiler.active) {
+                Profiler.statement(child5);
+            }
+            child5.executeVoid(frame);
+            if (Profiler.active) {
+                Profiler.statement(child6);
+            }
             return child6.execute(frame);
         }
 
+        @Override public final Object executeVoid(Frame frame) {
+            if (Profiler.active) {
+                Profiler.statement(child1);
+            }
+            child1.executeVoid(frame);
+            if (Profiler.active) {
+                Profiler.statement(child2);
+            }
+            child2.executeVoid(frame);
+            if (Profiler.active) {
+                Profiler.statement(child3);
+            }
+            child3.executeVoid(frame);
+            if (Profiler.active) {
+                Profiler.statement(child4);
+            }
+            child4.executeVoid(frame);
+            if (Profiler.active) {
+                Profiler.statement(child5);
+            }
+            child5.executeVoid(frame);
+            if (Profiler.active) {
+                Profiler.statement(child6);
+            }
+            child6.executeVoid(frame);
+            return RNull.getNull();
+        }
+
         @Override
         protected <N extends RNode> N replaceChild(RNode oldNode, N newNode) {
             assert oldNode != null;
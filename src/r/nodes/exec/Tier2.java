@@ -0,0 +1,551 @@
+package r.nodes.exec;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import javax.tools.*;
+
+import r.*;
+import r.data.*;
+import r.data.internal.*;
+import r.errors.*;
+import r.nodes.ast.ASTNode;
+import r.nodes.tools.*;
+import r.runtime.*;
+
+/**
+ * The second execution tier: a closure whose body only computes with scalars is compiled into a JVM class, once the
+ * types of its arguments have been the same for fastr.tier2.threshold consecutive interpreted calls (0 disables the
+ * tier). The class is generated as Java source by Tier2Generator and compiled in memory by the system Java compiler,
+ * by default on a background thread (fastr.tier2.background). The compiled code keeps the locals in JVM locals, so
+ * HotSpot sees the whole function as one method and can inline and register-allocate across what were node boundaries.
+ *
+ * The code checks the types of the values it reads. When a check fails, or before an operation that would emit a warning
+ * (an integer overflow, a loss of accuracy in %%), it throws Deopt and the call is re-executed by the interpreter from
+ * the start. This is safe, because until then the code has only read variables and forced promises (which are not
+ * forced again), and it has neither written to the frame nor emitted a warning. After a failed check the function goes back to profiling; it is recompiled at most
+ * MAX_COMPILATIONS times.
+ */
+public final class Tier2 {
+
+    static int threshold = Utils.getProperty("fastr.tier2.threshold", 1000);
+    static boolean background = Utils.getProperty("fastr.tier2.background", true);
+
+    static final int MAX_COMPILATIONS = 3;
+
+    private static final boolean DEBUG_T2 = Utils.getProperty("fastr.tier2.debug", false);
+
+    private static final int PROFILING = 0;
+    private static final int COMPILING = 1;
+    private static final int COMPILED = 2;
+    private static final int FAILED = 3;
+
+    private static int classCounter;
+    private static ExecutorService compiler;
+
+    final RFunction function;
+    final int[] types; // of the arguments of the recent calls
+    int calls; // consecutive calls with these types
+    int compilations;
+    volatile int state;
+    volatile Code code;
+
+    Tier2(RFunction function) {
+        this.function = function;
+        this.types = new int[function.nparams()];
+        Arrays.fill(types, -1);
+    }
+
+    public static int threshold() {
+        return threshold;
+    }
+
+    public static boolean background() {
+        return background;
+    }
+
+    public static synchronized void configure(int calls, boolean inBackground) {
+        threshold = calls;
+        background = inBackground;
+    }
+
+    /** Returns the second tier of a function, or null when its body cannot be compiled. */
+    public static Tier2 create(RFunction function) {
+        if (threshold <= 0 || !Tier2Generator.isCandidate(function)) {
+            return null;
+        }
+        return new Tier2(function);
+    }
+
+    /** Executes the call by the compiled code, or returns null when it has to be executed by the interpreter. */
+    public Object call(Frame frame) {
+        Code c = code;
+        if (c == null || Profiler.active) {
+            return null;
+        }
+        try {
+            return c.call(frame);
+        } catch (Deopt d) {
+            if (DEBUG_T2) { Utils.debug("tier2: deoptimizing " + c.getClass().getName()); }
+            code = null;
+            calls = 0;
+            state = compilations < MAX_COMPILATIONS ? PROFILING : FAILED;
+            return null;
+        }
+    }
+
+    /** Records the argument types of an interpreted call, compiling the function once they are stable. */
+    public void profile(Frame frame) {
+        if (state != PROFILING) {
+            return;
+        }
+        boolean stable = true;
+        for (int i = 0; i < types.length; i++) {
+            int t = Tier2Generator.typeOf(peekArgument(frame, i));
+            if (t != types[i]) {
+                types[i] = t;
+                stable = false;
+            }
+        }
+        if (!stable) {
+            calls = 1;
+        } else if (++calls >= threshold) {
+            compile(frame);
+        }
+    }
+
+    // the value of an argument, if it has been evaluated
+    private static Object peekArgument(Frame frame, int i) {
+        Object v = frame.get(i);
+        if (v instanceof RPromise) {
+            RPromise p = (RPromise) v;
+            return p.isForced() ? p.forceOrGet() : null;
+        }
+        return v;
+    }
+
+    private void compile(Frame frame) {
+        compilations++;
+        final String name = "R$Tier2$" + (++classCounter);
+        final Tier2Generator generator = new Tier2Generator(function, types, frame);
+        final String source = generator.generate(name);
+        if (source == null) {
+            if (DEBUG_T2) { Utils.debug("tier2: cannot compile " + function.getSource()); }
+            state = FAILED;
+            return;
+        }
+        if (DEBUG_T2) { Utils.debug("tier2: compiling " + name + "\n" + source); }
+        state = COMPILING;
+        Runnable task = new Runnable() {
+            @Override public void run() {
+                Code c = compile(name, source);
+                if (c == null) {
+                    state = FAILED;
+                    return;
+                }
+                c.asts = generator.asts();
+                c.symbols = generator.symbols();
+                code = c;
+                state = COMPILED;
+            }
+        };
+        if (background) {
+            compiler().execute(task);
+        } else {
+            task.run();
+        }
+    }
+
+    private static synchronized ExecutorService compiler() {
+        if (compiler == null) {
+            compiler = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "tier2-compiler");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        return compiler;
+    }
+
+    // returns null when the compiler is not available or the source does not compile (e.g. a local may be read
+    // before it is written, which in R would read a variable of an enclosing environment)
+    static Code compile(String name, String source) {
+        JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+        if (javac == null) {
+            return null;
+        }
+        MemoryFileManager files = new MemoryFileManager(javac.getStandardFileManager(null, null, null));
+        StringWriter messages = new StringWriter();
+        List<String> options = Arrays.asList("-classpath", classPath(), "-g:none", "-proc:none", "-nowarn");
+        List<JavaFileObject> units = Collections.<JavaFileObject> singletonList(new SourceFile(name, source));
+        if (!javac.getTask(messages, files, null, options, null, units).call()) {
+            if (DEBUG_T2) { Utils.debug("tier2: compilation of " + name + " failed\n" + messages); }
+            return null;
+        }
+        try {
+            return (Code) new Loader(files.classes).loadClass(name).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            if (DEBUG_T2) { Utils.debug("tier2: cannot load " + name + ": " + e); }
+            return null;
+        }
+    }
+
+    // only the location of the interpreter classes, which is much faster to search than the whole class path
+    private static String classPath() {
+        java.security.CodeSource source = Tier2.class.getProtectionDomain().getCodeSource();
+        if (source != null) {
+            try {
+                return new File(source.getLocation().toURI()).getPath();
+            } catch (URISyntaxException e) {
+                // fall back to the whole class path
+            }
+        }
+        return System.getProperty("java.class.path");
+    }
+
+    static final class SourceFile extends SimpleJavaFileObject {
+        final String source;
+
+        SourceFile(String name, String source) {
+            super(URI.create("string:///" + name + JavaFileObject.Kind.SOURCE.extension), JavaFileObject.Kind.SOURCE);
+            this.source = source;
+        }
+
+        @Override public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return source;
+        }
+    }
+
+    static final class MemoryFileManager extends ForwardingJavaFileManager<JavaFileManager> {
+        final HashMap<String, ByteArrayOutputStream> classes = new HashMap<>();
+
+        MemoryFileManager(JavaFileManager manager) {
+            super(manager);
+        }
+
+        @Override public JavaFileObject getJavaFileForOutput(Location location, final String className, JavaFileObject.Kind kind, FileObject sibling) {
+            return new SimpleJavaFileObject(URI.create("mem:///" + className.replace('.', '/') + kind.extension), kind) {
+                @Override public OutputStream openOutputStream() {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    classes.put(className, out);
+                    return out;
+                }
+            };
+        }
+    }
+
+    static final class Loader extends ClassLoader {
+        final HashMap<String, ByteArrayOutputStream> classes;
+
+        Loader(HashMap<String, ByteArrayOutputStream> classes) {
+            super(Tier2.class.getClassLoader());
+            this.classes = classes;
+        }
+
+        @Override protected Class< ? > findClass(String name) throws ClassNotFoundException {
+            ByteArrayOutputStream out = classes.get(name);
+            if (out == null) {
+                throw new ClassNotFoundException(name);
+            }
+            byte[] bytes = out.toByteArray();
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+
+    public static final class Deopt extends RuntimeException {
+        public static final Deopt instance = new Deopt();
+        private static final long serialVersionUID = 2754102391460529173L;
+    }
+
+    /** The compiled code of a function, the superclass of the generated classes. */
+    public abstract static class Code {
+        protected ASTNode[] asts; // for errors and warnings
+        protected RSymbol[] symbols; // the free variables
+
+        /** Executes the body in the frame of the call, with the arguments (and their defaults) in place. */
+        public abstract Object call(Frame frame);
+
+        // an argument read where the interpreter reads it, forcing the promise
+        private static Object argument(Frame frame, int slot) {
+            Object v = frame.get(slot);
+            if (v instanceof RPromise) {
+                RPromise p = (RPromise) v;
+                if (!p.isForced() && (p.isMissing() || p.isDefault() && !(p.expression().getAST() instanceof r.nodes.ast.Constant))) {
+                    throw Deopt.instance; // the default would be evaluated in the frame, which does not have the locals
+                }
+                return p.forceOrGet();
+            }
+            return v;
+        }
+
+        // an argument that is also written by the function, read on entry, when forcing it has no side effects
+        private static Object load(Frame frame, int slot) {
+            Object v = frame.get(slot);
+            if (v instanceof RPromise) {
+                RPromise p = (RPromise) v;
+                if (!p.isForced() && (p.isMissing() || !isTrivial(p))) {
+                    throw Deopt.instance;
+                }
+                return p.forceOrGet();
+            }
+            return v;
+        }
+
+        // a constant, or a variable already defined in the caller's frame
+        private static boolean isTrivial(RPromise p) {
+            ASTNode expr = p.expression().getAST();
+            if (expr instanceof r.nodes.ast.Constant) {
+                return true;
+            }
+            Frame caller = p.frame();
+            if (p.isDefault() || caller == null || !(expr instanceof r.nodes.ast.SimpleAccessVariable)) {
+                return false;
+            }
+            int slot = caller.findVariable(((r.nodes.ast.SimpleAccessVariable) expr).getSymbol());
+            if (slot == -1) {
+                return false;
+            }
+            Object value = caller.get(slot);
+            return value != null && (!(value instanceof RPromise) || ((RPromise) value).isForced());
+        }
+
+        protected final Object free(Frame frame, int i) {
+            Object v = frame.read(symbols[i]);
+            if (v == null) {
+                throw Deopt.instance; // the interpreter reports the error
+            }
+            return v;
+        }
+
+        protected static int argInt(Frame frame, int slot) {
+            return asInt(argument(frame, slot));
+        }
+
+        protected static double argDouble(Frame frame, int slot) {
+            return asDouble(argument(frame, slot));
+        }
+
+        protected static int argLogical(Frame frame, int slot) {
+            return asLogical(argument(frame, slot));
+        }
+
+        protected static int loadInt(Frame frame, int slot) {
+            return asInt(load(frame, slot));
+        }
+
+        protected static double loadDouble(Frame frame, int slot) {
+            return asDouble(load(frame, slot));
+        }
+
+        protected static int loadLogical(Frame frame, int slot) {
+            return asLogical(load(frame, slot));
+        }
+
+        protected final int freeInt(Frame frame, int i) {
+            return asInt(free(frame, i));
+        }
+
+        protected final double freeDouble(Frame frame, int i) {
+            return asDouble(free(frame, i));
+        }
+
+        protected final int freeLogical(Frame frame, int i) {
+            return asLogical(free(frame, i));
+        }
+
+        private static int asInt(Object v) {
+            if (v instanceof ScalarIntImpl) {
+                return ((ScalarIntImpl) v).getInt();
+            }
+            throw Deopt.instance;
+        }
+
+        private static double asDouble(Object v) {
+            if (v instanceof ScalarDoubleImpl) {
+                return ((ScalarDoubleImpl) v).getDouble();
+            }
+            throw Deopt.instance;
+        }
+
+        private static int asLogical(Object v) {
+            if (v instanceof ScalarLogicalImpl) {
+                return ((ScalarLogicalImpl) v).getLogical();
+            }
+            throw Deopt.instance;
+        }
+    }
+
+    // operations used by the generated code, with the semantics of the corresponding nodes
+
+    public static void checkReturn() {
+        if (BuildExecutableTree.RETURN_SYMBOL.builtinIsOverridden()) {
+            throw Deopt.instance;
+        }
+    }
+
+    public static int arith(Arithmetic.ValueArithmetic arit, ASTNode ast, int a, int b) {
+        if (a == RInt.NA || b == RInt.NA) {
+            return RInt.NA;
+        }
+        int res = arit.op(ast, a, b);
+        if (res == RInt.NA) {
+            throw Deopt.instance; // the interpreter emits the warning
+        }
+        return res;
+    }
+
+    public static double arithDouble(Arithmetic.ValueArithmetic arit, ASTNode ast, int a, int b) {
+        if (a == RInt.NA || b == RInt.NA) {
+            return RDouble.NA;
+        }
+        return arit.op(ast, (double) a, (double) b);
+    }
+
+    public static double arith(Arithmetic.ValueArithmetic arit, ASTNode ast, int a, double b) {
+        if (a == RInt.NA) {
+            return RDouble.NA;
+        }
+        checkNoWarning(arit, a, b);
+        return arit.opCheckingNA(ast, a, b);
+    }
+
+    public static double arith(Arithmetic.ValueArithmetic arit, ASTNode ast, double a, int b) {
+        if (b == RInt.NA) {
+            return RDouble.NA;
+        }
+        checkNoWarning(arit, a, b);
+        return arit.opCheckingNA(ast, a, b);
+    }
+
+    public static double arith(Arithmetic.ValueArithmetic arit, ASTNode ast, double a, double b) {
+        checkNoWarning(arit, a, b);
+        return arit.opCheckingNA(ast, a, b);
+    }
+
+    // the interpreter emits the warning, the operations on integers (and +, -, *, /) never warn about accuracy
+    private static void checkNoWarning(Arithmetic.ValueArithmetic arit, double a, double b) {
+        if (arit instanceof Arithmetic.Mod ? Arithmetic.fmodLosesAccuracy(a, b) : arit instanceof Arithmetic.Pow && a == Double.NEGATIVE_INFINITY && Arithmetic.fmodLosesAccuracy(b, 2)) {
+            throw Deopt.instance;
+        }
+    }
+
+    public static int neg(int a) {
+        return a == RInt.NA ? RInt.NA : -a;
+    }
+
+    // the operand of a comparison, NA is NaN
+    public static double cmp(int a) {
+        return a == RInt.NA ? Double.NaN : a;
+    }
+
+    public static double cmp(double a) {
+        return a;
+    }
+
+    public static int eq(double a, double b) {
+        return a != a || b != b ? RLogical.NA : a == b ? RLogical.TRUE : RLogical.FALSE;
+    }
+
+    public static int ne(double a, double b) {
+        return a != a || b != b ? RLogical.NA : a != b ? RLogical.TRUE : RLogical.FALSE;
+    }
+
+    public static int lt(double a, double b) {
+        return a != a || b != b ? RLogical.NA : a < b ? RLogical.TRUE : RLogical.FALSE;
+    }
+
+    public static int le(double a, double b) {
+        return a != a || b != b ? RLogical.NA : a <= b ? RLogical.TRUE : RLogical.FALSE;
+    }
+
+    public static int gt(double a, double b) {
+        return a != a || b != b ? RLogical.NA : a > b ? RLogical.TRUE : RLogical.FALSE;
+    }
+
+    public static int ge(double a, double b) {
+        return a != a || b != b ? RLogical.NA : a >= b ? RLogical.TRUE : RLogical.FALSE;
+    }
+
+    // the right operand of &&, when the left one is not FALSE
+    public static int and(int a, int b) {
+        if (a == RLogical.TRUE) {
+            return b;
+        }
+        return b == RLogical.FALSE ? RLogical.FALSE : RLogical.NA;
+    }
+
+    public static int or(int a, int b) {
+        if (a == RLogical.FALSE) {
+            return b;
+        }
+        return b == RLogical.TRUE ? RLogical.TRUE : RLogical.NA;
+    }
+
+    public static int not(int a) {
+        return a == RLogical.NA ? RLogical.NA : a == RLogical.TRUE ? RLogical.FALSE : RLogical.TRUE;
+    }
+
+    public static boolean cond(int a, ASTNode ast) {
+        if (a == RLogical.NA) {
+            throw RError.getUnexpectedNA(ast);
+        }
+        return a == RLogical.TRUE;
+    }
+
+    public static int colonFrom(int a, ASTNode ast) {
+        if (a == RInt.NA) {
+            throw RError.getNAorNaN(ast);
+        }
+        return a;
+    }
+
+    public static int colonFrom(double a, ASTNode ast) {
+        if (RDouble.RDoubleUtils.isNAorNaN(a)) {
+            throw RError.getNAorNaN(ast);
+        }
+        int ia = (int) a;
+        if (ia != a) {
+            throw Deopt.instance; // a double sequence
+        }
+        return ia;
+    }
+
+    public static int colonTo(int b, ASTNode ast) {
+        if (b == RInt.NA) {
+            throw RError.getNAorNaN(ast);
+        }
+        return b;
+    }
+
+    public static int colonTo(double b, ASTNode ast) {
+        if (RDouble.RDoubleUtils.isNAorNaN(b)) {
+            throw RError.getNAorNaN(ast);
+        }
+        if (!RDouble.RDoubleUtils.fitsRInt(b)) {
+            throw Deopt.instance;
+        }
+        return (int) b;
+    }
+
+    public static void ignore(int a) {
+    }
+
+    public static void ignore(double a) {
+    }
+
+    public static RAny boxInt(int a) {
+        return RInt.RIntFactory.getScalar(a);
+    }
+
+    public static RAny boxDouble(double a) {
+        return RDouble.RDoubleFactory.getScalar(a);
+    }
+
+    public static RAny boxLogical(int a) {
+        return RLogical.RLogicalFactory.getScalar(a);
+    }
+}
@@ -0,0 +1,619 @@
+package r.nodes.exec;
+
+import java.util.*;
+
+import r.*;
+import r.data.*;
+import r.data.internal.*;
+import r.errors.*;
+import r.nodes.ast.*;
+import r.nodes.ast.Function;
+import r.nodes.ast.If;
+import r.nodes.ast.Sequence;
+import r.nodes.exec.Arithmetic.ValueArithmetic;
+import r.nodes.tools.*;
+import r.runtime.*;
+
+/**
+ * Generates the Java source of the second tier (see Tier2) of a function. The body may only use numeric and logical
+ * scalar constants, the arguments, local variables and free variables, arithmetic (+, -, *, /, ^, %%, %/%, unary -),
+ * comparisons, &&, || and !, if, for over a:b, while, repeat, break, next, assignments to locals and return. The types
+ * of the arguments are those of the profiled calls, the types of the free variables are those they have when the
+ * function is compiled, and the type of each local is inferred from the assignments; a local assigned values of
+ * different types is not supported.
+ *
+ * Arguments and free variables are read where the interpreter first reads them, so promises are forced in the same
+ * order, and the value is kept in a JVM local for the reads that follow on the same path. The arguments that are also
+ * assigned are loaded into JVM locals on entry, only when that has no side effects.
+ */
+final class Tier2Generator {
+
+    static final int UNKNOWN = 0;
+    static final int INT = 1;
+    static final int DOUBLE = 2;
+    static final int LOGICAL = 3;
+
+    static final class Unsupported extends Exception {
+        static final Unsupported instance = new Unsupported();
+        private static final long serialVersionUID = -2203918838226471707L;
+    }
+
+    final RFunction function;
+    final int[] argTypes;
+    final Frame frame; // of a profiled call, for the types of the free variables
+
+    final HashMap<RSymbol, Integer> params = new HashMap<>();
+    final HashMap<RSymbol, Integer> types = new HashMap<>();
+    final LinkedHashMap<RSymbol, Integer> locals = new LinkedHashMap<>(); // including the assigned arguments
+    final HashMap<RSymbol, Integer> free = new HashMap<>();
+    final ArrayList<ASTNode> asts = new ArrayList<>();
+    final ArrayList<RSymbol> symbols = new ArrayList<>();
+    final StringBuilder temps = new StringBuilder();
+    int ntemps;
+    final HashSet<RSymbol> declared = new HashSet<>();
+    HashSet<RSymbol> read = new HashSet<>(); // the arguments and free variables already read on the current path
+    boolean changed;
+
+    Tier2Generator(RFunction function, int[] argTypes, Frame frame) {
+        this.function = function;
+        this.argTypes = argTypes;
+        this.frame = frame;
+    }
+
+    static int typeOf(Object value) {
+        if (value instanceof ScalarIntImpl) {
+            return INT;
+        }
+        if (value instanceof ScalarDoubleImpl) {
+            return DOUBLE;
+        }
+        if (value instanceof ScalarLogicalImpl) {
+            return LOGICAL;
+        }
+        return UNKNOWN;
+    }
+
+    ASTNode[] asts() {
+        return asts.toArray(new ASTNode[asts.size()]);
+    }
+
+    RSymbol[] symbols() {
+        return symbols.toArray(new RSymbol[symbols.size()]);
+    }
+
+    /** Checks that the body only uses the supported constructs, regardless of types. */
+    static boolean isCandidate(RFunction function) {
+        if (function.dotsIndex() != -1) {
+            return false;
+        }
+        try {
+            checkStatement(((Function) function.getSource()).getBody(), 0);
+            return true;
+        } catch (Unsupported e) {
+            return false;
+        }
+    }
+
+    private static void checkStatement(ASTNode ast, int loops) throws Unsupported {
+        if (ast instanceof Sequence) {
+            for (ASTNode e : ((Sequence) ast).getExprs()) {
+                checkStatement(e, loops);
+            }
+        } else if (ast instanceof SimpleAssignVariable) {
+            SimpleAssignVariable a = (SimpleAssignVariable) ast;
+            check(!a.isSuper() && a.getSymbol().dotDotValue() == -1);
+            checkExpression(a.getExpr());
+        } else if (ast instanceof If) {
+            If n = (If) ast;
+            checkExpression(n.getCond());
+            checkStatement(n.getTrueCase(), loops);
+            if (n.getFalseCase() != null) {
+                checkStatement(n.getFalseCase(), loops);
+            }
+        } else if (ast instanceof For) {
+            For n = (For) ast;
+            check(n.getRange() instanceof Colon && n.getCVar().dotDotValue() == -1);
+            checkExpression(((Colon) n.getRange()).getLHS());
+            checkExpression(((Colon) n.getRange()).getRHS());
+            checkStatement(n.getBody(), loops + 1);
+        } else if (ast instanceof While) {
+            checkExpression(((While) ast).getCond());
+            checkStatement(((While) ast).getBody(), loops + 1);
+        } else if (ast instanceof Repeat) {
+            checkStatement(((Repeat) ast).getBody(), loops + 1);
+        } else if (ast instanceof Break || ast instanceof Next) {
+            check(loops > 0);
+        } else if (ast instanceof r.nodes.ast.FunctionCall) {
+            checkExpression(returnArgument(ast));
+        } else {
+            checkExpression(ast);
+        }
+    }
+
+    private static void checkExpression(ASTNode ast) throws Unsupported {
+        if (ast == null) {
+            return; // return()
+        }
+        if (ast instanceof r.nodes.ast.Constant) {
+            check(typeOf(((r.nodes.ast.Constant) ast).getValue()) != UNKNOWN);
+        } else if (ast instanceof SimpleAccessVariable) {
+            check(((SimpleAccessVariable) ast).getSymbol().dotDotValue() == -1);
+        } else if (isBinary(ast)) {
+            checkExpression(((BinaryOperation) ast).getLHS());
+            checkExpression(((BinaryOperation) ast).getRHS());
+        } else if (ast instanceof r.nodes.ast.UnaryMinus || ast instanceof r.nodes.ast.Not) {
+            checkExpression(((UnaryOperation) ast).getLHS());
+        } else {
+            throw Unsupported.instance;
+        }
+    }
+
+    private static boolean isBinary(ASTNode ast) {
+        return BuildExecutableTree.getValueArithmetic(ast) != null || comparison(ast) != null || ast instanceof And || ast instanceof Or;
+    }
+
+    private static String comparison(ASTNode ast) {
+        if (ast instanceof EQ) { return "eq"; }
+        if (ast instanceof NE) { return "ne"; }
+        if (ast instanceof LT) { return "lt"; }
+        if (ast instanceof LE) { return "le"; }
+        if (ast instanceof GT) { return "gt"; }
+        if (ast instanceof GE) { return "ge"; }
+        return null;
+    }
+
+    // the argument of a call to return, null for return()
+    private static ASTNode returnArgument(ASTNode ast) throws Unsupported {
+        r.nodes.ast.FunctionCall call = (r.nodes.ast.FunctionCall) ast;
+        check(call.getName() == BuildExecutableTree.RETURN_SYMBOL && call.getArgs().size() <= 1);
+        if (call.getArgs().size() == 0) {
+            return null;
+        }
+        ArgumentList.Entry arg = call.getArgs().first();
+        check(arg.getName() == null && arg.getValue() != null);
+        return arg.getValue();
+    }
+
+    private static void check(boolean supported) throws Unsupported {
+        if (!supported) {
+            throw Unsupported.instance;
+        }
+    }
+
+    /** Returns the source of a class with the given name compiling the function, or null when it is not supported. */
+    String generate(String name) {
+        ASTNode body = ((Function) function.getSource()).getBody();
+        try {
+            RSymbol[] paramNames = function.paramNames();
+            for (int i = 0; i < paramNames.length; i++) {
+                params.put(paramNames[i], i);
+            }
+            collectLocals(body);
+            for (int i = 0; i < paramNames.length; i++) {
+                if (argTypes[i] != UNKNOWN) {
+                    types.put(paramNames[i], argTypes[i]);
+                } else {
+                    check(!locals.containsKey(paramNames[i]));
+                }
+            }
+            do {
+                changed = false;
+                inferStatement(body);
+            } while (changed);
+
+            StringBuilder code = new StringBuilder();
+            for (Map.Entry<RSymbol, Integer> e : locals.entrySet()) {
+                RSymbol sym = e.getKey();
+                Integer type = types.get(sym);
+                check(type != null);
+                code.append("        ").append(javaType(type)).append(" v").append(e.getValue());
+                Integer param = params.get(sym);
+                if (param != null) {
+                    code.append(" = load").append(typeName(type)).append("(frame, ").append(param).append(")");
+                }
+                code.append(";\n");
+            }
+            StringBuilder stmts = new StringBuilder();
+            statement(stmts, body, true, "        ");
+
+            StringBuilder src = new StringBuilder();
+            src.append("import r.data.*;\nimport r.nodes.exec.*;\nimport r.runtime.*;\n\n");
+            src.append("public final class ").append(name).append(" extends Tier2.Code {\n");
+            src.append("    @Override public Object call(Frame frame) {\n");
+            src.append(temps).append(code).append(stmts);
+            src.append("    }\n}\n");
+            return src.toString();
+        } catch (Unsupported e) {
+            return null;
+        }
+    }
+
+    private void collectLocals(ASTNode ast) {
+        if (ast instanceof Sequence) {
+            for (ASTNode e : ((Sequence) ast).getExprs()) {
+                collectLocals(e);
+            }
+        } else if (ast instanceof SimpleAssignVariable) {
+            addLocal(((SimpleAssignVariable) ast).getSymbol());
+        } else if (ast instanceof If) {
+            collectLocals(((If) ast).getTrueCase());
+            collectLocals(((If) ast).getFalseCase());
+        } else if (ast instanceof For) {
+            addLocal(((For) ast).getCVar());
+            collectLocals(((For) ast).getBody());
+        } else if (ast instanceof r.nodes.ast.Loop) {
+            collectLocals(((r.nodes.ast.Loop) ast).getBody());
+        }
+    }
+
+    private void addLocal(RSymbol sym) {
+        if (!locals.containsKey(sym)) {
+            locals.put(sym, locals.size());
+        }
+    }
+
+    private void assign(RSymbol sym, int type) throws Unsupported {
+        if (type == UNKNOWN) {
+            return;
+        }
+        Integer old = types.get(sym);
+        if (old == null) {
+            types.put(sym, type);
+            changed = true;
+        } else {
+            check(old == type);
+        }
+    }
+
+    private void inferStatement(ASTNode ast) throws Unsupported {
+        if (ast instanceof Sequence) {
+            for (ASTNode e : ((Sequence) ast).getExprs()) {
+                inferStatement(e);
+            }
+        } else if (ast instanceof SimpleAssignVariable) {
+            SimpleAssignVariable a = (SimpleAssignVariable) ast;
+            assign(a.getSymbol(), infer(a.getExpr()));
+        } else if (ast instanceof If) {
+            If n = (If) ast;
+            infer(n.getCond());
+            inferStatement(n.getTrueCase());
+            if (n.getFalseCase() != null) {
+                inferStatement(n.getFalseCase());
+            }
+        } else if (ast instanceof For) {
+            For n = (For) ast;
+            infer(((Colon) n.getRange()).getLHS());
+            infer(((Colon) n.getRange()).getRHS());
+            assign(n.getCVar(), INT);
+            inferStatement(n.getBody());
+        } else if (ast instanceof While) {
+            infer(((While) ast).getCond());
+            inferStatement(((While) ast).getBody());
+        } else if (ast instanceof Repeat) {
+            inferStatement(((Repeat) ast).getBody());
+        } else if (ast instanceof Break || ast instanceof Next) {
+            return;
+        } else if (ast instanceof r.nodes.ast.FunctionCall) {
+            infer(returnArgument(ast));
+        } else {
+            infer(ast);
+        }
+    }
+
+    // the type of an expression, UNKNOWN when it depends on a local of a yet unknown type
+    private int infer(ASTNode ast) throws Unsupported {
+        if (ast == null) {
+            return UNKNOWN;
+        }
+        if (ast instanceof r.nodes.ast.Constant) {
+            return typeOf(((r.nodes.ast.Constant) ast).getValue());
+        }
+        if (ast instanceof SimpleAccessVariable) {
+            RSymbol sym = ((SimpleAccessVariable) ast).getSymbol();
+            if (!locals.containsKey(sym) && !params.containsKey(sym) && !free.containsKey(sym)) {
+                // a free variable, typed by its current value
+                int type;
+                try {
+                    type = typeOf(frame.read(sym));
+                } catch (RError e) {
+                    throw Unsupported.instance;
+                }
+                check(type != UNKNOWN);
+                free.put(sym, symbols.size());
+                symbols.add(sym);
+                types.put(sym, type);
+            }
+            Integer type = types.get(sym);
+            return type == null ? UNKNOWN : type;
+        }
+        if (ast instanceof r.nodes.ast.UnaryMinus) {
+            int type = infer(((UnaryOperation) ast).getLHS());
+            check(type != LOGICAL);
+            return type;
+        }
+        if (ast instanceof r.nodes.ast.Not) {
+            int type = infer(((UnaryOperation) ast).getLHS());
+            check(type == LOGICAL || type == UNKNOWN);
+            return LOGICAL;
+        }
+        BinaryOperation op = (BinaryOperation) ast;
+        int left = infer(op.getLHS());
+        int right = infer(op.getRHS());
+        if (ast instanceof And || ast instanceof Or) {
+            check((left == LOGICAL || left == UNKNOWN) && (right == LOGICAL || right == UNKNOWN));
+            return LOGICAL;
+        }
+        check(left != LOGICAL && right != LOGICAL);
+        if (comparison(ast) != null) {
+            return LOGICAL;
+        }
+        if (left == UNKNOWN || right == UNKNOWN) {
+            return UNKNOWN;
+        }
+        if (left == INT && right == INT && !BuildExecutableTree.getValueArithmetic(ast).returnsDouble()) {
+            return INT;
+        }
+        return DOUBLE;
+    }
+
+    private static String javaType(int type) {
+        return type == DOUBLE ? "double" : "int";
+    }
+
+    private static String typeName(int type) {
+        return type == INT ? "Int" : type == DOUBLE ? "Double" : "Logical";
+    }
+
+    private String temp(int type) {
+        String t = "t" + (ntemps++);
+        temps.append("        ").append(javaType(type)).append(" ").append(t).append(";\n");
+        return t;
+    }
+
+    private String ast(ASTNode ast) {
+        asts.add(ast);
+        return "asts[" + (asts.size() - 1) + "]";
+    }
+
+    private static String arithmetic(ASTNode ast) {
+        if (ast instanceof Add) { return "ADD"; }
+        if (ast instanceof Sub) { return "SUB"; }
+        if (ast instanceof Mult) { return "MULT"; }
+        if (ast instanceof Div) { return "DIV"; }
+        if (ast instanceof Pow) { return "POW"; }
+        if (ast instanceof Mod) { return "MOD"; }
+        return "INTEGER_DIV";
+    }
+
+    private static String operator(ASTNode ast) {
+        if (ast instanceof Add) { return " + "; }
+        if (ast instanceof Sub) { return " - "; }
+        if (ast instanceof Mult) { return " * "; }
+        if (ast instanceof Div) { return " / "; }
+        return null;
+    }
+
+    // a Java expression computing the R expression, with the inferred type
+    private String expression(ASTNode ast, int[] type) throws Unsupported {
+        if (ast instanceof r.nodes.ast.Constant) {
+            RAny value = ((r.nodes.ast.Constant) ast).getValue();
+            type[0] = typeOf(value);
+            if (value instanceof ScalarIntImpl) {
+                return "(" + ((ScalarIntImpl) value).getInt() + ")";
+            }
+            if (value instanceof ScalarDoubleImpl) {
+                double d = ((ScalarDoubleImpl) value).getDouble();
+                if (Double.isNaN(d) || Double.isInfinite(d)) {
+                    return "Double.longBitsToDouble(0x" + Long.toHexString(Double.doubleToRawLongBits(d)) + "L)";
+                }
+                return "(" + Double.toString(d) + ")";
+            }
+            int l = ((ScalarLogicalImpl) value).getLogical();
+            return l == RLogical.TRUE ? "RLogical.TRUE" : l == RLogical.FALSE ? "RLogical.FALSE" : "RLogical.NA";
+        }
+        if (ast instanceof SimpleAccessVariable) {
+            RSymbol sym = ((SimpleAccessVariable) ast).getSymbol();
+            Integer t = types.get(sym);
+            check(t != null);
+            type[0] = t;
+            Integer local = locals.get(sym);
+            if (local != null) {
+                return "v" + local;
+            }
+            Integer param = params.get(sym);
+            String v = param != null ? "a" + param : "f" + free.get(sym);
+            if (read.contains(sym)) {
+                return v;
+            }
+            if (declared.add(sym)) {
+                temps.append("        ").append(javaType(t)).append(" ").append(v).append(";\n");
+            }
+            read.add(sym);
+            if (param != null) {
+                return "(" + v + " = arg" + typeName(t) + "(frame, " + param + "))";
+            }
+            return "(" + v + " = free" + typeName(t) + "(frame, " + free.get(sym) + "))";
+        }
+        if (ast instanceof r.nodes.ast.UnaryMinus) {
+            String x = expression(((UnaryOperation) ast).getLHS(), type);
+            return type[0] == INT ? "Tier2.neg(" + x + ")" : "(-" + x + ")";
+        }
+        if (ast instanceof r.nodes.ast.Not) {
+            String x = expression(((UnaryOperation) ast).getLHS(), type);
+            check(type[0] == LOGICAL);
+            return "Tier2.not(" + x + ")";
+        }
+        BinaryOperation op = (BinaryOperation) ast;
+        String l = expression(op.getLHS(), type);
+        int ltype = type[0];
+        if (ast instanceof And || ast instanceof Or) {
+            check(ltype == LOGICAL);
+            String t = temp(LOGICAL);
+            HashSet<RSymbol> saved = new HashSet<>(read);
+            String r = expression(op.getRHS(), type);
+            read = saved;
+            check(type[0] == LOGICAL);
+            if (ast instanceof And) {
+                return "((" + t + " = " + l + ") == RLogical.FALSE ? RLogical.FALSE : Tier2.and(" + t + ", " + r + "))";
+            }
+            return "((" + t + " = " + l + ") == RLogical.TRUE ? RLogical.TRUE : Tier2.or(" + t + ", " + r + "))";
+        }
+        String r = expression(op.getRHS(), type);
+        int rtype = type[0];
+        check(ltype != LOGICAL && rtype != LOGICAL);
+        String cmp = comparison(ast);
+        if (cmp != null) {
+            type[0] = LOGICAL;
+            return "Tier2." + cmp + "(Tier2.cmp(" + l + "), Tier2.cmp(" + r + "))";
+        }
+        ValueArithmetic arit = BuildExecutableTree.getValueArithmetic(ast);
+        String call = "(Arithmetic." + arithmetic(ast) + ", " + ast(ast) + ", " + l + ", " + r + ")";
+        if (ltype == INT && rtype == INT) {
+            if (arit.returnsDouble()) {
+                type[0] = DOUBLE;
+                return "Tier2.arithDouble" + call;
+            }
+            type[0] = INT;
+            return "Tier2.arith" + call;
+        }
+        type[0] = DOUBLE;
+        if (ltype == DOUBLE && rtype == DOUBLE && operator(ast) != null && !RDouble.RDoubleUtils.ARITH_NA_CHECKS) {
+            return "(" + l + operator(ast) + r + ")";
+        }
+        return "Tier2.arith" + call;
+    }
+
+    private String expression(ASTNode ast, int expected) throws Unsupported {
+        int[] type = new int[1];
+        String code = expression(ast, type);
+        check(type[0] == expected);
+        return code;
+    }
+
+    private String box(ASTNode ast) throws Unsupported {
+        if (ast == null) {
+            return "RNull.getNull()";
+        }
+        int[] type = new int[1];
+        String code = expression(ast, type);
+        return "Tier2.box" + typeName(type[0]) + "(" + code + ")";
+    }
+
+    // emits a statement, returning its value when it is the last one in the function
+    private void statement(StringBuilder out, ASTNode ast, boolean tail, String indent) throws Unsupported {
+        if (ast instanceof Sequence) {
+            ASTNode[] exprs = ((Sequence) ast).getExprs();
+            for (int i = 0; i < exprs.length; i++) {
+                statement(out, exprs[i], tail && i == exprs.length - 1, indent);
+            }
+            if (tail && exprs.length == 0) {
+                out.append(indent).append("return RNull.getNull();\n");
+            }
+        } else if (ast instanceof SimpleAssignVariable) {
+            SimpleAssignVariable a = (SimpleAssignVariable) ast;
+            String v = "v" + locals.get(a.getSymbol());
+            int type = types.get(a.getSymbol());
+            out.append(indent).append(v).append(" = ").append(expression(a.getExpr(), type)).append(";\n");
+            if (tail) {
+                out.append(indent).append("return Tier2.box").append(typeName(type)).append("(").append(v).append(");\n");
+            }
+        } else if (ast instanceof If) {
+            If n = (If) ast;
+            out.append(indent).append("if (Tier2.cond(").append(expression(n.getCond(), LOGICAL)).append(", ").append(ast(ast)).append(")) {\n");
+            HashSet<RSymbol> saved = new HashSet<>(read);
+            statement(out, n.getTrueCase(), tail, indent + "    ");
+            read = new HashSet<>(saved);
+            if (n.getFalseCase() != null || tail) {
+                out.append(indent).append("} else {\n");
+                if (n.getFalseCase() != null) {
+                    statement(out, n.getFalseCase(), tail, indent + "    ");
+                } else {
+                    out.append(indent).append("    return RNull.getNull();\n");
+                }
+            }
+            read = saved;
+            out.append(indent).append("}\n");
+        } else if (ast instanceof For) {
+            For n = (For) ast;
+            Colon range = (Colon) n.getRange();
+            int[] type = new int[1];
+            String from = temp(INT);
+            String to = temp(INT);
+            String l = expression(range.getLHS(), type);
+            check(type[0] == INT || type[0] == DOUBLE);
+            String lt = temp(type[0]);
+            out.append(indent).append(lt).append(" = ").append(l).append(";\n");
+            String r = expression(range.getRHS(), type);
+            check(type[0] == INT || type[0] == DOUBLE);
+            String rt = temp(type[0]);
+            out.append(indent).append(rt).append(" = ").append(r).append(";\n");
+            String rast = ast(range);
+            out.append(indent).append(from).append(" = Tier2.colonFrom(").append(lt).append(", ").append(rast).append(");\n");
+            out.append(indent).append(to).append(" = Tier2.colonTo(").append(rt).append(", ").append(rast).append(");\n");
+            String cvar = "v" + locals.get(n.getCVar());
+            String i = temp(INT);
+            String step = temp(INT);
+            String end = temp(INT);
+            out.append(indent).append(cvar).append(" = ").append(from).append(";\n");
+            out.append(indent).append(step).append(" = ").append(from).append(" <= ").append(to).append(" ? 1 : -1;\n");
+            out.append(indent).append(end).append(" = ").append(to).append(" + ").append(step).append(";\n");
+            out.append(indent).append("for (").append(i).append(" = ").append(from).append("; ").append(i).append(" != ").append(end).append("; ").append(i).append(" += ").append(step).append(") {\n");
+            out.append(indent).append("    ").append(cvar).append(" = ").append(i).append(";\n");
+            HashSet<RSymbol> saved = new HashSet<>(read);
+            statement(out, n.getBody(), false, indent + "    ");
+            read = saved;
+            out.append(indent).append("}\n");
+            if (tail) {
+                out.append(indent).append("return RNull.getNull();\n");
+            }
+        } else if (ast instanceof While) {
+            While n = (While) ast;
+            out.append(indent).append("while (Tier2.cond(").append(expression(n.getCond(), LOGICAL)).append(", ").append(ast(ast)).append(")) {\n");
+            HashSet<RSymbol> saved = new HashSet<>(read);
+            statement(out, n.getBody(), false, indent + "    ");
+            read = saved;
+            out.append(indent).append("}\n");
+            if (tail) {
+                out.append(indent).append("return RNull.getNull();\n");
+            }
+        } else if (ast instanceof Repeat) {
+            out.append(indent).append("for (;;) {\n");
+            HashSet<RSymbol> saved = new HashSet<>(read);
+            statement(out, ((Repeat) ast).getBody(), false, indent + "    ");
+            read = saved;
+            out.append(indent).append("}\n");
+            if (tail && hasBreak(((Repeat) ast).getBody())) {
+                out.append(indent).append("return RNull.getNull();\n");
+            }
+        } else if (ast instanceof Break) {
+            out.append(indent).append("break;\n");
+        } else if (ast instanceof Next) {
+            out.append(indent).append("continue;\n");
+        } else if (ast instanceof r.nodes.ast.FunctionCall) {
+            out.append(indent).append("Tier2.checkReturn();\n");
+            out.append(indent).append("return ").append(box(returnArgument(ast))).append(";\n");
+        } else if (tail) {
+            out.append(indent).append("return ").append(box(ast)).append(";\n");
+        } else {
+            int[] type = new int[1];
+            out.append(indent).append("Tier2.ignore(").append(expression(ast, type)).append(");\n");
+        }
+    }
+
+    // a break of this loop (not of a nested one)
+    private static boolean hasBreak(ASTNode ast) {
+        if (ast instanceof Break) {
+            return true;
+        }
+        if (ast instanceof Sequence) {
+            for (ASTNode e : ((Sequence) ast).getExprs()) {
+                if (hasBreak(e)) {
+                    return true;
+                }
+            }
+        } else if (ast instanceof If) {
+            return hasBreak(((If) ast).getTrueCase()) || ((If) ast).getFalseCase() != null && hasBreak(((If) ast).getFalseCase());
+        }
+        return false;
+    }
+}
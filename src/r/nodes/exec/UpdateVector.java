@@ -203,9 +203,9 @@ public abstract class UpdateVector extends BaseR {
         RSymbol[] symbols = new RSymbol[size + 1];
         System.arraycopy(oldSymbols, 0, symbols, 0, size);
         symbols[size] = newName;
-        HashMap<RSymbol, Integer> oldMap = names.stealMap();
-        if (oldMap != null && !oldMap.containsKey(newName)) {
-            oldMap.put(newName, size);
+        SymbolIntMap oldMap = names.stealMap();
+        if (oldMap != null && newName != RSymbol.EMPTY_SYMBOL && newName != RSymbol.NA_SYMBOL) {
+            oldMap.putIfAbsent(newName, size);
         }
         return Names.create(symbols, oldMap);
     }
@@ -3441,14 +3441,15 @@ public abstract class UpdateVector extends BaseR {
 
             Names bnames = base.names();
             RSymbol[] bsymbols;
-            HashMap<RSymbol, Integer> nmap;
+            SymbolIntMap nmap;
             if (bnames == null) {
-                nmap = new HashMap<>(bsize);
+                nmap = new SymbolIntMap(bsize + isize);
                 bsymbols = null;
             } else {
                 assert Utils.check(Names.keepsMap()); // FIXME: re-visit this if we re-introduce names that don't carry hashmaps
                                                       // (probably should build a new one in such a case)
-                nmap = new HashMap<>(bnames.getMap());
+                nmap = new SymbolIntMap(bnames.getMap());
+                nmap.ensureCapacity(nmap.size() + isize);
                 bsymbols = bnames.sequence();
             }
 
@@ -3468,8 +3469,8 @@ public abstract class UpdateVector extends BaseR {
                     }
                     j++;
                 } else {
-                    Integer prevOffset = nmap.get(name);
-                    if (prevOffset == null) {
+                    int prevOffset = nmap.get(name);
+                    if (prevOffset == -1) {
                         nmap.put(name, j + bsize);
                         addSymbols[j] = name;
                         if (targetOffsets != null) {
@@ -3482,7 +3483,7 @@ public abstract class UpdateVector extends BaseR {
                             targetOffsets = new int[isize - firstOverwrite];
                         }
                         noverwrites++;
-                        targetOffsets[i - firstOverwrite] = prevOffset.intValue();
+                        targetOffsets[i - firstOverwrite] = prevOffset;
                     }
                 }
             }
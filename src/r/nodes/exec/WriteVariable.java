@@ -2,6 +2,7 @@ package r.nodes.exec;
 
 import r.*;
 import r.data.*;
+import r.data.internal.*;
 import r.nodes.ast.*;
 import r.runtime.*;
 
@@ -69,6 +70,94 @@ public abstract class WriteVariable extends BaseR {
     }
 
     public static WriteVariable getWriteLocal(ASTNode orig, RSymbol sym, final int slot, RNode rhs) {
+        if (rhs instanceof Arithmetic) {
+            return getWriteLocalScalar(orig, sym, slot, rhs);
+        }
+        return getWriteLocalBoxed(orig, sym, slot, rhs);
+    }
+
+    // when the value of an arithmetic expression is a scalar integer or double, the assignment is rewritten to store it unboxed
+    static WriteVariable getWriteLocalScalar(ASTNode orig, RSymbol sym, final int slot, RNode rhs) {
+        return new WriteVariable(orig, sym, rhs) {
+
+            @Override public final Object execute(Frame frame) {
+                RAny val = Utils.cast(expr.execute(frame));
+                frame.writeAtCondRef(slot, val);
+                WriteVariable node;
+                if (val instanceof ScalarDoubleImpl) {
+                    node = getWriteLocalDouble(ast, symbol, slot, expr);
+                } else if (val instanceof ScalarIntImpl) {
+                    node = getWriteLocalInt(ast, symbol, slot, expr);
+                } else {
+                    node = getWriteLocalBoxed(ast, symbol, slot, expr);
+                }
+                replace(node, "install typed WriteLocal");
+                return val;
+            }
+        };
+    }
+
+    static WriteVariable getWriteLocalDouble(ASTNode orig, RSymbol sym, final int slot, RNode rhs) {
+        return new WriteVariable(orig, sym, rhs) {
+
+            @Override public final Object execute(Frame frame) {
+                try {
+                    RAny val = RDouble.RDoubleFactory.getScalar(expr.executeScalarDouble(frame));
+                    frame.writeAtCondRef(slot, val);
+                    return val;
+                } catch (SpecializationException e) {
+                    return deopt(frame, (RAny) e.getResult());
+                }
+            }
+
+            @Override public final Object executeVoid(Frame frame) {
+                try {
+                    frame.writeDoubleRef(slot, expr.executeScalarDouble(frame));
+                } catch (SpecializationException e) {
+                    deopt(frame, (RAny) e.getResult());
+                }
+                return RNull.getNull();
+            }
+
+            private RAny deopt(Frame frame, RAny val) {
+                replace(getWriteLocalBoxed(ast, symbol, slot, expr), "install WriteLocal from WriteLocalDouble");
+                frame.writeAtCondRef(slot, val);
+                return val;
+            }
+        };
+    }
+
+    static WriteVariable getWriteLocalInt(ASTNode orig, RSymbol sym, final int slot, RNode rhs) {
+        return new WriteVariable(orig, sym, rhs) {
+
+            @Override public final Object execute(Frame frame) {
+                try {
+                    RAny val = RInt.RIntFactory.getScalar(expr.executeScalarInteger(frame));
+                    frame.writeAtCondRef(slot, val);
+                    return val;
+                } catch (SpecializationException e) {
+                    return deopt(frame, (RAny) e.getResult());
+                }
+            }
+
+            @Override public final Object executeVoid(Frame frame) {
+                try {
+                    frame.writeIntRef(slot, expr.executeScalarInteger(frame));
+                } catch (SpecializationException e) {
+                    deopt(frame, (RAny) e.getResult());
+                }
+                return RNull.getNull();
+            }
+
+            private RAny deopt(Frame frame, RAny val) {
+                replace(getWriteLocalBoxed(ast, symbol, slot, expr), "install WriteLocal from WriteLocalInt");
+                frame.writeAtCondRef(slot, val);
+                return val;
+            }
+        };
+    }
+
+    public static WriteVariable getWriteLocalBoxed(ASTNode orig, RSymbol sym, final int slot, RNode rhs) {
         return new WriteVariable(orig, sym, rhs) {
 
             @Override public final Object execute(Frame frame) {
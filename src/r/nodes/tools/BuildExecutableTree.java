@@ -135,7 +135,9 @@ public class BuildExecutableTree implements Visitor {
         //                return;
         //            }
         //        }
-        result = new r.nodes.exec.Loop.For.IntSimpleRangeFor(n, n.getCVar(), createTree(n.getRange()), createLazyTree(n.getBody()));
+        r.nodes.exec.Loop.For loop = new r.nodes.exec.Loop.For.IntSimpleRangeFor(n, n.getCVar(), createTree(n.getRange()), createLazyTree(n.getBody()));
+        RNode elementwise = r.nodes.exec.ElementwiseLoop.create(n, loop); // for (i in 1:n) y[i] <- a * x[i] + b
+        result = elementwise != null ? elementwise : loop;
     }
 
     @Override public void visit(Break n) {
@@ -458,6 +460,14 @@ public class BuildExecutableTree implements Visitor {
         result = functionNode;
     }
 
+    // the copy shares the AST with the original function, so lazily built nodes of both find the original function as
+    // the enclosing one, which has the same frame layout as the copy
+    public RFunction createFunctionCopy(RFunction function) {
+        Function ast = (Function) function.getSource();
+        SplitArgumentList a = splitArgumentList(ast.getSignature(), true);
+        return ((FunctionImpl) function).copy(a.convertedExpressions, createLazyRootTree(ast.getBody()));
+    }
+
     private RFunction getEnclosingFunction(ASTNode node) {
         // find lexically enclosing function if exists
         Function enfunc = findParent(node, Function.class);
@@ -850,7 +860,22 @@ public class BuildExecutableTree implements Visitor {
     }
 
     @Override public void visit(MatMult mult) {
-        result = new r.nodes.exec.MatrixOperation.MatrixProduct(mult, createTree(mult.getLHS()), createTree(mult.getRHS()));
+        RNode product = new r.nodes.exec.MatrixOperation.MatrixProduct(mult, createTree(mult.getLHS()), createTree(mult.getRHS()));
+        if (isTransposeOf(mult.getLHS(), mult.getRHS())) { // t(x) %*% x
+            product = new r.nodes.exec.MatrixOperation.TransposedProduct(mult, createTree(mult.getRHS()), product);
+        }
+        result = product;
+    }
+
+    // true if lhs is a call t(x) of the builtin t, where x is the variable rhs
+    private boolean isTransposeOf(ASTNode lhs, ASTNode rhs) {
+        if (!(lhs instanceof FunctionCall) || !(rhs instanceof SimpleAccessVariable)) { return false; }
+        FunctionCall call = (FunctionCall) lhs;
+        RSymbol t = r.nodes.exec.MatrixOperation.TransposedProduct.T_SYMBOL;
+        if (call.getName() != t || call.isAssignment() || call.getArgs().size() != 1 || hasLocalOrEnclosingFrameSlot(call, t)) { return false; }
+        ArgumentList.Entry arg = call.getArgs().first();
+        return arg.getName() == null && arg.getValue() instanceof SimpleAccessVariable &&
+                        ((SimpleAccessVariable) arg.getValue()).getSymbol() == ((SimpleAccessVariable) rhs).getSymbol();
     }
 
     @Override public void visit(OuterMult mult) {
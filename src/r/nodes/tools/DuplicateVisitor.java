@@ -44,7 +44,7 @@ public class DuplicateVisitor extends BasicVisitor implements Visitor {
 
     @Override
     public void visit(Sequence n) {
-        result = Sequence.create(d(n.getExprs()));
+        result = Sequence.create(d(n.getExprs()), n.getLines());
     }
 
     @Override
@@ -85,14 +85,14 @@ package r.parser;
 *****************************************************/
 
 script returns [ASTNode v]
-    @init{ArrayList<ASTNode> stmts = new ArrayList<ASTNode>();}
-	@after{ $v = Sequence.create(stmts);}
-	: n_ (s=statement {stmts.add(s);})*
+    @init{ArrayList<ASTNode> stmts = new ArrayList<ASTNode>(); ArrayList<Integer> lines = new ArrayList<Integer>();}
+	@after{ $v = Sequence.create(stmts, lines);}
+	: n_ ({lines.add(input.LT(1).getLine());} s=statement {stmts.add(s);})*
 	;
 interactive returns [ASTNode v]
-    @init{ArrayList<ASTNode> stmts = new ArrayList<ASTNode>();}
-	@after{ switch(stmts.size()) { case 0: $v = null; break; case 1: $v = stmts.get(0); break; default: $v = Sequence.create(stmts);} }
-	: n_ (s=statement {stmts.add(s);})*
+    @init{ArrayList<ASTNode> stmts = new ArrayList<ASTNode>(); ArrayList<Integer> lines = new ArrayList<Integer>();}
+	@after{ switch(stmts.size()) { case 0: $v = null; break; case 1: $v = stmts.get(0); break; default: $v = Sequence.create(stmts, lines);} }
+	: n_ ({lines.add(input.LT(1).getLine());} s=statement {stmts.add(s);})*
 	;
 statement returns [ASTNode v]
 	: e=expr_or_assign n {$v = e;}
@@ -118,9 +118,9 @@ expr_wo_assign returns [ASTNode v]
 	| BREAK /* ((LPAR)=>LPAR n_ RPAR)? */ { v = Break.create(); }
 	;
 sequence returns [ASTNode v]
-    @init{ArrayList<ASTNode> stmts = new ArrayList<ASTNode>();}
-    @after{ $v = Sequence.create(stmts);}
-	: LBRACE n_ (e=expr_or_assign { stmts.add(e); } (n e=expr_or_assign { stmts.add(e); })* n?)?  RBRACE  
+    @init{ArrayList<ASTNode> stmts = new ArrayList<ASTNode>(); ArrayList<Integer> lines = new ArrayList<Integer>();}
+    @after{ $v = Sequence.create(stmts, lines);}
+	: LBRACE n_ ({ lines.add(input.LT(1).getLine()); } e=expr_or_assign { stmts.add(e); } (n { lines.add(input.LT(1).getLine()); } e=expr_or_assign { stmts.add(e); })* n?)?  RBRACE  
 	;
 assign returns [ASTNode v]
 	: l=tilde_expr	
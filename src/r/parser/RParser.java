@@ -149,7 +149,7 @@ public class RParser extends Parser {
         ASTNode s = null;
 
 
-        ArrayList<ASTNode> stmts = new ArrayList<ASTNode>();
+        ArrayList<ASTNode> stmts = new ArrayList<ASTNode>(); ArrayList<Integer> lines = new ArrayList<Integer>();
         try {
             if ( state.backtracking>0 && alreadyParsedRule(input, 1) ) { return v; }
             // R.g:90:2: ( n_ (s= statement )* )
@@ -175,6 +175,9 @@ public class RParser extends Parser {
             	case 1 :
             	    // R.g:90:8: s= statement
             	    {
+            	    if ( state.backtracking==0 ) {
+            	      lines.add(input.LT(1).getLine());
+            	    }
             	    pushFollow(FOLLOW_statement_in_script153);
             	    s=statement();
 
@@ -196,7 +199,7 @@ public class RParser extends Parser {
             }
 
             if ( state.backtracking==0 ) {
-               v = Sequence.create(stmts);
+               v = Sequence.create(stmts, lines);
             }
         }
 
@@ -219,7 +222,7 @@ public class RParser extends Parser {
         ASTNode s = null;
 
 
-        ArrayList<ASTNode> stmts = new ArrayList<ASTNode>();
+        ArrayList<ASTNode> stmts = new ArrayList<ASTNode>(); ArrayList<Integer> lines = new ArrayList<Integer>();
         try {
             if ( state.backtracking>0 && alreadyParsedRule(input, 2) ) { return v; }
             // R.g:95:2: ( n_ (s= statement )* )
@@ -245,6 +248,9 @@ public class RParser extends Parser {
             	case 1 :
             	    // R.g:95:8: s= statement
             	    {
+            	    if ( state.backtracking==0 ) {
+            	      lines.add(input.LT(1).getLine());
+            	    }
             	    pushFollow(FOLLOW_statement_in_interactive189);
             	    s=statement();
 
@@ -266,7 +272,7 @@ public class RParser extends Parser {
             }
 
             if ( state.backtracking==0 ) {
-               switch(stmts.size()) { case 0: v = null; break; case 1: v = stmts.get(0); break; default: v = Sequence.create(stmts);} 
+               switch(stmts.size()) { case 0: v = null; break; case 1: v = stmts.get(0); break; default: v = Sequence.create(stmts, lines);} 
             }
         }
 
@@ -804,7 +810,7 @@ public class RParser extends Parser {
         ASTNode e = null;
 
 
-        ArrayList<ASTNode> stmts = new ArrayList<ASTNode>();
+        ArrayList<ASTNode> stmts = new ArrayList<ASTNode>(); ArrayList<Integer> lines = new ArrayList<Integer>();
         try {
             if ( state.backtracking>0 && alreadyParsedRule(input, 9) ) { return v; }
             // R.g:123:2: ( LBRACE n_ (e= expr_or_assign ( n e= expr_or_assign )* ( n )? )? RBRACE )
@@ -827,6 +833,9 @@ public class RParser extends Parser {
                 case 1 :
                     // R.g:123:15: e= expr_or_assign ( n e= expr_or_assign )* ( n )?
                     {
+                    if ( state.backtracking==0 ) {
+                      lines.add(input.LT(1).getLine());
+                    }
                     pushFollow(FOLLOW_expr_or_assign_in_sequence410);
                     e=expr_or_assign();
 
@@ -849,6 +858,9 @@ public class RParser extends Parser {
 
                     	    state._fsp--;
                     	    if (state.failed) return v;
+                    	    if ( state.backtracking==0 ) {
+                    	      lines.add(input.LT(1).getLine());
+                    	    }
                     	    pushFollow(FOLLOW_expr_or_assign_in_sequence419);
                     	    e=expr_or_assign();
 
@@ -899,7 +911,7 @@ public class RParser extends Parser {
             }
 
             if ( state.backtracking==0 ) {
-               v = Sequence.create(stmts);
+               v = Sequence.create(stmts, lines);
             }
         }
 
@@ -11,6 +11,7 @@ public abstract class Frame {
 
     Object returnValue;  // for top-level frames, used to store REnvironment
     boolean isDirty; // FIXME: move down? empty frames can't be dirty
+    boolean escaped;
     final Frame enclosingFrame;
     final RFunction function;
     FrameExtension extension;
@@ -22,9 +23,94 @@ public abstract class Frame {
     }
 
     public abstract FrameDescriptor descriptor();
-    public abstract Object get(int i);
-    public abstract void set(int i, Object value);
 
+    // the raw content of a slot, which may be an unboxed value marker
+    protected abstract Object getSlot(int i);
+    protected abstract void setSlot(int i, Object value);
+
+    /**
+     * Marks a slot holding a scalar integer or double unboxed, in the unboxed array. Such values are written by the typed
+     * nodes (loop variables, local variables assigned the result of scalar arithmetic) and read by the typed execute
+     * methods of the nodes (e.g. executeScalarDouble), without allocation. When read through get, the value is boxed and
+     * the box is stored in the slot, so that untyped code never sees the marker.
+     */
+    public static final class Unboxed {
+        private Unboxed() {
+        }
+    }
+
+    public static final Unboxed UNBOXED_INT = new Unboxed();
+    public static final Unboxed UNBOXED_DOUBLE = new Unboxed();
+
+    long[] unboxed; // by slot, the value of an int or the bits of a double
+
+    public final Object get(int i) {
+        Object value = getSlot(i);
+        if (value instanceof Unboxed) {
+            return box(i, value);
+        }
+        return value;
+    }
+
+    public final void set(int i, Object value) {
+        setSlot(i, value);
+    }
+
+    private RAny box(int i, Object marker) {
+        RAny value;
+        if (marker == UNBOXED_INT) {
+            value = RInt.RIntFactory.getScalar((int) unboxed[i]);
+        } else {
+            value = RDouble.RDoubleFactory.getScalar(Double.longBitsToDouble(unboxed[i]));
+        }
+        setSlot(i, value);
+        return value;
+    }
+
+    public final boolean isUnboxedInt(int i) {
+        return getSlot(i) == UNBOXED_INT;
+    }
+
+    public final boolean isUnboxedDouble(int i) {
+        return getSlot(i) == UNBOXED_DOUBLE;
+    }
+
+    /** The value of a slot holding an unboxed integer (see isUnboxedInt). */
+    public final int getUnboxedInt(int i) {
+        return (int) unboxed[i];
+    }
+
+    /** The value of a slot holding an unboxed double (see isUnboxedDouble). */
+    public final double getUnboxedDouble(int i) {
+        return Double.longBitsToDouble(unboxed[i]);
+    }
+
+    /** Writes an unboxed integer, like writeAtNoRef the old value is not unref'd. */
+    public final void writeIntNoRef(int i, int value) {
+        if (unboxed == null) {
+            unboxed = new long[descriptor().numberOfSlots()];
+        }
+        unboxed[i] = value;
+        setSlot(i, UNBOXED_INT);
+    }
+
+    /** Writes an unboxed integer, the old value is unref'd. */
+    public final void writeIntRef(int i, int value) {
+        Object old = getSlot(i);
+        writeIntNoRef(i, value);
+        Utils.unref(old);
+    }
+
+    /** Writes an unboxed double, the old value is unref'd. */
+    public final void writeDoubleRef(int i, double value) {
+        if (unboxed == null) {
+            unboxed = new long[descriptor().numberOfSlots()];
+        }
+        unboxed[i] = Double.doubleToRawLongBits(value);
+        Object old = getSlot(i);
+        setSlot(i, UNBOXED_DOUBLE);
+        Utils.unref(old);
+    }
 
     public Frame enclosingFrame() {
         return enclosingFrame;
@@ -58,10 +144,35 @@ public abstract class Frame {
     public REnvironment environment() {
         if (environment == null) {
             environment = new EnvironmentImpl(this);
+            escaped = true;
         }
         return environment;
     }
 
+    /** The frame may be referenced after its function returns, by a closure, a promise or an environment. */
+    public void markEscaped() {
+        escaped = true;
+    }
+
+    /**
+     * Drops the references of the local variables (and of the values of the promises of the arguments) when the function
+     * returns, unless the frame has escaped. Variables created reflectively (in the extension) keep theirs.
+     */
+    public void release() {
+        if (escaped || NonScalarArrayImpl.unrefSuspended()) {
+            return;
+        }
+        int n = descriptor().numberOfSlots();
+        for (int i = 0; i < n; i++) {
+            Object v = getSlot(i); // unboxed values need not be boxed
+            if (v instanceof RPromise) {
+                ((RPromise) v).release();
+            } else {
+                Utils.unref(v);
+            }
+        }
+    }
+
     public void returnValue(RAny value) {
         returnValue = value;
     }
@@ -659,6 +770,7 @@ public abstract class Frame {
             } else {
                 sym.setValue(value);
                 value.ref();
+                Utils.unref(oldValue);
             }
         }
     }
@@ -678,8 +790,10 @@ public abstract class Frame {
         if (MATERIALIZE_ON_ASSIGNMENT && value instanceof View.ParametricView) {
             writeViewToTopLevel(sym, (View) value, sym.getValue()); // does ref
         } else {
+            Object oldValue = sym.getValueNoForce();
             sym.setValue(value);
             value.ref();
+            Utils.unref(oldValue);
         }
     }
 
@@ -716,8 +830,14 @@ public abstract class Frame {
         set(slot, v);
     }
 
+    // the value being overwritten, an unboxed value need not be boxed (scalars do not have reference counts)
+    private Object oldContent(int slot) {
+        Object value = getSlot(slot);
+        return value instanceof Unboxed ? null : value;
+    }
+
     public void writeAtCondRef(int slot, RAny value) {
-        Object oldContent = get(slot);
+        Object oldContent = oldContent(slot);
         if (value != oldContent) {
             if (View.ON_ASSIGNMENT_LISTENERS &&  value instanceof View) {
                 ((View) value).onAssignment(oldContent);
@@ -727,6 +847,7 @@ public abstract class Frame {
             } else {
                 set(slot, value);
                 value.ref();
+                Utils.unref(oldContent);
             }
         }
     }
@@ -741,25 +862,29 @@ public abstract class Frame {
 
     public void writeAtRef(int slot, Object value) {
         if (View.ON_ASSIGNMENT_LISTENERS &&  value instanceof View) {
-            ((View) value).onAssignment(get(slot));
+            ((View) value).onAssignment(oldContent(slot));
         }
         if (MATERIALIZE_ON_ASSIGNMENT && value instanceof View.ParametricView) {
-            writeView(slot, (View) value, get(slot));
+            writeView(slot, (View) value, oldContent(slot));
         } else {
+            Object oldContent = oldContent(slot);
             set(slot, value);
             ((RAny) value).ref();
+            Utils.unref(oldContent);
         }
     }
 
     public void writeAtRef(int slot, RAny value) {
         if (View.ON_ASSIGNMENT_LISTENERS &&  value instanceof View) {
-            ((View) value).onAssignment(get(slot));
+            ((View) value).onAssignment(oldContent(slot));
         }
         if (MATERIALIZE_ON_ASSIGNMENT && value instanceof View.ParametricView) {
-            writeView(slot, (View) value, get(slot));
+            writeView(slot, (View) value, oldContent(slot));
         } else {
+            Object oldContent = oldContent(slot);
             set(slot, value);
             value.ref();
+            Utils.unref(oldContent);
         }
     }
 
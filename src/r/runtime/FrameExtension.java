@@ -1,7 +1,5 @@
 package r.runtime;
 
-import java.util.*;
-
 import r.*;
 import r.data.*;
 import r.data.internal.*;
@@ -9,15 +7,25 @@ import r.data.internal.*;
 public class FrameExtension {
 
     protected int used = 0;
-    private int capacity = 10;
+    private int capacity;
     // NOTE: we need a third counter for the last value use for storing the lastUsed value in case of removal
 
     private int bloom; // This bloom filter comes from Alex B. (renjin)
     // Does it make any sense ? for this dynamic structures
 
     // TODO Merge these two arrays, and use unsafe casts
-    private RSymbol[] names = new RSymbol[capacity];
-    private Object[] values = new Object[capacity];
+    private RSymbol[] names;
+    private Object[] values;
+
+    public FrameExtension() {
+        this(10);
+    }
+
+    protected FrameExtension(int capacity) {
+        this.capacity = capacity;
+        names = new RSymbol[capacity];
+        values = new Object[capacity];
+    }
 
     protected Object getForcingPromises(RSymbol name) {
         int pos = getPosition(name);
@@ -74,9 +82,11 @@ public class FrameExtension {
 
     void writeAtRef(int pos, RAny value) { // TODO or not TODO assert that the good name is still here
         assert Utils.check(pos < used);
-        if (values[pos] != value) { // FIXME: note that as we have immutable scalars, and hence so many boxes, the ref will nearly always execute
+        Object oldValue = values[pos];
+        if (oldValue != value) { // FIXME: note that as we have immutable scalars, and hence so many boxes, the ref will nearly always execute
             values[pos] = value;
             value.ref();
+            Utils.unref(oldValue);
         }
     }
 
@@ -88,7 +98,7 @@ public class FrameExtension {
     protected void expand(int newCap) {
         assert Utils.check(newCap > capacity);
         RSymbol[] newNames = new RSymbol[newCap];
-        RAny[] newValues = new RAny[newCap];
+        Object[] newValues = new Object[newCap]; // can hold promises
         System.arraycopy(names, 0, newNames, 0, used);
         System.arraycopy(values, 0, newValues, 0, used);
         names = newNames;
@@ -120,20 +130,16 @@ public class FrameExtension {
 
     public static final class Hashed extends FrameExtension {
 
-        private HashMap<RSymbol, Integer> map; // FIXME: use a primitive map
+        private final SymbolIntMap map;
 
         public Hashed(int size) {
-            map = new HashMap<>(size);
+            super(Math.max(size, 10));
+            map = new SymbolIntMap(size);
         }
 
         @Override
         protected int getPosition(RSymbol name) {
-            Integer pos = map.get(name);
-            if (pos != null) {
-                return pos.intValue();
-            } else {
-                return -1;
-            }
+            return map.get(name);
         }
 
         @Override
@@ -17,13 +17,13 @@ public class NoSlotsFrame extends Frame {
     }
 
     @Override
-    public Object get(int i) {
+    protected Object getSlot(int i) {
         assert Utils.check(false, "frame has no slots");
         return null;
     }
 
     @Override
-    public void set(int i, Object value) {
+    protected void setSlot(int i, Object value) {
         assert Utils.check(false, "frame has no slots");
     }
 
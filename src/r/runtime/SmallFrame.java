@@ -26,13 +26,13 @@ public abstract class SmallFrame extends Frame {
         }
 
         @Override
-        public Object get(int i) {
+        protected Object getSlot(int i) {
             assert Utils.check(i == 0);
             return slot1;
         }
 
         @Override
-        public void set(int i, Object value) {
+        protected void setSlot(int i, Object value) {
             assert Utils.check(i == 0);
             slot1 = value;
         }
@@ -48,7 +48,7 @@ public abstract class SmallFrame extends Frame {
         }
 
         @Override
-        public Object get(int i) {
+        protected Object getSlot(int i) {
             if (i == 0) {
                 return slot1;
             }
@@ -57,7 +57,7 @@ public abstract class SmallFrame extends Frame {
         }
 
         @Override
-        public void set(int i, Object value) {
+        protected void setSlot(int i, Object value) {
             if (i == 0) {
                 slot1 = value;
             } else {
@@ -78,7 +78,7 @@ public abstract class SmallFrame extends Frame {
         }
 
         @Override
-        public Object get(int i) {
+        protected Object getSlot(int i) {
             switch(i) {
                 case 0: return slot1;
                 case 1: return slot2;
@@ -89,7 +89,7 @@ public abstract class SmallFrame extends Frame {
         }
 
         @Override
-        public void set(int i, Object value) {
+        protected void setSlot(int i, Object value) {
             switch(i) {
                 case 0:
                     slot1 = value;
@@ -117,7 +117,7 @@ public abstract class SmallFrame extends Frame {
         }
 
         @Override
-        public Object get(int i) {
+        protected Object getSlot(int i) {
             switch(i) {
                 case 0: return slot1;
                 case 1: return slot2;
@@ -129,7 +129,7 @@ public abstract class SmallFrame extends Frame {
         }
 
         @Override
-        public void set(int i, Object value) {
+        protected void setSlot(int i, Object value) {
             switch(i) {
                 case 0:
                     slot1 = value;
@@ -0,0 +1,34 @@
+package r.data.internal;
+
+import java.io.*;
+
+import org.junit.*;
+
+import r.data.internal.Connection.FileConnection;
+
+public class TestConnection {
+
+    @Test public void testMappedReader() throws IOException {
+        int threshold = MappedInput.threshold();
+        MappedInput.setThreshold(1);
+        FileConnection con = FileConnection.createOpened("test/r/simple/data/coldata/test_int.inp", ConnectionMode.get("r"));
+        try {
+            MappedInput mapped = con.mappedInput(null);
+            Assert.assertNotNull(mapped);
+            Assert.assertEquals("1", mapped.readLine());
+            // the reader continues where the mapped input stopped, and the mapped input where the reader stopped
+            BufferedReader reader = con.reader(null);
+            Assert.assertEquals("12", reader.readLine());
+            Assert.assertEquals('-', reader.read());
+            Assert.assertEquals("13", mapped.readLine());
+            Assert.assertTrue(mapped.nextField());
+            Assert.assertEquals("0", mapped.fieldString());
+            Assert.assertEquals("NA", reader.readLine());
+            Assert.assertEquals(" NA ", mapped.readLine());
+            Assert.assertNull(reader.readLine());
+        } finally {
+            con.close(null);
+            MappedInput.setThreshold(threshold);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package r.ext;
+
+import org.junit.*;
+
+import r.ext.Backends.*;
+
+public class TestBackends {
+
+    // an operation whose MKL kernel is faster than the Java one from a given size on
+    static final class StubOp extends Backends.CalibratedOp {
+        final int mklFasterFrom;
+
+        StubOp(int mklFasterFrom) {
+            super("stub", Backend.MKL);
+            this.mklFasterFrom = mklFasterFrom;
+        }
+
+        @Override long time(int n, boolean java) {
+            boolean mklFaster = n >= mklFasterFrom;
+            return java == mklFaster ? 2 : 1;
+        }
+
+        @Override void javaKernel(double[] x, double[] y, double[] res, int n) {
+        }
+
+        @Override void mklKernel(double[] x, double[] y, double[] res, int n) {
+        }
+    }
+
+    @Test public void testCalibrate() {
+        Assert.assertEquals(128, new StubOp(128).calibrate());
+        Assert.assertEquals(8, new StubOp(0).calibrate());
+        Assert.assertEquals(Integer.MAX_VALUE, new StubOp(Integer.MAX_VALUE).calibrate());
+    }
+}
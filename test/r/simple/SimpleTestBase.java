@@ -10,6 +10,7 @@ import r.builtins.internal.*;
 import r.data.*;
 import r.errors.*;
 import r.nodes.ast.*;
+import r.nodes.exec.ParallelArithmetic;
 import r.nodes.tools.*;
 
 // simple tests run string snippets of R code (usually one line) using debugging output format
@@ -91,6 +92,33 @@ public class SimpleTestBase extends TestBase {
         }
     }
 
+    /**
+     * A global setting changed for some assertions. The previous value is restored by close(), so that the setting can
+     * be used in a try-with-resources statement:
+     *
+     * <pre>
+     * try (Setting s = parallelArithmetic(1000, 4)) {
+     *     assertEval(...);
+     * }
+     * </pre>
+     */
+    abstract static class Setting implements AutoCloseable {
+        @Override
+        public abstract void close();
+    }
+
+    static Setting parallelArithmetic(int threshold, int threads) {
+        final int oldThreshold = ParallelArithmetic.threshold();
+        final int oldThreads = ParallelArithmetic.parallelism();
+        ParallelArithmetic.configure(threshold, threads);
+        return new Setting() {
+            @Override
+            public void close() {
+                ParallelArithmetic.configure(oldThreshold, oldThreads);
+            }
+        };
+    }
+
     /** Evaluates the given R expression and returns the returned value.
      */
     // USES DEBUGGING OUTPUT
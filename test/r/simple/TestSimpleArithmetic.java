@@ -3,6 +3,8 @@ package r.simple;
 import org.antlr.runtime.*;
 import org.junit.*;
 
+import r.nodes.exec.*;
+
 public class TestSimpleArithmetic extends SimpleTestBase {
 
     @Test
@@ -335,6 +337,11 @@ public class TestSimpleArithmetic extends SimpleTestBase {
         assertEval("{ m <- matrix(c(NA,1,4,2), nrow=2) ; t(m) %*% m }", "     [,1] [,2]\n[1,]   NA   NA\n[2,]   NA 20.0");
         assertEval("{ matrix(c(3,1,0/0,2), nrow=2) %*% matrix(1:6,nrow=2) }", "     [,1] [,2] [,3]\n[1,]  NaN  NaN  NaN\n[2,]  5.0 11.0 17.0");
         assertEvalError("{ as.raw(1:3) %*% 1:3 }", "requires numeric/complex matrix/vector arguments");
+        assertEval("{ a <- matrix((1:800) / 7, 200, 4) ; b <- t(a) %*% a ; s <- 0 ; for (k in 1:200) s <- s + a[k, 2] * a[k, 3] ; c(b[2, 3] == s, b[3, 2] == s, identical(b, crossprod(a))) }", "TRUE, TRUE, TRUE");
+        // more rows than a block of the dot products, still summed in the order of the naive loop
+        assertEval("{ a <- matrix(sqrt(1:2400), 600, 4) ; b <- t(a) %*% a ; c <- crossprod(a, a[, 4:1]) ; s <- 0 ; u <- 0 ; for (k in 1:600) { s <- s + a[k, 2] * a[k, 3] ; u <- u + a[k, 1] * a[k, 1] } ; c(b[2, 3] == s, b[3, 2] == s, c[2, 2] == s, b[1, 1] == u) }", "TRUE, TRUE, TRUE, TRUE");
+        assertEval("{ a <- matrix((1:60000) / 7, 300, 200) ; b <- matrix((1:600) / 3, 200, 3) ; c <- a %*% b ; s <- 0 ; for (k in 1:200) s <- s + a[299, k] * b[k, 3] ; c(dim(c), c[299, 3] == s) }", "300L, 3L, 1L");
+        assertEval("{ f <- function(x) t(x) %*% x ; m <- matrix(1:4, 2) ; t <- function(x) x ; f(m) }", "     [,1] [,2]\n[1,]  7.0 15.0\n[2,] 10.0 22.0");
 
         // outer product
         assertEval("{ 1:3 %o% 1:2 }", "     [,1] [,2]\n[1,]  1.0  2.0\n[2,]  2.0  4.0\n[3,]  3.0  6.0");
@@ -355,7 +362,7 @@ public class TestSimpleArithmetic extends SimpleTestBase {
         assertEval("{ 0 || 0 }", "FALSE");
         assertEval("{ 1 || 0 }", "TRUE");
         assertEval("{ NA || 1 }", "TRUE");
-        assertEval("{ NA || 0 }", "FALSE");
+        assertEval("{ NA || 0 }", "NA");
         assertEval("{ 0 || NA }", "NA");
         assertEval("{ x <- 1 ; f <- function(r) { x <<- 2; r } ; NA || f(NA) ; x }", "2.0");
         assertEval("{ x <- 1 ; f <- function(r) { x <<- 2; r } ; TRUE || f(FALSE) ; x } ", "1.0");
@@ -480,6 +487,46 @@ public class TestSimpleArithmetic extends SimpleTestBase {
 
     }
 
+    @Test
+    public void testFusedMaterialization() throws RecognitionException {
+        // long enough to create views, materialized by cumsum and rep
+        assertEval("{ a <- as.double(1:40) ; b <- 40:1 ; x <- cumsum(a * 2 + b * 0.5 - 1L) ; x[c(1,2,40)] }", "21.0, 43.5, 2010.0");
+        assertEval("{ i <- rep(c(1L, NA), 20) ; x <- rep((i + 0.5) * (1:40) + 1, 1) ; x[1:4] }", "2.5, NA, 5.5, NA");
+        assertEval("{ s <- seq(2L, 80L, 2L) ; x <- rep(1 / (s * 2 + s * s), 2) ; x[c(1,2,41)] }", "0.125, 0.041666666666666664, 0.125");
+    }
+
+    @Test
+    public void testViewDepth() throws RecognitionException {
+        Arithmetic.VectorPolicy policy = Arithmetic.vectorPolicy();
+        int maxViewDepth = Arithmetic.maxViewDepth();
+        try {
+            for (Arithmetic.VectorPolicy p : Arithmetic.VectorPolicy.values()) {
+                Arithmetic.setVectorPolicy(p, 4);
+                // deeper than the limit, through views of different nodes (profiled with the adaptive policy) and of one node
+                assertEval("{ x <- as.double(1:100) ; y <- (((((((x + 1) * 2) - 1) / 2) + 3) * 2 - x) + 1) * x ; y[c(1, 100)] }", "9.0, 10800.0");
+                assertEval("{ f <- function(v) { for (i in 1:3) v <- (v + 1) * 2 - v ; v } ; x <- as.double(1:100) ; for (j in 1:3) x <- f(x) ; x[c(1, 100)] }", "19.0, 118.0");
+                assertEval("{ x <- as.double(1:100) ; for (i in 1:2000) x <- x + 1 ; x[c(1, 100)] }", "2001.0, 2100.0");
+            }
+        } finally {
+            Arithmetic.setVectorPolicy(policy, maxViewDepth);
+        }
+    }
+
+    @Test
+    public void testParallelArithmetic() throws RecognitionException {
+        try (Setting s = parallelArithmetic(1000, 4)) {
+            // long enough to be split into several tasks
+            assertEval("{ x <- as.double(1:300000) ; y <- cumsum(x * 2 + x / 4 - 1) ; y[c(1, 150000, 300000)] }", "1.25, 2.531251875E10, 1.012500375E11");
+            assertEval("{ i <- rep(c(1L, NA), 150000) ; y <- cumsum((i + 0.5) * as.double(1:300000)) ; y[1:3] }", "1.5, NA, NA");
+            assertEval("{ x <- as.double(1:300000) ; c(sum(x > 1000), sum(250000.5 <= x), sum((1:300000) == 7L), sum(3L < 1:300000)) }", "299000L, 50000L, 1L, 299997L");
+            assertEval("{ x <- as.double(1:3000) ; y <- x * 2 ; z <- 3 / y ; z[c(1, 3000)] }", "1.5, 5.0E-4");
+            // operations that may warn stay sequential, so the warning is reported
+            assertEvalWarning("{ x <- rep(1e20, 3000) ; y <- x %% 3 ; sum(y) }", "0.0", "probable complete loss of accuracy in modulus");
+            assertEvalWarning("{ x <- rep(1e20, 3000) ; y <- (x + 1) %% 3 ; sum(y) }", "0.0", "probable complete loss of accuracy in modulus");
+            assertEval("{ x <- as.double(1:3000) ; y <- (x * 3) %/% 2 ; y[c(1, 3000)] }", "1.0, 4500.0");
+        }
+    }
+
     @Test
     public void testArithmeticUpdate() throws RecognitionException {
         assertEval("{ x <- 3 ; f <- function(z) { if (z) { x <- 1 } ; x <- x + 1L ; x } ; f(FALSE) }", "4.0");
@@ -3,6 +3,11 @@ package r.simple;
 import org.antlr.runtime.*;
 import org.junit.*;
 
+import r.*;
+import r.data.*;
+import r.nodes.ast.*;
+import r.nodes.tools.*;
+
 public class TestSimpleAssignment extends SimpleTestBase {
     @Test
     public void testAssign() throws RecognitionException {
@@ -32,6 +37,19 @@ public class TestSimpleAssignment extends SimpleTestBase {
         assertEval("{ l <- quote(x <- 1) ; f <- function() { eval(l) ; x <<- 10 ; get(\"x\") } ; f() }", "1.0");
     }
 
+    @Test
+    public void testCopySemantics() throws RecognitionException {
+        // values no longer referenced are updated in place, the others have to be copied
+        assertEval("{ f <- function(v) v ; x <- c(1,2) ; y <- f(x) ; x[1] <- 9 ; y }", "1.0, 2.0");
+        assertEval("{ f <- function(v) { v[1] <- 5 ; v } ; x <- c(1,2) ; z <- f(x) ; x }", "1.0, 2.0");
+        assertEval("{ x <- c(1,2) ; y <- x ; y <- 0 ; x[1] <- 3 ; x }", "3.0, 2.0");
+        assertEval("{ x <- c(1,2) ; l <- list(x) ; x[1] <- 7 ; l[[1]] }", "1.0, 2.0");
+        assertEval("{ f <- function(...) list(...) ; x <- c(1,2) ; l <- f(x) ; x[2] <- 0 ; l[[1]] }", "1.0, 2.0");
+        assertEval("{ f <- function() { a <- c(1,2) ; function() a } ; g <- f() ; b <- g() ; b[1] <- 10 ; g() }", "1.0, 2.0");
+        assertEval("{ f <- function(v) v[1] ; g <- function(n) { x <- double(n) ; for (i in 1:n) { f(x) ; x[i] <- i } ; x } ; g(3) }", "1.0, 2.0, 3.0");
+        assertEval("{ set.seed(1) ; s <- .Random.seed ; s[2] <- 0L ; .Random.seed[2] != 0L }", "TRUE");
+    }
+
     @Test
     public void testMisc() throws RecognitionException {
         // some tests are just for corner cases of lookup, not necessarily with assignment
@@ -44,5 +62,33 @@ public class TestSimpleAssignment extends SimpleTestBase {
         assertEvalError("{ f <- function() { if (FALSE) { x <- 1 } ; g <- function() { x } ; g() } ; f() }", "object 'x' not found");
         assertEval("{ f <- function() { if (FALSE) { c <- 1 } ; g <- function() { c } ; g() } ; typeof(f()) }", "\"builtin\"");
     }
-}
 
+    @Test
+    public void testContexts() throws Exception {
+        // scripts evaluated concurrently in different contexts have their own top-level variables
+        final String[] scripts = {"{ x <- 0 ; f <- function(i) { i * 2 } ; for (i in 1:20000) x <- x + f(i) ; x }", "{ x <- 1L ; f <- function(i) { 1L } ; for (i in 1:20000) x <- x * f(i) ; x }"};
+        final String[] results = new String[scripts.length];
+        Thread[] threads = new Thread[scripts.length];
+        for (int i = 0; i < scripts.length; i++) {
+            final int index = i;
+            final ASTNode script = TestPP.parse(scripts[i]);
+            final RContext context = RContext.createContext(null);
+            threads[i] = new Thread() {
+                @Override public void run() {
+                    RContext.enter(context);
+                    results[index] = RContext.eval(script, true).pretty();
+                }
+            };
+        }
+        for (Thread t : threads) {
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        Assert.assertEquals("4.0002E8", results[0]);
+        Assert.assertEquals("1L", results[1]);
+        Assert.assertNull(RSymbol.getSymbol("x").getValue());
+        assertEval("{ x <- 2 ; x }", "2.0");
+    }
+}
@@ -208,4 +208,75 @@ public class TestSimpleFunctions extends SimpleTestBase {
         assertEval("{ f <- function(o) { x <- 10 ; if (o) { x <- 10 * x ; return(x+x) } ; return(x) } ; c(f(FALSE),f(TRUE)) }", "10.0, 200.0");
         assertEval("{ f <- function(o) { x <- 10:11 ; if (o) { x <- 10 * x ; return(x+x) } ; return(x) } ; c(f(FALSE),f(TRUE)) ; return <- sum ;  c(f(FALSE),f(TRUE)) }", "21.0, 210.0");
     }
+
+    @Test
+    public void testTier2() throws RecognitionException {
+        int threshold = Tier2.threshold();
+        boolean background = Tier2.background();
+        Tier2.configure(3, false);
+        try {
+            // the calls after the third one are executed by the compiled code
+            assertEval("{ f <- function(i, j) 1 / ((i + j) * (i + j + 1) / 2 + i + 1) ; s <- 0 ; for (i in 0:9) for (j in 0:9) s <- s + f(i, j) ; s }", "5.1091126806970495");
+            assertEval("{ f <- function(n) { s <- 0L ; for (k in 1:n) { if (k %% 2L == 0L) next ; s <- s + k } ; s } ; x <- 0L ; for (i in 1:20) x <- x + f(i) ; x }", "770L");
+            assertEval("{ k <- 3 ; f <- function(x) { r <- 0 ; repeat { r <- r + k ; if (r >= x) break } ; r } ; s <- 0 ; for (i in 1:10) s <- s + f(i) ; s }", "66.0");
+            assertEval("{ f <- function(a, b) { while (a > b && b >= 0) a <- a - 1 ; a } ; y <- 0 ; for (i in 1:20) y <- y + f(i * 2.5, 3) ; y }", "55.0");
+            assertEval("{ f <- function(a, b) (a && !b) || (!a && b) ; c(f(TRUE, TRUE), f(TRUE, TRUE), f(TRUE, TRUE), f(TRUE, FALSE), f(FALSE, TRUE), f(FALSE, FALSE)) }", "FALSE, FALSE, FALSE, TRUE, TRUE, FALSE");
+            assertEval("{ f <- function(a, b = 2) a %/% b + a %% b ; c(f(7), f(7), f(7), f(7, 3), f(-7, 3)) }", "4.0, 4.0, 4.0, 3.0, -1.0");
+            // NA logicals
+            assertEval("{ f <- function(x) x && NA ; g <- function(x) x || NA ; for (i in 1:5) { f(TRUE) ; g(FALSE) } ; c(f(TRUE), f(FALSE), g(FALSE), g(TRUE)) }", "NA, FALSE, NA, TRUE");
+            assertEval("{ f <- function(x, y) x || y ; for (i in 1:5) f(FALSE, TRUE) ; c(f(NA, FALSE), f(NA, TRUE), f(FALSE, NA)) }", "NA, TRUE, NA");
+            assertEval("{ f <- function(x) { z <- NA ; if (x > 0) z <- TRUE ; z } ; for (i in 1:5) f(i) ; c(f(-1), f(1)) }", "NA, TRUE");
+            assertEval("{ f <- function(x) if (x > 0) NA else TRUE ; for (i in 1:5) f(i) ; c(f(1), f(-1)) }", "NA, TRUE");
+            // a different type of an argument, an integer overflow
+            assertEval("{ f <- function(x) x * 2L ; for (i in 1:5) f(i) ; c(f(3L), f(2.5)) }", "6.0, 5.0");
+            assertEvalWarning("{ f <- function(x) x * 1000000000L ; for (i in 1:5) f(1L) ; f(3L) }", "NA", "NAs produced by integer overflow");
+            assertEvalError("{ f <- function(x) if (x > 0) 1 else 2 ; for (i in 1:5) f(i) ; f(as.integer(NA)) }", "missing value where TRUE/FALSE needed");
+            // a warning is not repeated when the call is re-executed by the interpreter
+            String warnings = testEval("{ f <- function(x, y) { z <- x %% 3 ; w <- y * 1000000000L ; z } ; for (i in 1:5) f(1e17, 1L) ; f(1e17, 3L) }").stderr;
+            Assert.assertEquals(6, warnings.split("loss of accuracy", -1).length - 1);
+            assertEvalError("{ f <- function(n) { s <- 0 ; for (i in 1:n) s <- s + i ; s } ; for (i in 1:5) f(i) ; f(as.integer(NA)) }", "NA/NaN argument");
+            // arguments are forced lazily, a local read before it is written is a free variable
+            assertEval("{ f <- function(a, b) if (a > 0) b else 0 ; for (i in 1:5) f(1, 2) ; f(-1, stop(\"not forced\")) }", "0.0");
+            assertEval("{ x <- 10 ; f <- function(c) { if (c) x <- 1 ; x } ; for (i in 1:5) f(TRUE) ; f(FALSE) }", "10.0");
+            assertEval("{ f <- function(x) { y <- x * 2 ; return(y) } ; for (i in 1:5) f(i) ; return <- is.na ; f(1) }", "FALSE");
+        } finally {
+            Tier2.configure(threshold, background);
+        }
+    }
+
+    @Test
+    public void testCallCache() throws RecognitionException {
+        // closures of different definitions called from one site, with named, partially matched and ... arguments
+        assertEval("{ fs <- list(function(x, y) x - y, function(y, x) x - y, function(xx, ...) xx) ; g <- function(f) f(y = 1, x = 5) ; r <- 0 ; for (i in 1:3) for (j in 1:3) r <- r + g(fs[[j]]) ; r }", "39.0");
+        assertEval("{ fs <- list(function(alpha, beta = 2) alpha * beta, function(beta, alpha) alpha - beta) ; g <- function(f) f(be = 3, 5) ; c(g(fs[[1]]), g(fs[[2]]), g(fs[[1]])) }", "15.0, 2.0, 15.0");
+        assertEval("{ mk <- function(k) function(a, b) a * k + b ; g <- function(f) f(b = 1, 2) ; s <- 0 ; for (k in 1:4) s <- s + g(mk(k)) ; s }", "24.0");
+        assertEvalError("{ fs <- list(function(a) a, function(b) b) ; g <- function(f) f(a = 1) ; g(fs[[1]]) ; g(fs[[2]]) }", "unused argument(s) (a = 1.0)");
+        int cacheSize = FunctionCall.cacheSize();
+        FunctionCall.configure(1);
+        try {
+            // the second function makes the site megamorphic
+            assertEval("{ fs <- list(function(x, y) x - y, function(y, x) x - y, function(xx, ...) xx) ; g <- function(f) f(y = 1, x = 5) ; r <- 0 ; for (i in 1:3) for (j in 1:3) r <- r + g(fs[[j]]) ; r }", "39.0");
+            // then runs of calls to the same function hit the last one
+            assertEval("{ fs <- list(function(x, y) x - y, function(y, x) x * y, function(xx, ...) xx) ; g <- function(f) f(y = 1, x = 5) ; r <- 0 ; for (j in c(1, 2, 2, 3, 3, 1, 1)) r <- r + g(fs[[j]]) ; r }", "32.0");
+        } finally {
+            FunctionCall.configure(cacheSize);
+        }
+    }
+
+    @Test
+    public void testEagerArguments() throws RecognitionException {
+        // constants and variables with values are passed without promises
+        assertEval("{ k <- function(i, j) i * 10 + j ; m <- function() { s <- 0 ; for (i in 1:3) for (j in 1:2) s <- s + k(i, j) ; s } ; m() }", "129.0");
+        assertEval("{ d <- function(a, b = 2L) a + b ; c(d(1L), d(1L, 5L), d(b = 1L, 3L)) }", "3L, 6L, 4L");
+        assertEval("{ g <- function(v) { v[1] <- 10 ; v } ; h <- function() { x <- c(1,2) ; y <- g(x) ; c(x, y) } ; h() }", "1.0, 2.0, 10.0, 2.0");
+        assertEval("{ g <- function(v) { v[1] <- 10 ; v } ; x <- c(1,2) ; y <- g(x) ; c(x, y) }", "1.0, 2.0, 10.0, 2.0");
+        // but not where the difference can be seen
+        assertEval("{ f <- function(x) deparse(substitute(x)) ; a <- 3 ; f(a) }", "\"a\"");
+        assertEval("{ f <- function(a = 1) missing(a) ; c(f(), f(2)) }", "TRUE, FALSE");
+        assertEval("{ delayedAssign(\"v\", stop(\"forced\")) ; f <- function(x, y) if (y) x else 0 ; f(v, FALSE) }", "0.0");
+        assertEval("{ f <- function(a) g(a) ; g <- function(b) if (FALSE) b else 1 ; f(stop(\"x\")) }", "1.0");
+        assertEval("{ f <- function(x) sqrt(x) ; y <- 4 ; z <- f(y) ; sqrt <- function(x) { y <<- 9 ; x } ; c(z, f(y)) }", "2.0, 9.0");
+        assertEval("{ f <- function(x) { y <<- 9 ; x } ; y <- 4 ; f(y) }", "9.0");
+        assertEval("{ f <- function(x) { y <- 9 ; x } ; g <- function() { y <- 4 ; f(y) } ; g() }", "4.0");
+    }
 }
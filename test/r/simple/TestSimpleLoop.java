@@ -48,6 +48,32 @@ public class TestSimpleLoop extends SimpleTestBase {
         assertEval("{ i <- 1 ; r <- NULL ; for(v in list(NA,1)) { r[i] <- typeof(v) ; i <- i + 1 } ; r }", "\"logical\", \"double\"");
     }
 
+    @Test
+    public void testUnboxed() throws RecognitionException {
+        assertEval("{ f <- function(n) { s <- 0 ; for(i in 1:n) { s <- s + i * 0.5 } ; s } ; f(10) }", "27.5");
+        assertEval("{ f <- function(n) { s <- 0L ; for(i in 1:n) { s <- s + i } ; s } ; f(10) ; f(100) }", "5050L");
+        assertEval("{ f <- function(n) { s <- 0L ; for(i in 1:n) { s <- s + i ; if (i == 2) { s <- s + 0.5 } } ; s } ; f(4) }", "10.5");
+        assertEval("{ f <- function(n) { s <- 0 ; for(i in 1:n) { s <- s + i ; if (i == 3) { s <- c(s, 1) } } ; s } ; f(5) }", "15.0, 10.0");
+        assertEval("{ f <- function() { s <- 0 ; for(i in 1:2) { s <- s + as.double(NA) } ; s } ; f() }", "NA");
+        assertEval("{ f <- function() { x <- 2147483647L ; y <- 0L ; for(i in 1:2) { y <- x + i } ; y } ; f() }", "NA");
+        assertEval("{ f <- function(n) { l <- list() ; for(i in 1:n) { v <- i * 2 ; l[[i]] <- v } ; l } ; f(2) }", "[[1]]\n2.0\n\n[[2]]\n4.0");
+        assertEval("{ f <- function() { for(i in 1:3) { j <- i * 10L } ; function() j + i } ; g <- f() ; g() }", "33L");
+        assertEval("{ f <- function(n) { c <- 0L ; for(i in 1:n) { c <- c + 1L } ; c(c, i) } ; f(5) }", "5L, 5L");
+    }
+
+    @Test
+    public void testElementwise() throws RecognitionException {
+        assertEval("{ f <- function(n, a, b) { x <- as.double(1:n) ; y <- numeric(n) ; for(i in 1:n) y[i] <- a * x[i] + b ; c(y, i) } ; f(3, 2, 1) ; f(4, 2L, 1L) }", "3.0, 5.0, 7.0, 9.0, 4.0");
+        assertEval("{ f <- function() { y <- c(1, 2, 3) ; z <- y ; for(i in 1:3) y[i] <- y[i] * 10 ; c(y, z) } ; f() }", "10.0, 20.0, 30.0, 1.0, 2.0, 3.0");
+        assertEval("{ f <- function() { x <- c(1, NA, 3) ; y <- numeric(3) ; for(i in 1:3) y[i] <- x[i] + 1 ; y } ; f() }", "2.0, NA, 4.0");
+        assertEval("{ f <- function() { x <- c(1, 2) ; y <- numeric(4) ; for(i in 1:4) y[i] <- x[i] + 1 ; y } ; f() }", "2.0, 3.0, NA, NA");
+        assertEval("{ f <- function() { y <- numeric(5) ; for(i in 2:4) y[i] <- i ^ 2 ; y } ; f() }", "0.0, 4.0, 9.0, 16.0, 0.0");
+        assertEval("{ f <- function(y) { for(i in 1:3) y[i] <- y[i] + 1 ; y } ; v <- c(1, 2, 3) ; c(f(v), v) }", "2.0, 3.0, 4.0, 1.0, 2.0, 3.0");
+        assertEval("{ f <- function() { y <- c(a=1, b=2) ; for(i in 1:2) y[i] <- y[i] - 1 ; y } ; f() }", "  a   b\n0.0 1.0");
+        assertEval("{ f <- function() { y <- numeric(3) ; g <- function() { for(i in 1:3) y[i] <- i * 1.5 ; y } ; c(g(), y) } ; f() }", "1.5, 3.0, 4.5, 0.0, 0.0, 0.0");
+        assertEval("{ y <- numeric(3) ; x <- c(4, 5, 6) ; for(i in 1:3) y[i] <- x[i] / 2 ; y }", "2.0, 2.5, 3.0");
+    }
+
     @Test
     public void testDynamic() throws RecognitionException {
         assertEval("{ l <- quote({x <- 0 ; for(i in 1:10) { x <- x + i } ; x}) ; f <- function() { eval(l) } ; x <<- 10 ; f() }", "55.0");
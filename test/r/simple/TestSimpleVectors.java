@@ -1059,6 +1059,9 @@ public class TestSimpleVectors extends SimpleTestBase {
         assertEval("{ c(\"1L\",\"hello\") %in% 1:10 }", "TRUE, FALSE");
         assertEval("{ (1 + 2i) %in% c(1+10i, 1+4i, 2+2i, 1+2i) }", "TRUE");
         assertEval("{ as.logical(-1:1) %in% TRUE }", "TRUE, FALSE, TRUE");
+        assertEval("{ c(1, NA, 0/0, -0) %in% c(0/0, 0) }", "FALSE, FALSE, TRUE, TRUE");
+        assertEval("{ c(\"a\", NA) %in% c(NA, \"b\", \"a\") }", "TRUE, TRUE");
+        assertEval("{ t <- c(1:100, 1L) ; r <- 0 ; for (i in 1:10) r <- r + sum(c(5L, 500L) %in% t) ; t[5] <- 0L ; c(r, 5L %in% t, 0L %in% t) }", "10.0, 0.0, 1.0");
         assertEvalError("{ x <- function(){1} ; x %in% TRUE }", "'match' requires vector arguments");
     }
 